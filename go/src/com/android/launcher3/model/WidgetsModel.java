@@ -51,6 +51,13 @@ public class WidgetsModel {
         return EMPTY_WIDGET_LIST;
     }
 
+    /**
+     * Returns whether the widgets changed since the last call to {@link #getWidgetsList}.
+     */
+    public synchronized boolean hasChanges() {
+        return false;
+    }
+
     /**
      * @param packageUser If null, all widgets and shortcuts are updated and returned, otherwise
      *                    only widgets and shortcuts associated with the package/user are.
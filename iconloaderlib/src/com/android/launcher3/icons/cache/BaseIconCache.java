@@ -72,6 +72,10 @@ public abstract class BaseIconCache {
     public static class CacheEntry extends BitmapInfo {
         public CharSequence title = "";
         public CharSequence contentDescription = "";
+        // Keys derived from the title, see updateLabelKeys
+        public String searchKeys;
+        public byte[] sortKey;
+        public String sectionName;
     }
 
     private final HashMap<UserHandle, BitmapInfo> mDefaultIcons = new HashMap<>();
@@ -235,6 +239,27 @@ public abstract class BaseIconCache {
         mSystemState = locale + "," + Build.VERSION.SDK_INT;
     }
 
+    /**
+     * Updates the keys derived from the title of {@param entry}, used to search and sort it.
+     * These are persisted along with the label, so that they are only computed when the label or
+     * the system state changes.
+     */
+    protected void updateLabelKeys(CacheEntry entry) {
+        entry.searchKeys = null;
+        entry.sortKey = null;
+        entry.sectionName = null;
+    }
+
+    private void updateLabelKeys(CacheEntry entry, CachingLogic<?> cachingLogic) {
+        if (cachingLogic.needsLabelKeys()) {
+            updateLabelKeys(entry);
+        } else {
+            entry.searchKeys = null;
+            entry.sortKey = null;
+            entry.sectionName = null;
+        }
+    }
+
     protected String getIconSystemState(String packageName) {
         return mSystemState;
     }
@@ -266,10 +291,10 @@ public abstract class BaseIconCache {
         }
         entry.title = cachingLogic.getLabel(object);
         entry.contentDescription = mPackageManager.getUserBadgedLabel(entry.title, user);
+        updateLabelKeys(entry, cachingLogic);
         mCache.put(key, entry);
 
-        ContentValues values = newContentValues(entry, entry.title.toString(),
-                componentName.getPackageName());
+        ContentValues values = newContentValues(entry, entry, componentName.getPackageName());
         addIconToDB(values, componentName, info, userSerial);
     }
 
@@ -342,6 +367,9 @@ public abstract class BaseIconCache {
                             packageEntry.applyTo(entry);
                             entry.title = packageEntry.title;
                             entry.contentDescription = packageEntry.contentDescription;
+                            entry.searchKeys = packageEntry.searchKeys;
+                            entry.sortKey = packageEntry.sortKey;
+                            entry.sectionName = packageEntry.sectionName;
                         }
                     }
                     if (entry.icon == null) {
@@ -360,6 +388,7 @@ public abstract class BaseIconCache {
                 if (object != null) {
                     entry.title = cachingLogic.getLabel(object);
                     entry.contentDescription = mPackageManager.getUserBadgedLabel(entry.title, user);
+                    updateLabelKeys(entry, cachingLogic);
                 }
             }
         }
@@ -388,6 +417,7 @@ public abstract class BaseIconCache {
         }
         if (!TextUtils.isEmpty(title)) {
             entry.title = title;
+            updateLabelKeys(entry);
         }
         if (icon != null) {
             BaseIconFactory li = getIconFactory();
@@ -439,13 +469,13 @@ public abstract class BaseIconCache {
 
                     entry.title = appInfo.loadLabel(mPackageManager);
                     entry.contentDescription = mPackageManager.getUserBadgedLabel(entry.title, user);
+                    updateLabelKeys(entry);
                     entry.icon = useLowResIcon ? LOW_RES_ICON : iconInfo.icon;
                     entry.color = iconInfo.color;
 
                     // Add the icon in the DB here, since these do not get written during
                     // package updates.
-                    ContentValues values = newContentValues(
-                            iconInfo, entry.title.toString(), packageName);
+                    ContentValues values = newContentValues(iconInfo, entry, packageName);
                     addIconToDB(values, cacheKey.componentName, info, getSerialNumberForUser(user));
 
                 } catch (NameNotFoundException e) {
@@ -482,11 +512,22 @@ public abstract class BaseIconCache {
                     entry.contentDescription = mPackageManager.getUserBadgedLabel(
                             entry.title, cacheKey.user);
                 }
+                entry.searchKeys = c.getString(2);
+                if (TextUtils.equals(c.getString(5),
+                        getIconSystemState(cacheKey.componentName.getPackageName()))) {
+                    entry.sortKey = c.getBlob(3);
+                    entry.sectionName = c.getString(4);
+                } else {
+                    // Computed for a different locale, the entry will be refreshed in the
+                    // background, until then the title is sorted directly.
+                    entry.sortKey = null;
+                    entry.sectionName = null;
+                }
 
                 if (lowRes) {
                     entry.icon = LOW_RES_ICON;
                 } else {
-                    byte[] data = c.getBlob(2);
+                    byte[] data = c.getBlob(6);
                     try {
                         entry.icon = BitmapFactory.decodeByteArray(data, 0, data.length,
                                 mDecodeOptions);
@@ -505,7 +546,7 @@ public abstract class BaseIconCache {
     }
 
     static final class IconDB extends SQLiteCacheHelper {
-        private final static int RELEASE_VERSION = 26;
+        private final static int RELEASE_VERSION = 28;
 
         public final static String TABLE_NAME = "icons";
         public final static String COLUMN_ROWID = "rowid";
@@ -516,12 +557,18 @@ public abstract class BaseIconCache {
         public final static String COLUMN_ICON = "icon";
         public final static String COLUMN_ICON_COLOR = "icon_color";
         public final static String COLUMN_LABEL = "label";
+        public final static String COLUMN_SEARCH_KEYS = "search_keys";
+        public final static String COLUMN_SORT_KEY = "sort_key";
+        public final static String COLUMN_SECTION_NAME = "section_name";
         public final static String COLUMN_SYSTEM_STATE = "system_state";
 
         public final static String[] COLUMNS_HIGH_RES = new String[] {
-                IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL, IconDB.COLUMN_ICON };
+                IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL, IconDB.COLUMN_SEARCH_KEYS,
+                IconDB.COLUMN_SORT_KEY, IconDB.COLUMN_SECTION_NAME, IconDB.COLUMN_SYSTEM_STATE,
+                IconDB.COLUMN_ICON };
         public final static String[] COLUMNS_LOW_RES = new String[] {
-                IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL };
+                IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL, IconDB.COLUMN_SEARCH_KEYS,
+                IconDB.COLUMN_SORT_KEY, IconDB.COLUMN_SECTION_NAME, IconDB.COLUMN_SYSTEM_STATE };
 
         public IconDB(Context context, String dbFileName, int iconPixelSize) {
             super(context, dbFileName, (RELEASE_VERSION << 16) + iconPixelSize, TABLE_NAME);
@@ -537,19 +584,26 @@ public abstract class BaseIconCache {
                     COLUMN_ICON + " BLOB, " +
                     COLUMN_ICON_COLOR + " INTEGER NOT NULL DEFAULT 0, " +
                     COLUMN_LABEL + " TEXT, " +
+                    COLUMN_SEARCH_KEYS + " TEXT, " +
+                    COLUMN_SORT_KEY + " BLOB, " +
+                    COLUMN_SECTION_NAME + " TEXT, " +
                     COLUMN_SYSTEM_STATE + " TEXT, " +
                     "PRIMARY KEY (" + COLUMN_COMPONENT + ", " + COLUMN_USER + ") " +
                     ");");
         }
     }
 
-    private ContentValues newContentValues(BitmapInfo bitmapInfo, String label, String packageName) {
+    private ContentValues newContentValues(BitmapInfo bitmapInfo, CacheEntry labelEntry,
+            String packageName) {
         ContentValues values = new ContentValues();
         values.put(IconDB.COLUMN_ICON,
                 bitmapInfo.isLowRes() ? null : GraphicsUtils.flattenBitmap(bitmapInfo.icon));
         values.put(IconDB.COLUMN_ICON_COLOR, bitmapInfo.color);
 
-        values.put(IconDB.COLUMN_LABEL, label);
+        values.put(IconDB.COLUMN_LABEL, labelEntry.title.toString());
+        values.put(IconDB.COLUMN_SEARCH_KEYS, labelEntry.searchKeys);
+        values.put(IconDB.COLUMN_SORT_KEY, labelEntry.sortKey);
+        values.put(IconDB.COLUMN_SECTION_NAME, labelEntry.sectionName);
         values.put(IconDB.COLUMN_SYSTEM_STATE, getIconSystemState(packageName));
 
         return values;
@@ -30,4 +30,10 @@ public interface CachingLogic<T> {
     CharSequence getLabel(T object);
 
     void loadIcon(Context context, T object, BitmapInfo target);
+
+    /**
+     * Returns true if the search and sort keys of the label are needed, see
+     * {@link BaseIconCache#updateLabelKeys}. Only the items listed in all apps need them.
+     */
+    boolean needsLabelKeys();
 }
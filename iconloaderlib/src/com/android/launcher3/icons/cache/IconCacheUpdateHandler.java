@@ -77,6 +77,13 @@ public class IconCacheUpdateHandler {
         createPackageInfoMap();
     }
 
+    /**
+     * Returns the info of an installed package, as read when this handler was created, or null.
+     */
+    public PackageInfo getPackageInfo(String packageName) {
+        return mPkgInfoMap.get(packageName);
+    }
+
     public void setPackagesToIgnore(UserHandle userHandle, Set<String> packages) {
         mPackagesToIgnore.put(userHandle, packages);
     }
@@ -66,6 +66,35 @@ public abstract class SQLiteCacheHelper {
         }
     }
 
+    /**
+     * Groups the following writes in a single transaction, which must be closed with
+     * {@link #endTransaction()}.
+     * @see SQLiteDatabase#beginTransaction()
+     */
+    public void beginTransaction() {
+        mOpenHelper.getWritableDatabase().beginTransaction();
+    }
+
+    /**
+     * @see SQLiteDatabase#setTransactionSuccessful()
+     */
+    public void setTransactionSuccessful() {
+        mOpenHelper.getWritableDatabase().setTransactionSuccessful();
+    }
+
+    /**
+     * @see SQLiteDatabase#endTransaction()
+     */
+    public void endTransaction() {
+        try {
+            mOpenHelper.getWritableDatabase().endTransaction();
+        } catch (SQLiteFullException e) {
+            onDiskFull(e);
+        } catch (SQLiteException e) {
+            Log.d(TAG, "Ignoring sqlite exception", e);
+        }
+    }
+
     private void onDiskFull(SQLiteFullException e) {
         Log.e(TAG, "Disk full, all write operations will be ignored", e);
         mIgnoreWrites = true;
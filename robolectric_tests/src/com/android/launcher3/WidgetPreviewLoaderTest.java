@@ -0,0 +1,119 @@
+package com.android.launcher3;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Process;
+
+import com.android.launcher3.compat.ShortcutConfigActivityInfo;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.WidgetItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+
+/**
+ * Tests for {@link WidgetPreviewLoader}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WidgetPreviewLoaderTest {
+
+    private Context mContext;
+    private IconCache mIconCache;
+    private WidgetPreviewLoader mLoader;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        mIconCache = mock(IconCache.class);
+        mLoader = new WidgetPreviewLoader(mContext, mIconCache);
+    }
+
+    @Test
+    public void testGeneratePreviews_writesMissingPreviews() {
+        mLoader.generatePreviews(createItems(true, "Shortcut1", "Shortcut2"));
+        // Nothing is generated on the calling thread, nor on the worker thread
+        assertEquals(0, mLoader.mGeneratedPreviews.get());
+        shadowOf(LauncherModel.getWorkerLooper()).runToEndOfTasks();
+        assertEquals(0, mLoader.mGeneratedPreviews.get());
+
+        runGeneratorTasks();
+        assertEquals(2, mLoader.mGeneratedPreviews.get());
+    }
+
+    @Test
+    public void testGeneratePreviews_skipsPreviewsInDb() {
+        mLoader.generatePreviews(createItems(true, "Shortcut1"));
+        runGeneratorTasks();
+        assertEquals(1, mLoader.mGeneratedPreviews.get());
+
+        mLoader.generatePreviews(createItems(true, "Shortcut1", "Shortcut2"));
+        runGeneratorTasks();
+        assertEquals(2, mLoader.mGeneratedPreviews.get());
+    }
+
+    @Test
+    public void testGeneratePreviews_skipsPreviewsNotPersisted() {
+        mLoader.generatePreviews(createItems(false, "Shortcut1"));
+        runGeneratorTasks();
+        assertEquals(0, mLoader.mGeneratedPreviews.get());
+    }
+
+    @Test
+    public void testRefresh_previewsGeneratedAgain() {
+        mLoader.generatePreviews(createItems(true, "Shortcut1"));
+        runGeneratorTasks();
+
+        mLoader.refresh();
+        mLoader.generatePreviews(createItems(true, "Shortcut1"));
+        runGeneratorTasks();
+        assertEquals(2, mLoader.mGeneratedPreviews.get());
+    }
+
+    /**
+     * Runs the preview generation, followed by the DB writes it posts to the worker thread.
+     */
+    private void runGeneratorTasks() {
+        shadowOf(mLoader.mGeneratorHandler.getLooper()).runToEndOfTasks();
+        shadowOf(LauncherModel.getWorkerLooper()).runToEndOfTasks();
+    }
+
+    private ArrayList<WidgetItem> createItems(boolean isPersistable, String... classNames) {
+        PackageManager pm = mContext.getPackageManager();
+        ArrayList<WidgetItem> items = new ArrayList<>();
+        for (String className : classNames) {
+            ShortcutConfigActivityInfo info = new ShortcutConfigActivityInfo(
+                    new ComponentName(mContext.getPackageName(), className),
+                    Process.myUserHandle()) {
+                @Override
+                public CharSequence getLabel(PackageManager pm) {
+                    return className;
+                }
+
+                @Override
+                public Drawable getFullResIcon(IconCache cache) {
+                    return new ColorDrawable(Color.RED);
+                }
+
+                @Override
+                public boolean isPersistable() {
+                    return isPersistable;
+                }
+            };
+            items.add(new WidgetItem(info, mIconCache, pm));
+        }
+        return items;
+    }
+}
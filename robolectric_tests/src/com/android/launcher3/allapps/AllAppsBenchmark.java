@@ -0,0 +1,220 @@
+package com.android.launcher3.allapps;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.Launcher;
+import com.android.launcher3.allapps.search.AllAppsSearchBarController;
+import com.android.launcher3.allapps.search.DefaultAppSearchAlgorithm;
+import com.android.launcher3.compat.AlphabeticIndexCompat;
+import com.android.launcher3.util.BenchmarkRule;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.LocalizedTitleGenerator;
+import com.android.launcher3.util.PhaseProfiler;
+import com.sprd.ext.LauncherAppMonitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmarks the all apps search, sort and section computations over localized titles, for
+ * different numbers of apps:
+ *   - {@link DefaultAppSearchAlgorithm} title matching. The fuzzy mode is covered by
+ *     FuzzySearchBenchmark.
+ *   - {@link AlphabeticalAppsList#onAppsUpdated()}, with and without the precomputed sort keys
+ *     and section names of the icon cache, and the refill of the adapter items.
+ *   - {@link SortKeyGenerator}, which the icon cache only runs when a label changes.
+ *   - {@link AlphabeticIndexCompat#computeSectionName}.
+ *
+ * Reports the median and min wall time and the average allocations of each operation.
+ * These are skipped in regular test runs, pass -Dlauncher.benchmark=true to run them.
+ * {@link #benchmarkSort500Apps} only compares sorting 500 apps from their titles
+ * ("update:titles") and from the sort keys ("update:keys"), and can be run on its own.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AllAppsBenchmark {
+
+    private static final int[] APP_COUNTS = {100, 500, 1000, 5000};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 10;
+
+    // Query which does not match any generated title
+    private static final String MISSING_QUERY = "qqq";
+
+    @Rule
+    public final BenchmarkRule mBenchmark = new BenchmarkRule(WARMUP_ITERATIONS, ITERATIONS);
+
+    private Context mContext;
+    private Launcher mLauncher;
+    private Locale mDefaultLocale;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        mLauncher = mock(Launcher.class);
+        when(mLauncher.getApplicationContext()).thenReturn(mContext);
+        when(mLauncher.getResources()).thenReturn(mContext.getResources());
+        when(mLauncher.getDeviceProfile()).thenReturn(
+                InvariantDeviceProfile.INSTANCE.get(mContext).portraitProfile);
+        LauncherAppMonitor.INSTANCE.initializeForTesting(mock(LauncherAppMonitor.class));
+
+        // The collator used to sort the titles follows the default locale
+        mDefaultLocale = Locale.getDefault();
+        Locale.setDefault(mContext.getResources().getConfiguration().locale);
+    }
+
+    @After
+    public void tearDown() {
+        if (mDefaultLocale != null) {
+            Locale.setDefault(mDefaultLocale);
+        }
+    }
+
+    @Test
+    @Config(qualifiers = "en")
+    public void benchmarkEnglish() throws Exception {
+        runBenchmarks();
+    }
+
+    @Test
+    @Config(qualifiers = "zh-rCN")
+    public void benchmarkSimplifiedChinese() throws Exception {
+        runBenchmarks();
+    }
+
+    @Test
+    @Config(qualifiers = "ja")
+    public void benchmarkJapanese() throws Exception {
+        runBenchmarks();
+    }
+
+    @Test
+    @Config(qualifiers = "ar")
+    public void benchmarkArabic() throws Exception {
+        runBenchmarks();
+    }
+
+    @Test
+    @Config(qualifiers = "zh-rCN")
+    public void benchmarkSort500Apps() throws Exception {
+        Locale locale = Locale.getDefault();
+        List<AppInfo> apps = generateApps(locale, 500);
+        mBenchmark.run("sort 500 apps, " + locale.toLanguageTag(),
+                (profiler, i) -> benchmarkAppsList(profiler, apps, i));
+    }
+
+    private void runBenchmarks() throws Exception {
+        Locale locale = Locale.getDefault();
+        for (int appCount : APP_COUNTS) {
+            List<AppInfo> apps = generateApps(locale, appCount);
+            String[] queries = {
+                    apps.get(0).title.subSequence(0, 1).toString().toLowerCase(),
+                    getPrefix(apps.get(1).title, 3).toLowerCase(),
+                    MISSING_QUERY};
+            String[] queryNames = {"short", "long", "miss"};
+
+            mBenchmark.run(appCount + " apps, " + locale.toLanguageTag(), (profiler, i) -> {
+                benchmarkSearch(profiler, apps, queries, queryNames);
+                benchmarkSections(profiler, apps);
+                benchmarkAppsList(profiler, apps, i);
+            });
+        }
+    }
+
+    private void benchmarkSearch(PhaseProfiler profiler, List<AppInfo> apps,
+            String[] queries, String[] queryNames) {
+        AllAppsSearchBarController.Callbacks callbacks =
+                mock(AllAppsSearchBarController.Callbacks.class);
+        DefaultAppSearchAlgorithm algorithm = new DefaultAppSearchAlgorithm(apps);
+        for (int j = 0; j < queries.length; j++) {
+            profiler.begin("search:" + queryNames[j]);
+            algorithm.doSearch(queries[j], callbacks);
+            profiler.end();
+        }
+    }
+
+    private void benchmarkSections(PhaseProfiler profiler, List<AppInfo> apps) {
+        profiler.begin("sections");
+        AlphabeticIndexCompat indexer = new AlphabeticIndexCompat(mContext);
+        for (AppInfo info : apps) {
+            indexer.computeSectionName(info.title);
+        }
+        profiler.end();
+    }
+
+    private void benchmarkAppsList(PhaseProfiler profiler, List<AppInfo> apps, int iteration) {
+        ArrayList<AppInfo> shuffled = new ArrayList<>(apps);
+        Collections.shuffle(shuffled, new Random(iteration));
+        AllAppsStore store = new AllAppsStore();
+        store.setApps(shuffled);
+
+        // As bound before the icon cache has computed the sort keys and section names
+        for (AppInfo info : apps) {
+            info.sortKey = null;
+            info.sectionName = null;
+        }
+        AlphabeticalAppsList appsList = new AlphabeticalAppsList(mLauncher, store, false);
+        profiler.begin("update:titles");
+        appsList.onAppsUpdated();
+        profiler.end();
+        store.removeUpdateListener(appsList);
+
+        // As bound from the icon cache
+        profiler.begin("generateKeys");
+        SortKeyGenerator generator = new SortKeyGenerator(mContext);
+        for (AppInfo info : apps) {
+            info.sortKey = generator.getSortKey(info.title);
+            info.sectionName = generator.getSectionName(info.title);
+        }
+        profiler.end();
+        appsList = new AlphabeticalAppsList(mLauncher, store, false);
+        profiler.begin("update:keys");
+        appsList.onAppsUpdated();
+        profiler.end();
+
+        // Clearing the search results refills all the adapter items
+        ArrayList<ComponentKey> results = new ArrayList<>();
+        results.add(appsList.getApps().get(0).toComponentKey());
+        appsList.setOrderedFilter(results);
+        profiler.begin("refill");
+        appsList.setOrderedFilter(null);
+        profiler.end();
+        store.removeUpdateListener(appsList);
+    }
+
+    private static List<AppInfo> generateApps(Locale locale, int count) {
+        // Fixed seed so that runs can be compared
+        LocalizedTitleGenerator titles = new LocalizedTitleGenerator(locale, 42);
+        ArrayList<AppInfo> apps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AppInfo info = new AppInfo();
+            info.title = titles.next();
+            info.componentName = new ComponentName("com.example.app" + i, "Activity" + i);
+            info.user = Process.myUserHandle();
+            apps.add(info);
+        }
+        return apps;
+    }
+
+    private static String getPrefix(CharSequence title, int length) {
+        return title.subSequence(0, Math.min(length, title.length())).toString();
+    }
+}
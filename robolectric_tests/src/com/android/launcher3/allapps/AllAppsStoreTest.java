@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import static com.android.launcher3.allapps.AllAppsStore.DEFER_UPDATES_TEST;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.ComponentName;
+import android.os.Process;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.allapps.AllAppsStore.OnUpdateListener;
+import com.android.launcher3.util.FrameBudgetExecutor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link AllAppsStore#setAppsIncrementally}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AllAppsStoreTest {
+
+    private AllAppsStore mStore;
+    private OnUpdateListener mListener1;
+    private OnUpdateListener mListener2;
+    private FrameBudgetExecutor mExecutor;
+
+    @Before
+    public void setup() {
+        // Frames are run by calling the executor directly
+        ShadowLooper.pauseMainLooper();
+        // No budget, so that every frame notifies a single listener
+        mExecutor = new FrameBudgetExecutor(0);
+
+        mStore = new AllAppsStore();
+        mListener1 = mock(OnUpdateListener.class);
+        mListener2 = mock(OnUpdateListener.class);
+        mStore.addUpdateListener(mListener1);
+        mStore.addUpdateListener(mListener2);
+    }
+
+    @Test
+    public void testSetAppsIncrementally_notifiesOneListenerPerFrame() {
+        List<AppInfo> apps = createApps("a", "b");
+        mStore.setAppsIncrementally(apps, mExecutor);
+        // The apps are available before any listener is notified
+        assertEquals(2, mStore.getApps().size());
+        verify(mListener1, never()).onAppsUpdated();
+        verify(mListener2, never()).onAppsUpdated();
+
+        mExecutor.run();
+        verify(mListener1).onAppsUpdated();
+        verify(mListener2, never()).onAppsUpdated();
+
+        mExecutor.run();
+        verify(mListener1).onAppsUpdated();
+        verify(mListener2).onAppsUpdated();
+    }
+
+    @Test
+    public void testFlushPendingUpdates_notifiesRemainingListeners() {
+        mStore.setAppsIncrementally(createApps("a"), mExecutor);
+        mExecutor.run();
+
+        mStore.flushPendingUpdates();
+        verify(mListener1).onAppsUpdated();
+        verify(mListener2).onAppsUpdated();
+    }
+
+    @Test
+    public void testOtherUpdate_notifiesAllListenersOnce() {
+        mStore.setAppsIncrementally(createApps("a"), mExecutor);
+        mExecutor.run();
+
+        mStore.addOrUpdateApps(createApps("b"));
+        verify(mListener1, times(2)).onAppsUpdated();
+        verify(mListener2).onAppsUpdated();
+
+        // The pending notification is dropped, as the listener is already up to date
+        mExecutor.flush();
+        verify(mListener1, times(2)).onAppsUpdated();
+        verify(mListener2).onAppsUpdated();
+    }
+
+    @Test
+    public void testRemoveUpdateListener_dropsPendingNotification() {
+        mStore.setAppsIncrementally(createApps("a"), mExecutor);
+        mStore.removeUpdateListener(mListener1);
+
+        mExecutor.flush();
+        verify(mListener1, never()).onAppsUpdated();
+        verify(mListener2).onAppsUpdated();
+    }
+
+    @Test
+    public void testDeferredUpdates_notifiedWhenEnabled() {
+        mStore.enableDeferUpdates(DEFER_UPDATES_TEST);
+        mStore.setAppsIncrementally(createApps("a"), mExecutor);
+        mExecutor.flush();
+        verify(mListener1, never()).onAppsUpdated();
+        verify(mListener2, never()).onAppsUpdated();
+
+        mStore.disableDeferUpdates(DEFER_UPDATES_TEST);
+        verify(mListener1).onAppsUpdated();
+        verify(mListener2).onAppsUpdated();
+    }
+
+    private static List<AppInfo> createApps(String... names) {
+        ArrayList<AppInfo> apps = new ArrayList<>();
+        for (String name : Arrays.asList(names)) {
+            AppInfo info = new AppInfo();
+            info.title = name;
+            info.componentName = new ComponentName("com.example." + name, "Activity");
+            info.user = Process.myUserHandle();
+            apps.add(info);
+        }
+        return apps;
+    }
+}
@@ -0,0 +1,45 @@
+package com.android.launcher3.allapps;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.launcher3.compat.AlphabeticIndexCompat;
+import com.android.launcher3.util.LabelComparator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Unit tests for {@link SortKeyGenerator}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SortKeyGeneratorTest {
+
+    private static final String[] TITLES = {
+            "Camera", "camera", "Calendar", "Éclair", "eclair", "Zoo", "2048", "10 Apps",
+            "-Dash", "+Plus", "", "Straße", "Strasse", "ÅngStröm", "电子邮件", "다운로드"};
+
+    @Test
+    public void testCompareSortKeys_sameAsLabelComparator() {
+        SortKeyGenerator generator = new SortKeyGenerator(RuntimeEnvironment.application);
+        LabelComparator comparator = new LabelComparator();
+        for (String a : TITLES) {
+            for (String b : TITLES) {
+                assertEquals(a + " vs " + b,
+                        Integer.signum(comparator.compare(a, b)),
+                        Integer.signum(SortKeyGenerator.compareSortKeys(
+                                generator.getSortKey(a), generator.getSortKey(b))));
+            }
+        }
+    }
+
+    @Test
+    public void testGetSectionName_sameAsIndexer() {
+        SortKeyGenerator generator = new SortKeyGenerator(RuntimeEnvironment.application);
+        AlphabeticIndexCompat indexer = new AlphabeticIndexCompat(RuntimeEnvironment.application);
+        for (String title : TITLES) {
+            assertEquals(indexer.computeSectionName(title), generator.getSectionName(title));
+        }
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.verify;
 
 import android.content.ComponentName;
@@ -133,6 +134,35 @@ public class AddWorkspaceItemsTaskTest extends BaseModelUpdateTaskTestCase {
         assertTrue(animated.getValue().contains(info2));
     }
 
+    @Test
+    public void testAddItem_batch_placed_in_distinct_cells() throws Exception {
+        WorkspaceItemInfo info = new WorkspaceItemInfo();
+        info.intent = new Intent().setComponent(mComponent2);
+
+        WorkspaceItemInfo info2 = new WorkspaceItemInfo();
+        info2.intent = new Intent().setComponent(new ComponentName("c", "c"));
+
+        // First screen is full, second screen has exactly two holes of size 1
+        int nextId = setupWorkspaceWithHoles(1, 1);
+        setupWorkspaceWithHoles(nextId, 2, new Rect(2, 2, 4, 3));
+
+        executeTaskForTest(newTask(info, info2)).get(0).run();
+
+        // Both items are written with a single batch insert
+        ArgumentCaptor<List> placements = ArgumentCaptor.forClass(List.class);
+        verify(modelWriter).addItemsToDatabase(placements.capture(),
+                eq(LauncherSettings.Favorites.CONTAINER_DESKTOP));
+        assertEquals(2, placements.getValue().size());
+
+        int[] coords = ((Pair<ItemInfo, int[]>) placements.getValue().get(0)).second;
+        int[] coords2 = ((Pair<ItemInfo, int[]>) placements.getValue().get(1)).second;
+        assertEquals(2, coords[0]);
+        assertEquals(2, coords2[0]);
+        assertTrue(screenOccupancy.get(2).isRegionVacant(coords[1], coords[2], 1, 1));
+        assertTrue(screenOccupancy.get(2).isRegionVacant(coords2[1], coords2[2], 1, 1));
+        assertFalse(coords[1] == coords2[1] && coords[2] == coords2[2]);
+    }
+
     private int setupWorkspaceWithHoles(int startId, int screenId, Rect... holes) throws Exception {
         GridOccupancy occupancy = new GridOccupancy(idp.numColumns, idp.numRows);
         occupancy.markCells(0, 0, idp.numColumns, idp.numRows, true);
@@ -56,7 +56,7 @@ import androidx.annotation.NonNull;
 public class BaseModelUpdateTaskTestCase {
 
     public final HashMap<Class, HashMap<String, Field>> fieldCache = new HashMap<>();
-    private TestLauncherProvider mProvider;
+    protected TestLauncherProvider mProvider;
 
     public Context targetContext;
     public UserHandle myUser;
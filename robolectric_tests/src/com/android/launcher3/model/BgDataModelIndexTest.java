@@ -0,0 +1,236 @@
+package com.android.launcher3.model;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.Intent.ShortcutIconResource;
+import android.os.UserHandle;
+
+import com.android.launcher3.FolderInfo;
+import com.android.launcher3.ItemInfo;
+import com.android.launcher3.LauncherAppWidgetInfo;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.WorkspaceItemInfo;
+import com.android.launcher3.util.IntSparseArrayMap;
+import com.android.launcher3.util.ItemInfoMatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the secondary indexes of {@link BgDataModel}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BgDataModelIndexTest {
+
+    private static final int OPERATION_COUNT = 500;
+    private static final String[] PACKAGES = {"a", "b", "c", "d", "e"};
+    private static final UserHandle[] USERS = {UserHandle.of(0), UserHandle.of(10)};
+
+    private Context mContext;
+    private BgDataModel mModel;
+    private Random mRandom;
+    private int mNextId = 1;
+
+    private final List<FolderInfo> mFolders = new ArrayList<>();
+    private final List<ItemInfo> mItems = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        mModel = new BgDataModel();
+        // Fixed seed so that failures can be reproduced
+        mRandom = new Random(42);
+    }
+
+    @Test
+    public void testIndexConsistency_randomOperations() {
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            int op = mRandom.nextInt(10);
+            if (op < 5 || mItems.isEmpty()) {
+                addRandomItem();
+            } else if (op < 8) {
+                removeRandomItem();
+            } else {
+                updateRandomItem();
+            }
+            verifyIndex();
+        }
+    }
+
+    @Test
+    public void testIndexConsistency_afterClear() {
+        for (int i = 0; i < 50; i++) {
+            addRandomItem();
+        }
+        mModel.clear();
+        mItems.clear();
+        mFolders.clear();
+        verifyIndex();
+
+        for (int i = 0; i < 50; i++) {
+            addRandomItem();
+        }
+        verifyIndex();
+    }
+
+    private void addRandomItem() {
+        int type = mRandom.nextInt(4);
+        ItemInfo item;
+        if (type == 0) {
+            FolderInfo folder = new FolderInfo();
+            mFolders.add(folder);
+            item = folder;
+        } else if (type == 1) {
+            LauncherAppWidgetInfo widget = new LauncherAppWidgetInfo(
+                    mNextId, randomComponent());
+            item = widget;
+        } else {
+            WorkspaceItemInfo info = new WorkspaceItemInfo();
+            info.itemType = Favorites.ITEM_TYPE_APPLICATION;
+            info.intent = new Intent().setComponent(randomComponent());
+            info.iconResource = randomIconResource();
+            item = info;
+        }
+        item.id = mNextId++;
+        item.user = randomUser();
+        item.screenId = mRandom.nextInt(3);
+        if (item instanceof WorkspaceItemInfo && !mFolders.isEmpty() && mRandom.nextBoolean()) {
+            item.container = mFolders.get(mRandom.nextInt(mFolders.size())).id;
+        } else {
+            item.container = mRandom.nextBoolean()
+                    ? Favorites.CONTAINER_DESKTOP : Favorites.CONTAINER_HOTSEAT;
+        }
+        mModel.addItem(mContext, item, false);
+        mItems.add(item);
+    }
+
+    private void removeRandomItem() {
+        ItemInfo item = mItems.remove(mRandom.nextInt(mItems.size()));
+        if (item instanceof FolderInfo) {
+            mFolders.remove(item);
+            // Remove the contents along with the folder, same as ModelWriter
+            ArrayList<ItemInfo> contents = new ArrayList<>(((FolderInfo) item).contents);
+            mItems.removeAll(contents);
+            mModel.removeItem(mContext, contents);
+        } else if (item instanceof WorkspaceItemInfo) {
+            // Items are removed from their folder by the UI before they are deleted
+            for (FolderInfo folder : mFolders) {
+                if (folder.id == item.container) {
+                    folder.remove((WorkspaceItemInfo) item, false);
+                }
+            }
+        }
+        mModel.removeItem(mContext, item);
+    }
+
+    private void updateRandomItem() {
+        ItemInfo item = mItems.get(mRandom.nextInt(mItems.size()));
+        if (item instanceof WorkspaceItemInfo) {
+            ((WorkspaceItemInfo) item).intent = new Intent().setComponent(randomComponent());
+            ((WorkspaceItemInfo) item).iconResource = randomIconResource();
+        } else if (item instanceof LauncherAppWidgetInfo) {
+            ((LauncherAppWidgetInfo) item).providerName = randomComponent();
+        } else {
+            item.container = item.container == Favorites.CONTAINER_DESKTOP
+                    ? Favorites.CONTAINER_HOTSEAT : Favorites.CONTAINER_DESKTOP;
+        }
+        mModel.updateItemIndex(item);
+    }
+
+    private void verifyIndex() {
+        for (String pkg : PACKAGES) {
+            for (UserHandle user : USERS) {
+                HashSet<String> packages = new HashSet<>();
+                packages.add(pkg);
+                packages.add(randomPackage());
+                verifyMatcher(ItemInfoMatcher.ofPackages(packages, user));
+
+                HashSet<ComponentName> components = new HashSet<>();
+                components.add(randomComponent());
+                components.add(new ComponentName(pkg, "0"));
+                verifyMatcher(ItemInfoMatcher.ofComponents(components, user));
+
+                verifyMatcher(ItemInfoMatcher.ofUser(user));
+                verifyMatcher(ItemInfoMatcher.ofPackages(packages, user)
+                        .or(ItemInfoMatcher.ofComponents(components, randomUser())));
+                verifyMatcher(ItemInfoMatcher.ofPackages(packages, user)
+                        .and(ItemInfoMatcher.not(ItemInfoMatcher.ofComponents(components, user))));
+                verifyIconPackages(packages, user);
+            }
+        }
+
+        IntSparseArrayMap<Boolean> ids = new IntSparseArrayMap<>();
+        for (int i = 0; i < 5; i++) {
+            ids.put(mRandom.nextInt(mNextId + 5), mRandom.nextBoolean());
+        }
+        verifyMatcher(ItemInfoMatcher.ofItemIds(ids, false));
+        verifyMatcher(ItemInfoMatcher.ofItemIds(ids, true));
+
+        int[] containers = {Favorites.CONTAINER_DESKTOP, Favorites.CONTAINER_HOTSEAT};
+        for (int container : containers) {
+            verifyContainer(container);
+        }
+        for (FolderInfo folder : mFolders) {
+            verifyContainer(folder.id);
+        }
+    }
+
+    private void verifyMatcher(ItemInfoMatcher matcher) {
+        assertEquals(matcher.filterItemInfos(mModel.itemsIdMap), mModel.filterItemInfos(matcher));
+    }
+
+    private void verifyIconPackages(HashSet<String> packages, UserHandle user) {
+        HashSet<ItemInfo> expected = new HashSet<>();
+        for (ItemInfo info : mModel.itemsIdMap) {
+            if (info instanceof WorkspaceItemInfo && info.user.equals(user)
+                    && ((WorkspaceItemInfo) info).iconResource != null
+                    && packages.contains(((WorkspaceItemInfo) info).iconResource.packageName)) {
+                expected.add(info);
+            }
+        }
+        assertEquals(expected, new HashSet<>(mModel.getItemsForIconPackages(packages, user)));
+    }
+
+    private void verifyContainer(int container) {
+        HashSet<ItemInfo> expected = new HashSet<>();
+        for (ItemInfo info : mModel.itemsIdMap) {
+            if (info.container == container) {
+                expected.add(info);
+            }
+        }
+        assertEquals(expected, new HashSet<>(mModel.getItemsInContainer(container)));
+    }
+
+    private String randomPackage() {
+        return PACKAGES[mRandom.nextInt(PACKAGES.length)];
+    }
+
+    private ComponentName randomComponent() {
+        return new ComponentName(randomPackage(), Integer.toString(mRandom.nextInt(3)));
+    }
+
+    private ShortcutIconResource randomIconResource() {
+        if (mRandom.nextBoolean()) {
+            return null;
+        }
+        ShortcutIconResource iconResource = new ShortcutIconResource();
+        iconResource.packageName = randomPackage();
+        iconResource.resourceName = "icon";
+        return iconResource;
+    }
+
+    private UserHandle randomUser() {
+        return USERS[mRandom.nextInt(USERS.length)];
+    }
+}
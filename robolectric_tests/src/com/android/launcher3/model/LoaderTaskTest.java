@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.content.ComponentName;
+import android.content.pm.PackageInfo;
+import android.os.Process;
+import android.os.UserHandle;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.icons.cache.IconCacheUpdateHandler;
+import com.android.launcher3.util.PackageManagerHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Tests for {@link LoaderTask}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LoaderTaskTest {
+
+    private static final String SHARED_PACKAGE = "com.example.shared";
+    private static final String WORK_PACKAGE = "com.example.work";
+
+    private UserHandle mMyUser;
+    private UserHandle mWorkUser;
+    private IconCacheUpdateHandler mUpdateHandler;
+    private PackageManagerHelper mPmHelper;
+    private ArrayList<AppInfo> mApps;
+
+    @Before
+    public void setup() {
+        mMyUser = Process.myUserHandle();
+        mWorkUser = UserHandle.of(10);
+
+        // The icon cache only has the packages of the current user
+        mUpdateHandler = mock(IconCacheUpdateHandler.class);
+        doReturn(createPackageInfo(SHARED_PACKAGE, 100))
+                .when(mUpdateHandler).getPackageInfo(SHARED_PACKAGE);
+
+        mPmHelper = mock(PackageManagerHelper.class);
+        doReturn(200L).when(mPmHelper).getLastUpdateTime(SHARED_PACKAGE, mWorkUser);
+        doReturn(300L).when(mPmHelper).getLastUpdateTime(WORK_PACKAGE, mWorkUser);
+
+        mApps = new ArrayList<>(Arrays.asList(
+                createApp(SHARED_PACKAGE, "Activity1", mMyUser),
+                createApp(SHARED_PACKAGE, "Activity2", mMyUser),
+                createApp(SHARED_PACKAGE, "Activity1", mWorkUser),
+                createApp(WORK_PACKAGE, "Activity1", mWorkUser)));
+    }
+
+    @Test
+    public void testGetLastUpdateTimes_myUserUsesIconCachePackageInfos() {
+        HashMap<String, Long> expected = new HashMap<>();
+        expected.put(SHARED_PACKAGE, 100L);
+        assertEquals(expected,
+                LoaderTask.getLastUpdateTimes(mMyUser, mApps, mUpdateHandler, mPmHelper));
+        verify(mPmHelper, never()).getLastUpdateTime(anyString(), any(UserHandle.class));
+    }
+
+    @Test
+    public void testGetLastUpdateTimes_workProfileOnlyPackage() {
+        HashMap<String, Long> expected = new HashMap<>();
+        expected.put(SHARED_PACKAGE, 200L);
+        expected.put(WORK_PACKAGE, 300L);
+        assertEquals(expected,
+                LoaderTask.getLastUpdateTimes(mWorkUser, mApps, mUpdateHandler, mPmHelper));
+    }
+
+    @Test
+    public void testGetLastUpdateTimes_skipsPackagesNotInstalledForUser() {
+        doReturn(-1L).when(mPmHelper).getLastUpdateTime(WORK_PACKAGE, mWorkUser);
+
+        HashMap<String, Long> expected = new HashMap<>();
+        expected.put(SHARED_PACKAGE, 200L);
+        assertEquals(expected,
+                LoaderTask.getLastUpdateTimes(mWorkUser, mApps, mUpdateHandler, mPmHelper));
+    }
+
+    private static PackageInfo createPackageInfo(String packageName, long lastUpdateTime) {
+        PackageInfo info = new PackageInfo();
+        info.packageName = packageName;
+        info.lastUpdateTime = lastUpdateTime;
+        return info;
+    }
+
+    private static AppInfo createApp(String packageName, String className, UserHandle user) {
+        AppInfo app = new AppInfo();
+        app.componentName = new ComponentName(packageName, className);
+        app.user = user;
+        return app;
+    }
+}
@@ -0,0 +1,222 @@
+package com.android.launcher3.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.LauncherActivityInfo;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Point;
+import android.os.UserHandle;
+
+import com.android.launcher3.compat.AppWidgetManagerCompat;
+import com.android.launcher3.compat.LauncherAppsCompat;
+import com.android.launcher3.compat.PackageInstallerCompat;
+import com.android.launcher3.compat.UserManagerCompat;
+import com.android.launcher3.model.GridSizeMigrationTask.MultiStepMigrationTask;
+import com.android.launcher3.shortcuts.DeepShortcutManager;
+import com.android.launcher3.util.BenchmarkRule;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.PhaseProfiler;
+import com.android.launcher3.util.SyntheticLauncherDb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Benchmarks the model loading phases over synthetic launcher databases. The system services
+ * are replaced with mocks which report every synthetic app and widget as installed, so that the
+ * real {@link LoaderTask} code paths are measured without any item being dropped.
+ *
+ * These are skipped in regular test runs, pass -Dlauncher.benchmark=true to run them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ModelLoadBenchmark extends BaseModelUpdateTaskTestCase {
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int ITERATIONS = 5;
+
+    private static final String PHASE_LOAD_WORKSPACE = "loadWorkspace";
+    private static final String PHASE_LOAD_ALL_APPS = "loadAllApps";
+    private static final String PHASE_BIND = "bind";
+    private static final String PHASE_GRID_MIGRATION = "gridMigration";
+
+    // Field holding the singleton of each of the mocked system service wrappers
+    private static final String INSTANCE_FIELD = "sInstance";
+
+    @Rule
+    public final BenchmarkRule mBenchmark = new BenchmarkRule(WARMUP_ITERATIONS, ITERATIONS);
+
+    private SyntheticLauncherDb mSyntheticDb;
+    private SQLiteDatabase mDb;
+
+    @Before
+    public void setupBenchmark() {
+        mDb = mProvider.getDb();
+    }
+
+    @After
+    public void tearDownBenchmark() {
+        for (Class c : new Class[] {LauncherAppsCompat.class, UserManagerCompat.class,
+                DeepShortcutManager.class, PackageInstallerCompat.class,
+                AppWidgetManagerCompat.class}) {
+            setInstance(c, null);
+        }
+    }
+
+    @Test
+    public void benchmarkSmallLayout() throws Exception {
+        runBenchmark("small", new SyntheticLauncherDb()
+                .setScreens(3)
+                .setItemsPerScreen(10)
+                .setFolders(1, 4)
+                .setWidgetsPerScreen(1)
+                .setAppCount(50));
+    }
+
+    @Test
+    public void benchmarkLargeLayout() throws Exception {
+        runBenchmark("large", new SyntheticLauncherDb()
+                .setScreens(15)
+                .setItemsPerScreen(14)
+                .setFolders(4, 12)
+                .setWidgetsPerScreen(1)
+                .setAppCount(300));
+    }
+
+    @Test
+    public void benchmarkWorkProfile() throws Exception {
+        runBenchmark("workProfile", new SyntheticLauncherDb()
+                .setScreens(8)
+                .setItemsPerScreen(14)
+                .setFolders(2, 8)
+                .setWidgetsPerScreen(1)
+                .setProfiles(2)
+                .setAppCount(150));
+    }
+
+    private void runBenchmark(String name, SyntheticLauncherDb syntheticDb) throws Exception {
+        mSyntheticDb = syntheticDb.setGridSize(5, 5).setHotseatItems(5);
+        idp.numColumns = 5;
+        idp.numRows = 5;
+        idp.numHotseatIcons = 5;
+
+        mBenchmark.run(name + " (" + mSyntheticDb.getItemCount() + " items, "
+                + mSyntheticDb.getUsers().size() + " profiles)",
+                (profiler, iteration) -> runIteration(profiler));
+    }
+
+    private void runIteration(PhaseProfiler profiler) throws Exception {
+        mSyntheticDb.populate(mDb);
+        installSystemMocks();
+
+        LoaderResults results = new LoaderResults(
+                appState, bgDataModel, allAppsList, 0, new WeakReference<>(callbacks));
+        LoaderTask task = new LoaderTask(appState, allAppsList, bgDataModel, results);
+
+        profiler.begin(PHASE_LOAD_WORKSPACE);
+        task.loadWorkspace();
+        profiler.end();
+        // Make sure that the loader did not drop any synthetic item
+        assertEquals(mSyntheticDb.getItemCount(), bgDataModel.itemsIdMap.size());
+
+        profiler.begin(PHASE_LOAD_ALL_APPS);
+        task.loadAllApps();
+        profiler.end();
+        assertEquals(mSyntheticDb.getApps().size(), allAppsList.data.size());
+
+        profiler.begin(PHASE_BIND);
+        results.bindWorkspace();
+        results.bindAllApps();
+        profiler.end();
+
+        profiler.begin(PHASE_GRID_MIGRATION);
+        new MultiStepMigrationTask(mSyntheticDb.getPackages(), targetContext, mDb)
+                .migrate(new Point(idp.numColumns, idp.numRows),
+                        new Point(idp.numColumns - 1, idp.numRows - 1));
+        profiler.end();
+    }
+
+    /**
+     * Replaces the system service wrappers used by the loader with mocks backed by the
+     * synthetic database.
+     */
+    private void installSystemMocks() {
+        List<UserHandle> users = mSyntheticDb.getUsers();
+
+        UserManagerCompat userManager = mock(UserManagerCompat.class);
+        when(userManager.getUserProfiles()).thenReturn(users);
+        when(userManager.getSerialNumberForUser(any(UserHandle.class))).thenAnswer(
+                inv -> SyntheticLauncherDb.getSerialNumber(users.indexOf(inv.getArguments()[0])));
+        when(userManager.getUserForSerialNumber(anyLong())).thenAnswer(inv -> {
+            for (int i = 0; i < users.size(); i++) {
+                if (SyntheticLauncherDb.getSerialNumber(i) == (long) inv.getArguments()[0]) {
+                    return users.get(i);
+                }
+            }
+            return null;
+        });
+        when(userManager.isUserUnlocked(any(UserHandle.class))).thenReturn(true);
+
+        HashMap<UserHandle, List<LauncherActivityInfo>> activities = new HashMap<>();
+        for (ComponentKey key : mSyntheticDb.getApps()) {
+            LauncherActivityInfo info = mock(LauncherActivityInfo.class);
+            when(info.getComponentName()).thenReturn(key.componentName);
+            when(info.getUser()).thenReturn(key.user);
+            when(info.getApplicationInfo()).thenReturn(new ApplicationInfo());
+            List<LauncherActivityInfo> list = activities.get(key.user);
+            if (list == null) {
+                list = new ArrayList<>();
+                activities.put(key.user, list);
+            }
+            list.add(info);
+        }
+        LauncherAppsCompat launcherApps = mock(LauncherAppsCompat.class);
+        when(launcherApps.isPackageEnabledForProfile(anyString(), any(UserHandle.class)))
+                .thenReturn(true);
+        when(launcherApps.isActivityEnabledForProfile(any(), any(UserHandle.class)))
+                .thenReturn(true);
+        when(launcherApps.getActivityList(any(), any(UserHandle.class))).thenAnswer(
+                inv -> activities.get(inv.getArguments()[1]));
+
+        HashMap<ComponentKey, AppWidgetProviderInfo> providers = new HashMap<>();
+        for (ComponentKey key : mSyntheticDb.getWidgetProviders()) {
+            AppWidgetProviderInfo info = new AppWidgetProviderInfo();
+            info.provider = key.componentName;
+            providers.put(key, info);
+        }
+        AppWidgetManagerCompat widgetManager = mock(AppWidgetManagerCompat.class);
+        when(widgetManager.getAllProvidersMap()).thenReturn(providers);
+
+        DeepShortcutManager shortcutManager = mock(DeepShortcutManager.class);
+        when(shortcutManager.wasLastCallSuccess()).thenReturn(true);
+
+        PackageInstallerCompat packageInstaller = mock(PackageInstallerCompat.class);
+        when(packageInstaller.updateAndGetActiveSessionCache()).thenReturn(new HashMap<>());
+
+        setInstance(UserManagerCompat.class, userManager);
+        setInstance(LauncherAppsCompat.class, launcherApps);
+        setInstance(AppWidgetManagerCompat.class, widgetManager);
+        setInstance(DeepShortcutManager.class, shortcutManager);
+        setInstance(PackageInstallerCompat.class, packageInstaller);
+    }
+
+    private static void setInstance(Class c, Object instance) {
+        ReflectionHelpers.setStaticField(c, INSTANCE_FIELD, instance);
+    }
+}
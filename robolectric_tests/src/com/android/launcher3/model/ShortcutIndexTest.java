@@ -0,0 +1,146 @@
+package com.android.launcher3.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ShortcutInfo;
+import android.os.Process;
+import android.os.UserHandle;
+
+import com.android.launcher3.util.ComponentKey;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Tests for {@link ShortcutIndex}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ShortcutIndexTest {
+
+    private static final long UPDATE_TIME = 100;
+
+    private Context mContext;
+    private UserHandle mUser;
+    private String mPackage;
+    private ComponentName mActivity;
+    private ShortcutIndex mIndex;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        mUser = Process.myUserHandle();
+        // Shortcuts built in tests belong to the package of the context
+        mPackage = mContext.getPackageName();
+        mActivity = new ComponentName(mPackage, "Activity");
+        mIndex = new ShortcutIndex(mContext);
+        mIndex.load();
+    }
+
+    @Test
+    public void testUpdatePackage_countsShortcutsShownInContainer() {
+        mIndex.updatePackage(mPackage, mUser, UPDATE_TIME, Arrays.asList(
+                createShortcut("s1", true, false, true),
+                createShortcut("s2", false, true, true),
+                // Pinned only and disabled shortcuts are not shown in the container
+                createShortcut("s3", false, false, true),
+                createShortcut("s4", true, false, false)));
+
+        assertEquals(2, getShortcutCount(mIndex));
+    }
+
+    @Test
+    public void testLoad_readsPersistedIndex() {
+        mIndex.updatePackage(mPackage, mUser, UPDATE_TIME, Arrays.asList(
+                createShortcut("s1", true, false, true),
+                createShortcut("s2", true, false, true)));
+
+        ShortcutIndex index = new ShortcutIndex(mContext);
+        assertTrue(index.load());
+        assertEquals(2, getShortcutCount(index));
+        assertTrue(index.getStalePackages(mUser, getUpdateTimes(UPDATE_TIME)).isEmpty());
+    }
+
+    @Test
+    public void testGetStalePackages_updatedOrMissingPackage() {
+        assertEquals(Collections.singletonList(mPackage),
+                mIndex.getStalePackages(mUser, getUpdateTimes(UPDATE_TIME)));
+
+        mIndex.updatePackage(mPackage, mUser, UPDATE_TIME,
+                Collections.singletonList(createShortcut("s1", true, false, true)));
+        assertTrue(mIndex.getStalePackages(mUser, getUpdateTimes(UPDATE_TIME)).isEmpty());
+        assertEquals(Collections.singletonList(mPackage),
+                mIndex.getStalePackages(mUser, getUpdateTimes(UPDATE_TIME + 1)));
+    }
+
+    @Test
+    public void testGetStalePackages_uninstalledPackageDropped() {
+        mIndex.updatePackage(mPackage, mUser, UPDATE_TIME,
+                Collections.singletonList(createShortcut("s1", true, false, true)));
+
+        assertTrue(mIndex.getStalePackages(mUser, new HashMap<>()).isEmpty());
+        assertEquals(0, getShortcutCount(mIndex));
+
+        ShortcutIndex index = new ShortcutIndex(mContext);
+        assertFalse(index.load());
+    }
+
+    @Test
+    public void testUpdateUser_indexesPackagesWithoutShortcuts() {
+        HashMap<String, Long> updateTimes = getUpdateTimes(UPDATE_TIME);
+        updateTimes.put("com.example.noshortcuts", UPDATE_TIME);
+        mIndex.updateUser(mUser,
+                Collections.singletonList(createShortcut("s1", false, true, true)), updateTimes);
+
+        assertEquals(1, getShortcutCount(mIndex));
+        assertTrue(mIndex.getStalePackages(mUser, updateTimes).isEmpty());
+    }
+
+    @Test
+    public void testUpdatePackage_invalidatesCachedContainer() {
+        ComponentKey key = new ComponentKey(mActivity, mUser);
+        mIndex.cacheContainerShortcuts(key, new ArrayList<>());
+
+        mIndex.updatePackage(mPackage, mUser, -1, new ArrayList<>());
+        assertNull(mIndex.getCachedContainerShortcuts(key));
+    }
+
+    private HashMap<String, Long> getUpdateTimes(long updateTime) {
+        HashMap<String, Long> updateTimes = new HashMap<>();
+        updateTimes.put(mPackage, updateTime);
+        return updateTimes;
+    }
+
+    private int getShortcutCount(ShortcutIndex index) {
+        HashMap<ComponentKey, Integer> counts = new HashMap<>();
+        index.addShortcutCounts(mUser, counts);
+        Integer count = counts.get(new ComponentKey(mActivity, mUser));
+        return count == null ? 0 : count;
+    }
+
+    private ShortcutInfo createShortcut(String id, boolean isStatic, boolean isDynamic,
+            boolean isEnabled) {
+        ShortcutInfo info = spy(new ShortcutInfo.Builder(mContext, id)
+                .setActivity(mActivity)
+                .setShortLabel(id)
+                .build());
+        doReturn(isStatic).when(info).isDeclaredInManifest();
+        doReturn(isDynamic).when(info).isDynamic();
+        doReturn(isEnabled).when(info).isEnabled();
+        return info;
+    }
+}
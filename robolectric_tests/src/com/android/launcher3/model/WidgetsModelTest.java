@@ -0,0 +1,231 @@
+package com.android.launcher3.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentName;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+
+import com.android.launcher3.WidgetPreviewLoader;
+import com.android.launcher3.compat.AppWidgetManagerCompat;
+import com.android.launcher3.compat.LauncherAppsCompat;
+import com.android.launcher3.compat.ShortcutConfigActivityInfo;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.widget.WidgetListRowEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Tests for {@link WidgetsModel}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WidgetsModelTest extends BaseModelUpdateTaskTestCase {
+
+    private static final String PACKAGE_1 = "com.example.one";
+    private static final String PACKAGE_2 = "com.example.two";
+
+    // Field holding the singleton of each of the mocked system service wrappers
+    private static final String INSTANCE_FIELD = "sInstance";
+
+    private final HashMap<String, String> mPackageTitles = new HashMap<>();
+    private final HashMap<String, Bitmap> mPackageIcons = new HashMap<>();
+    private final ArrayList<ShortcutConfigActivityInfo> mShortcuts = new ArrayList<>();
+
+    private WidgetsModel mModel;
+
+    @Before
+    public void setupWidgetsModel() {
+        IconCache iconCache = mock(IconCache.class);
+        doAnswer(inv -> {
+            PackageItemInfo info = (PackageItemInfo) inv.getArguments()[0];
+            info.title = mPackageTitles.get(info.packageName);
+            info.iconBitmap = mPackageIcons.get(info.packageName);
+            return null;
+        }).when(iconCache).getTitleAndIconForApp(any(PackageItemInfo.class), anyBoolean());
+        when(appState.getIconCache()).thenReturn(iconCache);
+        when(appState.getWidgetCache()).thenReturn(mock(WidgetPreviewLoader.class));
+
+        AppWidgetManagerCompat widgetManager = mock(AppWidgetManagerCompat.class);
+        when(widgetManager.getAllProviders(any())).thenReturn(new ArrayList<>());
+        LauncherAppsCompat launcherApps = mock(LauncherAppsCompat.class);
+        when(launcherApps.getCustomShortcutActivityList(any())).thenAnswer(inv -> {
+            PackageUserKey packageUser = (PackageUserKey) inv.getArguments()[0];
+            ArrayList<ShortcutConfigActivityInfo> result = new ArrayList<>();
+            for (ShortcutConfigActivityInfo info : mShortcuts) {
+                if (packageUser == null || (packageUser.mUser.equals(info.getUser())
+                        && packageUser.mPackageName.equals(
+                                info.getComponent().getPackageName()))) {
+                    result.add(info);
+                }
+            }
+            return result;
+        });
+        ReflectionHelpers.setStaticField(AppWidgetManagerCompat.class, INSTANCE_FIELD,
+                widgetManager);
+        ReflectionHelpers.setStaticField(LauncherAppsCompat.class, INSTANCE_FIELD, launcherApps);
+
+        addPackage(PACKAGE_1, "One");
+        addPackage(PACKAGE_2, "Two");
+        addShortcut(PACKAGE_1, "Shortcut 1");
+        addShortcut(PACKAGE_2, "Shortcut 2");
+
+        mModel = new WidgetsModel();
+        mModel.update(appState, null);
+    }
+
+    @After
+    public void tearDownWidgetsModel() {
+        ReflectionHelpers.setStaticField(AppWidgetManagerCompat.class, INSTANCE_FIELD, null);
+        ReflectionHelpers.setStaticField(LauncherAppsCompat.class, INSTANCE_FIELD, null);
+    }
+
+    @Test
+    public void testFullUpdate_unchangedPackagesKeepTheirRows() {
+        List<WidgetListRowEntry> rows = mModel.getWidgetsList(targetContext);
+        assertEquals(2, rows.size());
+
+        mModel.update(appState, null);
+        assertFalse(mModel.hasChanges());
+        List<WidgetListRowEntry> newRows = mModel.getWidgetsList(targetContext);
+        assertSame(getRow(rows, PACKAGE_1), getRow(newRows, PACKAGE_1));
+        assertSame(getRow(rows, PACKAGE_2), getRow(newRows, PACKAGE_2));
+    }
+
+    @Test
+    public void testFullUpdate_titleChanged() {
+        List<WidgetListRowEntry> rows = mModel.getWidgetsList(targetContext);
+
+        // eg. after a locale change
+        mPackageTitles.put(PACKAGE_1, "Uno");
+        mModel.update(appState, null);
+        assertTrue(mModel.hasChanges());
+        List<WidgetListRowEntry> newRows = mModel.getWidgetsList(targetContext);
+        assertEquals("Uno", getRow(newRows, PACKAGE_1).pkgItem.title);
+        assertEquals("U", getRow(newRows, PACKAGE_1).titleSectionName);
+        assertSame(getRow(rows, PACKAGE_2), getRow(newRows, PACKAGE_2));
+    }
+
+    @Test
+    public void testFullUpdate_iconChanged() {
+        List<WidgetListRowEntry> rows = mModel.getWidgetsList(targetContext);
+
+        mPackageIcons.put(PACKAGE_1, newIcon(Color.BLUE));
+        mModel.update(appState, null);
+        List<WidgetListRowEntry> newRows = mModel.getWidgetsList(targetContext);
+        assertSame(mPackageIcons.get(PACKAGE_1), getRow(newRows, PACKAGE_1).pkgItem.iconBitmap);
+        assertSame(getRow(rows, PACKAGE_2), getRow(newRows, PACKAGE_2));
+    }
+
+    @Test
+    public void testFullUpdate_sameIconInNewBitmap_keepsRow() {
+        List<WidgetListRowEntry> rows = mModel.getWidgetsList(targetContext);
+
+        // eg. after the memory cache of the icon cache was cleared
+        mPackageIcons.put(PACKAGE_1, newIcon(Color.RED));
+        mModel.update(appState, null);
+        assertFalse(mModel.hasChanges());
+        List<WidgetListRowEntry> newRows = mModel.getWidgetsList(targetContext);
+        assertSame(getRow(rows, PACKAGE_1), getRow(newRows, PACKAGE_1));
+    }
+
+    @Test
+    public void testPackageUpdate_onlyRebuildsPackageRow() {
+        List<WidgetListRowEntry> rows = mModel.getWidgetsList(targetContext);
+
+        addShortcut(PACKAGE_1, "Shortcut 3");
+        mModel.update(appState, new PackageUserKey(PACKAGE_1, myUser));
+        assertTrue(mModel.hasChanges());
+        List<WidgetListRowEntry> newRows = mModel.getWidgetsList(targetContext);
+        assertNotSame(getRow(rows, PACKAGE_1), getRow(newRows, PACKAGE_1));
+        assertEquals(2, getRow(newRows, PACKAGE_1).widgets.size());
+        assertSame(getRow(rows, PACKAGE_2), getRow(newRows, PACKAGE_2));
+    }
+
+    @Test
+    public void testPackageUpdate_packageRemoved() {
+        List<WidgetListRowEntry> rows = mModel.getWidgetsList(targetContext);
+
+        mShortcuts.removeIf(info -> info.getComponent().getPackageName().equals(PACKAGE_1));
+        mModel.update(appState, new PackageUserKey(PACKAGE_1, myUser));
+        assertTrue(mModel.hasChanges());
+        List<WidgetListRowEntry> newRows = mModel.getWidgetsList(targetContext);
+        assertEquals(1, newRows.size());
+        assertNull(getRow(newRows, PACKAGE_1));
+        assertSame(getRow(rows, PACKAGE_2), getRow(newRows, PACKAGE_2));
+    }
+
+    @Test
+    public void testGetWidgetsList_localeChanged_rebuildsRows() {
+        List<WidgetListRowEntry> rows = mModel.getWidgetsList(targetContext);
+
+        RuntimeEnvironment.setQualifiers("fr");
+        List<WidgetListRowEntry> newRows = mModel.getWidgetsList(targetContext);
+        assertNotSame(getRow(rows, PACKAGE_1), getRow(newRows, PACKAGE_1));
+        assertNotNull(getRow(newRows, PACKAGE_1).titleSectionName);
+    }
+
+    private void addPackage(String packageName, String title) {
+        mPackageTitles.put(packageName, title);
+        mPackageIcons.put(packageName, newIcon(Color.RED));
+    }
+
+    private void addShortcut(String packageName, String label) {
+        mShortcuts.add(new ShortcutConfigActivityInfo(
+                new ComponentName(packageName, label), myUser) {
+            @Override
+            public CharSequence getLabel(PackageManager pm) {
+                return label;
+            }
+
+            @Override
+            public Drawable getFullResIcon(IconCache cache) {
+                return null;
+            }
+
+            @Override
+            public boolean isPersistable() {
+                return false;
+            }
+        });
+    }
+
+    private static Bitmap newIcon(int color) {
+        Bitmap icon = Bitmap.createBitmap(1, 1, Config.ARGB_8888);
+        icon.eraseColor(color);
+        return icon;
+    }
+
+    private static WidgetListRowEntry getRow(List<WidgetListRowEntry> rows, String packageName) {
+        for (WidgetListRowEntry row : rows) {
+            if (row.pkgItem.packageName.equals(packageName)) {
+                return row;
+            }
+        }
+        return null;
+    }
+}
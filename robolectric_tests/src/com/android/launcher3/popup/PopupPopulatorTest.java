@@ -74,6 +74,18 @@ public class PopupPopulatorTest {
         filterShortcutsAndAssertNumStaticAndDynamic(createShortcutsList(2, 2), 2, 2, generateId(true, 4));
     }
 
+    @Test
+    public void testIsSameShortcuts() {
+        assertTrue(PopupPopulator.isSameShortcuts(
+                createShortcutsList(2, 2), createShortcutsList(2, 2)));
+        assertFalse(PopupPopulator.isSameShortcuts(
+                createShortcutsList(2, 2), createShortcutsList(2, 1)));
+
+        List<ShortcutInfo> reordered = createShortcutsList(2, 2);
+        Collections.reverse(reordered);
+        assertFalse(PopupPopulator.isSameShortcuts(createShortcutsList(2, 2), reordered));
+    }
+
     private String generateId(boolean isStatic, int rank) {
         return (isStatic ? "static" : "dynamic") + rank;
     }
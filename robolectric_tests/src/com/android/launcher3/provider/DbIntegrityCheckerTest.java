@@ -0,0 +1,127 @@
+package com.android.launcher3.provider;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_FOLDER;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.IntSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Tests for {@link DbIntegrityChecker}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DbIntegrityCheckerTest {
+
+    private SQLiteDatabase mDb;
+    private DbIntegrityChecker mChecker;
+
+    @Before
+    public void setup() {
+        mDb = SQLiteDatabase.create(null);
+        Favorites.addTableToDb(mDb, 0, false);
+        Favorites.addIndexesToDb(mDb);
+        mChecker = new DbIntegrityChecker();
+    }
+
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    @Test
+    public void testRun_removesBrokenItems() {
+        // Valid folder with one item
+        addItem(1, ITEM_TYPE_FOLDER, CONTAINER_DESKTOP, -1);
+        addItem(2, ITEM_TYPE_APPLICATION, 1, -1);
+        // Empty folder
+        addItem(3, ITEM_TYPE_FOLDER, CONTAINER_DESKTOP, -1);
+        // Items pointing to a missing folder
+        addItem(4, ITEM_TYPE_APPLICATION, 100, -1);
+        addItem(5, ITEM_TYPE_APPLICATION, 100, -1);
+        // Valid and dead widgets
+        addItem(6, ITEM_TYPE_APPWIDGET, CONTAINER_DESKTOP, 10);
+        addItem(7, ITEM_TYPE_APPWIDGET, CONTAINER_DESKTOP, 11);
+
+        IntSet deadIds = new IntSet();
+        deadIds.add(11);
+        IntArray deleted = mChecker.run(mDb, deadIds, 1);
+
+        assertEquals(4, deleted.size());
+        assertTrue(deleted.contains(3));
+        assertTrue(deleted.contains(4));
+        assertTrue(deleted.contains(5));
+        assertTrue(deleted.contains(7));
+        assertEquals(2, mChecker.getLastCount(DbIntegrityChecker.CATEGORY_ORPHANED_ITEMS));
+        assertEquals(1, mChecker.getLastCount(DbIntegrityChecker.CATEGORY_DEAD_WIDGETS));
+        assertEquals(1, mChecker.getLastCount(DbIntegrityChecker.CATEGORY_EMPTY_FOLDERS));
+        assertEquals(3, DatabaseUtils.queryNumEntries(mDb, Favorites.TABLE_NAME));
+    }
+
+    @Test
+    public void testRun_unknownWidgetIds_widgetsKept() {
+        addItem(1, ITEM_TYPE_APPWIDGET, CONTAINER_DESKTOP, 10);
+
+        assertTrue(mChecker.run(mDb, null, DbIntegrityChecker.DEFAULT_BATCH_SIZE).isEmpty());
+        assertEquals(1, DatabaseUtils.queryNumEntries(mDb, Favorites.TABLE_NAME));
+    }
+
+    @Test
+    public void testRun_noDeadWidgetIds_widgetsKept() {
+        // An empty host, eg, after a host reset, must not remove any widget
+        addItem(1, ITEM_TYPE_APPWIDGET, CONTAINER_DESKTOP, 10);
+        addItem(2, ITEM_TYPE_APPWIDGET, CONTAINER_DESKTOP, 11);
+
+        assertTrue(mChecker.run(mDb, new IntSet(), DbIntegrityChecker.DEFAULT_BATCH_SIZE)
+                .isEmpty());
+        assertEquals(2, DatabaseUtils.queryNumEntries(mDb, Favorites.TABLE_NAME));
+    }
+
+    @Test
+    public void testRun_restoringWidget_kept() {
+        addItem(1, ITEM_TYPE_APPWIDGET, CONTAINER_DESKTOP, 10);
+        ContentValues values = new ContentValues();
+        values.put(Favorites.RESTORED, 1);
+        mDb.update(Favorites.TABLE_NAME, values, null, null);
+
+        IntSet deadIds = new IntSet();
+        deadIds.add(10);
+        assertTrue(mChecker.run(mDb, deadIds, DbIntegrityChecker.DEFAULT_BATCH_SIZE).isEmpty());
+        assertEquals(1, DatabaseUtils.queryNumEntries(mDb, Favorites.TABLE_NAME));
+    }
+
+    @Test
+    public void testDeleteEmptyFolders() {
+        addItem(1, ITEM_TYPE_FOLDER, CONTAINER_DESKTOP, -1);
+        addItem(2, ITEM_TYPE_FOLDER, CONTAINER_DESKTOP, -1);
+        addItem(3, ITEM_TYPE_APPLICATION, 2, -1);
+
+        IntArray deleted = mChecker.deleteEmptyFolders(mDb);
+        assertEquals(1, deleted.size());
+        assertEquals(1, deleted.get(0));
+    }
+
+    private void addItem(int id, int type, int container, int appWidgetId) {
+        ContentValues values = new ContentValues();
+        values.put(Favorites._ID, id);
+        values.put(Favorites.ITEM_TYPE, type);
+        values.put(Favorites.CONTAINER, container);
+        values.put(Favorites.APPWIDGET_ID, appWidgetId);
+        mDb.insert(Favorites.TABLE_NAME, null, values);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import org.junit.Assume;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Test rule shared by the benchmarks. The benchmarks are skipped in regular test runs, along with
+ * their set up, unless -Dlauncher.benchmark=true is passed. {@link #run} runs the iterations of
+ * a benchmark and reports the {@link PhaseProfiler} samples, without the warm-up iterations.
+ *
+ * <p>Usage:
+ * <pre>
+ * {@literal @}Rule public final BenchmarkRule benchmark = new BenchmarkRule(2, 10);
+ *
+ * {@literal @}Test public void benchmarkFoo() throws Exception {
+ *     benchmark.run("foo", (profiler, iteration) -> {
+ *         profiler.begin("phase");
+ *         ...
+ *         profiler.end();
+ *     });
+ * }
+ * </pre>
+ */
+public final class BenchmarkRule implements TestRule {
+
+    private static final String BENCHMARK_PROPERTY = "launcher.benchmark";
+
+    private final int mWarmupIterations;
+    private final int mIterations;
+
+    public BenchmarkRule(int warmupIterations, int iterations) {
+        mWarmupIterations = warmupIterations;
+        mIterations = iterations;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                Assume.assumeTrue("Benchmarks are only run with -D" + BENCHMARK_PROPERTY + "=true",
+                        Boolean.getBoolean(BENCHMARK_PROPERTY));
+                base.evaluate();
+            }
+        };
+    }
+
+    /**
+     * Runs the warm-up iterations followed by the measured ones, and prints the report.
+     */
+    public void run(String title, Iteration iteration) throws Exception {
+        PhaseProfiler profiler = new PhaseProfiler();
+        for (int i = 0; i < mWarmupIterations + mIterations; i++) {
+            if (i == mWarmupIterations) {
+                profiler.reset();
+            }
+            iteration.run(profiler, i);
+        }
+        profiler.report(title, System.out);
+    }
+
+    public interface Iteration {
+
+        /**
+         * Runs one iteration of the benchmark, timing its phases with {@param profiler}.
+         */
+        void run(PhaseProfiler profiler, int iteration) throws Exception;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Tests for {@link BitmapPool}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BitmapPoolTest {
+
+    // Size of a 16x16 ARGB_8888 bitmap
+    private static final int BYTES_16 = 16 * 16 * 4;
+
+    private final BitmapPool mPool = new BitmapPool(BYTES_16 * 4);
+
+    @Test
+    public void testGet_emptyPool() {
+        assertNull(mPool.get(16, 16));
+    }
+
+    @Test
+    public void testPutGet_sameSize() {
+        Bitmap bitmap = createBitmap(16, 16);
+        mPool.put(bitmap);
+
+        assertSame(bitmap, mPool.get(16, 16));
+        // The bitmap is no longer in the pool
+        assertNull(mPool.get(16, 16));
+    }
+
+    @Test
+    public void testPut_sameBitmapTwice() {
+        Bitmap bitmap = createBitmap(16, 16);
+        mPool.put(bitmap);
+        mPool.put(bitmap);
+
+        assertSame(bitmap, mPool.get(16, 16));
+        assertNull(mPool.get(16, 16));
+    }
+
+    @Test
+    public void testGet_reconfiguresSmallerRequest() {
+        Bitmap bitmap = createBitmap(16, 16);
+        mPool.put(bitmap);
+
+        // 12x12 is in the same size class as 16x16
+        Bitmap reused = mPool.get(12, 12);
+        assertSame(bitmap, reused);
+        assertEquals(12, reused.getWidth());
+        assertEquals(12, reused.getHeight());
+    }
+
+    @Test
+    public void testGet_reusesNextSizeClass() {
+        Bitmap bitmap = createBitmap(16, 16);
+        mPool.put(bitmap);
+
+        // 11x11 is one size class below 16x16
+        assertSame(bitmap, mPool.get(11, 11));
+    }
+
+    @Test
+    public void testGet_doesNotReuseMuchLargerBitmap() {
+        Bitmap bitmap = createBitmap(16, 16);
+        mPool.put(bitmap);
+
+        // 8x8 is two size classes below 16x16
+        assertNull(mPool.get(8, 8));
+        assertSame(bitmap, mPool.get(16, 16));
+    }
+
+    @Test
+    public void testGet_doesNotReuseSmallerBitmap() {
+        mPool.put(createBitmap(16, 16));
+        assertNull(mPool.get(17, 17));
+    }
+
+    @Test
+    public void testPut_ignoresUnusableBitmaps() {
+        mPool.put(null);
+        mPool.put(createBitmap(16, 16).copy(Config.ARGB_8888, false /* isMutable */));
+        mPool.put(Bitmap.createBitmap(16, 16, Config.RGB_565));
+        Bitmap recycled = createBitmap(16, 16);
+        recycled.recycle();
+        mPool.put(recycled);
+        // Larger than the whole pool
+        mPool.put(createBitmap(64, 64));
+
+        assertNull(mPool.get(16, 16));
+        assertNull(mPool.get(64, 64));
+    }
+
+    @Test
+    public void testPut_evictsLargestWhenFull() {
+        Bitmap large = createBitmap(16, 32);
+        mPool.put(large);
+        mPool.put(createBitmap(16, 16));
+        mPool.put(createBitmap(16, 16));
+        // Does not fit with the others, the largest bitmap is evicted
+        mPool.put(createBitmap(16, 8));
+
+        assertNull(mPool.get(16, 32));
+        assertNotNull(mPool.get(16, 16));
+        assertNotNull(mPool.get(16, 16));
+        assertNotNull(mPool.get(16, 8));
+    }
+
+    @Test
+    public void testClear() {
+        mPool.put(createBitmap(16, 16));
+        mPool.clear();
+
+        assertNull(mPool.get(16, 16));
+        // The evicted bytes are no longer counted
+        Bitmap large = createBitmap(32, 32);
+        mPool.put(large);
+        assertSame(large, mPool.get(32, 32));
+    }
+
+    private static Bitmap createBitmap(int width, int height) {
+        return Bitmap.createBitmap(width, height, Config.ARGB_8888);
+    }
+}
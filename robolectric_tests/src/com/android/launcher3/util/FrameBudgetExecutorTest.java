@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Tests for {@link FrameBudgetExecutor}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FrameBudgetExecutorTest {
+
+    private static final long BUDGET_MS = 8;
+
+    private long mTime;
+    private int mTasksRun;
+    private FrameBudgetExecutor mExecutor;
+
+    @Before
+    public void setup() {
+        // Frames are run by calling the executor directly
+        ShadowLooper.pauseMainLooper();
+        mExecutor = new FrameBudgetExecutor(BUDGET_MS, () -> mTime);
+    }
+
+    @Test
+    public void testRun_stopsWhenBudgetIsUsed() {
+        for (int i = 0; i < 5; i++) {
+            mExecutor.execute(() -> runTask(3));
+        }
+        assertEquals(0, mTasksRun);
+
+        // 3 tasks of 3ms exceed the budget of 8ms
+        mExecutor.run();
+        assertEquals(3, mTasksRun);
+        mExecutor.run();
+        assertEquals(5, mTasksRun);
+        mExecutor.run();
+        assertEquals(5, mTasksRun);
+    }
+
+    @Test
+    public void testRun_runsOneTaskPerFrameAtLeast() {
+        for (int i = 0; i < 3; i++) {
+            mExecutor.execute(() -> runTask(BUDGET_MS * 2));
+        }
+        mExecutor.run();
+        assertEquals(1, mTasksRun);
+        mExecutor.run();
+        assertEquals(2, mTasksRun);
+    }
+
+    @Test
+    public void testRun_budgetRestartsEveryFrame() {
+        mExecutor.execute(() -> runTask(BUDGET_MS - 1));
+        mExecutor.execute(() -> runTask(BUDGET_MS - 1));
+        mExecutor.run();
+        assertEquals(2, mTasksRun);
+
+        mExecutor.execute(() -> runTask(BUDGET_MS - 1));
+        mExecutor.execute(() -> runTask(BUDGET_MS - 1));
+        mExecutor.execute(() -> runTask(BUDGET_MS - 1));
+        mExecutor.run();
+        assertEquals(4, mTasksRun);
+    }
+
+    @Test
+    public void testFlush_runsAllPendingTasks() {
+        for (int i = 0; i < 5; i++) {
+            mExecutor.execute(() -> runTask(BUDGET_MS));
+        }
+        mExecutor.run();
+        assertEquals(1, mTasksRun);
+
+        mExecutor.flush();
+        assertEquals(5, mTasksRun);
+        mExecutor.run();
+        assertEquals(5, mTasksRun);
+    }
+
+    private void runTask(long durationMillis) {
+        mTime += durationMillis;
+        mTasksRun++;
+    }
+}
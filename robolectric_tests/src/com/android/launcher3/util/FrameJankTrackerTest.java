@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Tests for {@link FrameJankTracker}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FrameJankTrackerTest {
+
+    private static final long FRAME_NANOS = 16_000_000;
+
+    private int mMaxFramesReached;
+
+    @Before
+    public void setup() {
+        // Frames are run by calling the tracker directly
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @Test
+    public void testDoFrame_countsJankyFrames() {
+        FrameJankTracker tracker = new FrameJankTracker();
+        tracker.start();
+        long time = 1;
+        tracker.doFrame(time);
+        tracker.doFrame(time += FRAME_NANOS);
+        tracker.doFrame(time += FrameJankTracker.JANK_THRESHOLD_NANOS);
+        tracker.doFrame(time += FrameJankTracker.JANK_THRESHOLD_NANOS + 1);
+        tracker.doFrame(time + 3 * FRAME_NANOS);
+
+        assertEquals(4, tracker.getFrameCount());
+        assertEquals(2, tracker.getJankyFrameCount());
+        assertEquals("frames=4 janky=2 max=48.0ms avg=24.5ms", tracker.getSummary());
+    }
+
+    @Test
+    public void testStop_ignoresLaterFrames() {
+        FrameJankTracker tracker = new FrameJankTracker();
+        tracker.start();
+        tracker.doFrame(1);
+        tracker.doFrame(1 + FRAME_NANOS);
+        tracker.stop();
+        assertFalse(tracker.isTracking());
+
+        tracker.doFrame(1 + 10 * FRAME_NANOS);
+        assertEquals(1, tracker.getFrameCount());
+        assertEquals(0, tracker.getJankyFrameCount());
+    }
+
+    @Test
+    public void testStart_clearsPreviousCounts() {
+        FrameJankTracker tracker = new FrameJankTracker();
+        tracker.start();
+        tracker.doFrame(1);
+        tracker.doFrame(1 + 2 * FRAME_NANOS);
+        tracker.stop();
+
+        tracker.start();
+        assertEquals(0, tracker.getFrameCount());
+        assertNull(tracker.getSummary());
+
+        // The first frame after a start has no previous frame
+        tracker.doFrame(1 + 10 * FRAME_NANOS);
+        assertEquals(0, tracker.getFrameCount());
+    }
+
+    @Test
+    public void testDoFrame_stopsAfterMaxFrames() {
+        FrameJankTracker tracker = new FrameJankTracker(2, () -> mMaxFramesReached++);
+        tracker.start();
+        tracker.doFrame(1);
+        tracker.doFrame(1 + FRAME_NANOS);
+        assertTrue(tracker.isTracking());
+        tracker.doFrame(1 + 2 * FRAME_NANOS);
+
+        assertFalse(tracker.isTracking());
+        assertEquals(1, mMaxFramesReached);
+        assertEquals(2, tracker.getFrameCount());
+    }
+}
@@ -0,0 +1,76 @@
+package com.android.launcher3.util;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates app titles resembling the ones installed on devices set to a given locale: mostly
+ * titles in the script of the locale, mixed with latin titles as most apps are not translated.
+ */
+public class LocalizedTitleGenerator {
+
+    // Fraction of the titles in the script of the locale, for non latin locales
+    private static final float NATIVE_TITLE_RATIO = 0.7f;
+
+    private static final String[] LATIN = {
+            "ka", "lo", "mi", "ne", "ro", "sa", "ti", "vu", "ze", "pho", "cal", "cam", "dar",
+            "en", "gram", "lex", "map", "net", "ox", "tune"};
+    private static final String[] HAN = {
+            "电", "子", "邮", "件", "音", "乐", "相", "机", "设", "置", "日", "历", "地", "图",
+            "天", "气", "时", "钟", "文", "管", "理", "器", "视", "频", "浏", "览", "微", "信"};
+    private static final String[] JAPANESE = {
+            "カメラ", "メール", "マップ", "ニュース", "ゲーム", "ミュージック", "フォト", "設定",
+            "時計", "電話", "天気", "地図", "写真", "の", "と", "あ", "さ", "ひ", "ら", "ぽ"};
+    private static final String[] ARABIC = {
+            "كا", "مي", "لو", "سا", "نو", "را", "تي", "بي", "هو", "دا", "ور", "يل", "فا",
+            "جو", "خا", "قي"};
+
+    private final Random mRandom;
+    private final String[] mNativeSyllables;
+    // Whether the words of the titles in the script of the locale are separated by spaces
+    private final boolean mNativeUsesSpaces;
+
+    public LocalizedTitleGenerator(Locale locale, long seed) {
+        mRandom = new Random(seed);
+        switch (locale.getLanguage()) {
+            case "zh":
+                mNativeSyllables = HAN;
+                mNativeUsesSpaces = false;
+                break;
+            case "ja":
+                mNativeSyllables = JAPANESE;
+                mNativeUsesSpaces = false;
+                break;
+            case "ar":
+                mNativeSyllables = ARABIC;
+                mNativeUsesSpaces = true;
+                break;
+            default:
+                mNativeSyllables = null;
+                mNativeUsesSpaces = true;
+                break;
+        }
+    }
+
+    public String next() {
+        if (mNativeSyllables != null && mRandom.nextFloat() < NATIVE_TITLE_RATIO) {
+            return mNativeUsesSpaces
+                    ? nextWord(mNativeSyllables, 3) + " " + nextWord(mNativeSyllables, 2)
+                    : nextWord(mNativeSyllables, 4);
+        }
+        String title = nextWord(LATIN, 3);
+        if (mRandom.nextBoolean()) {
+            title += " " + nextWord(LATIN, 2);
+        }
+        return Character.toUpperCase(title.charAt(0)) + title.substring(1);
+    }
+
+    private String nextWord(String[] syllables, int maxSyllables) {
+        StringBuilder sb = new StringBuilder();
+        int count = 1 + mRandom.nextInt(maxSyllables);
+        for (int i = 0; i < count; i++) {
+            sb.append(syllables[mRandom.nextInt(syllables.length)]);
+        }
+        return sb.toString();
+    }
+}
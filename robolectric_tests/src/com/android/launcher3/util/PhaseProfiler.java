@@ -0,0 +1,134 @@
+package com.android.launcher3.util;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records wall time, allocated bytes and lock wait time of named phases running on the calling
+ * thread, over multiple iterations.
+ */
+public class PhaseProfiler {
+
+    private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
+    private final boolean mAllocationsSupported;
+    private final boolean mContentionSupported;
+
+    private final LinkedHashMap<String, List<Sample>> mSamples = new LinkedHashMap<>();
+
+    private String mCurrentPhase;
+    private long mStartNanos;
+    private long mStartAllocated;
+    private long mStartLockWait;
+
+    public PhaseProfiler() {
+        mAllocationsSupported = mThreadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) mThreadBean)
+                        .isThreadAllocatedMemorySupported();
+        if (mAllocationsSupported) {
+            ((com.sun.management.ThreadMXBean) mThreadBean).setThreadAllocatedMemoryEnabled(true);
+        }
+        mContentionSupported = mThreadBean.isThreadContentionMonitoringSupported();
+        if (mContentionSupported) {
+            mThreadBean.setThreadContentionMonitoringEnabled(true);
+        }
+    }
+
+    public void begin(String phase) {
+        if (mCurrentPhase != null) {
+            throw new IllegalStateException("Phase " + mCurrentPhase + " is still running");
+        }
+        mCurrentPhase = phase;
+        mStartAllocated = getAllocatedBytes();
+        mStartLockWait = getLockWaitMillis();
+        mStartNanos = System.nanoTime();
+    }
+
+    public void end() {
+        long wallNanos = System.nanoTime() - mStartNanos;
+        Sample sample = new Sample(wallNanos,
+                getAllocatedBytes() - mStartAllocated,
+                getLockWaitMillis() - mStartLockWait);
+
+        List<Sample> samples = mSamples.get(mCurrentPhase);
+        if (samples == null) {
+            samples = new ArrayList<>();
+            mSamples.put(mCurrentPhase, samples);
+        }
+        samples.add(sample);
+        mCurrentPhase = null;
+    }
+
+    /**
+     * Drops all the samples recorded so far, used to discard the warm-up iterations.
+     */
+    public void reset() {
+        mSamples.clear();
+    }
+
+    public void report(String title, PrintStream out) {
+        out.println("Benchmark: " + title);
+        out.println(String.format(Locale.ENGLISH, "  %-16s %6s %12s %12s %14s %12s",
+                "phase", "runs", "median(ms)", "min(ms)", "alloc(KB)", "lockWait(ms)"));
+        for (Map.Entry<String, List<Sample>> entry : mSamples.entrySet()) {
+            List<Sample> samples = entry.getValue();
+            long[] wall = new long[samples.size()];
+            long minWall = Long.MAX_VALUE;
+            long allocated = 0;
+            long lockWait = 0;
+            for (int i = 0; i < samples.size(); i++) {
+                Sample s = samples.get(i);
+                wall[i] = s.wallNanos;
+                minWall = Math.min(minWall, s.wallNanos);
+                allocated += s.allocatedBytes;
+                lockWait += s.lockWaitMillis;
+            }
+            Arrays.sort(wall);
+            int n = samples.size();
+            out.println(String.format(Locale.ENGLISH, "  %-16s %6d %12.2f %12.2f %14s %12s",
+                    entry.getKey(), n,
+                    wall[n / 2] / 1e6, minWall / 1e6,
+                    mAllocationsSupported ? Long.toString(allocated / n / 1024) : "n/a",
+                    mContentionSupported ? Long.toString(lockWait / n) : "n/a"));
+        }
+    }
+
+    private long getAllocatedBytes() {
+        if (!mAllocationsSupported) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) mThreadBean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Total time the current thread has spent blocked on monitors or waiting for a notification.
+     */
+    private long getLockWaitMillis() {
+        if (!mContentionSupported) {
+            return 0;
+        }
+        ThreadInfo info = mThreadBean.getThreadInfo(Thread.currentThread().getId());
+        return info == null ? 0 : Math.max(0, info.getBlockedTime())
+                + Math.max(0, info.getWaitedTime());
+    }
+
+    private static class Sample {
+        final long wallNanos;
+        final long allocatedBytes;
+        final long lockWaitMillis;
+
+        Sample(long wallNanos, long allocatedBytes, long lockWaitMillis) {
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.lockWaitMillis = lockWaitMillis;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.android.launcher3.util;
+
+import android.content.ComponentName;
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Process;
+import android.os.UserHandle;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.LauncherAppWidgetInfo;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Generates a synthetic favorites table of configurable size, along with the apps and widget
+ * providers it references, for benchmarking the model.
+ */
+public class SyntheticLauncherDb {
+
+    public static final String PACKAGE_PREFIX = "com.android.launcher3.synthetic.app";
+    private static final String ACTIVITY_NAME = ".MainActivity";
+    private static final String WIDGET_NAME = ".WidgetProvider";
+
+    // Serial number difference between two synthetic profiles
+    private static final int PROFILE_SERIAL_STEP = 10;
+
+    private int mScreens = 5;
+    private int mItemsPerScreen = 12;
+    private int mFoldersPerScreen = 2;
+    private int mItemsPerFolder = 6;
+    private int mWidgetsPerScreen = 1;
+    private int mHotseatItems = 5;
+    private int mProfiles = 1;
+    private int mAppCount = 100;
+    private int mColumns = 5;
+    private int mRows = 5;
+
+    private final List<UserHandle> mUsers = new ArrayList<>();
+    private final List<ComponentKey> mApps = new ArrayList<>();
+    private final List<ComponentKey> mWidgetProviders = new ArrayList<>();
+    private final HashSet<String> mPackages = new HashSet<>();
+    private int mItemCount;
+    private int mNextAppIndex;
+
+    public SyntheticLauncherDb setScreens(int screens) {
+        mScreens = screens;
+        return this;
+    }
+
+    public SyntheticLauncherDb setItemsPerScreen(int itemsPerScreen) {
+        mItemsPerScreen = itemsPerScreen;
+        return this;
+    }
+
+    public SyntheticLauncherDb setFolders(int foldersPerScreen, int itemsPerFolder) {
+        mFoldersPerScreen = foldersPerScreen;
+        mItemsPerFolder = itemsPerFolder;
+        return this;
+    }
+
+    public SyntheticLauncherDb setWidgetsPerScreen(int widgetsPerScreen) {
+        mWidgetsPerScreen = widgetsPerScreen;
+        return this;
+    }
+
+    public SyntheticLauncherDb setHotseatItems(int hotseatItems) {
+        mHotseatItems = hotseatItems;
+        return this;
+    }
+
+    public SyntheticLauncherDb setProfiles(int profiles) {
+        mProfiles = profiles;
+        return this;
+    }
+
+    public SyntheticLauncherDb setAppCount(int appCount) {
+        mAppCount = appCount;
+        return this;
+    }
+
+    public SyntheticLauncherDb setGridSize(int columns, int rows) {
+        mColumns = columns;
+        mRows = rows;
+        return this;
+    }
+
+    /**
+     * Returns the serial number used for the profile at {@param index}.
+     */
+    public static long getSerialNumber(int index) {
+        return index * PROFILE_SERIAL_STEP;
+    }
+
+    public List<UserHandle> getUsers() {
+        return mUsers;
+    }
+
+    /**
+     * All the launchable activities, for every profile.
+     */
+    public List<ComponentKey> getApps() {
+        return mApps;
+    }
+
+    public List<ComponentKey> getWidgetProviders() {
+        return mWidgetProviders;
+    }
+
+    public HashSet<String> getPackages() {
+        return mPackages;
+    }
+
+    /**
+     * Number of rows, including folders and widgets, written by the last call to
+     * {@link #populate(SQLiteDatabase)}.
+     */
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * Clears the favorites table of {@param db} and fills it with the synthetic layout.
+     */
+    public void populate(SQLiteDatabase db) {
+        mUsers.clear();
+        mApps.clear();
+        mWidgetProviders.clear();
+        mPackages.clear();
+        mItemCount = 0;
+        mNextAppIndex = 0;
+
+        for (int p = 0; p < mProfiles; p++) {
+            UserHandle user = p == 0 ? Process.myUserHandle()
+                    : UserHandle.of((int) getSerialNumber(p));
+            mUsers.add(user);
+            for (int i = 0; i < mAppCount; i++) {
+                String pkg = PACKAGE_PREFIX + i;
+                mPackages.add(pkg);
+                mApps.add(new ComponentKey(new ComponentName(pkg, pkg + ACTIVITY_NAME), user));
+            }
+        }
+
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            db.delete(Favorites.TABLE_NAME, null, null);
+            int nextId = 1;
+
+            for (int i = 0; i < mHotseatItems; i++) {
+                insertApp(db, nextId++, Favorites.CONTAINER_HOTSEAT, i, i, 0);
+            }
+
+            int[] cell = new int[2];
+            for (int screen = 1; screen <= mScreens; screen++) {
+                GridOccupancy occupancy = new GridOccupancy(mColumns, mRows);
+
+                for (int i = 0; i < mWidgetsPerScreen; i++) {
+                    if (!occupancy.findVacantCell(cell, 2, 2)) {
+                        break;
+                    }
+                    occupancy.markCells(cell[0], cell[1], 2, 2, true);
+                    insertWidget(db, nextId++, screen, cell[0], cell[1]);
+                }
+
+                for (int i = 0; i < mFoldersPerScreen; i++) {
+                    if (!occupancy.findVacantCell(cell, 1, 1)) {
+                        break;
+                    }
+                    occupancy.markCells(cell[0], cell[1], 1, 1, true);
+                    int folderId = nextId++;
+                    insertFolder(db, folderId, screen, cell[0], cell[1]);
+                    for (int rank = 0; rank < mItemsPerFolder; rank++) {
+                        insertApp(db, nextId++, folderId, 0, rank % mColumns, rank / mColumns);
+                    }
+                }
+
+                for (int i = 0; i < mItemsPerScreen; i++) {
+                    if (!occupancy.findVacantCell(cell, 1, 1)) {
+                        break;
+                    }
+                    occupancy.markCells(cell[0], cell[1], 1, 1, true);
+                    insertApp(db, nextId++, Favorites.CONTAINER_DESKTOP, screen, cell[0], cell[1]);
+                }
+            }
+            t.commit();
+        }
+    }
+
+    private void insertApp(SQLiteDatabase db, int id, int container, int screen, int x, int y) {
+        // Go over the apps of all the profiles in turn, so that every profile gets items
+        ComponentKey app = mApps.get(mNextAppIndex++ % mApps.size());
+        ContentValues values = newValues(id, container, screen, x, y, 1, 1);
+        values.put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_APPLICATION);
+        values.put(Favorites.INTENT, AppInfo.makeLaunchIntent(app.componentName).toUri(0));
+        values.put(Favorites.PROFILE_ID, getSerialNumber(mUsers.indexOf(app.user)));
+        insert(db, values);
+    }
+
+    private void insertFolder(SQLiteDatabase db, int id, int screen, int x, int y) {
+        ContentValues values = newValues(id, Favorites.CONTAINER_DESKTOP, screen, x, y, 1, 1);
+        values.put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_FOLDER);
+        values.put(Favorites.TITLE, "Folder " + id);
+        values.put(Favorites.PROFILE_ID, getSerialNumber(0));
+        insert(db, values);
+    }
+
+    private void insertWidget(SQLiteDatabase db, int id, int screen, int x, int y) {
+        String pkg = PACKAGE_PREFIX + (mWidgetProviders.size() % mAppCount);
+        ComponentName provider = new ComponentName(pkg, pkg + WIDGET_NAME);
+        mWidgetProviders.add(new ComponentKey(provider, mUsers.get(0)));
+
+        ContentValues values = newValues(id, Favorites.CONTAINER_DESKTOP, screen, x, y, 2, 2);
+        values.put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_APPWIDGET);
+        values.put(Favorites.APPWIDGET_ID, id);
+        values.put(Favorites.APPWIDGET_PROVIDER, provider.flattenToString());
+        values.put(Favorites.RESTORED, LauncherAppWidgetInfo.RESTORE_COMPLETED);
+        values.put(Favorites.PROFILE_ID, getSerialNumber(0));
+        insert(db, values);
+    }
+
+    private static ContentValues newValues(
+            int id, int container, int screen, int x, int y, int spanX, int spanY) {
+        ContentValues values = new ContentValues();
+        values.put(Favorites._ID, id);
+        values.put(Favorites.CONTAINER, container);
+        values.put(Favorites.SCREEN, screen);
+        values.put(Favorites.CELLX, x);
+        values.put(Favorites.CELLY, y);
+        values.put(Favorites.SPANX, spanX);
+        values.put(Favorites.SPANY, spanY);
+        return values;
+    }
+
+    private void insert(SQLiteDatabase db, ContentValues values) {
+        db.insert(Favorites.TABLE_NAME, null, values);
+        mItemCount++;
+    }
+}
@@ -51,6 +51,12 @@ public class TestLauncherProvider extends LauncherProvider {
         @Override
         protected void onEmptyDbCreated() { }
 
+        @Override
+        public IntSet getDeadWidgetIds(SQLiteDatabase db) {
+            // There is no widget host in tests, so skip the dead widget check.
+            return new IntSet();
+        }
+
         @Override
         protected void handleOneTimeDataUpgrade(SQLiteDatabase db) { }
     }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.view.View;
+
+import com.android.launcher3.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Tests for {@link ViewCache}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ViewCacheTest {
+
+    private static final int LAYOUT_ID = R.layout.widget_list_divider;
+
+    private Context mContext;
+    private ViewCache mCache;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new ViewCache();
+        mCache.setCacheSize(LAYOUT_ID, 2);
+    }
+
+    @Test
+    public void testGetView_inflatesWhenEmpty() {
+        assertNotNull(mCache.getView(LAYOUT_ID, mContext, null));
+    }
+
+    @Test
+    public void testGetView_returnsLastRecycledViewFirst() {
+        View view1 = new View(mContext);
+        View view2 = new View(mContext);
+        mCache.recycleView(LAYOUT_ID, view1);
+        mCache.recycleView(LAYOUT_ID, view2);
+
+        assertSame(view2, mCache.getView(LAYOUT_ID, mContext, null));
+        assertSame(view1, mCache.getView(LAYOUT_ID, mContext, null));
+        assertNotSame(view1, mCache.getView(LAYOUT_ID, mContext, null));
+    }
+
+    @Test
+    public void testRecycleView_dropsViewsAboveCacheSize() {
+        View view1 = new View(mContext);
+        View view2 = new View(mContext);
+        View view3 = new View(mContext);
+        mCache.recycleView(LAYOUT_ID, view1);
+        mCache.recycleView(LAYOUT_ID, view2);
+        mCache.recycleView(LAYOUT_ID, view3);
+
+        assertSame(view2, mCache.getView(LAYOUT_ID, mContext, null));
+        assertSame(view1, mCache.getView(LAYOUT_ID, mContext, null));
+    }
+
+    @Test
+    public void testSetCacheSize_sameSizeKeepsViews() {
+        View view = new View(mContext);
+        mCache.recycleView(LAYOUT_ID, view);
+
+        mCache.setCacheSize(LAYOUT_ID, 2);
+        assertSame(view, mCache.getView(LAYOUT_ID, mContext, null));
+    }
+
+    @Test
+    public void testSetCacheSize_newSizeDropsViews() {
+        View view = new View(mContext);
+        mCache.recycleView(LAYOUT_ID, view);
+
+        mCache.setCacheSize(LAYOUT_ID, 3);
+        assertNotSame(view, mCache.getView(LAYOUT_ID, mContext, null));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.android.launcher3.widget.WidgetPerformanceTracker.PHASE_DRAW;
+import static com.android.launcher3.widget.WidgetPerformanceTracker.PHASE_UPDATE;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+
+/**
+ * Tests for {@link WidgetPerformanceTracker}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WidgetPerformanceTrackerTest {
+
+    private static final long BUDGET_NANOS = 8_000_000;
+    // Number of samples kept by the ring buffers
+    private static final int SAMPLE_COUNT = 64;
+
+    private final ComponentName mProvider1 = new ComponentName("com.example", "Provider1");
+    private final ComponentName mProvider2 = new ComponentName("com.example", "Provider2");
+
+    private WidgetPerformanceTracker mTracker;
+
+    @Before
+    public void setup() {
+        mTracker = new WidgetPerformanceTracker(BUDGET_NANOS);
+    }
+
+    @Test
+    public void testGetReports_percentiles() {
+        // 1ms to 64ms
+        recordMillis(mProvider1, PHASE_UPDATE, 1, SAMPLE_COUNT);
+
+        ArrayList<WidgetPerformanceTracker.Report> reports = mTracker.getReports();
+        assertEquals(1, reports.size());
+        assertEquals(mProvider1, reports.get(0).provider);
+        assertEquals("update: n=64 p50=32.0ms p90=57.0ms p99=63.0ms", reports.get(0).summary);
+    }
+
+    @Test
+    public void testGetReports_ringBufferKeepsLastSamples() {
+        // 1ms to 100ms, only 37ms to 100ms are kept
+        recordMillis(mProvider1, PHASE_UPDATE, 1, 100);
+
+        assertEquals("update: n=100 p50=68.0ms p90=93.0ms p99=99.0ms",
+                mTracker.getReports().get(0).summary);
+    }
+
+    @Test
+    public void testGetReports_ringBufferOverwritesOldestSamples() {
+        // The slow samples are all overwritten by fast ones
+        recordMillis(mProvider1, PHASE_DRAW, 50, 50 + SAMPLE_COUNT - 1);
+        recordMillis(mProvider1, PHASE_DRAW, 1, SAMPLE_COUNT);
+
+        WidgetPerformanceTracker.Report report = mTracker.getReports().get(0);
+        assertEquals("draw: n=128 p50=32.0ms p90=57.0ms p99=63.0ms", report.summary);
+    }
+
+    @Test
+    public void testGetReports_partialBuffer() {
+        recordMillis(mProvider1, PHASE_UPDATE, 1, 3);
+
+        assertEquals("update: n=3 p50=2.0ms p90=2.0ms p99=2.0ms",
+                mTracker.getReports().get(0).summary);
+    }
+
+    @Test
+    public void testGetReports_slowProvidersFirst() {
+        recordMillis(mProvider1, PHASE_DRAW, 1, 5);
+        recordMillis(mProvider2, PHASE_DRAW, 1, 5);
+        // The 90th percentile of provider2 exceeds the budget
+        recordMillis(mProvider2, PHASE_UPDATE, 20, 30);
+
+        ArrayList<WidgetPerformanceTracker.Report> reports = mTracker.getReports();
+        assertEquals(2, reports.size());
+        assertEquals(mProvider2, reports.get(0).provider);
+        assertTrue(reports.get(0).isSlow);
+        assertEquals(mProvider1, reports.get(1).provider);
+        assertFalse(reports.get(1).isSlow);
+        assertEquals("update: n=11 p50=25.0ms p90=29.0ms p99=29.0ms, "
+                + "draw: n=5 p50=3.0ms p90=4.0ms p99=4.0ms", reports.get(0).summary);
+    }
+
+    @Test
+    public void testPercentile_nearestRankBelow() {
+        long[] sorted = {10, 20, 30, 40, 50};
+        assertEquals(10, WidgetPerformanceTracker.percentile(sorted, 0));
+        assertEquals(30, WidgetPerformanceTracker.percentile(sorted, 50));
+        assertEquals(40, WidgetPerformanceTracker.percentile(sorted, 90));
+        assertEquals(50, WidgetPerformanceTracker.percentile(sorted, 100));
+        assertEquals(7, WidgetPerformanceTracker.percentile(new long[] {7}, 99));
+    }
+
+    @Test
+    public void testRecord_ignoresMissingProvider() {
+        mTracker.record(null, PHASE_DRAW, BUDGET_NANOS);
+        assertTrue(mTracker.getReports().isEmpty());
+    }
+
+    private void recordMillis(ComponentName provider, int phase, int fromMillis, int toMillis) {
+        for (int millis = fromMillis; millis <= toMillis; millis++) {
+            mTracker.record(provider, phase, millis * 1_000_000L);
+        }
+    }
+}
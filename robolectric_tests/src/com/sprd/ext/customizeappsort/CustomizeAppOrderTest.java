@@ -0,0 +1,110 @@
+package com.sprd.ext.customizeappsort;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ComponentName;
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.Pair;
+import android.util.SparseArray;
+
+import com.android.launcher3.AppInfo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for {@link CustomizeAppOrder}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CustomizeAppOrderTest {
+
+    private static final UserHandle WORK_USER = UserHandle.of(10);
+
+    @Test
+    public void testApply_movesAppsToPositions() {
+        CustomizeAppOrder order = newOrder("p3/c#0", "p1#2", "p9#4", "p5/c#100");
+        List<AppInfo> apps = getApps("p0", "p1", "p2", "p3", "p4", "p5");
+        order.apply(apps);
+        assertEquals(Arrays.asList("p3", "p0", "p1", "p2", "p4", "p5"), getPackages(apps));
+    }
+
+    @Test
+    public void testApply_placesCloneAfterOwner() {
+        CustomizeAppOrder order = newOrder("p2/c#0", "p3/c#1");
+        List<AppInfo> apps = getApps("p0", "p1", "p2", "p3");
+        AppInfo clone = app("p2", WORK_USER);
+        apps.add(1, clone);
+        order.apply(apps);
+
+        assertEquals(Arrays.asList("p2", "p3", "p2", "p0", "p1"), getPackages(apps));
+        assertEquals(clone, apps.get(2));
+    }
+
+    @Test
+    public void testApply_activityRuleWinsOverPackageRule() {
+        // The package rule has the lower position, but must not take the configured activity
+        CustomizeAppOrder order = newOrder("p1#0", "p1/b#3");
+        AppInfo activityA = app("p1", "a", Process.myUserHandle());
+        AppInfo activityB = app("p1", "b", Process.myUserHandle());
+        List<AppInfo> apps = getApps("p0", "p2");
+        apps.add(1, activityA);
+        apps.add(2, activityB);
+        order.apply(apps);
+
+        assertEquals(Arrays.asList("p1", "p0", "p2", "p1"), getPackages(apps));
+        assertEquals(activityA, apps.get(0));
+        assertEquals(activityB, apps.get(3));
+    }
+
+    @Test
+    public void testApply_keepsOrderWithoutMatches() {
+        CustomizeAppOrder order = newOrder("p9/c#0");
+        List<AppInfo> apps = getApps("p0", "p1", "p2");
+        order.apply(apps);
+        assertEquals(Arrays.asList("p0", "p1", "p2"), getPackages(apps));
+    }
+
+    private static CustomizeAppOrder newOrder(String... configs) {
+        SparseArray<Pair<String, String>> positions = new SparseArray<>();
+        for (String config : configs) {
+            String[] parts = config.split("#");
+            String[] names = parts[0].split("/");
+            positions.put(Integer.parseInt(parts[1]),
+                    Pair.create(names[0], names.length > 1 ? names[1] : null));
+        }
+        return new CustomizeAppOrder(positions);
+    }
+
+    private static List<AppInfo> getApps(String... packages) {
+        ArrayList<AppInfo> apps = new ArrayList<>();
+        for (String pkg : packages) {
+            apps.add(app(pkg, Process.myUserHandle()));
+        }
+        return apps;
+    }
+
+    private static AppInfo app(String pkg, UserHandle user) {
+        return app(pkg, "c", user);
+    }
+
+    private static AppInfo app(String pkg, String cls, UserHandle user) {
+        AppInfo info = new AppInfo();
+        info.componentName = new ComponentName(pkg, cls);
+        info.user = user;
+        return info;
+    }
+
+    private static List<String> getPackages(List<AppInfo> apps) {
+        ArrayList<String> packages = new ArrayList<>();
+        for (AppInfo info : apps) {
+            packages.add(info.componentName.getPackageName());
+        }
+        return packages;
+    }
+}
@@ -0,0 +1,111 @@
+package com.sprd.ext.fuzzysearch;
+
+import android.content.ComponentName;
+import android.os.Process;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.allapps.search.DefaultAppSearchAlgorithm;
+import com.android.launcher3.util.BenchmarkRule;
+import com.android.launcher3.util.ComponentKey;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks {@link FuzzySearchIndex} over synthetic app titles, against the linear scan done by
+ * {@link DefaultAppSearchAlgorithm} in fuzzy mode.
+ *
+ * These are skipped in regular test runs, pass -Dlauncher.benchmark=true to run them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FuzzySearchBenchmark {
+
+    private static final int TITLE_COUNT = 2000;
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int ITERATIONS = 10;
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ro", "sa", "ti", "vu", "ze", "pho", "cal", "cam", "dar",
+            "en", "gram", "lex", "map", "net", "ox", "tune"};
+    private static final String[] QUERIES = {
+            "c", "ca", "cam", "camera", "kamera", "lomi", "lomineka", "phto", "xyz"};
+
+    private final ArrayList<ComponentKey> mKeys = new ArrayList<>();
+    private final ArrayList<String> mTitles = new ArrayList<>();
+    private final ArrayList<AppInfo> mApps = new ArrayList<>();
+
+    @Rule
+    public final BenchmarkRule mBenchmark = new BenchmarkRule(WARMUP_ITERATIONS, ITERATIONS);
+
+    @Before
+    public void setup() {
+        // Fixed seed so that runs can be compared
+        Random random = new Random(42);
+        for (int i = 0; i < TITLE_COUNT; i++) {
+            String title = randomWord(random) + " " + randomWord(random);
+            ComponentName cn = new ComponentName("com.example.app" + i, "Activity" + i);
+            mKeys.add(new ComponentKey(cn, Process.myUserHandle()));
+            mTitles.add(title);
+
+            AppInfo info = new AppInfo();
+            info.title = title;
+            info.componentName = cn;
+            mApps.add(info);
+        }
+    }
+
+    @Test
+    public void benchmarkFuzzySearch() throws Exception {
+        DefaultAppSearchAlgorithm.StringMatcher matcher =
+                DefaultAppSearchAlgorithm.StringMatcher.getInstance();
+
+        mBenchmark.run("fuzzy search over " + TITLE_COUNT + " titles", (profiler, iteration) -> {
+            profiler.begin("indexBuild");
+            FuzzySearchIndex index = new FuzzySearchIndex(null);
+            index.update(mKeys, mTitles, null);
+            profiler.end();
+
+            for (String query : QUERIES) {
+                profiler.begin("fuzzy:" + query);
+                // No deadline, as the clock does not advance in tests. This measures the total
+                // cost of a query, which is split in time slices on device.
+                FuzzySearchIndex.Query q = index.newQuery(query);
+                q.process(Long.MAX_VALUE);
+                q.getResults();
+                profiler.end();
+
+                profiler.begin("linear:" + query);
+                linearSearch(query, matcher);
+                profiler.end();
+            }
+        });
+    }
+
+    private List<ComponentKey> linearSearch(
+            String query, DefaultAppSearchAlgorithm.StringMatcher matcher) {
+        ArrayList<ComponentKey> result = new ArrayList<>();
+        for (AppInfo info : mApps) {
+            if (DefaultAppSearchAlgorithm.matches(info, query, matcher, true)) {
+                result.add(info.toComponentKey());
+            }
+        }
+        return result;
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int syllables = 1 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+}
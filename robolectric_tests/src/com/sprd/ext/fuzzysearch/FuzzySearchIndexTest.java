@@ -0,0 +1,147 @@
+package com.sprd.ext.fuzzysearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.os.Process;
+
+import com.android.launcher3.util.ComponentKey;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Unit tests for {@link FuzzySearchIndex}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FuzzySearchIndexTest {
+
+    private final HashMap<String, Integer> mLaunchCounts = new HashMap<>();
+
+    @Test
+    public void testSearch_ranksWordPrefixBeforeSubstring() {
+        FuzzySearchIndex index = newIndex("Webcam", "Camera", "Cameo");
+        assertEquals(keys("Camera", "Cameo", "Webcam"), search(index, "cam"));
+    }
+
+    @Test
+    public void testSearch_toleratesTypos() {
+        FuzzySearchIndex index = newIndex("Calendar", "Calculator", "Clock");
+        assertEquals(keys("Calendar"), search(index, "calandar"));
+        assertEquals(keys("Calculator"), search(index, "calcualtor"));
+
+        // Short queries need to match exactly
+        assertEquals(keys(), search(index, "clk"));
+    }
+
+    @Test
+    public void testSearch_ignoresCaseAndAccents() {
+        FuzzySearchIndex index = newIndex("Éclair", "ÅngStröm");
+        assertEquals(keys("Éclair"), search(index, "ecl"));
+        assertEquals(keys("ÅngStröm"), search(index, "strom"));
+    }
+
+    @Test
+    public void testSearch_ranksByLaunchCount() {
+        FuzzySearchIndex index = newIndex("Mail", "Maps", "Music");
+        assertEquals(keys("Mail", "Maps", "Music"), search(index, "m"));
+
+        mLaunchCounts.put(key("Music").toString(), 5);
+        mLaunchCounts.put(key("Maps").toString(), 2);
+        assertEquals(keys("Music", "Maps", "Mail"), search(index, "m"));
+    }
+
+    @Test
+    public void testSearch_matchesSearchKeys() {
+        FuzzySearchIndex index = new FuzzySearchIndex(null);
+        index.update(keys("微信", "微博", "Bot"), Arrays.asList("微信", "微博", "Bot"),
+                Arrays.asList("WeiXin\nwx", "WeiBo\nwb", null));
+        assertEquals(keys("微信"), search(index, "wx"));
+        assertEquals(keys("微信"), search(index, "xin"));
+        assertEquals(keys("微博"), search(index, "weib"));
+        assertEquals(keys("微信", "微博"), search(index, "wei"));
+        assertEquals(keys("微信"), search(index, "weixim"));
+        assertEquals(keys("微信", "微博"), search(index, "微"));
+    }
+
+    @Test
+    public void testSearch_noMatch() {
+        FuzzySearchIndex index = newIndex("Bot", "bot");
+        assertEquals(keys(), search(index, "ba"));
+    }
+
+    @Test
+    public void testProcess_deliversPartialResultsWhenOverBudget() {
+        String[] titles = new String[100];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = "App " + i;
+        }
+        FuzzySearchIndex index = newIndex(titles);
+
+        FuzzySearchIndex.Query query = index.newQuery("app");
+        // Deadline already passed, only the first slice is processed
+        assertFalse(query.process(0));
+        assertTrue(query.hasResults());
+        assertTrue(query.getResults().size() < titles.length);
+
+        while (!query.process(0)) { }
+        assertTrue(query.isComplete());
+        assertEquals(search(index, "app"), query.getResults());
+        assertEquals(titles.length, query.getResults().size());
+    }
+
+    @Test
+    public void testProcess_restartsWhenIndexChanges() {
+        FuzzySearchIndex index = newIndex("Camera", "Calendar");
+        FuzzySearchIndex.Query query = index.newQuery("ca");
+        assertTrue(query.process(Long.MAX_VALUE));
+
+        updateIndex(index, "Calendar", "Calculator");
+        assertFalse(query.isComplete());
+        assertTrue(query.process(Long.MAX_VALUE));
+        assertEquals(keys("Calendar", "Calculator"), query.getResults());
+    }
+
+    private FuzzySearchIndex newIndex(String... titles) {
+        FuzzySearchIndex index = new FuzzySearchIndex(key -> {
+            Integer count = mLaunchCounts.get(key);
+            return count == null ? 0 : count;
+        });
+        updateIndex(index, titles);
+        return index;
+    }
+
+    private static void updateIndex(FuzzySearchIndex index, String... titles) {
+        ArrayList<ComponentKey> keys = new ArrayList<>();
+        for (String title : titles) {
+            keys.add(key(title));
+        }
+        index.update(keys, Arrays.asList(titles), null);
+    }
+
+    private static List<ComponentKey> search(FuzzySearchIndex index, String text) {
+        FuzzySearchIndex.Query query = index.newQuery(text);
+        assertTrue(query.process(Long.MAX_VALUE));
+        return query.getResults();
+    }
+
+    private static List<ComponentKey> keys(String... titles) {
+        ArrayList<ComponentKey> keys = new ArrayList<>();
+        for (String title : titles) {
+            keys.add(key(title));
+        }
+        return keys;
+    }
+
+    private static ComponentKey key(String title) {
+        return new ComponentKey(new ComponentName("Test", title), Process.myUserHandle());
+    }
+}
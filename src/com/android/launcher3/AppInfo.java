@@ -41,6 +41,19 @@ public class AppInfo extends ItemInfoWithIcon {
 
     public ComponentName componentName;
 
+    /**
+     * Additional keys for searching the title, see
+     * {@link com.android.launcher3.allapps.search.SearchKeyGenerator}.
+     */
+    public String searchKeys;
+
+    /**
+     * Precomputed sort key and section name of the title in the current locale, or null if they
+     * are not available, see {@link com.android.launcher3.allapps.SortKeyGenerator}.
+     */
+    public byte[] sortKey;
+    public String sectionName;
+
     public AppInfo() {
         itemType = LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
     }
@@ -73,6 +86,9 @@ public class AppInfo extends ItemInfoWithIcon {
         super(info);
         componentName = info.componentName;
         title = Utilities.trim(info.title);
+        searchKeys = info.searchKeys;
+        sortKey = info.sortKey;
+        sectionName = info.sectionName;
         intent = new Intent(info.intent);
     }
 
@@ -11,6 +11,7 @@ import android.animation.PropertyValuesHolder;
 import android.appwidget.AppWidgetHostView;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProviderInfo;
+import android.content.ComponentName;
 import android.content.Context;
 import android.graphics.Point;
 import android.graphics.Rect;
@@ -24,22 +25,37 @@ import android.view.ViewGroup;
 import com.android.launcher3.accessibility.DragViewStateAnnouncer;
 import com.android.launcher3.dragndrop.DragLayer;
 import com.android.launcher3.util.FocusLogic;
+import com.android.launcher3.util.FrameJankTracker;
+import com.android.launcher3.util.IntSet;
 import com.android.launcher3.widget.LauncherAppWidgetHostView;
+import com.sprd.ext.LogUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 public class AppWidgetResizeFrame extends AbstractFloatingView implements View.OnKeyListener,
-        Insettable{
+        Insettable {
+    private static final String TAG = "AppWidgetResizeFrame";
+
     private static final int SNAP_DURATION = 150;
     private static final float DIMMED_HANDLE_ALPHA = 0f;
     private static final float RESIZE_THRESHOLD = 0.66f;
 
+    // The widget is told about its new size once the spans stop changing for this long, as it
+    // may render its content again for every size
+    private static final int SIZE_UPDATE_SETTLE_DELAY = 300;
+
     private static final Rect sTmpRect = new Rect();
 
     // Represents the cell size on the grid in the two orientations.
     private static Point[] sCellSize;
 
+    // The default padding of the widgets by provider, which needs a package manager query. The
+    // padding is in pixels, so it is only valid for the density it was computed with.
+    private static final HashMap<ComponentName, Rect> sWidgetPaddings = new HashMap<>();
+    private static int sWidgetPaddingsDensityDpi;
+
     private static final int HANDLE_COUNT = 4;
     private static final int INDEX_LEFT = 0;
     private static final int INDEX_TOP = 1;
@@ -95,6 +111,20 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
 
     private int mXDown, mYDown;
 
+    // The spans sent to the widget once the resize settles
+    private final Alarm mSizeUpdateAlarm = new Alarm();
+    private int mPendingSpanX, mPendingSpanY;
+
+    // The regions for which no reorder solution was found, packed by packRegion with the resize
+    // direction. As the layout only changes when a resize succeeds, these are not searched again
+    // until then.
+    private final IntSet mRejectedRegions = new IntSet();
+
+    // Metrics of the current resize gesture, see LogUtils#DEBUG_PERFORMANCE
+    private final FrameJankTracker mFrameTracker = new FrameJankTracker();
+    private int mReorderCount;
+    private int mSizeUpdateCount;
+
     public AppWidgetResizeFrame(Context context) {
         this(context, null);
     }
@@ -117,6 +147,7 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
         for (int i = 0; i < HANDLE_COUNT; i++) {
             mSystemGestureExclusionRects.add(new Rect());
         }
+        mSizeUpdateAlarm.setOnAlarmListener(alarm -> flushWidgetSizeUpdate());
     }
 
     @Override
@@ -169,8 +200,7 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
         mMinHSpan = info.minSpanX;
         mMinVSpan = info.minSpanY;
 
-        mWidgetPadding = AppWidgetHostView.getDefaultPaddingForWidget(getContext(),
-                widgetView.getAppWidgetInfo().provider, null);
+        mWidgetPadding = getDefaultPaddingForWidget(getContext(), info.provider);
 
         if (mResizeMode == AppWidgetProviderInfo.RESIZE_HORIZONTAL) {
             mDragHandles[INDEX_TOP].setVisibility(GONE);
@@ -326,8 +356,15 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
             mLastDirectionVector[1] = mDirectionVector[1];
         }
 
+        int region = packRegion(cellX, cellY, spanX, spanY, mDirectionVector);
+        if (!onDismiss && mRejectedRegions.contains(region)) {
+            // Already searched with the current layout, skip the reorder
+            return;
+        }
+        mReorderCount++;
         if (mCellLayout.createAreaForResize(cellX, cellY, spanX, spanY, mWidgetView,
                 mDirectionVector, onDismiss)) {
+            mRejectedRegions.clear();
             if (mStateAnnouncer != null && (lp.cellHSpan != spanX || lp.cellVSpan != spanY) ) {
                 mStateAnnouncer.announce(
                         mLauncher.getString(R.string.widget_resized, spanX, spanY));
@@ -341,12 +378,31 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
             mRunningHInc += hSpanDelta;
 
             if (!onDismiss) {
-                updateWidgetSizeRanges(mWidgetView, mLauncher, spanX, spanY);
+                mPendingSpanX = spanX;
+                mPendingSpanY = spanY;
+                mSizeUpdateAlarm.setAlarm(SIZE_UPDATE_SETTLE_DELAY);
             }
+        } else if (!onDismiss) {
+            mRejectedRegions.add(region);
         }
         mWidgetView.requestLayout();
     }
 
+    /**
+     * Packs a region of the grid and the direction of the resize in an int, as the reorder depends
+     * on both. The grid is never larger than 127 cells wide.
+     */
+    private static int packRegion(int cellX, int cellY, int spanX, int spanY, int[] direction) {
+        return (cellX << 25) | (cellY << 18) | (spanX << 11) | (spanY << 4)
+                | ((direction[0] + 1) << 2) | (direction[1] + 1);
+    }
+
+    private void flushWidgetSizeUpdate() {
+        mSizeUpdateAlarm.cancelAlarm();
+        mSizeUpdateCount++;
+        updateWidgetSizeRanges(mWidgetView, mLauncher, mPendingSpanX, mPendingSpanY);
+    }
+
     static void updateWidgetSizeRanges(AppWidgetHostView widgetView, Launcher launcher,
                                        int spanX, int spanY, boolean isDensityChanged) {
         if (isDensityChanged) {
@@ -369,6 +425,21 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
 
     public static void resetWidgetCellSize() {
         sCellSize = null;
+        sWidgetPaddings.clear();
+    }
+
+    private static Rect getDefaultPaddingForWidget(Context context, ComponentName provider) {
+        int densityDpi = context.getResources().getDisplayMetrics().densityDpi;
+        if (densityDpi != sWidgetPaddingsDensityDpi) {
+            sWidgetPaddings.clear();
+            sWidgetPaddingsDensityDpi = densityDpi;
+        }
+        Rect padding = sWidgetPaddings.get(provider);
+        if (padding == null) {
+            padding = AppWidgetHostView.getDefaultPaddingForWidget(context, provider, null);
+            sWidgetPaddings.put(provider, padding);
+        }
+        return padding;
     }
 
     public static Rect getWidgetSizeRanges(Context context, int spanX, int spanY, Rect rect) {
@@ -403,6 +474,28 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
 
         // We are done with resizing the widget. Save the widget size & position to LauncherModel
         resizeWidgetIfNeeded(true);
+        if (mSizeUpdateAlarm.alarmPending()) {
+            flushWidgetSizeUpdate();
+        }
+        stopFrameMetrics();
+    }
+
+    private void startFrameMetrics() {
+        if (LogUtils.DEBUG_PERFORMANCE && !mFrameTracker.isTracking()) {
+            mReorderCount = mSizeUpdateCount = 0;
+            mFrameTracker.start();
+        }
+    }
+
+    private void stopFrameMetrics() {
+        if (mFrameTracker.isTracking()) {
+            mFrameTracker.stop();
+            String summary = mFrameTracker.getSummary();
+            if (summary != null) {
+                LogUtils.d(TAG, "resize: " + summary
+                        + " reorders=" + mReorderCount + " updates=" + mSizeUpdateCount);
+            }
+        }
     }
 
     private void onTouchUp() {
@@ -413,6 +506,7 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
         mDeltaYAddOn = mRunningVInc * yThreshold;
         mDeltaX = 0;
         mDeltaY = 0;
+        stopFrameMetrics();
 
         post(() -> snapToWidget(true));
     }
@@ -516,6 +610,7 @@ public class AppWidgetResizeFrame extends AbstractFloatingView implements View.O
             if (beginResizeIfPointInRegion(x - getLeft(), y - getTop())) {
                 mXDown = x;
                 mYDown = y;
+                startFrameMetrics();
                 return true;
             }
         }
@@ -38,7 +38,9 @@ import com.android.launcher3.testing.TestProtocol;
 import com.android.launcher3.uioverrides.DisplayRotationListener;
 import com.android.launcher3.uioverrides.WallpaperColorInfo;
 import com.android.launcher3.util.Themes;
+import com.sprd.ext.FeatureOption;
 import com.sprd.ext.LauncherAppMonitor;
+import com.sprd.ext.fuzzysearch.AppLaunchCounter;
 
 import androidx.annotation.Nullable;
 
@@ -150,7 +152,7 @@ public abstract class BaseDraggingActivity extends BaseActivity
         Bundle optsBundle = (v != null) ? getActivityLaunchOptionsAsBundle(v) : null;
         UserHandle user = item == null ? null : item.user;
 
-        if (!com.sprd.ext.FeatureOption.SPRD_APP_REMOTE_ANIM_SUPPORT.get() && v != null) {
+        if (!FeatureOption.SPRD_APP_REMOTE_ANIM_SUPPORT.get() && v != null) {
             optsBundle = ActivityOptions.makeScaleUpAnimation(v, 0, 0,
                              v.getMeasuredWidth(), v.getMeasuredHeight()).toBundle();
         }
@@ -182,6 +184,12 @@ public abstract class BaseDraggingActivity extends BaseActivity
                 AppLaunchTracker.INSTANCE.get(this).onStartApp(intent.getComponent(), user,
                         sourceContainer);
             }
+            if (!isShortcut && intent.getComponent() != null
+                    && FeatureOption.SPRD_ALLAPP_FUZZY_SEARCH_SUPPORT.get()) {
+                // Launch counts are used to rank the fuzzy search results
+                AppLaunchCounter.INSTANCE.get(this).onAppLaunched(intent.getComponent(),
+                        user == null ? Process.myUserHandle() : user);
+            }
             getUserEventDispatcher().logAppLaunch(v, intent);
             getStatsLogManager().logAppLaunch(v, intent);
             return true;
@@ -24,6 +24,7 @@ import static com.android.launcher3.AbstractFloatingView.TYPE_DISCOVERY_BOUNCE;
 import static com.android.launcher3.AbstractFloatingView.TYPE_SNACKBAR;
 import static com.android.launcher3.LauncherAnimUtils.SPRING_LOADED_EXIT_DELAY;
 import static com.android.launcher3.LauncherState.ALL_APPS;
+import static com.android.launcher3.LauncherState.ALL_APPS_CONTENT;
 import static com.android.launcher3.LauncherState.NORMAL;
 import static com.android.launcher3.LauncherState.OVERVIEW;
 import static com.android.launcher3.LauncherState.OVERVIEW_PEEK;
@@ -87,6 +88,7 @@ import com.android.launcher3.allapps.AllAppsContainerView;
 import com.android.launcher3.allapps.AllAppsStore;
 import com.android.launcher3.allapps.AllAppsTransitionController;
 import com.android.launcher3.allapps.DiscoveryBounce;
+import com.android.launcher3.allapps.FirstOpenFrameTracker;
 import com.android.launcher3.anim.PropertyListBuilder;
 import com.android.launcher3.compat.AppWidgetManagerCompat;
 import com.android.launcher3.compat.LauncherAppsCompatVO;
@@ -123,6 +125,7 @@ import com.android.launcher3.userevent.nano.LauncherLogProto.ContainerType;
 import com.android.launcher3.userevent.nano.LauncherLogProto.Target;
 import com.android.launcher3.util.ActivityResultInfo;
 import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.FrameBudgetExecutor;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.MultiValueAlpha;
@@ -145,9 +148,11 @@ import com.android.launcher3.widget.LauncherAppWidgetHostView;
 import com.android.launcher3.widget.PendingAddShortcutInfo;
 import com.android.launcher3.widget.PendingAddWidgetInfo;
 import com.android.launcher3.widget.PendingAppWidgetHostView;
+import com.android.launcher3.widget.PlaceholderAppWidgetHostView;
 import com.android.launcher3.widget.WidgetAddFlowHandler;
 import com.android.launcher3.widget.WidgetHostViewLoader;
 import com.android.launcher3.widget.WidgetListRowEntry;
+import com.android.launcher3.widget.WidgetPerformanceTracker;
 import com.android.launcher3.widget.WidgetsFullSheet;
 import com.android.launcher3.widget.custom.CustomWidgetParser;
 import com.sprd.ext.LauncherAppMonitor;
@@ -225,6 +230,9 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
     private static final int NEW_APPS_ANIMATION_INACTIVE_TIMEOUT_SECONDS = 5;
     @Thunk static final int NEW_APPS_ANIMATION_DELAY = 500;
 
+    // Time spent rebuilding the all apps lists after each frame during the initial bind
+    private static final int ALL_APPS_BIND_FRAME_BUDGET_MS = 8;
+
     private static final int APPS_VIEW_ALPHA_CHANNEL_INDEX = 1;
     private static final int SCRIM_VIEW_ALPHA_CHANNEL_INDEX = 0;
 
@@ -262,6 +270,9 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
     private ArrayList<OnResumeCallback> mOnResumeCallbacks = new ArrayList<>();
 
     private ViewOnDrawExecutor mPendingExecutor;
+    // Spreads rebuilding the all apps lists over multiple frames
+    private final FrameBudgetExecutor mAllAppsBindExecutor =
+            new FrameBudgetExecutor(ALL_APPS_BIND_FRAME_BUDGET_MS);
 
     private LauncherModel mModel;
     private ModelWriter mModelWriter;
@@ -407,7 +418,12 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
         RaceConditionTracker.onEvent(ON_CREATE_EVT, EXIT);
         mStateManager.addStateListener(new LauncherStateManager.StateListener() {
             @Override
-            public void onStateTransitionStart(LauncherState toState) {}
+            public void onStateTransitionStart(LauncherState toState) {
+                if ((toState.getVisibleElements(Launcher.this) & ALL_APPS_CONTENT) != 0) {
+                    // Make sure all apps is consistent before it is shown
+                    mAppsView.getAppsStore().flushPendingUpdates();
+                }
+            }
 
             @Override
             public void onStateTransitionComplete(LauncherState finalState) {
@@ -423,6 +439,7 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
                 }
             }
         });
+        FirstOpenFrameTracker.trackIfNeeded(this);
 
         startLogService();
     }
@@ -2269,6 +2286,19 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
         }
     }
 
+    /**
+     * Replaces the widget {@param view} by a placeholder, which neither keeps the content of the
+     * widget nor applies its updates.
+     */
+    public void evictAppWidget(LauncherAppWidgetHostView view) {
+        LauncherAppWidgetInfo item = (LauncherAppWidgetInfo) view.getTag();
+        LauncherAppWidgetHostView placeholder = mAppWidgetHost.createPlaceholderView(
+                this, item.appWidgetId, view.getAppWidgetInfo());
+        prepareAppWidget(placeholder, item);
+        removeItem(view, item, false /* deleteFromDb */);
+        mWorkspace.addInScreen(placeholder, item);
+    }
+
     private View inflateAppWidget(LauncherAppWidgetInfo item) {
         if (mIsSafeModeEnabled) {
             PendingAppWidgetHostView view =
@@ -2367,7 +2397,13 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
 
             item.minSpanX = appWidgetInfo.minSpanX;
             item.minSpanY = appWidgetInfo.minSpanY;
-            view = mAppWidgetHost.createView(this, item.appWidgetId, appWidgetInfo);
+            if (!appWidgetInfo.isCustomWidget() && !mWorkspace.shouldInflateWidget(item)) {
+                // The widget is inflated once the user gets close to its page
+                view = new PlaceholderAppWidgetHostView(this);
+                view.setAppWidget(item.appWidgetId, appWidgetInfo);
+            } else {
+                view = mAppWidgetHost.createView(this, item.appWidgetId, appWidgetInfo);
+            }
         } else {
             view = new PendingAppWidgetHostView(this, item, mIconCache, false);
         }
@@ -2483,8 +2519,12 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
         // Since we are just resetting the current page without user interaction,
         // override the previous page so we don't log the page switch.
         mWorkspace.setCurrentPage(pageBoundFirst, pageBoundFirst /* overridePrevPage */);
+        // The current page may have changed while the widgets were bound
+        mWorkspace.updateWidgetInflation();
+        mWorkspace.updateWidgetUpdatesDeferred();
 
         mAppMonitor.onLauncherWorkspaceBindingFinish();
+        mAppsView.prewarmIconViews();
         TraceHelper.endSection("finishBindingItems");
     }
 
@@ -2507,7 +2547,12 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
      * Implementation of the method from LauncherModel.Callbacks.
      */
     public void bindAllApplications(ArrayList<AppInfo> apps) {
-        mAppsView.getAppsStore().setApps(apps);
+        if (FeatureFlags.INCREMENTAL_ALL_APPS_BINDING
+                && (mStateManager.getState().getVisibleElements(this) & ALL_APPS_CONTENT) == 0) {
+            mAppsView.getAppsStore().setAppsIncrementally(apps, mAllAppsBindExecutor);
+        } else {
+            mAppsView.getAppsStore().setApps(apps);
+        }
         mAppMonitor.onLauncherAllAppBindingFinish(apps);
     }
 
@@ -2655,6 +2700,9 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
         }
 
         mModel.dumpState(prefix, fd, writer, args);
+        LauncherAppState.getInstance(this).getWidgetCache().dump(prefix, writer);
+        mAppWidgetHost.dump(prefix, writer);
+        WidgetPerformanceTracker.INSTANCE.get(this).dump(prefix, writer);
 
         if (mLauncherCallbacks != null) {
             mLauncherCallbacks.dump(prefix, fd, writer, args);
@@ -23,6 +23,7 @@ import android.appwidget.AppWidgetHostView;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProviderInfo;
 import android.content.ActivityNotFoundException;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Handler;
@@ -33,8 +34,13 @@ import android.widget.Toast;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.widget.DeferredAppWidgetHostView;
 import com.android.launcher3.widget.LauncherAppWidgetHostView;
+import com.android.launcher3.widget.PlaceholderAppWidgetHostView;
+import com.android.launcher3.widget.WidgetPerformanceTracker;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 
 /**
@@ -52,9 +58,13 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
 
     private final ArrayList<ProviderChangedListener> mProviderChangeListeners = new ArrayList<>();
     private final SparseArray<LauncherAppWidgetHostView> mViews = new SparseArray<>();
+    // The number of updates applied and dropped by provider, as updates of widgets which are
+    // not visible are coalesced
+    private final HashMap<ComponentName, int[]> mUpdateCounts = new HashMap<>();
 
     private final Context mContext;
     private int mFlags = FLAG_RESUMED;
+    private boolean mCreatingPlaceholder;
 
     public LauncherAppWidgetHost(Context context) {
         super(context, APPWIDGET_HOST_ID);
@@ -64,7 +74,9 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
     @Override
     protected LauncherAppWidgetHostView onCreateView(Context context, int appWidgetId,
             AppWidgetProviderInfo appWidget) {
-        LauncherAppWidgetHostView view = new LauncherAppWidgetHostView(context);
+        LauncherAppWidgetHostView view = mCreatingPlaceholder
+                ? new PlaceholderAppWidgetHostView(context)
+                : new LauncherAppWidgetHostView(context);
         mViews.put(appWidgetId, view);
         return view;
     }
@@ -90,7 +102,8 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
         // We go in reverse order and inflate any deferred widget
         for (int i = mViews.size() - 1; i >= 0; i--) {
             LauncherAppWidgetHostView view = mViews.valueAt(i);
-            if (view instanceof DeferredAppWidgetHostView) {
+            if (view instanceof DeferredAppWidgetHostView
+                    && !(view instanceof PlaceholderAppWidgetHostView)) {
                 view.reInflate();
             }
         }
@@ -178,6 +191,17 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
 
     public AppWidgetHostView createView(Context context, int appWidgetId,
             LauncherAppWidgetProviderInfo appWidget) {
+        long startNanos = System.nanoTime();
+        AppWidgetHostView view = inflateView(context, appWidgetId, appWidget);
+        if (!(view instanceof DeferredAppWidgetHostView)) {
+            WidgetPerformanceTracker.INSTANCE.get(context).record(appWidget.provider,
+                    WidgetPerformanceTracker.PHASE_CREATE, System.nanoTime() - startNanos);
+        }
+        return view;
+    }
+
+    private AppWidgetHostView inflateView(Context context, int appWidgetId,
+            LauncherAppWidgetProviderInfo appWidget) {
         if (appWidget.isCustomWidget()) {
             LauncherAppWidgetHostView lahv = new LauncherAppWidgetHostView(context);
             LayoutInflater inflater = (LayoutInflater)
@@ -212,6 +236,27 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
         }
     }
 
+    /**
+     * Creates a placeholder for a widget which is already bound to a view. The placeholder
+     * replaces that view as the target of the widget updates, and discards them, so that the
+     * previous view and its content can be released.
+     */
+    public LauncherAppWidgetHostView createPlaceholderView(Context context, int appWidgetId,
+            AppWidgetProviderInfo appWidget) {
+        mCreatingPlaceholder = true;
+        try {
+            return (LauncherAppWidgetHostView) super.createView(context, appWidgetId, appWidget);
+        } catch (Exception e) {
+            if (!Utilities.isBinderSizeError(e)) {
+                throw new RuntimeException(e);
+            }
+            // The placeholder was registered before the views of the widget failed to load.
+            return mViews.get(appWidgetId);
+        } finally {
+            mCreatingPlaceholder = false;
+        }
+    }
+
     /**
      * Called when the AppWidget provider for a AppWidget has been upgraded to a new apk.
      */
@@ -237,6 +282,27 @@ public class LauncherAppWidgetHost extends AppWidgetHost {
         mViews.clear();
     }
 
+    /**
+     * Called by the widget views when they apply an update, or drop one as it was replaced by a
+     * newer update while the widget was not visible.
+     */
+    public void onWidgetUpdate(ComponentName provider, boolean applied) {
+        int[] counts = mUpdateCounts.get(provider);
+        if (counts == null) {
+            counts = new int[2];
+            mUpdateCounts.put(provider, counts);
+        }
+        counts[applied ? 0 : 1]++;
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "LauncherAppWidgetHost");
+        for (Map.Entry<ComponentName, int[]> entry : mUpdateCounts.entrySet()) {
+            writer.println(prefix + "\t" + entry.getKey().flattenToShortString()
+                    + ": applied=" + entry.getValue()[0] + " dropped=" + entry.getValue()[1]);
+        }
+    }
+
     public void startBindFlow(BaseActivity activity,
             int appWidgetId, AppWidgetProviderInfo info, int requestCode) {
 
@@ -22,6 +22,8 @@ public class LauncherFiles {
     public static final String MANAGED_USER_PREFERENCES_KEY = "com.android.launcher3.managedusers.prefs";
     // This preference file is not backed up to cloud.
     public static final String DEVICE_PREFERENCES_KEY = "com.android.launcher3.device.prefs";
+    public static final String APP_LAUNCH_COUNT_PREFERENCES_KEY =
+            "com.android.launcher3.launchcount.prefs";
 
     private static final String PREFIX = "sl_";
     private static final String LAUNCHER_DB = "launcher.db";
@@ -30,6 +32,7 @@ public class LauncherFiles {
     private static final String SL_WIDGET_PREVIEWS_DB = PREFIX + WIDGET_PREVIEWS_DB;
     private static final String APP_ICONS_DB = "app_icons.db";
     private static final String SL_APP_ICONS_DB = PREFIX + APP_ICONS_DB;
+    public static final String SHORTCUT_INDEX_DB = "shortcut_index.db";
 
     private enum DbType {
         LAUNCHER,
@@ -45,8 +48,10 @@ public class LauncherFiles {
             SL_WIDGET_PREVIEWS_DB,
             MANAGED_USER_PREFERENCES_KEY + XML,
             DEVICE_PREFERENCES_KEY + XML,
+            APP_LAUNCH_COUNT_PREFERENCES_KEY + XML,
             APP_ICONS_DB,
-            SL_APP_ICONS_DB));
+            SL_APP_ICONS_DB,
+            SHORTCUT_INDEX_DB));
 
     public static String getLauncherDb(Context context) {
         return getLauncherDb(MultiModeController.isSingleLayerMode(context));
@@ -601,7 +601,10 @@ public class LauncherModel extends BroadcastReceiver
             @Override
             public void execute(LauncherAppState app, BgDataModel dataModel, AllAppsList apps) {
                 dataModel.widgetsModel.update(app, packageUser);
-                bindUpdatedWidgets(dataModel);
+                // Provider change events are also sent for changes which are not shown
+                if (dataModel.widgetsModel.hasChanges()) {
+                    bindUpdatedWidgets(dataModel);
+                }
             }
         });
     }
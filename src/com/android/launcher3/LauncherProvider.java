@@ -61,6 +61,7 @@ import com.android.launcher3.compat.UserManagerCompat;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.logging.FileLog;
 import com.android.launcher3.model.DbDowngradeHelper;
+import com.android.launcher3.provider.DbIntegrityChecker;
 import com.android.launcher3.provider.LauncherDbUtils;
 import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.provider.RestoreDbTask;
@@ -96,7 +97,7 @@ public class LauncherProvider extends ContentProvider {
      * Represents the schema of the database. Changes in scheme need not be backwards compatible.
      * When increasing the scheme version, ensure that downgrade_schema.json is updated
      */
-    public static final int SCHEMA_VERSION = 28;
+    public static final int SCHEMA_VERSION = 29;
 
     public static final String AUTHORITY = BuildConfig.APPLICATION_ID + ".settings";
 
@@ -107,6 +108,8 @@ public class LauncherProvider extends ContentProvider {
 
     protected DatabaseHelper mOpenHelper;
 
+    private final DbIntegrityChecker mIntegrityChecker = new DbIntegrityChecker();
+
     /**
      * $ adb shell dumpsys activity provider com.android.launcher3
      */
@@ -117,6 +120,7 @@ public class LauncherProvider extends ContentProvider {
             return;
         }
         appState.getModel().dumpState("", fd, writer, args);
+        mIntegrityChecker.dump("", writer);
     }
 
     @Override
@@ -385,11 +389,29 @@ public class LauncherProvider extends ContentProvider {
                         .toArray());
                 return result;
             }
+            case LauncherSettings.Settings.METHOD_CHECK_DB_INTEGRITY: {
+                int batchSize = extras == null ? DbIntegrityChecker.DEFAULT_BATCH_SIZE
+                        : extras.getInt(LauncherSettings.Settings.EXTRA_COUNT,
+                                DbIntegrityChecker.DEFAULT_BATCH_SIZE);
+                Bundle result = new Bundle();
+                SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+                result.putIntArray(LauncherSettings.Settings.EXTRA_VALUE, mIntegrityChecker.run(
+                        db, mOpenHelper.getDeadWidgetIds(db), batchSize).toArray());
+                return result;
+            }
             case LauncherSettings.Settings.METHOD_NEW_ITEM_ID: {
                 Bundle result = new Bundle();
                 result.putInt(LauncherSettings.Settings.EXTRA_VALUE, mOpenHelper.generateNewItemId());
                 return result;
             }
+            case LauncherSettings.Settings.METHOD_NEW_ITEM_ID_BLOCK: {
+                int count = extras == null
+                        ? 1 : extras.getInt(LauncherSettings.Settings.EXTRA_COUNT, 1);
+                Bundle result = new Bundle();
+                result.putInt(LauncherSettings.Settings.EXTRA_VALUE,
+                        mOpenHelper.generateNewItemIdBlock(count));
+                return result;
+            }
             case LauncherSettings.Settings.METHOD_NEW_SCREEN_ID: {
                 Bundle result = new Bundle();
                 result.putInt(LauncherSettings.Settings.EXTRA_VALUE, mOpenHelper.generateNewScreenId());
@@ -427,27 +449,7 @@ public class LauncherProvider extends ContentProvider {
      * @return Ids of deleted folders.
      */
     private IntArray deleteEmptyFolders() {
-        SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
-            // Select folders whose id do not match any container value.
-            String selection = LauncherSettings.Favorites.ITEM_TYPE + " = "
-                    + LauncherSettings.Favorites.ITEM_TYPE_FOLDER + " AND "
-                    + LauncherSettings.Favorites._ID +  " NOT IN (SELECT " +
-                            LauncherSettings.Favorites.CONTAINER + " FROM "
-                                + Favorites.TABLE_NAME + ")";
-
-            IntArray folderIds = LauncherDbUtils.queryIntArray(db, Favorites.TABLE_NAME,
-                    Favorites._ID, selection, null, null);
-            if (!folderIds.isEmpty()) {
-                db.delete(Favorites.TABLE_NAME, Utilities.createDbSelectionQuery(
-                        LauncherSettings.Favorites._ID, folderIds), null);
-            }
-            t.commit();
-            return folderIds;
-        } catch (SQLException ex) {
-            Log.e(TAG, ex.getMessage(), ex);
-            return new IntArray();
-        }
+        return mIntegrityChecker.deleteEmptyFolders(mOpenHelper.getWritableDatabase());
     }
 
     /**
@@ -680,6 +682,7 @@ public class LauncherProvider extends ContentProvider {
 
         private void addFavoritesTable(SQLiteDatabase db, boolean optional) {
             Favorites.addTableToDb(db, getDefaultUserSerial(), optional);
+            Favorites.addIndexesToDb(db);
         }
 
         @Override
@@ -806,6 +809,9 @@ public class LauncherProvider extends ContentProvider {
                     dropTable(db, "workspaceScreens");
                 }
                 case 28:
+                    // Index the columns used by the integrity checks.
+                    Favorites.addIndexesToDb(db);
+                case 29:
                     // DB Upgraded successfully
                     return;
             }
@@ -870,6 +876,44 @@ public class LauncherProvider extends ContentProvider {
             }
         }
 
+        /**
+         * Returns the ids of the widgets in {@param db} which the Launcher's host confirms are
+         * gone: not allocated to the host, not used by the other mode and not bound to any
+         * provider. Nothing is reported while a restore is pending or when the host has no widget
+         * at all, eg, after a host reset, as the ids are not reliable then.
+         */
+        @TargetApi(Build.VERSION_CODES.O)
+        public IntSet getDeadWidgetIds(SQLiteDatabase db) {
+            IntSet deadIds = new IntSet();
+            if (RestoreDbTask.isPending(mContext)) {
+                return deadIds;
+            }
+            final int[] hostIds;
+            try {
+                hostIds = newLauncherWidgetHost().getAppWidgetIds();
+            } catch (IncompatibleClassChangeError e) {
+                Log.e(TAG, "getAppWidgetIds not supported", e);
+                return deadIds;
+            }
+            if (hostIds.length == 0) {
+                return deadIds;
+            }
+            final IntSet hostWidgets = IntSet.wrap(IntArray.wrap(hostIds));
+            final IntSet preModeValidWidgets = getPreModeSavedWidgets();
+            final AppWidgetManager widgetManager = AppWidgetManager.getInstance(mContext);
+            final IntArray dbWidgets = queryWidgetsFromeDb(db).getArray();
+            for (int i = 0; i < dbWidgets.size(); i++) {
+                int widgetId = dbWidgets.get(i);
+                // Custom widgets use negative ids which are not allocated to the host
+                if (widgetId >= 0 && !hostWidgets.contains(widgetId)
+                        && !preModeValidWidgets.contains(widgetId)
+                        && widgetManager.getAppWidgetInfo(widgetId) == null) {
+                    deadIds.add(widgetId);
+                }
+            }
+            return deadIds;
+        }
+
         private IntSet getPreModeSavedWidgets() {
             IntSet validWidgets = new IntSet();
             if (MultiModeController.isSupportDynamicChange()) {
@@ -988,6 +1032,22 @@ public class LauncherProvider extends ContentProvider {
             return mMaxItemId;
         }
 
+        /**
+         * Reserves a block of {@param count} consecutive item ids.
+         * @return the first id of the block.
+         */
+        public int generateNewItemIdBlock(int count) {
+            if (mMaxItemId < 0) {
+                throw new RuntimeException("Error: max item id was not initialized");
+            }
+            if (count < 1) {
+                throw new IllegalArgumentException("Error: invalid id block size " + count);
+            }
+            int firstId = mMaxItemId + 1;
+            mMaxItemId += count;
+            return firstId;
+        }
+
         public AppWidgetHost newLauncherWidgetHost() {
             return new LauncherAppWidgetHost(mContext);
         }
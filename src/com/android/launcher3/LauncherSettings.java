@@ -265,6 +265,16 @@ public class LauncherSettings {
                     "options INTEGER NOT NULL DEFAULT 0" +
                     ");");
         }
+
+        /**
+         * Adds the indexes used by the set based integrity checks.
+         */
+        public static void addIndexesToDb(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS favorites_container_index ON " + TABLE_NAME
+                    + " (" + CONTAINER + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS favorites_item_type_index ON " + TABLE_NAME
+                    + " (" + ITEM_TYPE + ", " + APPWIDGET_ID + ");");
+        }
     }
 
     /**
@@ -280,9 +290,13 @@ public class LauncherSettings {
 
         public static final String METHOD_DELETE_EMPTY_FOLDERS = "delete_empty_folders";
 
+        public static final String METHOD_CHECK_DB_INTEGRITY = "check_db_integrity";
+
         public static final String METHOD_NEW_ITEM_ID = "generate_new_item_id";
         public static final String METHOD_NEW_SCREEN_ID = "generate_new_screen_id";
 
+        public static final String METHOD_NEW_ITEM_ID_BLOCK = "generate_new_item_id_block";
+
         public static final String METHOD_CREATE_EMPTY_DB = "create_empty_db";
 
         public static final String METHOD_LOAD_DEFAULT_FAVORITES = "load_default_favorites";
@@ -295,8 +309,24 @@ public class LauncherSettings {
 
         public static final String EXTRA_VALUE = "value";
 
+        public static final String EXTRA_COUNT = "count";
+
         public static Bundle call(ContentResolver cr, String method) {
-            return cr.call(CONTENT_URI, method, null, null);
+            return call(cr, method, null);
+        }
+
+        public static Bundle call(ContentResolver cr, String method, Bundle extras) {
+            return cr.call(CONTENT_URI, method, null, extras);
+        }
+
+        /**
+         * Reserves {@param count} consecutive item ids in a single provider call.
+         * @return the first id of the reserved block.
+         */
+        public static int newItemIdBlock(ContentResolver cr, int count) {
+            Bundle extras = new Bundle();
+            extras.putInt(EXTRA_COUNT, count);
+            return call(cr, METHOD_NEW_ITEM_ID_BLOCK, extras).getInt(EXTRA_VALUE);
         }
     }
 }
@@ -24,10 +24,14 @@ import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.os.CancellationSignal;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.os.Process;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.util.Log;
 import android.util.LongSparseArray;
+import android.util.LruCache;
 
 import com.android.launcher3.compat.AppWidgetManagerCompat;
 import com.android.launcher3.compat.ShortcutConfigActivityInfo;
@@ -37,21 +41,22 @@ import com.android.launcher3.icons.LauncherIcons;
 import com.android.launcher3.icons.ShadowGenerator;
 import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.util.BitmapPool;
 import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.LifoThreadPoolExecutor;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.util.SQLiteCacheHelper;
 import com.android.launcher3.util.Thunk;
 import com.android.launcher3.widget.WidgetCell;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import androidx.annotation.Nullable;
 
@@ -60,24 +65,55 @@ public class WidgetPreviewLoader {
     private static final String TAG = "WidgetPreviewLoader";
     private static final boolean DEBUG = false;
 
+    // Fractions of the heap used by the recently loaded previews and the unused bitmaps
+    private static final int MEMORY_CACHE_HEAP_FRACTION = 16;
+    private static final int BITMAP_POOL_HEAP_FRACTION = 64;
+
+    // Previews are decoded or drawn in software, more threads would compete with the UI thread
+    private static final int PREVIEW_THREAD_COUNT = 2;
+
     private final HashMap<String, long[]> mPackageVersions = new HashMap<>();
 
     /**
-     * Weak reference objects, do not prevent their referents from being made finalizable,
-     * finalized, and then reclaimed.
-     * Note: synchronized block used for this variable is expensive and the block should always
-     * be posted to a background thread.
+     * The recently loaded previews, so that scrolling back to a widget does not read or generate
+     * its preview again. The bitmaps are shared by all the cells showing the same preview.
+     */
+    @Thunk final LruCache<WidgetCacheKey, Bitmap> mMemoryCache;
+
+    /**
+     * The number of references to each bitmap in use: one for the memory cache, one for each
+     * cell showing it, and one while it is written to the DB. A bitmap is only added to the pool
+     * once it has no reference left. Also guards adding bitmaps to the pool.
+     */
+    private final IdentityHashMap<Bitmap, Integer> mBitmapRefs = new IdentityHashMap<>();
+
+    /**
+     * The bitmaps no longer in use, reused to decode or generate other previews.
      */
-    @Thunk final Set<Bitmap> mUnusedBitmaps =
-            Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+    @Thunk final BitmapPool mBitmapPool;
+
+    @Thunk final AtomicInteger mMemoryHits = new AtomicInteger();
+    @Thunk final AtomicInteger mDiskHits = new AtomicInteger();
+    @Thunk final AtomicInteger mGeneratedPreviews = new AtomicInteger();
+    @Thunk final AtomicLong mDecodedBytes = new AtomicLong();
+    // Time from the request to the preview being applied, for the previews not in memory
+    @Thunk final AtomicInteger mLoadedPreviews = new AtomicInteger();
+    @Thunk final AtomicLong mTotalLoadMillis = new AtomicLong();
+    @Thunk long mMaxLoadMillis;
 
     private final Context mContext;
     private final IconCache mIconCache;
     private final UserManagerCompat mUserManager;
     private final CacheDb mDb;
 
-    private final MainThreadExecutor mMainThreadExecutor = new MainThreadExecutor();
+    // Runs the most recent requests first, as those are for the cells just scrolled into view
+    @Thunk final LifoThreadPoolExecutor mPreviewExecutor =
+            new LifoThreadPoolExecutor(PREVIEW_THREAD_COUNT);
     @Thunk final Handler mWorkerHandler;
+    // Generates the previews of the widgets which were not shown yet, see generatePreviews
+    @Thunk final Handler mGeneratorHandler;
+
+    private static Looper sGeneratorLooper;
 
     public WidgetPreviewLoader(Context context, IconCache iconCache) {
         mContext = context;
@@ -85,6 +121,23 @@ public class WidgetPreviewLoader {
         mUserManager = UserManagerCompat.getInstance(context);
         mDb = new CacheDb(context);
         mWorkerHandler = new Handler(LauncherModel.getWorkerLooper());
+        mGeneratorHandler = new Handler(getGeneratorLooper());
+
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        mBitmapPool = new BitmapPool(maxMemory / BITMAP_POOL_HEAP_FRACTION);
+        mMemoryCache = new LruCache<WidgetCacheKey, Bitmap>(
+                (int) (maxMemory / MEMORY_CACHE_HEAP_FRACTION)) {
+            @Override
+            protected int sizeOf(WidgetCacheKey key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, WidgetCacheKey key, Bitmap oldValue,
+                    Bitmap newValue) {
+                releaseBitmap(oldValue);
+            }
+        };
     }
 
     /**
@@ -98,18 +151,156 @@ public class WidgetPreviewLoader {
         String size = previewWidth + "x" + previewHeight;
         WidgetCacheKey key = new WidgetCacheKey(item.componentName, item.user, size);
 
+        CancellationSignal cachedRequest = applyCachedPreview(key, caller);
+        if (cachedRequest != null) {
+            return cachedRequest;
+        }
+
         PreviewLoadTask task = new PreviewLoadTask(key, item, previewWidth, previewHeight, caller);
-        task.executeOnExecutor(Utilities.THREAD_POOL_EXECUTOR);
+        task.executeOnExecutor(mPreviewExecutor);
 
         CancellationSignal signal = new CancellationSignal();
         signal.setOnCancelListener(task);
         return signal;
     }
 
+    /**
+     * Applies the preview for {@param key} to {@param caller} if it is in the memory cache.
+     *
+     * @return a request id releasing the preview when cancelled, or null on a cache miss.
+     */
+    private CancellationSignal applyCachedPreview(WidgetCacheKey key, WidgetCell caller) {
+        Bitmap cached;
+        synchronized (mBitmapRefs) {
+            cached = mMemoryCache.get(key);
+            if (cached != null) {
+                acquireBitmap(cached);
+            }
+        }
+        if (cached == null) {
+            return null;
+        }
+        mMemoryHits.incrementAndGet();
+        caller.applyPreview(cached);
+        CancellationSignal signal = new CancellationSignal();
+        signal.setOnCancelListener(new CachedPreviewRequest(cached));
+        return signal;
+    }
+
     public void refresh() {
         mDb.clear();
+        mMemoryCache.evictAll();
+    }
 
+    /**
+     * Generates the previews of {@param items} which are not in the DB yet, in the background,
+     * so that they are ready when the widgets are first shown. This does not need an activity,
+     * the previews are generated for the current device profile.
+     *
+     * The previews are generated one at a time on a low priority thread, rather than on
+     * {@link #mPreviewExecutor} where they would delay the previews of the visible cells, or on
+     * the worker thread where they would delay the model. Only the DB writes are done on the
+     * worker thread, like for the other previews.
+     */
+    public void generatePreviews(ArrayList<WidgetItem> items) {
+        final DeviceProfile dp = InvariantDeviceProfile.INSTANCE.get(mContext)
+                .getDeviceProfile(mContext);
+        final int previewSize = WidgetCell.getPresetPreviewSize(dp);
+        String size = previewSize + "x" + previewSize;
+        for (final WidgetItem item : items) {
+            final WidgetCacheKey key = new WidgetCacheKey(item.componentName, item.user, size);
+            mGeneratorHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    generatePreviewInDb(key, item, dp, previewSize);
+                }
+            });
+        }
+    }
+
+    private static synchronized Looper getGeneratorLooper() {
+        if (sGeneratorLooper == null) {
+            HandlerThread thread = new HandlerThread(
+                    "widget-preview-generator", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            sGeneratorLooper = thread.getLooper();
+        }
+        return sGeneratorLooper;
+    }
+
+    @Thunk void generatePreviewInDb(final WidgetCacheKey key, WidgetItem item, DeviceProfile dp,
+            int previewSize) {
+        if ((item.activityInfo != null && !item.activityInfo.isPersistable())
+                || isInDb(key)) {
+            return;
+        }
+        final long[] versions = getPackageVersion(key.componentName.getPackageName());
+        Bitmap unusedBitmap = mBitmapPool.get(previewSize, previewSize);
+        if (unusedBitmap == null) {
+            unusedBitmap = Bitmap.createBitmap(previewSize, previewSize, Config.ARGB_8888);
+        }
+        Bitmap preview = null;
+        try {
+            preview = generatePreview(dp, item, unusedBitmap, previewSize, previewSize);
+        } catch (Exception e) {
+            Log.w(TAG, "Error generating preview for " + key, e);
+        }
+        if (preview != null) {
+            mGeneratedPreviews.incrementAndGet();
+            final Bitmap generated = preview;
+            mWorkerHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    writeToDb(key, versions, generated);
+                    releaseBitmap(generated);
+                }
+            });
+        }
+        if (preview != unusedBitmap) {
+            releaseBitmap(unusedBitmap);
+        }
+    }
+
+    /**
+     * Adds a reference to {@param bitmap}, so that it is not reused while in use.
+     */
+    @Thunk void acquireBitmap(Bitmap bitmap) {
+        synchronized (mBitmapRefs) {
+            Integer refs = mBitmapRefs.get(bitmap);
+            mBitmapRefs.put(bitmap, refs == null ? 1 : refs + 1);
+        }
     }
+
+    /**
+     * Removes a reference to {@param bitmap}, adding it to the pool if it was the last one.
+     */
+    @Thunk void releaseBitmap(Bitmap bitmap) {
+        synchronized (mBitmapRefs) {
+            Integer refs = mBitmapRefs.get(bitmap);
+            if (refs == null || refs <= 1) {
+                mBitmapRefs.remove(bitmap);
+                mBitmapPool.put(bitmap);
+            } else {
+                mBitmapRefs.put(bitmap, refs - 1);
+            }
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "WidgetPreviewLoader");
+        writer.println(prefix + "\tmemoryCache: " + mMemoryCache.size() / 1024 + "KB/"
+                + mMemoryCache.maxSize() / 1024 + "KB, hits=" + mMemoryHits.get()
+                + " evictions=" + mMemoryCache.evictionCount());
+        writer.println(prefix + "\tdiskHits=" + mDiskHits.get()
+                + " generated=" + mGeneratedPreviews.get()
+                + " decoded=" + mDecodedBytes.get() / 1024 + "KB");
+        int loadedPreviews = mLoadedPreviews.get();
+        writer.println(prefix + "\ttimeToPreview: count=" + loadedPreviews + " avg="
+                + (loadedPreviews == 0 ? 0 : mTotalLoadMillis.get() / loadedPreviews)
+                + "ms max=" + mMaxLoadMillis + "ms");
+        writer.println(prefix + "\t" + mBitmapPool);
+    }
+
     /**
      * The DB holds the generated previews for various components. Previews can also have different
      * sizes (landscape vs portrait).
@@ -165,6 +356,12 @@ public class WidgetPreviewLoader {
         synchronized(mPackageVersions) {
             mPackageVersions.remove(packageName);
         }
+        for (WidgetCacheKey key : mMemoryCache.snapshot().keySet()) {
+            if (key.componentName.getPackageName().equals(packageName)
+                    && (user == null || key.user.equals(user))) {
+                mMemoryCache.remove(key);
+            }
+        }
 
         mDb.delete(
                 CacheDb.COLUMN_PACKAGE + " = ? AND " + CacheDb.COLUMN_USER + " = ?",
@@ -251,6 +448,29 @@ public class WidgetPreviewLoader {
         }
     }
 
+    private boolean isInDb(WidgetCacheKey key) {
+        Cursor cursor = null;
+        try {
+            cursor = mDb.query(
+                    new String[]{CacheDb.COLUMN_SIZE},
+                    CacheDb.COLUMN_COMPONENT + " = ? AND " + CacheDb.COLUMN_USER + " = ? AND "
+                            + CacheDb.COLUMN_SIZE + " = ?",
+                    new String[]{
+                            key.componentName.flattenToShortString(),
+                            Long.toString(mUserManager.getSerialNumberForUser(key.user)),
+                            key.size
+                    });
+            return cursor.moveToNext();
+        } catch (SQLException e) {
+            Log.w(TAG, "Error loading preview from DB", e);
+            return false;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
     /**
      * Reads the preview bitmap from the DB or null if the preview is not in the DB.
      */
@@ -274,6 +494,8 @@ public class WidgetPreviewLoader {
                 byte[] blob = cursor.getBlob(0);
                 BitmapFactory.Options opts = new BitmapFactory.Options();
                 opts.inBitmap = recycle;
+                // So that the bitmap can be pooled even if it could not be decoded in place
+                opts.inMutable = true;
                 try {
                     if (!loadTask.isCancelled()) {
                         return BitmapFactory.decodeByteArray(blob, 0, blob.length, opts);
@@ -292,13 +514,13 @@ public class WidgetPreviewLoader {
         return null;
     }
 
-    private Bitmap generatePreview(BaseActivity launcher, WidgetItem item, Bitmap recycle,
+    private Bitmap generatePreview(DeviceProfile dp, WidgetItem item, Bitmap recycle,
             int previewWidth, int previewHeight) {
         if (item.widgetInfo != null) {
-            return generateWidgetPreview(launcher, item.widgetInfo,
+            return generateWidgetPreview(dp, item.widgetInfo,
                     previewWidth, recycle, null);
         } else {
-            return generateShortcutPreview(launcher, item.activityInfo,
+            return generateShortcutPreview(dp, item.activityInfo,
                     previewWidth, previewHeight, recycle);
         }
     }
@@ -307,14 +529,14 @@ public class WidgetPreviewLoader {
      * Generates the widget preview from either the {@link AppWidgetManagerCompat} or cache
      * and add badge at the bottom right corner.
      *
-     * @param launcher
+     * @param dp                          the device profile the preview is shown in
      * @param info                        information about the widget
      * @param maxPreviewWidth             width of the preview on either workspace or tray
      * @param preview                     bitmap that can be recycled
      * @param preScaledWidthOut           return the width of the returned bitmap
      * @return
      */
-    public Bitmap generateWidgetPreview(BaseActivity launcher, LauncherAppWidgetProviderInfo info,
+    public Bitmap generateWidgetPreview(DeviceProfile dp, LauncherAppWidgetProviderInfo info,
             int maxPreviewWidth, Bitmap preview, int[] preScaledWidthOut) {
         // Load the preview image if possible
         if (maxPreviewWidth < 0) maxPreviewWidth = Integer.MAX_VALUE;
@@ -330,7 +552,9 @@ public class WidgetPreviewLoader {
                 drawable = null;
             }
             if (drawable != null) {
-                drawable = mutateOnMainThread(drawable);
+                // Freshly loaded for the preview, mutating only reads the shared state so it does
+                // not need to happen on the main thread
+                drawable = drawable.mutate();
             } else {
                 Log.w(TAG, "Can't load widget preview drawable 0x" +
                         Integer.toHexString(info.previewImage) + " for provider: " + info.provider);
@@ -349,7 +573,6 @@ public class WidgetPreviewLoader {
             previewWidth = drawable.getIntrinsicWidth();
             previewHeight = drawable.getIntrinsicHeight();
         } else {
-            DeviceProfile dp = launcher.getDeviceProfile();
             int tileSize = Math.min(dp.cellWidthPx, dp.cellHeightPx);
             previewWidth = tileSize * spanX;
             previewHeight = tileSize * spanY;
@@ -420,11 +643,11 @@ public class WidgetPreviewLoader {
                 Drawable icon =
                         mIconCache.getFullResIcon(info.provider.getPackageName(), info.icon);
                 if (icon != null) {
-                    int appIconSize = launcher.getDeviceProfile().iconSizePx;
+                    int appIconSize = dp.iconSizePx;
                     int iconSize = (int) Math.min(appIconSize * scale,
                             Math.min(boxRect.width(), boxRect.height()));
 
-                    icon = mutateOnMainThread(icon);
+                    icon = icon.mutate();
                     int hoffset = (previewWidth - iconSize) / 2;
                     int yoffset = (previewHeight - iconSize) / 2;
                     icon.setBounds(hoffset, yoffset, hoffset + iconSize, yoffset + iconSize);
@@ -451,10 +674,10 @@ public class WidgetPreviewLoader {
         return builder.bounds;
     }
 
-    private Bitmap generateShortcutPreview(BaseActivity launcher, ShortcutConfigActivityInfo info,
+    private Bitmap generateShortcutPreview(DeviceProfile dp, ShortcutConfigActivityInfo info,
             int maxWidth, int maxHeight, Bitmap preview) {
-        int iconSize = launcher.getDeviceProfile().iconSizePx;
-        int padding = launcher.getResources()
+        int iconSize = dp.iconSizePx;
+        int padding = mContext.getResources()
                 .getDimensionPixelSize(R.dimen.widget_preview_shortcut_padding);
 
         int size = iconSize + 2 * padding;
@@ -478,7 +701,7 @@ public class WidgetPreviewLoader {
 
         LauncherIcons li = LauncherIcons.obtain(mContext);
         Bitmap icon = li.createBadgedIconBitmap(
-                mutateOnMainThread(info.getFullResIcon(mIconCache)),
+                info.getFullResIcon(mIconCache).mutate(),
                 Process.myUserHandle(), 0).icon;
         li.recycle();
 
@@ -492,22 +715,6 @@ public class WidgetPreviewLoader {
         return preview;
     }
 
-    private Drawable mutateOnMainThread(final Drawable drawable) {
-        try {
-            return mMainThreadExecutor.submit(new Callable<Drawable>() {
-                @Override
-                public Drawable call() throws Exception {
-                    return drawable.mutate();
-                }
-            }).get();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     /**
      * @return an array of containing versionCode and lastUpdatedTime for the package.
      */
@@ -537,9 +744,10 @@ public class WidgetPreviewLoader {
         private final int mPreviewHeight;
         private final int mPreviewWidth;
         private final WidgetCell mCaller;
-        private final BaseActivity mActivity;
+        private final DeviceProfile mDeviceProfile;
         @Thunk long[] mVersions;
         @Thunk Bitmap mBitmapToRecycle;
+        private final long mRequestTime = SystemClock.uptimeMillis();
 
         PreviewLoadTask(WidgetCacheKey key, WidgetItem info, int previewWidth,
                 int previewHeight, WidgetCell caller) {
@@ -548,7 +756,7 @@ public class WidgetPreviewLoader {
             mPreviewHeight = previewHeight;
             mPreviewWidth = previewWidth;
             mCaller = caller;
-            mActivity = BaseActivity.fromContext(mCaller.getContext());
+            mDeviceProfile = BaseActivity.fromContext(mCaller.getContext()).getDeviceProfile();
             if (DEBUG) {
                 Log.d(TAG, String.format("%s, %s, %d, %d",
                         mKey, mInfo, mPreviewHeight, mPreviewWidth));
@@ -557,26 +765,12 @@ public class WidgetPreviewLoader {
 
         @Override
         protected Bitmap doInBackground(Void... params) {
-            Bitmap unusedBitmap = null;
-
             // If already cancelled before this gets to run in the background, then return early
             if (isCancelled()) {
                 return null;
             }
-            synchronized (mUnusedBitmaps) {
-                // Check if we can re-use a bitmap
-                for (Bitmap candidate : mUnusedBitmaps) {
-                    if (candidate != null && candidate.isMutable() &&
-                            candidate.getWidth() == mPreviewWidth &&
-                            candidate.getHeight() == mPreviewHeight) {
-                        unusedBitmap = candidate;
-                        mUnusedBitmaps.remove(unusedBitmap);
-                        break;
-                    }
-                }
-            }
-
-            // creating a bitmap is expensive. Do not do this inside synchronized block.
+            // Check if we can re-use a bitmap
+            Bitmap unusedBitmap = mBitmapPool.get(mPreviewWidth, mPreviewHeight);
             if (unusedBitmap == null) {
                 unusedBitmap = Bitmap.createBitmap(mPreviewWidth, mPreviewHeight, Config.ARGB_8888);
             }
@@ -585,6 +779,10 @@ public class WidgetPreviewLoader {
                 return unusedBitmap;
             }
             Bitmap preview = readFromDb(mKey, unusedBitmap, this);
+            if (preview != null) {
+                mDiskHits.incrementAndGet();
+                mDecodedBytes.addAndGet(preview.getByteCount());
+            }
             // Only consider generating the preview if we have not cancelled the task already
             if (!isCancelled() && preview == null) {
                 // Fetch the version info before we generate the preview, so that, in-case the
@@ -596,81 +794,96 @@ public class WidgetPreviewLoader {
                         : null;
 
                 // it's not in the db... we need to generate it
-                preview = generatePreview(mActivity, mInfo, unusedBitmap, mPreviewWidth, mPreviewHeight);
+                preview = generatePreview(mDeviceProfile, mInfo, unusedBitmap, mPreviewWidth,
+                        mPreviewHeight);
+                if (preview != null) {
+                    mGeneratedPreviews.incrementAndGet();
+                }
+            }
+            if (preview != unusedBitmap) {
+                // The preview was decoded or generated in a new bitmap
+                releaseBitmap(unusedBitmap);
             }
             return preview;
         }
 
         @Override
         protected void onPostExecute(final Bitmap preview) {
+            if (preview == null) {
+                mCaller.applyPreview(null);
+                return;
+            }
+            synchronized (mBitmapRefs) {
+                // One reference for the memory cache and one for the caller, released on cancel
+                acquireBitmap(preview);
+                mMemoryCache.put(mKey, preview);
+                acquireBitmap(preview);
+            }
+            mBitmapToRecycle = preview;
             mCaller.applyPreview(preview);
 
+            long loadMillis = SystemClock.uptimeMillis() - mRequestTime;
+            mLoadedPreviews.incrementAndGet();
+            mTotalLoadMillis.addAndGet(loadMillis);
+            mMaxLoadMillis = Math.max(mMaxLoadMillis, loadMillis);
+            if (DEBUG) {
+                Log.d(TAG, "Preview for " + mKey + " applied in " + loadMillis + "ms");
+            }
+
             // Write the generated preview to the DB in the worker thread
             if (mVersions != null) {
+                acquireBitmap(preview);
                 mWorkerHandler.post(new Runnable() {
                     @Override
                     public void run() {
-                        if (!isCancelled()) {
-                            // If we are still using this preview, then write it to the DB and then
-                            // let the normal clear mechanism recycle the bitmap
-                            writeToDb(mKey, mVersions, preview);
-                            mBitmapToRecycle = preview;
-                        } else {
-                            // If we've already cancelled, then skip writing the bitmap to the DB
-                            // and manually add the bitmap back to the recycled set
-                            synchronized (mUnusedBitmaps) {
-                                mUnusedBitmaps.add(preview);
-                            }
-                        }
+                        writeToDb(mKey, mVersions, preview);
+                        releaseBitmap(preview);
                     }
                 });
-            } else {
-                // If we don't need to write to disk, then ensure the preview gets recycled by
-                // the normal clear mechanism
-                mBitmapToRecycle = preview;
             }
         }
 
         @Override
         protected void onCancelled(final Bitmap preview) {
-            // If we've cancelled while the task is running, then can return the bitmap to the
-            // recycled set immediately. Otherwise, it will be recycled after the preview is written
-            // to disk.
+            // If we've cancelled while the task is running, the bitmap was never used and can
+            // be returned to the pool immediately.
             if (preview != null) {
-                mWorkerHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        synchronized (mUnusedBitmaps) {
-                            mUnusedBitmaps.add(preview);
-                        }
-                    }
-                });
+                releaseBitmap(preview);
             }
         }
 
         @Override
         public void onCancel() {
             cancel(true);
+            // Drop the request from the queue right away, the cell is no longer visible
+            mPreviewExecutor.purge();
 
             // This only handles the case where the PreviewLoadTask is cancelled after the task has
-            // successfully completed (including having written to disk when necessary).  In the
-            // other cases where it is cancelled while the task is running, it will be cleaned up
-            // in the tasks's onCancelled() call, and if cancelled while the task is writing to
-            // disk, it will be cancelled in the task's onPostExecute() call.
+            // successfully completed. In the other cases where it is cancelled while the task is
+            // running, it will be cleaned up in the tasks's onCancelled() call.
             if (mBitmapToRecycle != null) {
-                mWorkerHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        synchronized (mUnusedBitmaps) {
-                            mUnusedBitmaps.add(mBitmapToRecycle);
-                        }
-                        mBitmapToRecycle = null;
-                    }
-                });
+                releaseBitmap(mBitmapToRecycle);
+                mBitmapToRecycle = null;
             }
         }
     }
 
+    /**
+     * A preview served from the memory cache, which releases the bitmap when cancelled.
+     */
+    private class CachedPreviewRequest implements CancellationSignal.OnCancelListener {
+        private final Bitmap mPreview;
+
+        CachedPreviewRequest(Bitmap preview) {
+            mPreview = preview;
+        }
+
+        @Override
+        public void onCancel() {
+            releaseBitmap(mPreview);
+        }
+    }
+
     private static final class WidgetCacheKey extends ComponentKey {
 
         @Thunk final String size;
@@ -101,6 +101,7 @@ import com.android.launcher3.widget.LauncherAppWidgetHostView;
 import com.android.launcher3.widget.PendingAddShortcutInfo;
 import com.android.launcher3.widget.PendingAddWidgetInfo;
 import com.android.launcher3.widget.PendingAppWidgetHostView;
+import com.android.launcher3.widget.PlaceholderAppWidgetHostView;
 
 import com.sprd.ext.LogUtils;
 import com.sprd.ext.cyclescroll.CyclePagedView;
@@ -203,6 +204,12 @@ public class Workspace extends CyclePagedView<WorkspaceBasePageIndicator>
 
     private boolean mStripScreensOnPageStopMoving = false;
 
+    // Widgets up to this many pages away from the current page are inflated and updated, and
+    // those further than WIDGET_EVICT_DISTANCE are replaced by placeholders. The pages in between
+    // keep their state, so that swiping back and forth does not inflate the same widgets again.
+    private static final int WIDGET_INFLATE_DISTANCE = 1;
+    private static final int WIDGET_EVICT_DISTANCE = 3;
+
     private DragPreviewProvider mOutlineProvider = null;
     private boolean mWorkspaceFadeInAdjacentScreens;
 
@@ -1031,6 +1038,90 @@ public class Workspace extends CyclePagedView<WorkspaceBasePageIndicator>
             stripEmptyScreens();
             mStripScreensOnPageStopMoving = false;
         }
+        updateWidgetInflation();
+        updateWidgetUpdatesDeferred();
+    }
+
+    public void updateWidgetUpdatesDeferred() {
+        updateWidgetUpdatesDeferred(mLauncher.getStateManager().getState());
+    }
+
+    /**
+     * Defers the updates of the widgets which are not visible in {@param state}, until they are
+     * visible again: those on pages not adjacent to the current one, and all of them while the
+     * workspace is covered by another state or by the overlay.
+     */
+    private void updateWidgetUpdatesDeferred(LauncherState state) {
+        if (!FeatureFlags.DEFER_HIDDEN_WIDGET_UPDATES) {
+            return;
+        }
+        boolean workspaceVisible = (state == NORMAL || state == SPRING_LOADED) && !mOverlayShown;
+        int currentPage = getNextPage();
+        for (int i = getPageCount() - 1; i >= 0; i--) {
+            boolean deferUpdates = !workspaceVisible
+                    || getPageDistance(currentPage, i) > WIDGET_INFLATE_DISTANCE;
+            ShortcutAndWidgetContainer container =
+                    ((CellLayout) getChildAt(i)).getShortcutsAndWidgets();
+            for (int j = container.getChildCount() - 1; j >= 0; j--) {
+                View child = container.getChildAt(j);
+                if (child instanceof LauncherAppWidgetHostView) {
+                    ((LauncherAppWidgetHostView) child).setUpdatesDeferred(deferUpdates);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the widget {@param info} should be inflated when it is bound, rather than
+     * bound as a placeholder as its page is far from the current one.
+     */
+    public boolean shouldInflateWidget(ItemInfo info) {
+        if (!FeatureFlags.LAZY_WIDGET_INFLATION
+                || info.container != LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+            return true;
+        }
+        int pageIndex = getPageIndexForScreenId(info.screenId);
+        return pageIndex < 0
+                || getPageDistance(getNextPage(), pageIndex) <= WIDGET_INFLATE_DISTANCE;
+    }
+
+    /**
+     * Inflates the widget placeholders near the current page, and replaces the widgets far from
+     * it by placeholders.
+     */
+    public void updateWidgetInflation() {
+        if (!FeatureFlags.LAZY_WIDGET_INFLATION || mLauncher.isWorkspaceLoading()
+                || mDragController.isDragging()) {
+            return;
+        }
+        ArrayList<LauncherAppWidgetHostView> toInflate = new ArrayList<>();
+        ArrayList<LauncherAppWidgetHostView> toEvict = new ArrayList<>();
+        int currentPage = getNextPage();
+        for (int i = getPageCount() - 1; i >= 0; i--) {
+            int distance = getPageDistance(currentPage, i);
+            if (distance > WIDGET_INFLATE_DISTANCE && distance <= WIDGET_EVICT_DISTANCE) {
+                continue;
+            }
+            ShortcutAndWidgetContainer container =
+                    ((CellLayout) getChildAt(i)).getShortcutsAndWidgets();
+            for (int j = container.getChildCount() - 1; j >= 0; j--) {
+                View child = container.getChildAt(j);
+                if (distance <= WIDGET_INFLATE_DISTANCE) {
+                    if (child instanceof PlaceholderAppWidgetHostView) {
+                        toInflate.add((LauncherAppWidgetHostView) child);
+                    }
+                } else if (child.getClass() == LauncherAppWidgetHostView.class
+                        && !((LauncherAppWidgetInfo) child.getTag()).isCustomWidget()) {
+                    toEvict.add((LauncherAppWidgetHostView) child);
+                }
+            }
+        }
+        for (LauncherAppWidgetHostView view : toInflate) {
+            view.reInflate();
+        }
+        for (LauncherAppWidgetHostView view : toEvict) {
+            mLauncher.evictAppWidget(view);
+        }
     }
 
     protected void onScrollInteractionBegin() {
@@ -1157,6 +1248,7 @@ public class Workspace extends CyclePagedView<WorkspaceBasePageIndicator>
                         Action.Direction.LEFT, ContainerType.WORKSPACE, 0);
             }
             mOverlayShown = true;
+            updateWidgetUpdatesDeferred();
             // Not announcing the overlay page for accessibility since it announces itself.
         } else if (Float.compare(scroll, 0f) == 0) {
             if (mOverlayShown) {
@@ -1172,6 +1264,7 @@ public class Workspace extends CyclePagedView<WorkspaceBasePageIndicator>
                 announcePageForAccessibility();
             }
             mOverlayShown = false;
+            updateWidgetUpdatesDeferred();
             tryRunOverlayCallback();
         }
 
@@ -1463,6 +1556,10 @@ public class Workspace extends CyclePagedView<WorkspaceBasePageIndicator>
         mTransitionProgress = 0;
 
         updateChildrenLayersEnabled();
+        if (state == NORMAL || state == SPRING_LOADED) {
+            // Apply the pending widget updates before the workspace is shown
+            updateWidgetUpdatesDeferred(state);
+        }
     }
 
     private void onEndStateTransition() {
@@ -1472,6 +1569,7 @@ public class Workspace extends CyclePagedView<WorkspaceBasePageIndicator>
 
         updateChildrenLayersEnabled();
         updateAccessibilityFlags();
+        updateWidgetUpdatesDeferred();
     }
 
     /**
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.allapps.AlphabeticalAppsList.AdapterItem;
+
+import java.util.HashMap;
+import java.util.List;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * Computes the changes between two lists of {@link AdapterItem}s, so that the adapter only needs
+ * to rebind the rows which have actually changed.
+ *
+ * Apps are identified by their component and user. An app is considered changed when its
+ * {@link AppInfo} has been replaced, which is what {@link AllAppsStore} does on every update.
+ * The other view types are unique in the list and identified by their type.
+ */
+class AdapterItemDiffCallback extends DiffUtil.Callback {
+
+    private final List<AdapterItem> mOldItems;
+    private final List<AdapterItem> mNewItems;
+
+    AdapterItemDiffCallback(List<AdapterItem> oldItems, List<AdapterItem> newItems) {
+        mOldItems = oldItems;
+        mNewItems = newItems;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return mOldItems.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return mNewItems.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        AdapterItem oldItem = mOldItems.get(oldItemPosition);
+        AdapterItem newItem = mNewItems.get(newItemPosition);
+        if (oldItem.viewType != newItem.viewType) {
+            return false;
+        }
+        if (oldItem.appInfo == null || newItem.appInfo == null) {
+            return oldItem.appInfo == newItem.appInfo;
+        }
+        return oldItem.appInfo.componentName.equals(newItem.appInfo.componentName)
+                && oldItem.appInfo.user.equals(newItem.appInfo.user);
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        AdapterItem newItem = mNewItems.get(newItemPosition);
+        switch (newItem.viewType) {
+            case AllAppsGridAdapter.VIEW_TYPE_EMPTY_SEARCH:
+            case AllAppsGridAdapter.VIEW_TYPE_SEARCH_MARKET:
+                // Bound using the last search query, which is not part of the item
+                return false;
+            default:
+                return mOldItems.get(oldItemPosition).appInfo == newItem.appInfo;
+        }
+    }
+
+    /**
+     * Returns a cheap estimate of the number of edits between the two lists: the items added,
+     * the items removed, and the items which moved back relative to the preceding ones. The cost
+     * of computing the diff grows with the square of the number of edits.
+     */
+    int estimateEditCount() {
+        HashMap<Object, Integer> oldPositions = new HashMap<>(mOldItems.size());
+        for (int i = 0; i < mOldItems.size(); i++) {
+            oldPositions.put(getIdentity(mOldItems.get(i)), i);
+        }
+
+        int common = 0;
+        int moved = 0;
+        int lastOldPosition = -1;
+        for (int i = 0; i < mNewItems.size(); i++) {
+            Integer oldPosition = oldPositions.get(getIdentity(mNewItems.get(i)));
+            if (oldPosition == null) {
+                continue;
+            }
+            common++;
+            if (oldPosition < lastOldPosition) {
+                moved++;
+            } else {
+                lastOldPosition = oldPosition;
+            }
+        }
+        return (mOldItems.size() - common) + (mNewItems.size() - common) + moved;
+    }
+
+    private static Object getIdentity(AdapterItem item) {
+        return item.appInfo == null ? item.viewType : item.appInfo.toComponentKey();
+    }
+}
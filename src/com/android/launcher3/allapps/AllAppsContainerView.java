@@ -22,6 +22,8 @@ import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.os.Process;
 import android.text.Selection;
 import android.text.SpannableStringBuilder;
@@ -85,6 +87,9 @@ public class AllAppsContainerView extends SpringRelativeLayout implements DragSo
     private final ItemInfoMatcher mPersonalMatcher = ItemInfoMatcher.ofUser(Process.myUserHandle());
     private final ItemInfoMatcher mWorkMatcher = ItemInfoMatcher.not(mPersonalMatcher);
     private final AllAppsStore mAllAppsStore = new AllAppsStore();
+    // Shared by the recycler views of all the tabs
+    private final RecyclerView.RecycledViewPool mViewPool = new RecyclerView.RecycledViewPool();
+    private MessageQueue.IdleHandler mIconViewsPrewarmer;
 
     private final Paint mNavBarScrimPaint;
     private int mNavBarScrimHeight = 0;
@@ -191,6 +196,41 @@ public class AllAppsContainerView extends SpringRelativeLayout implements DragSo
         }
     }
 
+    /**
+     * Inflates the app icons of the shared view pool, one row each time the main thread is idle,
+     * so that they are not inflated the first time all apps is scrolled or the work tab shown.
+     */
+    public void prewarmIconViews() {
+        if (mIconViewsPrewarmer != null) {
+            return;
+        }
+        mIconViewsPrewarmer = () -> {
+            AdapterHolder holder = mAH[AdapterHolder.MAIN];
+            int numColumns = mLauncher.getDeviceProfile().inv.numColumns;
+            int maxIcons = AllAppsRecyclerView.getMaxRecycledIcons(
+                    mLauncher.getDeviceProfile(), numColumns);
+            int count = mViewPool.getRecycledViewCount(AllAppsGridAdapter.VIEW_TYPE_ICON);
+            if (holder.recyclerView == null || count >= maxIcons) {
+                mIconViewsPrewarmer = null;
+                return false;
+            }
+
+            mViewPool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_ICON, maxIcons);
+            for (int i = 0; i < numColumns && count < maxIcons; i++, count++) {
+                mViewPool.putRecycledView(holder.adapter.createViewHolder(
+                        holder.recyclerView, AllAppsGridAdapter.VIEW_TYPE_ICON));
+            }
+            // Idle handlers only run again once a message has been processed
+            post(() -> {
+                if (mIconViewsPrewarmer != null) {
+                    Looper.myQueue().addIdleHandler(mIconViewsPrewarmer);
+                }
+            });
+            return false;
+        };
+        Looper.myQueue().addIdleHandler(mIconViewsPrewarmer);
+    }
+
     private void onAppsUpdated() {
         if (FeatureFlags.ALL_APPS_TABS_ENABLED) {
             boolean hasWorkApps = false;
@@ -620,6 +660,7 @@ public class AllAppsContainerView extends SpringRelativeLayout implements DragSo
             recyclerView = (AllAppsRecyclerView) rv;
             recyclerView.setEdgeEffectFactory(createEdgeEffectFactory());
             recyclerView.setApps(appsList, mUsingTabs);
+            recyclerView.setRecycledViewPool(mViewPool);
             recyclerView.setLayoutManager(layoutManager);
             recyclerView.setAdapter(adapter);
             recyclerView.setHasFixedSize(true);
@@ -79,6 +79,8 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
         mEmptySearchBackgroundTopOffset = res.getDimensionPixelSize(
                 R.dimen.all_apps_empty_search_bg_top_offset);
         mNumAppsPerRow = LauncherAppState.getIDP(context).numColumns;
+        addOnScrollListener(new HighResIconPrefetcher(this,
+                LauncherAppState.getInstance(context).getIconCache(), mNumAppsPerRow));
     }
 
     /**
@@ -96,16 +98,24 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
     private void updatePoolSize() {
         DeviceProfile grid = Launcher.getLauncher(getContext()).getDeviceProfile();
         RecyclerView.RecycledViewPool pool = getRecycledViewPool();
-        int approxRows = (int) Math.ceil(grid.availableHeightPx / grid.allAppsIconSizePx);
         pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_EMPTY_SEARCH, 1);
         pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_ALL_APPS_DIVIDER, 1);
         pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_SEARCH_MARKET, 1);
-        pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_ICON, approxRows * mNumAppsPerRow);
+        pool.setMaxRecycledViews(AllAppsGridAdapter.VIEW_TYPE_ICON,
+                getMaxRecycledIcons(grid, mNumAppsPerRow));
 
         mViewHeights.clear();
         mViewHeights.put(AllAppsGridAdapter.VIEW_TYPE_ICON, grid.allAppsCellHeightPx);
     }
 
+    /**
+     * Returns the number of app icons to keep in the view pool, enough to fill a screen.
+     */
+    static int getMaxRecycledIcons(DeviceProfile grid, int numAppsPerRow) {
+        int approxRows = (int) Math.ceil(grid.availableHeightPx / grid.allAppsIconSizePx);
+        return approxRows * numAppsPerRow;
+    }
+
     /**
      * Scrolls this recycler view to the top.
      */
@@ -221,6 +231,21 @@ public class AllAppsRecyclerView extends BaseRecyclerView implements LogContaine
             public void onChanged() {
                 mCachedScrollPositions.clear();
             }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mCachedScrollPositions.clear();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mCachedScrollPositions.clear();
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                mCachedScrollPositions.clear();
+            }
         });
         mFastScrollHelper.onSetAdapter((AllAppsGridAdapter) adapter);
     }
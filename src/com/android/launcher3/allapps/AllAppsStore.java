@@ -23,6 +23,7 @@ import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.ItemInfo;
 import com.android.launcher3.PromiseAppInfo;
 import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.FrameBudgetExecutor;
 import com.android.launcher3.util.PackageUserKey;
 import com.sprd.ext.LogUtils;
 
@@ -53,6 +54,10 @@ public class AllAppsStore {
     private int mDeferUpdatesFlags = 0;
     private boolean mUpdatePending = false;
 
+    // Listeners not notified yet of the last update, see setAppsIncrementally
+    private final ArrayList<OnUpdateListener> mPendingListeners = new ArrayList<>();
+    private FrameBudgetExecutor mPendingExecutor;
+
     public Collection<AppInfo> getApps() {
         return mComponentToAppMap.values();
     }
@@ -65,6 +70,46 @@ public class AllAppsStore {
         addOrUpdateApps(apps);
     }
 
+    /**
+     * Sets the current set of apps, notifying the listeners one at a time through
+     * {@param executor}, so that rebuilding all the lists is spread over multiple frames. Any
+     * other update, or {@link #flushPendingUpdates()}, notifies the remaining listeners
+     * immediately.
+     */
+    public void setAppsIncrementally(List<AppInfo> apps, FrameBudgetExecutor executor) {
+        mComponentToAppMap.clear();
+        for (AppInfo app : apps) {
+            mComponentToAppMap.put(app.toComponentKey(), app);
+        }
+        if (mDeferUpdatesFlags != 0) {
+            notifyUpdate();
+            return;
+        }
+
+        mPendingListeners.clear();
+        mPendingListeners.addAll(mUpdateListeners);
+        mPendingExecutor = executor;
+        for (int i = 0; i < mUpdateListeners.size(); i++) {
+            OnUpdateListener listener = mUpdateListeners.get(i);
+            executor.execute(() -> {
+                if (mPendingListeners.remove(listener)) {
+                    listener.onAppsUpdated();
+                }
+            });
+        }
+    }
+
+    /**
+     * Notifies the listeners which have not been notified yet of the apps set through
+     * {@link #setAppsIncrementally}, so that all the lists are consistent.
+     */
+    public void flushPendingUpdates() {
+        if (mPendingExecutor != null) {
+            mPendingExecutor.flush();
+            mPendingExecutor = null;
+        }
+    }
+
     public AppInfo getApp(ComponentKey key) {
         return mComponentToAppMap.get(key);
     }
@@ -107,6 +152,8 @@ public class AllAppsStore {
 
 
     private void notifyUpdate() {
+        // All the listeners are notified below, there is no need to notify them incrementally
+        mPendingListeners.clear();
         if (mDeferUpdatesFlags != 0) {
             mUpdatePending = true;
             if (LogUtils.DEBUG_ALL) {
@@ -127,6 +174,7 @@ public class AllAppsStore {
 
     public void removeUpdateListener(OnUpdateListener listener) {
         mUpdateListeners.remove(listener);
+        mPendingListeners.remove(listener);
     }
 
     public void registerIconContainer(ViewGroup container) {
@@ -38,6 +38,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
 
+import androidx.recyclerview.widget.DiffUtil;
+
 /**
  * The alphabetically sorted list of applications.
  */
@@ -50,6 +52,9 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
 
     private static final int sFastScrollDistributionMode = FAST_SCROLL_FRACTION_DISTRIBUTE_BY_NUM_SECTIONS;
 
+    // Above this many edits, computing the changes costs more than rebinding all the items
+    private static final int MAX_DIFF_EDIT_COUNT = 200;
+
     /**
      * Info about a fast scroller section, depending if sections are merged, the fast scroller
      * sections will not be the same set as the section headers.
@@ -142,6 +147,8 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
     private final List<AppInfo> mFilteredApps = new ArrayList<>();
     // The current set of adapter items
     private final ArrayList<AdapterItem> mAdapterItems = new ArrayList<>();
+    // The adapter items the adapter was last notified about
+    private final ArrayList<AdapterItem> mNotifiedAdapterItems = new ArrayList<>();
     // The set of sections that we allow fast-scrolling to (includes non-merged sections)
     private final List<FastScrollSectionInfo> mFastScrollerSections = new ArrayList<>();
     // Is it the work profile app list.
@@ -234,8 +241,18 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
     public boolean setOrderedFilter(ArrayList<ComponentKey> f) {
         if (mSearchResults != f) {
             boolean same = mSearchResults != null && mSearchResults.equals(f);
+            ArrayList<ComponentKey> oldResults = mSearchResults;
             mSearchResults = f;
-            onAppsUpdated();
+            if (mItemFilter != null && (oldResults == null) != (f == null)) {
+                // The item filter is only applied when there is no search filter, so the set of
+                // apps needs to be recomputed.
+                onAppsUpdated();
+            } else if (oldResults != null && f != null && narrowAdapterItems(f)) {
+                refreshRecyclerView();
+            } else {
+                // The set of apps has not changed, only the filtered apps need to be updated.
+                updateAdapterItems();
+            }
             return !same;
         }
         return false;
@@ -249,12 +266,17 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         // Sort the list of apps
         mApps.clear();
 
+        boolean hasSortKeys = true;
         for (AppInfo app : mAllAppsStore.getApps()) {
             if (mItemFilter == null || mItemFilter.matches(app, null) || hasFilter()) {
                 mApps.add(app);
+                hasSortKeys &= app.sortKey != null;
             }
         }
 
+        // The sort keys are only missing while the icon cache is refreshed after a locale change,
+        // mixing them with the titles would make the ordering inconsistent.
+        mAppNameComparator.setUseSortKeys(hasSortKeys);
         Collections.sort(mApps, mAppNameComparator);
 
         // As a special case for some languages (currently only Simplified Chinese), we may need to
@@ -267,7 +289,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
             TreeMap<String, ArrayList<AppInfo>> sectionMap = new TreeMap<>(new LabelComparator());
             for (AppInfo info : mApps) {
                 // Add the section to the cache
-                String sectionName = getAndUpdateCachedSectionName(info.title);
+                String sectionName = getAndUpdateCachedSectionName(info);
 
                 // Add it to the mapping
                 ArrayList<AppInfo> sectionApps = sectionMap.get(sectionName);
@@ -287,7 +309,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
             // Just compute the section headers for use below
             for (AppInfo info : mApps) {
                 // Add the section to the cache
-                getAndUpdateCachedSectionName(info.title);
+                getAndUpdateCachedSectionName(info);
             }
         }
 
@@ -312,16 +334,41 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                             new Throwable()));
         }
         if (mAdapter != null) {
+            dispatchAdapterUpdates();
+        }
+        mNotifiedAdapterItems.clear();
+        mNotifiedAdapterItems.addAll(mAdapterItems);
+    }
+
+    /**
+     * Notifies the adapter of the items which changed since the last notification, so that only
+     * the affected rows are rebound.
+     */
+    private void dispatchAdapterUpdates() {
+        AdapterItemDiffCallback callback =
+                new AdapterItemDiffCallback(mNotifiedAdapterItems, mAdapterItems);
+        if (mNotifiedAdapterItems.isEmpty()
+                || callback.estimateEditCount() > MAX_DIFF_EDIT_COUNT) {
             mAdapter.notifyDataSetChanged();
+            return;
+        }
+
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(callback, false);
+        // Unchanged rows are not rebound, keep track of their views for the icon updates
+        for (int i = 0; i < mNotifiedAdapterItems.size(); i++) {
+            int newPosition = result.convertOldPositionToNew(i);
+            if (newPosition != DiffUtil.DiffResult.NO_POSITION
+                    && callback.areContentsTheSame(i, newPosition)) {
+                AdapterItem item = mAdapterItems.get(newPosition);
+                if (item.iconView == null) {
+                    item.iconView = mNotifiedAdapterItems.get(i).iconView;
+                }
+            }
         }
+        result.dispatchUpdatesTo(mAdapter);
     }
 
     private void refillAdapterItems() {
-        String lastSectionName = null;
-        FastScrollSectionInfo lastFastScrollerSectionInfo = null;
-        int position = 0;
-        int appIndex = 0;
-
         // Prepare to update the list of sections, filtered apps, etc.
         mFilteredApps.clear();
         mFastScrollerSections.clear();
@@ -330,23 +377,74 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         // Recreate the filtered and sectioned apps (for convenience for the grid layout) from the
         // ordered set of sections
         for (AppInfo info : getFiltersAppInfos()) {
-            String sectionName = getAndUpdateCachedSectionName(info.title);
+            String sectionName = getAndUpdateCachedSectionName(info);
+            addAppItem(AdapterItem.asApp(0, sectionName, info, 0));
+        }
+        finishAdapterItems();
+    }
 
-            // Create a new section if the section names do not match
-            if (!sectionName.equals(lastSectionName)) {
-                lastSectionName = sectionName;
-                lastFastScrollerSectionInfo = new FastScrollSectionInfo(sectionName);
-                mFastScrollerSections.add(lastFastScrollerSectionInfo);
+    /**
+     * Updates the adapter items to {@param searchResults}, by dropping the app items which are no
+     * longer part of the results. Returns false, without changing anything, if the results are
+     * not a subset of the current filtered apps in the same order, eg, when the query was edited
+     * instead of extended.
+     */
+    private boolean narrowAdapterItems(ArrayList<ComponentKey> searchResults) {
+        ArrayList<AdapterItem> retainedItems = new ArrayList<>(searchResults.size());
+        int resultCount = searchResults.size();
+        int next = 0;
+        for (AdapterItem item : mAdapterItems) {
+            if (next < resultCount && item.appInfo != null
+                    && isSameApp(item.appInfo, searchResults.get(next))) {
+                retainedItems.add(item);
+                next++;
             }
+        }
+        if (next != resultCount) {
+            return false;
+        }
 
-            // Create an app item
-            AdapterItem appItem = AdapterItem.asApp(position++, sectionName, info, appIndex++);
-            if (lastFastScrollerSectionInfo.fastScrollToItem == null) {
-                lastFastScrollerSectionInfo.fastScrollToItem = appItem;
-            }
-            mAdapterItems.add(appItem);
-            mFilteredApps.add(info);
+        mFilteredApps.clear();
+        mFastScrollerSections.clear();
+        mAdapterItems.clear();
+        for (AdapterItem item : retainedItems) {
+            addAppItem(item);
         }
+        finishAdapterItems();
+        return true;
+    }
+
+    private static boolean isSameApp(AppInfo info, ComponentKey key) {
+        return info.componentName.equals(key.componentName) && info.user.equals(key.user);
+    }
+
+    /**
+     * Appends an app item to the adapter items, updating its position and the fast scroller
+     * sections.
+     */
+    private void addAppItem(AdapterItem appItem) {
+        appItem.position = mAdapterItems.size();
+        appItem.appIndex = mFilteredApps.size();
+
+        // Create a new section if the section names do not match
+        FastScrollSectionInfo lastFastScrollerSectionInfo = mFastScrollerSections.isEmpty()
+                ? null : mFastScrollerSections.get(mFastScrollerSections.size() - 1);
+        if (lastFastScrollerSectionInfo == null
+                || !appItem.sectionName.equals(lastFastScrollerSectionInfo.sectionName)) {
+            lastFastScrollerSectionInfo = new FastScrollSectionInfo(appItem.sectionName);
+            lastFastScrollerSectionInfo.fastScrollToItem = appItem;
+            mFastScrollerSections.add(lastFastScrollerSectionInfo);
+        }
+        mAdapterItems.add(appItem);
+        mFilteredApps.add(appItem.appInfo);
+    }
+
+    /**
+     * Appends the non-app items and computes the rows and fast scroller fractions, once all the
+     * app items have been added.
+     */
+    private void finishAdapterItems() {
+        int position = mAdapterItems.size();
 
         if (hasFilter()) {
             // Append the search market item
@@ -439,6 +537,14 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         return result;
     }
 
+    /**
+     * Returns the section name for the given app, using the precomputed one if available.
+     */
+    private String getAndUpdateCachedSectionName(AppInfo info) {
+        return info.sectionName != null
+                ? info.sectionName : getAndUpdateCachedSectionName(info.title);
+    }
+
     /**
      * Returns the cached section name for the given title, recomputing and updating the cache if
      * the title has no cached section name.
@@ -33,6 +33,7 @@ public class AppInfoComparator implements Comparator<AppInfo> {
     private final UserManagerCompat mUserManager;
     private final UserHandle mMyUser;
     private final LabelComparator mLabelComparator;
+    private boolean mUseSortKeys;
 
     public AppInfoComparator(Context context) {
         mUserManager = UserManagerCompat.getInstance(context);
@@ -40,10 +41,21 @@ public class AppInfoComparator implements Comparator<AppInfo> {
         mLabelComparator = new LabelComparator();
     }
 
+    /**
+     * Sets whether to compare the precomputed {@link AppInfo#sortKey}s instead of the titles,
+     * which avoids going through the collator on every comparison. All the compared apps must
+     * have a sort key, computed in the same locale.
+     */
+    public void setUseSortKeys(boolean useSortKeys) {
+        mUseSortKeys = useSortKeys;
+    }
+
     @Override
     public int compare(AppInfo a, AppInfo b) {
         // Order by the title in the current locale
-        int result = mLabelComparator.compare(a.title.toString(), b.title.toString());
+        int result = mUseSortKeys
+                ? SortKeyGenerator.compareSortKeys(a.sortKey, b.sortKey)
+                : mLabelComparator.compare(a.title.toString(), b.title.toString());
         if (result != 0) {
             return result;
         }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import static com.android.launcher3.LauncherState.ALL_APPS;
+
+import com.android.launcher3.Launcher;
+import com.android.launcher3.LauncherState;
+import com.android.launcher3.LauncherStateManager;
+import com.android.launcher3.util.FrameJankTracker;
+import com.sprd.ext.LogUtils;
+
+/**
+ * Records the frame times of the first all apps session after the process starts, from the start
+ * of the transition to all apps until it is left, including the first scrolls, and logs a
+ * summary. Enabled with the performance debug property, see {@link LogUtils#DEBUG_PERFORMANCE}.
+ */
+public class FirstOpenFrameTracker implements LauncherStateManager.StateListener {
+
+    private static final String TAG = "FirstOpenFrameTracker";
+
+    // Stop after this many frames, in case all apps stays open
+    private static final int MAX_FRAMES = 600;
+
+    private static boolean sTracked;
+
+    private final LauncherStateManager mStateManager;
+    private final FrameJankTracker mFrameTracker = new FrameJankTracker(MAX_FRAMES, this::finish);
+
+    /**
+     * Tracks the first all apps session if it has not happened yet in this process.
+     */
+    public static void trackIfNeeded(Launcher launcher) {
+        if (LogUtils.DEBUG_PERFORMANCE && !sTracked) {
+            launcher.getStateManager().addStateListener(
+                    new FirstOpenFrameTracker(launcher.getStateManager()));
+        }
+    }
+
+    private FirstOpenFrameTracker(LauncherStateManager stateManager) {
+        mStateManager = stateManager;
+    }
+
+    @Override
+    public void onStateTransitionStart(LauncherState toState) {
+        if (toState == ALL_APPS && !sTracked) {
+            sTracked = true;
+            mFrameTracker.start();
+        }
+    }
+
+    @Override
+    public void onStateTransitionComplete(LauncherState finalState) {
+        if (mFrameTracker.isTracking() && finalState != ALL_APPS) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        mFrameTracker.stop();
+        mStateManager.removeStateListener(this);
+        String summary = mFrameTracker.getSummary();
+        if (summary != null) {
+            LogUtils.d(TAG, "first all apps open: " + summary);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.ItemInfoWithIcon;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.icons.IconCache.ItemInfoUpdateReceiver;
+
+import java.util.HashSet;
+import java.util.List;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Loads the high resolution icons of the apps about to be scrolled into view, in the direction of
+ * the scroll, so that they are ready by the time the icons are bound instead of being swapped in
+ * once visible.
+ */
+class HighResIconPrefetcher extends RecyclerView.OnScrollListener
+        implements ItemInfoUpdateReceiver {
+
+    // Number of rows ahead of the visible ones to prefetch
+    private static final int PREFETCH_ROWS = 2;
+
+    private final AllAppsRecyclerView mRecyclerView;
+    private final IconCache mIconCache;
+    private final int mNumAppsPerRow;
+    // Apps with an icon request in flight
+    private final HashSet<ItemInfoWithIcon> mPendingApps = new HashSet<>();
+
+    HighResIconPrefetcher(AllAppsRecyclerView recyclerView, IconCache iconCache,
+            int numAppsPerRow) {
+        mRecyclerView = recyclerView;
+        mIconCache = iconCache;
+        mNumAppsPerRow = numAppsPerRow;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || mRecyclerView.getApps() == null
+                || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        List<AlphabeticalAppsList.AdapterItem> items = mRecyclerView.getApps().getAdapterItems();
+        int count = PREFETCH_ROWS * mNumAppsPerRow;
+        int start, end;
+        if (dy > 0) {
+            int lastVisible = layoutManager.findLastVisibleItemPosition();
+            if (lastVisible == RecyclerView.NO_POSITION) {
+                return;
+            }
+            start = lastVisible + 1;
+            end = Math.min(items.size(), start + count);
+        } else {
+            end = layoutManager.findFirstVisibleItemPosition();
+            if (end == RecyclerView.NO_POSITION) {
+                return;
+            }
+            start = Math.max(0, end - count);
+        }
+
+        for (int i = start; i < end; i++) {
+            AppInfo info = items.get(i).appInfo;
+            if (info != null && info.usingLowResIcon() && mPendingApps.add(info)) {
+                mIconCache.updateIconInBackground(this, info);
+            }
+        }
+    }
+
+    @Override
+    public void reapplyItemInfo(ItemInfoWithIcon info) {
+        // The icon is updated in place, and applied when the app is bound
+        mPendingApps.remove(info);
+    }
+}
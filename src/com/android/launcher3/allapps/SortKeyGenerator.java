@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import android.content.Context;
+
+import com.android.launcher3.compat.AlphabeticIndexCompat;
+import com.android.launcher3.util.LabelComparator;
+
+import java.text.Collator;
+import java.util.Locale;
+
+/**
+ * Precomputes what is needed to sort and section app titles in the current locale, so that it
+ * can be persisted along with the title instead of going through ICU on every sort:
+ *   - the sort key, which compares like {@link LabelComparator} using plain byte comparisons.
+ *   - the section name, as computed by {@link AlphabeticIndexCompat}.
+ */
+public class SortKeyGenerator {
+
+    // First byte of the sort key, titles starting with a letter or digit are sorted first
+    private static final byte PREFIX_LETTER_OR_DIGIT = 0;
+    private static final byte PREFIX_OTHER = 1;
+
+    private final Context mContext;
+
+    private Locale mLocale;
+    private Collator mCollator;
+    private AlphabeticIndexCompat mIndexer;
+
+    public SortKeyGenerator(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the sort key of {@param title} in the current locale, to be compared with
+     * {@link #compareSortKeys}.
+     */
+    public synchronized byte[] getSortKey(CharSequence title) {
+        updateLocale();
+        String s = title.toString();
+        byte[] collationKey = mCollator.getCollationKey(s).toByteArray();
+        byte[] sortKey = new byte[collationKey.length + 1];
+        sortKey[0] = s.length() > 0 && Character.isLetterOrDigit(s.codePointAt(0))
+                ? PREFIX_LETTER_OR_DIGIT : PREFIX_OTHER;
+        System.arraycopy(collationKey, 0, sortKey, 1, collationKey.length);
+        return sortKey;
+    }
+
+    /**
+     * Returns the section name of {@param title} in the current locale.
+     */
+    public synchronized String getSectionName(CharSequence title) {
+        updateLocale();
+        return mIndexer.computeSectionName(title);
+    }
+
+    private void updateLocale() {
+        Locale locale = mContext.getResources().getConfiguration().getLocales().get(0);
+        if (!locale.equals(mLocale)) {
+            mLocale = locale;
+            mCollator = Collator.getInstance(locale);
+            mIndexer = new AlphabeticIndexCompat(mContext);
+        }
+    }
+
+    /**
+     * Compares two keys returned by {@link #getSortKey}, in the same locale.
+     */
+    public static int compareSortKeys(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int result = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+}
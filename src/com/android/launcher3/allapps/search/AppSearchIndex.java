@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import android.icu.text.UnicodeSet;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.allapps.search.DefaultAppSearchAlgorithm.StringMatcher;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.IntArray;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Word prefix index over app titles. The word breaks of every title are computed once, using the
+ * same rules as {@link DefaultAppSearchAlgorithm}, and the titles are bucketed by the folded first
+ * character of each of their words, so that a query only needs to be compared against the words
+ * that can possibly match it. The results are the same as calling
+ * {@link DefaultAppSearchAlgorithm#matches} on every app, and its search keys if any. Tailorings
+ * can make the collator consider letters equal which do not fold to the same character (eg, 'v'
+ * and 'w' in traditional Finnish), so all the apps are checked for queries starting with such
+ * letters. Other tailorings, like the pinyin order of Han characters, keep using the buckets.
+ *
+ * This class is not thread safe, it is expected to be used from a single background thread.
+ */
+public class AppSearchIndex {
+
+    // Words are only bucketed by ASCII letters and digits, as the collator can consider other
+    // characters equal (eg, hiragana and katakana) in ways that case and accent folding does not.
+    private static final char MAX_BUCKETED_CHAR = 0x80;
+    private static final int NOT_BUCKETED = -1;
+
+    private static final int[] EMPTY_BREAKS = new int[0];
+
+    /**
+     * Searchable texts of an app, its title followed by its search keys, and their word break
+     * positions.
+     */
+    static class Entry {
+        final ComponentKey key;
+        final String title;
+        final String searchKeys;
+        final String[] texts;
+        final int[][] breaks;
+
+        Entry(ComponentKey key, String title, String searchKeys) {
+            this.key = key;
+            this.title = title;
+            this.searchKeys = searchKeys;
+
+            String[] keys = SearchKeyGenerator.split(searchKeys);
+            texts = new String[keys.length + 1];
+            texts[0] = title;
+            System.arraycopy(keys, 0, texts, 1, keys.length);
+            breaks = new int[texts.length][];
+            for (int i = 0; i < texts.length; i++) {
+                breaks[i] = computeBreaks(texts[i]);
+            }
+        }
+    }
+
+    // Entries in the order of the app list
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private final HashMap<ComponentKey, Entry> mEntryMap = new HashMap<>();
+
+    // Folded first character of a word -> sorted indices of the entries having such a word
+    private final SparseArray<IntArray> mBuckets = new SparseArray<>();
+    // Sorted indices of the entries having a word which is not bucketed
+    private final IntArray mUnbucketed = new IntArray();
+
+    // Bucket keys which the tailoring of the collator merges with other keys, and the locale, or
+    // the matcher for custom rules, they were computed for.
+    private Object mMergedKeysSource;
+    private boolean[] mMergedKeys;
+
+    /**
+     * Updates the index to the provided apps, in the same order. Entries of apps whose title and
+     * search keys have not changed are reused.
+     * @param searchKeys the {@link SearchKeyGenerator} keys of each app, or null if none have any
+     */
+    public void update(List<ComponentKey> keys, List<String> titles, List<String> searchKeys) {
+        HashMap<ComponentKey, Entry> oldEntries = new HashMap<>(mEntryMap);
+        mEntries.clear();
+        mEntryMap.clear();
+        for (int i = 0; i < keys.size(); i++) {
+            ComponentKey key = keys.get(i);
+            String title = titles.get(i);
+            String appSearchKeys = searchKeys == null ? null : searchKeys.get(i);
+            Entry entry = oldEntries.get(key);
+            if (entry == null || !entry.title.equals(title)
+                    || !Objects.equals(entry.searchKeys, appSearchKeys)) {
+                entry = new Entry(key, title, appSearchKeys);
+            }
+            mEntries.add(entry);
+            mEntryMap.put(key, entry);
+        }
+        rebuildBuckets();
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    private void rebuildBuckets() {
+        for (int i = mBuckets.size() - 1; i >= 0; i--) {
+            mBuckets.valueAt(i).clear();
+        }
+        mUnbucketed.clear();
+
+        for (int i = 0; i < mEntries.size(); i++) {
+            Entry entry = mEntries.get(i);
+            boolean addedToUnbucketed = false;
+            for (int t = 0; t < entry.texts.length; t++) {
+                for (int breakPos : entry.breaks[t]) {
+                    int key = getBucketKey(entry.texts[t].charAt(breakPos));
+                    if (key == NOT_BUCKETED) {
+                        if (!addedToUnbucketed) {
+                            mUnbucketed.add(i);
+                            addedToUnbucketed = true;
+                        }
+                        continue;
+                    }
+                    IntArray bucket = mBuckets.get(key);
+                    if (bucket == null) {
+                        bucket = new IntArray();
+                        mBuckets.put(key, bucket);
+                    }
+                    // Entries are added in order, so duplicates can only be at the end
+                    if (bucket.isEmpty() || bucket.get(bucket.size() - 1) != i) {
+                        bucket.add(i);
+                    }
+                }
+            }
+        }
+
+        // Drop the buckets which are no longer used
+        for (int i = mBuckets.size() - 1; i >= 0; i--) {
+            if (mBuckets.valueAt(i).isEmpty()) {
+                mBuckets.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the app at {@param index}, as returned by {@link #search}.
+     */
+    public ComponentKey getKey(int index) {
+        return mEntries.get(index).key;
+    }
+
+    /**
+     * Adds the indices of all the apps matching {@param query} to {@param out}, in the order of
+     * the app list.
+     * @param query lower case query
+     * @param matchAnyPosition if true, the query can start anywhere in the title and not only
+     *                         at a word break.
+     */
+    public void search(String query, boolean matchAnyPosition, StringMatcher matcher,
+            IntArray out) {
+        int queryLength = query.length();
+        if (queryLength == 0) {
+            return;
+        }
+
+        int key = getBucketKey(query.charAt(0));
+        if (matchAnyPosition || key == NOT_BUCKETED || getMergedKeys(matcher)[key]) {
+            for (int i = 0; i < mEntries.size(); i++) {
+                if (matches(mEntries.get(i), query, matchAnyPosition, matcher)) {
+                    out.add(i);
+                }
+            }
+            return;
+        }
+
+        // Merge the bucket for the first character with the unbucketed entries, to keep the
+        // order of the app list.
+        IntArray bucket = mBuckets.get(key);
+        int bucketSize = bucket == null ? 0 : bucket.size();
+        int unbucketedSize = mUnbucketed.size();
+        int b = 0;
+        int u = 0;
+        while (b < bucketSize || u < unbucketedSize) {
+            int index;
+            if (u >= unbucketedSize) {
+                index = bucket.get(b++);
+            } else if (b >= bucketSize) {
+                index = mUnbucketed.get(u++);
+            } else {
+                int bucketIndex = bucket.get(b);
+                int unbucketedIndex = mUnbucketed.get(u);
+                if (bucketIndex <= unbucketedIndex) {
+                    index = bucketIndex;
+                    b++;
+                    if (bucketIndex == unbucketedIndex) {
+                        u++;
+                    }
+                } else {
+                    index = unbucketedIndex;
+                    u++;
+                }
+            }
+            if (matches(mEntries.get(index), query, false, matcher)) {
+                out.add(index);
+            }
+        }
+    }
+
+    /**
+     * Returns true if {@link #search} only checks the apps bucketed for the first character of
+     * {@param query}, instead of all the apps.
+     */
+    @VisibleForTesting
+    boolean isBucketed(String query, StringMatcher matcher) {
+        int key = getBucketKey(query.charAt(0));
+        return key != NOT_BUCKETED && !getMergedKeys(matcher)[key];
+    }
+
+    private boolean[] getMergedKeys(StringMatcher matcher) {
+        Locale locale = matcher.getLocale();
+        Object source = locale != null ? locale : matcher;
+        if (!source.equals(mMergedKeysSource)) {
+            mMergedKeys = computeMergedKeys(matcher);
+            mMergedKeysSource = source;
+        }
+        return mMergedKeys;
+    }
+
+    /**
+     * Returns, for each bucket key, whether words starting with it can match queries starting
+     * with another key, or the other way around. Only the characters which the collator tailors
+     * can do so, as the others collate like their folded character.
+     */
+    private static boolean[] computeMergedKeys(StringMatcher matcher) {
+        boolean[] merged = new boolean[MAX_BUCKETED_CHAR];
+        UnicodeSet tailored = matcher.getTailoredSet();
+        if (tailored == null) {
+            Arrays.fill(merged, true);
+            return merged;
+        }
+
+        for (char c = 0; c < MAX_BUCKETED_CHAR; c++) {
+            checkMerged(String.valueOf(c), matcher, merged);
+        }
+        for (int r = 0; r < tailored.getRangeCount(); r++) {
+            int end = Math.min(tailored.getRangeEnd(r), Character.MAX_VALUE);
+            for (int c = Math.max(tailored.getRangeStart(r), MAX_BUCKETED_CHAR); c <= end; c++) {
+                // Skip the ideographs quickly, locales like zh tailor tens of thousands of them
+                if (!Character.isIdeographic(c)) {
+                    checkMerged(String.valueOf((char) c), matcher, merged);
+                }
+            }
+        }
+        // Contractions, like "ch" in Slovak
+        for (String s : tailored.strings()) {
+            checkMerged(s, matcher, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Marks the bucket key of {@param s} as merged with every other key which is a prefix of it.
+     */
+    private static void checkMerged(String s, StringMatcher matcher, boolean[] merged) {
+        int key = getBucketKey(s.charAt(0));
+        if (key == NOT_BUCKETED) {
+            return;
+        }
+        for (char other = 0; other < MAX_BUCKETED_CHAR; other++) {
+            if (other != key && getBucketKey(other) == other
+                    && matcher.matches(String.valueOf(other), s)) {
+                merged[key] = true;
+                merged[other] = true;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #search}, but only considers the apps in {@param candidates}. This is used
+     * when {@param query} extends a previous query whose results were {@param candidates}, as
+     * any app matching the longer query also matches the shorter one.
+     */
+    public void refine(String query, boolean matchAnyPosition, StringMatcher matcher,
+            IntArray candidates, IntArray out) {
+        if (query.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            int index = candidates.get(i);
+            if (matches(mEntries.get(index), query, matchAnyPosition, matcher)) {
+                out.add(index);
+            }
+        }
+    }
+
+    private static boolean matches(
+            Entry entry, String query, boolean matchAnyPosition, StringMatcher matcher) {
+        for (int t = 0; t < entry.texts.length; t++) {
+            if (matches(entry.texts[t], entry.breaks[t], query, matchAnyPosition, matcher)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String text, int[] breaks, String query,
+            boolean matchAnyPosition, StringMatcher matcher) {
+        int queryLength = query.length();
+        int end = text.length() - queryLength;
+        if (end < 0) {
+            return false;
+        }
+        if (matchAnyPosition) {
+            for (int i = 0; i <= end; i++) {
+                if (matcher.matches(query, text.substring(i, i + queryLength))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int breakPos : breaks) {
+            if (breakPos > end) {
+                break;
+            }
+            if (matcher.matches(query, text.substring(breakPos, breakPos + queryLength))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the positions in {@param title} at which a match can start.
+     */
+    static int[] computeBreaks(String title) {
+        int titleLength = title.length();
+        if (titleLength == 0) {
+            return EMPTY_BREAKS;
+        }
+        IntArray breaks = new IntArray();
+        int lastType;
+        int thisType = Character.UNASSIGNED;
+        int nextType = Character.getType(title.codePointAt(0));
+        for (int i = 0; i < titleLength; i++) {
+            lastType = thisType;
+            thisType = nextType;
+            nextType = i < (titleLength - 1) ?
+                    Character.getType(title.codePointAt(i + 1)) : Character.UNASSIGNED;
+            if (DefaultAppSearchAlgorithm.isBreak(thisType, lastType, nextType)) {
+                breaks.add(i);
+            }
+        }
+        return breaks.toArray();
+    }
+
+    /**
+     * Returns the bucket for words starting with {@param c}, or {@link #NOT_BUCKETED} if such
+     * words need to be checked for every query.
+     */
+    private static int getBucketKey(char c) {
+        if (c < MAX_BUCKETED_CHAR) {
+            return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : NOT_BUCKETED;
+        }
+        // Strip the accents and compatibility forms, which the collator ignores. Anything which
+        // does not reduce to a single ASCII letter or digit is not bucketed, as the collator can
+        // consider it equal to other characters (eg, expansions like 'ß' and 'ss').
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFKD);
+        char base = decomposed.charAt(0);
+        if (base >= MAX_BUCKETED_CHAR || !Character.isLetterOrDigit(base)) {
+            return NOT_BUCKETED;
+        }
+        for (int i = 1; i < decomposed.length(); i++) {
+            if (Character.getType(decomposed.charAt(i)) != Character.NON_SPACING_MARK) {
+                return NOT_BUCKETED;
+            }
+        }
+        return Character.toLowerCase(base);
+    }
+}
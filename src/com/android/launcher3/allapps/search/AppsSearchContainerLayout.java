@@ -49,6 +49,8 @@ import com.android.launcher3.allapps.SearchUiManager;
 import com.android.launcher3.anim.PropertySetter;
 import com.android.launcher3.graphics.TintedDrawableSpan;
 import com.android.launcher3.util.ComponentKey;
+import com.sprd.ext.FeatureOption;
+import com.sprd.ext.fuzzysearch.FuzzyAppSearchAlgorithm;
 
 import java.util.ArrayList;
 
@@ -65,6 +67,7 @@ public class AppsSearchContainerLayout extends ExtendedEditText
     private final SpannableStringBuilder mSearchQueryBuilder;
 
     private AlphabeticalAppsList mApps;
+    private SearchAlgorithm mSearchAlgorithm;
     private AllAppsContainerView mAppsView;
 
     // This value was used to position the QSB. We store it here for translationY animations.
@@ -139,12 +142,17 @@ public class AppsSearchContainerLayout extends ExtendedEditText
     public void initialize(AllAppsContainerView appsView) {
         mApps = appsView.getApps();
         mAppsView = appsView;
-        mSearchBarController.initialize(
-                new DefaultAppSearchAlgorithm(mApps.getApps()), this, mLauncher, this);
+        mSearchAlgorithm = FeatureOption.SPRD_ALLAPP_FUZZY_SEARCH_SUPPORT.get()
+                ? new FuzzyAppSearchAlgorithm(getContext(), mApps.getApps())
+                : new IndexedAppSearchAlgorithm(mApps.getApps());
+        mSearchBarController.initialize(mSearchAlgorithm, this, mLauncher, this);
     }
 
     @Override
     public void onAppsUpdated() {
+        if (mSearchAlgorithm != null) {
+            mSearchAlgorithm.onAppsUpdated();
+        }
         mSearchBarController.refreshSearchResult();
     }
 
@@ -15,14 +15,17 @@
  */
 package com.android.launcher3.allapps.search;
 
+import android.icu.text.Collator;
+import android.icu.text.RuleBasedCollator;
+import android.icu.text.UnicodeSet;
 import android.os.Handler;
 
 import com.android.launcher3.AppInfo;
 import com.android.launcher3.util.ComponentKey;
 
-import java.text.Collator;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * The default search implementation.
@@ -122,7 +125,7 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm {
      *      3) Any capital character after a digit or small character
      *      4) Any capital character before a small character
      */
-    private static boolean isBreak(int thisType, int prevType, int nextType) {
+    static boolean isBreak(int thisType, int prevType, int nextType) {
         switch (prevType) {
             case Character.UNASSIGNED:
             case Character.SPACE_SEPARATOR:
@@ -165,13 +168,41 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm {
         private static final char MAX_UNICODE = '\uFFFF';
 
         private final Collator mCollator;
+        // The locale of the collator, or null if it was built from custom rules
+        private final Locale mLocale;
 
         StringMatcher() {
             // On android N and above, Collator uses ICU implementation which has a much better
             // support for non-latin locales.
-            mCollator = Collator.getInstance();
+            this(Locale.getDefault());
+        }
+
+        StringMatcher(Locale locale) {
+            this(Collator.getInstance(locale), locale);
+        }
+
+        StringMatcher(Collator collator) {
+            this(collator, null);
+        }
+
+        private StringMatcher(Collator collator, Locale locale) {
+            mCollator = collator;
             mCollator.setStrength(Collator.PRIMARY);
             mCollator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+            mLocale = locale;
+        }
+
+        public Locale getLocale() {
+            return mLocale;
+        }
+
+        /**
+         * Returns the characters and sequences which the collator handles differently from the
+         * root collation, or null if they are not known.
+         */
+        public UnicodeSet getTailoredSet() {
+            return mCollator instanceof RuleBasedCollator
+                    ? ((RuleBasedCollator) mCollator).getTailoredSet() : null;
         }
 
         /**
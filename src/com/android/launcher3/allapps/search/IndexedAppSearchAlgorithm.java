@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import android.os.Handler;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.allapps.search.DefaultAppSearchAlgorithm.StringMatcher;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.UiThreadHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search implementation backed by an {@link AppSearchIndex}. The index is built and queried on a
+ * background thread, and kept up to date by calling {@link #onAppsUpdated()} whenever the list
+ * of apps changes. Results are delivered on the main thread, same as
+ * {@link DefaultAppSearchAlgorithm}.
+ */
+public class IndexedAppSearchAlgorithm implements SearchAlgorithm {
+
+    private final List<AppInfo> mApps;
+    private final Handler mResultHandler;
+    private final Handler mWorkerHandler;
+
+    // Only accessed on the worker thread
+    private final AppSearchIndex mIndex = new AppSearchIndex();
+    private StringMatcher mMatcher;
+    // Last query run on the index and its results, used to narrow down the next query
+    private String mLastQuery;
+    private boolean mLastFuzzySearch;
+    private IntArray mLastResult = new IntArray();
+    private IntArray mNextResult = new IntArray();
+
+    // Incremented for every new request, any result for an older request is dropped.
+    private volatile int mRequestId;
+    private volatile boolean mIsFuzzySearch;
+
+    public IndexedAppSearchAlgorithm(List<AppInfo> apps) {
+        mApps = apps;
+        mResultHandler = new Handler();
+        mWorkerHandler = new Handler(UiThreadHelper.getBackgroundLooper());
+        onAppsUpdated();
+    }
+
+    /**
+     * Updates the index to the current list of apps.
+     */
+    @Override
+    public void onAppsUpdated() {
+        // Take a snapshot of the apps as the list is only accessed on the main thread.
+        int count = mApps.size();
+        ArrayList<ComponentKey> keys = new ArrayList<>(count);
+        ArrayList<String> titles = new ArrayList<>(count);
+        ArrayList<String> searchKeys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AppInfo info = mApps.get(i);
+            keys.add(info.toComponentKey());
+            titles.add(info.title.toString());
+            searchKeys.add(info.searchKeys);
+        }
+        mWorkerHandler.post(() -> {
+            mIndex.update(keys, titles, searchKeys);
+            // The indices of the previous results are no longer valid
+            mLastQuery = null;
+        });
+    }
+
+    @Override
+    public void cancel(boolean interruptActiveRequests) {
+        if (interruptActiveRequests) {
+            mRequestId++;
+            mResultHandler.removeCallbacksAndMessages(null);
+        }
+    }
+
+    @Override
+    public void setFuzzySearchEnable(boolean isFuzzySearch) {
+        mIsFuzzySearch = isFuzzySearch;
+    }
+
+    @Override
+    public void doSearch(final String query,
+            final AllAppsSearchBarController.Callbacks callback) {
+        final int requestId = ++mRequestId;
+        final boolean isFuzzySearch = mIsFuzzySearch;
+        mWorkerHandler.post(() -> {
+            if (requestId != mRequestId) {
+                // A newer query has already been posted
+                return;
+            }
+            if (mMatcher == null || !Locale.getDefault().equals(mMatcher.getLocale())) {
+                mMatcher = StringMatcher.getInstance();
+            }
+            ArrayList<ComponentKey> result = search(query.toLowerCase(), isFuzzySearch);
+            mResultHandler.post(() -> {
+                if (requestId == mRequestId) {
+                    callback.onSearchResult(query, result);
+                }
+            });
+        });
+    }
+
+    /**
+     * Runs the query on the index, narrowing down the previous results if {@param query}
+     * extends the previous query. Must be called on the worker thread.
+     */
+    private ArrayList<ComponentKey> search(String query, boolean isFuzzySearch) {
+        mNextResult.clear();
+        if (mLastQuery != null && mLastFuzzySearch == isFuzzySearch
+                && query.startsWith(mLastQuery)) {
+            mIndex.refine(query, isFuzzySearch, mMatcher, mLastResult, mNextResult);
+        } else {
+            mIndex.search(query, isFuzzySearch, mMatcher, mNextResult);
+        }
+
+        // Swap the buffers, so that the results can be refined by the next query
+        IntArray tmp = mLastResult;
+        mLastResult = mNextResult;
+        mNextResult = tmp;
+        mLastQuery = query;
+        mLastFuzzySearch = isFuzzySearch;
+
+        int count = mLastResult.size();
+        ArrayList<ComponentKey> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(mIndex.getKey(mLastResult.get(i)));
+        }
+        return result;
+    }
+}
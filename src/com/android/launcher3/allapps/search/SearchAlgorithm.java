@@ -34,4 +34,9 @@ public interface SearchAlgorithm {
      * Can search any character.
      */
     void setFuzzySearchEnable(boolean isFuzzySearch);
+
+    /**
+     * Called on the main thread when the list of apps being searched has changed.
+     */
+    default void onAppsUpdated() { }
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import android.annotation.TargetApi;
+import android.icu.text.Transliterator;
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.android.launcher3.Utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Generates additional search keys for app titles written in Han characters, so that they can
+ * be searched using pinyin. For a title like "QQ音乐", two keys are generated:
+ *   - "QQ YinYue": the transliteration, with every syllable starting a new word so that it can
+ *     be searched as "yinyue" or "yue".
+ *   - "qq yy": the initial letters of the syllables.
+ * Runs of Han characters are transliterated as a whole, as the reading of a character can depend
+ * on the characters around it (eg, "乐" in "音乐" and "快乐").
+ * The keys are joined with {@link #KEY_SEPARATOR} so that they can be stored as a single string.
+ */
+public class SearchKeyGenerator {
+
+    private static final String TAG = "SearchKeyGenerator";
+
+    public static final char KEY_SEPARATOR = '\n';
+    private static final String[] NO_KEYS = new String[0];
+
+    private static final String TRANSLITERATOR_ID = "Han-Latin; Latin-ASCII";
+
+    // Common phrases in app titles whose characters are read differently than on their own,
+    // and which the transliterator does not know about.
+    private static final String[][] POLYPHONE_PHRASES = {
+            {"音乐", "yin yue"},
+            {"快乐", "kuai le"},
+            {"银行", "yin hang"},
+            {"重庆", "chong qing"},
+            {"长沙", "chang sha"},
+    };
+
+    private Transliterator mTransliterator;
+    private boolean mTransliteratorFailed;
+
+    /**
+     * Returns the search keys for {@param title}, or null if it does not need any.
+     */
+    public synchronized String getSearchKeys(CharSequence title) {
+        if (!Utilities.ATLEAST_Q || TextUtils.isEmpty(title) || !containsHan(title)) {
+            return null;
+        }
+        Transliterator transliterator = getTransliterator();
+        if (transliterator == null) {
+            return null;
+        }
+
+        StringBuilder full = new StringBuilder();
+        StringBuilder initials = new StringBuilder();
+        ArrayList<String> syllables = new ArrayList<>();
+        boolean afterHan = false;
+        int length = title.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = Character.codePointAt(title, i);
+            int charCount = Character.charCount(codePoint);
+            if (isHan(codePoint)) {
+                // Transliterate the whole run of Han characters, so that the reading of each
+                // character can depend on the ones around it.
+                int end = i + charCount;
+                while (end < length && isHan(Character.codePointAt(title, end))) {
+                    end += Character.charCount(Character.codePointAt(title, end));
+                }
+                separate(full);
+                separate(initials);
+                syllables.clear();
+                addSyllables(transliterator, title.subSequence(i, end).toString(), syllables);
+                for (String syllable : syllables) {
+                    full.append(Character.toUpperCase(syllable.charAt(0)))
+                            .append(syllable, 1, syllable.length());
+                    initials.append(Character.toLowerCase(syllable.charAt(0)));
+                }
+                afterHan = true;
+                i = end;
+                continue;
+            }
+
+            if (afterHan) {
+                // Separate the transliterated parts from the rest of the title
+                separate(full);
+                separate(initials);
+                afterHan = false;
+            }
+            if (Character.isWhitespace(codePoint)) {
+                separate(full);
+            } else {
+                full.appendCodePoint(codePoint);
+                initials.appendCodePoint(Character.isLetterOrDigit(codePoint)
+                        ? Character.toLowerCase(codePoint) : codePoint);
+            }
+            i += charCount;
+        }
+        return full.toString().trim() + KEY_SEPARATOR + initials.toString().trim();
+    }
+
+    /**
+     * Adds the pinyin syllables of {@param run}, which only contains Han characters, to
+     * {@param out}.
+     */
+    private static void addSyllables(
+            Transliterator transliterator, String run, ArrayList<String> out) {
+        // Start of the characters which are not part of a known phrase
+        int start = 0;
+        for (int i = 0; i < run.length(); ) {
+            String[] phrase = findPhrase(run, i);
+            if (phrase == null) {
+                i += Character.charCount(run.codePointAt(i));
+                continue;
+            }
+            transliterate(transliterator, run.substring(start, i), out);
+            Collections.addAll(out, phrase[1].split(" "));
+            i += phrase[0].length();
+            start = i;
+        }
+        transliterate(transliterator, run.substring(start), out);
+    }
+
+    private static String[] findPhrase(String run, int index) {
+        for (String[] phrase : POLYPHONE_PHRASES) {
+            if (run.startsWith(phrase[0], index)) {
+                return phrase;
+            }
+        }
+        return null;
+    }
+
+    private static void transliterate(
+            Transliterator transliterator, String han, ArrayList<String> out) {
+        if (han.isEmpty()) {
+            return;
+        }
+        String[] syllables = transliterator.transliterate(han).trim().split("\\s+");
+        if (syllables.length == han.codePointCount(0, han.length())) {
+            for (String syllable : syllables) {
+                if (!syllable.isEmpty()) {
+                    out.add(syllable);
+                }
+            }
+            return;
+        }
+
+        // The syllables do not line up with the characters, transliterate them one by one
+        for (int i = 0; i < han.length(); ) {
+            int charCount = Character.charCount(han.codePointAt(i));
+            String syllable = transliterator.transliterate(han.substring(i, i + charCount)).trim();
+            if (!syllable.isEmpty()) {
+                out.add(syllable);
+            }
+            i += charCount;
+        }
+    }
+
+    /**
+     * Appends a space to {@param sb}, unless it is empty or already ends with one.
+     */
+    private static void separate(StringBuilder sb) {
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) != ' ') {
+            sb.append(' ');
+        }
+    }
+
+    /**
+     * Splits the value returned by {@link #getSearchKeys} into the individual keys.
+     */
+    public static String[] split(String searchKeys) {
+        return TextUtils.isEmpty(searchKeys)
+                ? NO_KEYS : searchKeys.split(String.valueOf(KEY_SEPARATOR));
+    }
+
+    @TargetApi(Build.VERSION_CODES.Q)
+    private Transliterator getTransliterator() {
+        if (mTransliterator == null && !mTransliteratorFailed) {
+            try {
+                mTransliterator = Transliterator.getInstance(TRANSLITERATOR_ID);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Transliterator not available", e);
+                mTransliteratorFailed = true;
+            }
+        }
+        return mTransliterator;
+    }
+
+    private static boolean containsHan(CharSequence title) {
+        for (int i = 0; i < title.length(); ) {
+            int codePoint = Character.codePointAt(title, i);
+            if (isHan(codePoint)) {
+                return true;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return false;
+    }
+
+    private static boolean isHan(int codePoint) {
+        return Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN;
+    }
+}
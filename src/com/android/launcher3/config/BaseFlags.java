@@ -86,6 +86,17 @@ public abstract class BaseFlags {
     // When enabled shows a work profile tab in all apps
     public static final boolean ALL_APPS_TABS_ENABLED = true;
 
+    // When enabled the all apps lists are rebuilt over multiple frames after the initial bind
+    public static final boolean INCREMENTAL_ALL_APPS_BINDING = true;
+
+    // When enabled the widgets on workspace pages far from the current one are bound as
+    // placeholders, and only inflated once the user gets close to their page
+    public static final boolean LAZY_WIDGET_INFLATION = true;
+
+    // When enabled the updates of widgets which are not visible are coalesced, and only the
+    // latest one is applied when they are visible again
+    public static final boolean DEFER_HIDDEN_WIDGET_UPDATES = true;
+
     // When true, overview shows screenshots in the orientation they were taken rather than
     // trying to make them fit the orientation the device is in.
     public static final boolean OVERVIEW_USE_SCREENSHOT_ORIENTATION = true;
@@ -19,6 +19,9 @@ import com.android.launcher3.widget.WidgetCell;
 public class LivePreviewWidgetCell extends WidgetCell {
 
     private RemoteViews mPreview;
+    // Rendered from mPreview the first time the cell shows it. Every pin request creates new
+    // remote views, so the bitmap is kept on the cell rather than in the preview loader cache.
+    private Bitmap mRenderedPreview;
 
     public LivePreviewWidgetCell(Context context) {
         this(context, null);
@@ -34,15 +37,19 @@ public class LivePreviewWidgetCell extends WidgetCell {
 
     public void setPreview(RemoteViews view) {
         mPreview = view;
+        mRenderedPreview = null;
     }
 
     @Override
     public void ensurePreview() {
         if (mPreview != null && mActiveRequest == null) {
-            Bitmap preview = generateFromRemoteViews(
-                    mActivity, mPreview, mItem.widgetInfo, mPresetPreviewSize, new int[1]);
-            if (preview != null) {
-                applyPreview(preview);
+            // Inflating the remote views is expensive, the preview is only rendered once
+            if (mRenderedPreview == null) {
+                mRenderedPreview = generateFromRemoteViews(
+                        mActivity, mPreview, mItem.widgetInfo, mPresetPreviewSize, new int[1]);
+            }
+            if (mRenderedPreview != null) {
+                applyPreview(mRenderedPreview);
                 return;
             }
         }
@@ -60,5 +60,11 @@ public interface ComponentWithLabel {
             // Do not load icon.
             target.icon = BitmapInfo.LOW_RES_ICON;
         }
+
+        @Override
+        public boolean needsLabelKeys() {
+            // Widgets and shortcuts are not listed in all apps
+            return false;
+        }
     }
 }
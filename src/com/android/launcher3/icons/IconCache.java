@@ -39,6 +39,8 @@ import com.android.launcher3.LauncherModel;
 import com.android.launcher3.MainThreadExecutor;
 import com.android.launcher3.WorkspaceItemInfo;
 import com.android.launcher3.Utilities;
+import com.android.launcher3.allapps.SortKeyGenerator;
+import com.android.launcher3.allapps.search.SearchKeyGenerator;
 import com.android.launcher3.compat.LauncherAppsCompat;
 import com.android.launcher3.compat.UserManagerCompat;
 import com.android.launcher3.icons.ComponentWithLabel.ComponentCachingLogic;
@@ -70,6 +72,8 @@ public class IconCache extends BaseIconCache {
     private final UserManagerCompat mUserManager;
     private final InstantAppResolver mInstantAppResolver;
     private final IconProvider mIconProvider;
+    private final SearchKeyGenerator mSearchKeyGenerator = new SearchKeyGenerator();
+    private final SortKeyGenerator mSortKeyGenerator;
 
     private int mPendingIconRequestCount = 0;
 
@@ -82,6 +86,7 @@ public class IconCache extends BaseIconCache {
         mUserManager = UserManagerCompat.getInstance(mContext);
         mInstantAppResolver = InstantAppResolver.newInstance(mContext);
         mIconProvider = IconProvider.newInstance(context);
+        mSortKeyGenerator = new SortKeyGenerator(mContext);
     }
 
     @Override
@@ -214,6 +219,7 @@ public class IconCache extends BaseIconCache {
                 && LauncherAppState.getInstance(mContext).getModel().isLanguageChanging()
                 && activityInfoProvider.get() != null) {
             entry.title = activityInfoProvider.get().getLabel();
+            updateLabelKeys(entry);
         }
 
         applyCacheEntry(entry, infoInOut);
@@ -233,6 +239,12 @@ public class IconCache extends BaseIconCache {
     protected void applyCacheEntry(CacheEntry entry, ItemInfoWithIcon info) {
         info.title = Utilities.trim(entry.title);
         info.contentDescription = entry.contentDescription;
+        if (info instanceof AppInfo) {
+            AppInfo appInfo = (AppInfo) info;
+            appInfo.searchKeys = entry.searchKeys;
+            appInfo.sortKey = entry.sortKey;
+            appInfo.sectionName = entry.sectionName;
+        }
         info.applyFrom((entry.icon == null) ? getDefaultIcon(info.user) : entry);
     }
 
@@ -244,6 +256,19 @@ public class IconCache extends BaseIconCache {
         return mIconProvider.getIcon(info, mIconDpi, flattenDrawable);
     }
 
+    @Override
+    protected void updateLabelKeys(CacheEntry entry) {
+        if (entry.title == null) {
+            super.updateLabelKeys(entry);
+            return;
+        }
+        // Same as the title applied to the item
+        String title = Utilities.trim(entry.title);
+        entry.searchKeys = mSearchKeyGenerator.getSearchKeys(title);
+        entry.sortKey = mSortKeyGenerator.getSortKey(title);
+        entry.sectionName = mSortKeyGenerator.getSectionName(title);
+    }
+
     @Override
     protected String getIconSystemState(String packageName) {
         return mIconProvider.getSystemStateForPackage(mSystemState, packageName);
@@ -53,4 +53,9 @@ public class LauncherActivtiyCachingLogic implements CachingLogic<LauncherActivi
                 object.getUser(), object.getApplicationInfo().targetSdkVersion).applyTo(target);
         li.recycle();
     }
+
+    @Override
+    public boolean needsLabelKeys() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -17,7 +17,6 @@ package com.android.launcher3.model;
 
 import android.content.Intent;
 import android.os.UserHandle;
-import android.util.LongSparseArray;
 import android.util.Pair;
 
 import com.android.launcher3.AllAppsList;
@@ -34,6 +33,7 @@ import com.android.launcher3.WorkspaceItemInfo;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.util.GridOccupancy;
 import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.IntSparseArrayMap;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -96,11 +96,15 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
                 }
             }
 
+            // Build the occupancy of every screen once and keep it updated as items are placed,
+            // so that the whole batch is laid out in a single pass.
+            IntSparseArrayMap<GridOccupancy> screenOccupancy =
+                    buildScreenOccupancy(app, dataModel);
+            List<Pair<ItemInfo, int[]>> placements = new ArrayList<>(filteredItems.size());
             for (ItemInfo item : filteredItems) {
                 // Find appropriate space for the item.
-                int[] coords = findSpaceForItem(app, dataModel, workspaceScreens,
+                int[] coords = findSpaceForItem(app, screenOccupancy, workspaceScreens,
                         addedWorkspaceScreensFinal, item.spanX, item.spanY);
-                int screenId = coords[0];
 
                 ItemInfo itemInfo;
                 if (item instanceof WorkspaceItemInfo || item instanceof FolderInfo ||
@@ -111,15 +115,17 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
                 } else {
                     throw new RuntimeException("Unexpected info type");
                 }
-
-                // Add the shortcut to the db
-                getModelWriter().addItemToDatabase(itemInfo,
-                        LauncherSettings.Favorites.CONTAINER_DESKTOP, screenId,
-                        coords[1], coords[2]);
+                screenOccupancy.get(coords[0]).markCells(
+                        coords[1], coords[2], item.spanX, item.spanY, true);
+                placements.add(Pair.create(itemInfo, coords));
 
                 // Save the WorkspaceItemInfo for binding in the workspace
                 addedItemsFinal.add(itemInfo);
             }
+
+            // Add the shortcuts to the db
+            getModelWriter().addItemsToDatabase(
+                    placements, LauncherSettings.Favorites.CONTAINER_DESKTOP);
         }
 
         if (!addedItemsFinal.isEmpty()) {
@@ -209,22 +215,18 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
      */
     protected int[] findSpaceForItem( LauncherAppState app, BgDataModel dataModel,
             IntArray workspaceScreens, IntArray addedWorkspaceScreensFinal, int spanX, int spanY) {
-        LongSparseArray<ArrayList<ItemInfo>> screenItems = new LongSparseArray<>();
-
-        // Use sBgItemsIdMap as all the items are already loaded.
-        synchronized (dataModel) {
-            for (ItemInfo info : dataModel.itemsIdMap) {
-                if (info.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
-                    ArrayList<ItemInfo> items = screenItems.get(info.screenId);
-                    if (items == null) {
-                        items = new ArrayList<>();
-                        screenItems.put(info.screenId, items);
-                    }
-                    items.add(info);
-                }
-            }
-        }
+        return findSpaceForItem(app, buildScreenOccupancy(app, dataModel), workspaceScreens,
+                addedWorkspaceScreensFinal, spanX, spanY);
+    }
 
+    /**
+     * Find a position for the given size using the pre-computed occupancy of each screen, or
+     * adds a new screen. The occupancy of a newly added screen is added to {@param occupancy}.
+     * @return screenId and the coordinates for the item in an int array of size 3.
+     */
+    protected int[] findSpaceForItem(LauncherAppState app,
+            IntSparseArrayMap<GridOccupancy> occupancy, IntArray workspaceScreens,
+            IntArray addedWorkspaceScreensFinal, int spanX, int spanY) {
         // Find appropriate space for the item.
         int screenId = 0;
         int[] cordinates = new int[2];
@@ -235,16 +237,16 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
         int preferredScreenIndex = workspaceScreens.isEmpty() ? 0 : 1;
         if (preferredScreenIndex < screenCount) {
             screenId = workspaceScreens.get(preferredScreenIndex);
-            found = findNextAvailableIconSpaceInScreen(
-                    app, screenItems.get(screenId), cordinates, spanX, spanY);
+            found = getOccupancy(app, occupancy, screenId)
+                    .findVacantCell(cordinates, spanX, spanY);
         }
 
         if (!found) {
             // Search on any of the screens starting from the first screen.
             for (int screen = 1; screen < screenCount; screen++) {
                 screenId = workspaceScreens.get(screen);
-                if (findNextAvailableIconSpaceInScreen(
-                        app, screenItems.get(screenId), cordinates, spanX, spanY)) {
+                if (getOccupancy(app, occupancy, screenId)
+                        .findVacantCell(cordinates, spanX, spanY)) {
                     // We found a space for it
                     found = true;
                     break;
@@ -263,26 +265,41 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
             addedWorkspaceScreensFinal.add(screenId);
 
             // If we still can't find an empty space, then God help us all!!!
-            if (!findNextAvailableIconSpaceInScreen(
-                    app, screenItems.get(screenId), cordinates, spanX, spanY)) {
+            if (!getOccupancy(app, occupancy, screenId)
+                    .findVacantCell(cordinates, spanX, spanY)) {
                 throw new RuntimeException("Can't find space to add the item");
             }
         }
         return new int[] {screenId, cordinates[0], cordinates[1]};
     }
 
-    private boolean findNextAvailableIconSpaceInScreen(
-            LauncherAppState app, ArrayList<ItemInfo> occupiedPos,
-            int[] xy, int spanX, int spanY) {
-        InvariantDeviceProfile profile = app.getInvariantDeviceProfile();
+    /**
+     * Returns the occupancy of all the desktop screens, computed in a single pass over the model.
+     */
+    private IntSparseArrayMap<GridOccupancy> buildScreenOccupancy(
+            LauncherAppState app, BgDataModel dataModel) {
+        IntSparseArrayMap<GridOccupancy> occupancy = new IntSparseArrayMap<>();
 
-        GridOccupancy occupied = new GridOccupancy(profile.numColumns, profile.numRows);
-        if (occupiedPos != null) {
-            for (ItemInfo r : occupiedPos) {
-                occupied.markCells(r, true);
+        // Use sBgItemsIdMap as all the items are already loaded.
+        synchronized (dataModel) {
+            for (ItemInfo info : dataModel.itemsIdMap) {
+                if (info.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+                    getOccupancy(app, occupancy, info.screenId).markCells(info, true);
+                }
             }
         }
-        return occupied.findVacantCell(xy, spanX, spanY);
+        return occupancy;
+    }
+
+    private GridOccupancy getOccupancy(LauncherAppState app,
+            IntSparseArrayMap<GridOccupancy> occupancy, int screenId) {
+        GridOccupancy screen = occupancy.get(screenId);
+        if (screen == null) {
+            InvariantDeviceProfile profile = app.getInvariantDeviceProfile();
+            screen = new GridOccupancy(profile.numColumns, profile.numRows);
+            occupancy.put(screenId, screen);
+        }
+        return screen;
     }
 
 }
@@ -15,6 +15,7 @@
  */
 package com.android.launcher3.model;
 
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.pm.ShortcutInfo;
 import android.os.UserHandle;
@@ -41,6 +42,8 @@ import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.IntSparseArrayMap;
+import com.android.launcher3.util.ItemInfoIndex;
+import com.android.launcher3.util.ItemInfoMatcher;
 import com.google.protobuf.nano.MessageNano;
 
 import java.io.FileDescriptor;
@@ -49,10 +52,13 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * All the data stored in-memory and managed by the LauncherModel
@@ -108,6 +114,12 @@ public class BgDataModel {
      */
     public int lastBindId = 0;
 
+    /**
+     * Secondary indexes over {@link #itemsIdMap}, used to evaluate matchers without going over
+     * all the items.
+     */
+    private final ItemInfoIndex mItemIndex = new ItemInfoIndex();
+
     /**
      * Clears all the data
      */
@@ -116,6 +128,7 @@ public class BgDataModel {
         appWidgets.clear();
         folders.clear();
         itemsIdMap.clear();
+        mItemIndex.clear();
         pinnedShortcutCounts.clear();
         deepShortcutMap.clear();
     }
@@ -125,10 +138,9 @@ public class BgDataModel {
      */
     public synchronized IntArray collectWorkspaceScreens() {
         IntSet screenSet = new IntSet();
-        for (ItemInfo item: itemsIdMap) {
-            if (item.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
-                screenSet.add(item.screenId);
-            }
+        for (ItemInfo item: mItemIndex.getItemsForContainer(
+                LauncherSettings.Favorites.CONTAINER_DESKTOP)) {
+            screenSet.add(item.screenId);
         }
         if (FeatureFlags.QSB_ON_FIRST_SCREEN || screenSet.isEmpty()) {
             screenSet.add(Workspace.FIRST_SCREEN_ID);
@@ -136,6 +148,68 @@ public class BgDataModel {
         return screenSet.getArray();
     }
 
+    /**
+     * Returns all the shortcuts (including the ones in folders) and widgets in the model which
+     * satisfy the {@param matcher}. This is equivalent to calling
+     * {@link ItemInfoMatcher#filterItemInfos(Iterable)} on {@link #itemsIdMap}, but only looks
+     * at the candidate items when the matcher can be evaluated using the index.
+     */
+    public synchronized HashSet<ItemInfo> filterItemInfos(ItemInfoMatcher matcher) {
+        Collection<ItemInfo> candidates = matcher.getCandidates(mItemIndex);
+        if (candidates == null) {
+            return matcher.filterItemInfos(itemsIdMap);
+        }
+        HashSet<ItemInfo> filtered = new HashSet<>();
+        for (ItemInfo info : candidates) {
+            ComponentName cn = ItemInfoIndex.getMatchComponent(info);
+            if (cn != null && matcher.matches(info, cn)) {
+                filtered.add(info);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Returns the shortcuts and widgets which can satisfy {@param matcher}, or all the items if
+     * it can not be evaluated using the index. The result can contain items which do not match.
+     * It is a copy, so the items can be updated while iterating over it.
+     */
+    public synchronized ArrayList<ItemInfo> getCandidates(ItemInfoMatcher matcher) {
+        Collection<ItemInfo> candidates = matcher.getCandidates(mItemIndex);
+        if (candidates == null) {
+            ArrayList<ItemInfo> items = new ArrayList<>(itemsIdMap.size());
+            for (ItemInfo info : itemsIdMap) {
+                items.add(info);
+            }
+            return items;
+        }
+        return new ArrayList<>(candidates);
+    }
+
+    /**
+     * Returns the shortcuts for {@param user} whose icon resource belongs to any of
+     * {@param packageNames}.
+     */
+    public synchronized ArrayList<ItemInfo> getItemsForIconPackages(
+            Set<String> packageNames, UserHandle user) {
+        return new ArrayList<>(mItemIndex.getItemsForIconPackages(packageNames, user));
+    }
+
+    /**
+     * Returns all the items whose container is {@param container}.
+     */
+    public synchronized ArrayList<ItemInfo> getItemsInContainer(int container) {
+        return new ArrayList<>(mItemIndex.getItemsForContainer(container));
+    }
+
+    /**
+     * Updates the secondary indexes after the target or the container of {@param item} has
+     * changed in place.
+     */
+    public synchronized void updateItemIndex(ItemInfo item) {
+        mItemIndex.update(item);
+    }
+
     public synchronized void dump(String prefix, FileDescriptor fd, PrintWriter writer,
             String[] args) {
         if (Arrays.asList(args).contains("--proto")) {
@@ -159,6 +233,7 @@ public class BgDataModel {
         for (int i = 0; i< itemsIdMap.size(); i++) {
             writer.println(prefix + '\t' + itemsIdMap.valueAt(i).toString());
         }
+        mItemIndex.dump(prefix + " ", writer);
 
         if (args.length > 0 && TextUtils.equals(args[0], "--all")) {
             writer.println(prefix + "shortcut counts ");
@@ -260,18 +335,18 @@ public class BgDataModel {
 
     public synchronized void removeItem(Context context, Iterable<? extends ItemInfo> items) {
         for (ItemInfo item : items) {
+            ItemInfo modelItem = itemsIdMap.get(item.id);
+            mItemIndex.remove(modelItem == null ? item : modelItem);
             switch (item.itemType) {
                 case LauncherSettings.Favorites.ITEM_TYPE_FOLDER:
                     folders.remove(item.id);
                     if (FeatureFlags.IS_DOGFOOD_BUILD) {
-                        for (ItemInfo info : itemsIdMap) {
-                            if (info.container == item.id) {
-                                // We are deleting a folder which still contains items that
-                                // think they are contained by that folder.
-                                String msg = "deleting a folder (" + item + ") which still " +
-                                        "contains items (" + info + ")";
-                                Log.e(TAG, msg);
-                            }
+                        for (ItemInfo info : mItemIndex.getItemsForContainer(item.id)) {
+                            // We are deleting a folder which still contains items that
+                            // think they are contained by that folder.
+                            String msg = "deleting a folder (" + item + ") which still " +
+                                    "contains items (" + info + ")";
+                            Log.e(TAG, msg);
                         }
                     }
                     workspaceItems.remove(item);
@@ -301,7 +376,12 @@ public class BgDataModel {
     }
 
     public synchronized void addItem(Context context, ItemInfo item, boolean newItem) {
+        ItemInfo oldItem = itemsIdMap.get(item.id);
+        if (oldItem != null) {
+            mItemIndex.remove(oldItem);
+        }
         itemsIdMap.put(item.id, item);
+        mItemIndex.add(item);
         switch (item.itemType) {
             case LauncherSettings.Favorites.ITEM_TYPE_FOLDER:
                 folders.put(item.id, (FolderInfo) item);
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import com.android.launcher3.AllAppsList;
+import com.android.launcher3.ItemInfo;
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherSettings;
+import com.android.launcher3.util.IntSparseArrayMap;
+import com.android.launcher3.util.ItemInfoMatcher;
+import com.sprd.ext.LogUtils;
+
+import java.util.ArrayList;
+
+/**
+ * Runs the DB integrity pass of the provider and removes the deleted items from the model and
+ * the workspace.
+ */
+public class DbIntegrityTask extends BaseModelUpdateTask {
+
+    private static final String TAG = "DbIntegrityTask";
+
+    @Override
+    public void execute(LauncherAppState app, BgDataModel dataModel, AllAppsList apps) {
+        int[] deletedIds = LauncherSettings.Settings.call(app.getContext().getContentResolver(),
+                LauncherSettings.Settings.METHOD_CHECK_DB_INTEGRITY)
+                .getIntArray(LauncherSettings.Settings.EXTRA_VALUE);
+        if (deletedIds == null || deletedIds.length == 0) {
+            return;
+        }
+        LogUtils.d(TAG, "Removed " + deletedIds.length + " broken items");
+
+        IntSparseArrayMap<Boolean> deleted = new IntSparseArrayMap<>();
+        ArrayList<ItemInfo> removedItems = new ArrayList<>();
+        synchronized (dataModel) {
+            for (int id : deletedIds) {
+                deleted.put(id, true);
+                ItemInfo info = dataModel.itemsIdMap.get(id);
+                if (info != null) {
+                    removedItems.add(info);
+                }
+            }
+        }
+        if (removedItems.isEmpty()) {
+            return;
+        }
+        dataModel.removeItem(app.getContext(), removedItems);
+
+        final ItemInfoMatcher matcher = ItemInfoMatcher.ofItemIds(deleted, false);
+        scheduleCallbackTask(callbacks -> callbacks.bindWorkspaceComponentsRemoved(matcher));
+    }
+}
@@ -99,6 +99,9 @@ public class GridBackupTable {
         dropTable(mDb, to);
         Favorites.addTableToDb(mDb, userSerial, false, to);
         mDb.execSQL("INSERT INTO " + to + " SELECT * FROM " + from + " where _id > " + ID_PROPERTY);
+        if (Favorites.TABLE_NAME.equals(to)) {
+            Favorites.addIndexesToDb(mDb);
+        }
     }
 
     private void encodeDBProperties() {
@@ -29,9 +29,11 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.pm.LauncherActivityInfo;
 import android.content.pm.PackageInstaller;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageInstaller.SessionInfo;
 import android.content.pm.ShortcutInfo;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Process;
 import android.os.UserHandle;
 import android.text.TextUtils;
@@ -86,6 +88,8 @@ import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.function.Supplier;
 
+import androidx.annotation.VisibleForTesting;
+
 /**
  * Runnable for the thread that loads the contents of the launcher:
  *   - workspace icons
@@ -96,6 +100,10 @@ import java.util.function.Supplier;
 public class LoaderTask implements Runnable {
     private static final String TAG = "LoaderTask";
 
+    // Above this number of updated packages, a single query for all the shortcuts of the user is
+    // cheaper than querying the updated packages one by one.
+    private static final int MAX_STALE_SHORTCUT_PACKAGES = 8;
+
     private final LauncherAppState mApp;
     private final AllAppsList mBgAllAppsList;
     private final BgDataModel mBgDataModel;
@@ -215,7 +223,7 @@ public class LoaderTask implements Runnable {
 
             // third step
             TraceHelper.partitionSection(TAG, "step 3.1: loading deep shortcuts");
-            loadDeepShortcuts();
+            loadDeepShortcuts(updateHandler);
 
             verifyNotStopped();
             TraceHelper.partitionSection(TAG, "step 3.2: bind deep shortcuts");
@@ -244,6 +252,13 @@ public class LoaderTask implements Runnable {
             updateHandler.finish();
 
             transaction.commit();
+
+            // Remove the orphaned items, dead widgets and empty folders once the worker is idle,
+            // so that the next loads do not meet them, without delaying this one.
+            Looper.myQueue().addIdleHandler(() -> {
+                mApp.getModel().enqueueModelUpdateTask(new DbIntegrityTask());
+                return false;
+            });
         } catch (CancellationException e) {
             // Loader stopped, ignore
             TraceHelper.partitionSection(TAG, "Cancelled");
@@ -256,7 +271,8 @@ public class LoaderTask implements Runnable {
         this.notify();
     }
 
-    private void loadWorkspace() {
+    @VisibleForTesting
+    void loadWorkspace() {
         final Context context = mApp.getContext();
         final ContentResolver contentResolver = context.getContentResolver();
         final PackageManagerHelper pmHelper = new PackageManagerHelper(context);
@@ -730,9 +746,10 @@ public class LoaderTask implements Runnable {
                                 LauncherSettings.Settings.METHOD_DELETE_EMPTY_FOLDERS)
                         .getIntArray(LauncherSettings.Settings.EXTRA_VALUE);
                 for (int folderId : deletedFolderIds) {
-                    mBgDataModel.workspaceItems.remove(mBgDataModel.folders.get(folderId));
-                    mBgDataModel.folders.remove(folderId);
-                    mBgDataModel.itemsIdMap.remove(folderId);
+                    FolderInfo folder = mBgDataModel.folders.get(folderId);
+                    if (folder != null) {
+                        mBgDataModel.removeItem(context, folder);
+                    }
                 }
 
                 // Remove any ghost widgets
@@ -808,7 +825,8 @@ public class LoaderTask implements Runnable {
         updateHandler.setPackagesToIgnore(Process.myUserHandle(), packagesToIgnore);
     }
 
-    private List<LauncherActivityInfo> loadAllApps() {
+    @VisibleForTesting
+    List<LauncherActivityInfo> loadAllApps() {
         final List<UserHandle> profiles = mUserManager.getUserProfiles();
         List<LauncherActivityInfo> allActivityList = new ArrayList<>();
         // Clear the list of apps
@@ -844,20 +862,67 @@ public class LoaderTask implements Runnable {
         return allActivityList;
     }
 
-    private void loadDeepShortcuts() {
+    private void loadDeepShortcuts(IconCacheUpdateHandler updateHandler) {
         mBgDataModel.deepShortcutMap.clear();
         mBgDataModel.hasShortcutHostPermission = mShortcutManager.hasHostPermission();
         if (mBgDataModel.hasShortcutHostPermission) {
+            ShortcutIndex index = ShortcutIndex.INSTANCE.get(mApp.getContext());
+            boolean hasIndex = index.load();
+
+            PackageManagerHelper pmHelper = new PackageManagerHelper(mApp.getContext());
             for (UserHandle user : mUserManager.getUserProfiles()) {
                 if (mUserManager.isUserUnlocked(user)) {
-                    List<ShortcutInfo> shortcuts =
-                            mShortcutManager.queryForAllShortcuts(user);
-                    mBgDataModel.updateDeepShortcutCounts(null, user, shortcuts);
+                    HashMap<String, Long> lastUpdateTimes = getLastUpdateTimes(
+                            user, mBgAllAppsList.data, updateHandler, pmHelper);
+
+                    List<String> stalePackages = index.getStalePackages(user, lastUpdateTimes);
+                    if (!hasIndex || stalePackages.size() > MAX_STALE_SHORTCUT_PACKAGES) {
+                        index.updateUser(user,
+                                mShortcutManager.queryForAllShortcuts(user), lastUpdateTimes);
+                    } else {
+                        for (String pkg : stalePackages) {
+                            index.updatePackage(pkg, user, lastUpdateTimes.get(pkg),
+                                    mShortcutManager.queryForFullDetails(pkg, null, user));
+                        }
+                    }
+                    synchronized (mBgDataModel) {
+                        index.addShortcutCounts(user, mBgDataModel.deepShortcutMap);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Returns the last update times of the packages of {@param apps} installed for {@param user},
+     * as only packages with a launcher activity can show a shortcuts container.
+     */
+    @VisibleForTesting
+    static HashMap<String, Long> getLastUpdateTimes(UserHandle user, List<AppInfo> apps,
+            IconCacheUpdateHandler updateHandler, PackageManagerHelper pmHelper) {
+        HashMap<String, Long> lastUpdateTimes = new HashMap<>();
+        boolean isMyUser = Process.myUserHandle().equals(user);
+        for (AppInfo app : apps) {
+            String pkg = app.componentName.getPackageName();
+            if (!app.user.equals(user) || lastUpdateTimes.containsKey(pkg)) {
+                continue;
+            }
+            long lastUpdateTime;
+            if (isMyUser) {
+                // The package infos of the current user were already read by the icon cache
+                // update.
+                PackageInfo info = updateHandler.getPackageInfo(pkg);
+                lastUpdateTime = info == null ? -1 : info.lastUpdateTime;
+            } else {
+                lastUpdateTime = pmHelper.getLastUpdateTime(pkg, user);
+            }
+            if (lastUpdateTime != -1) {
+                lastUpdateTimes.put(pkg, lastUpdateTime);
+            }
+        }
+        return lastUpdateTimes;
+    }
+
     public static boolean isValidProvider(AppWidgetProviderInfo provider) {
         return (provider != null) && (provider.provider != null)
                 && (provider.provider.getPackageName() != null);
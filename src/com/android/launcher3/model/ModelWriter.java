@@ -25,6 +25,7 @@ import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import android.util.Pair;
 
 import com.android.launcher3.FolderInfo;
 import com.android.launcher3.ItemInfo;
@@ -269,6 +270,54 @@ public class ModelWriter {
         });
     }
 
+    /**
+     * Adds a batch of items to the database in a specified container. Each entry pairs an item
+     * with its placement as {screenId, cellX, cellY}. Ids are reserved as one block and all the
+     * rows are written with a single bulk insert.
+     */
+    public void addItemsToDatabase(final List<Pair<ItemInfo, int[]>> placements, int container) {
+        final int count = placements.size();
+        if (count == 0) {
+            return;
+        }
+        final ContentResolver cr = mContext.getContentResolver();
+        int nextId = Settings.newItemIdBlock(cr, count);
+
+        final ArrayList<ItemInfo> items = new ArrayList<>(count);
+        for (Pair<ItemInfo, int[]> entry : placements) {
+            ItemInfo item = entry.first;
+            int[] coords = entry.second;
+            updateItemInfoProps(item, container, coords[0], coords[1], coords[2]);
+            item.id = nextId++;
+            items.add(item);
+        }
+
+        ModelVerifier verifier = new ModelVerifier();
+        final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        mWorkerExecutor.execute(() -> {
+            // Write the items on background thread, as some properties might have been updated in
+            // the background.
+            ContentValues[] values = new ContentValues[count];
+            for (int i = 0; i < count; i++) {
+                ItemInfo item = items.get(i);
+                final ContentWriter writer = new ContentWriter(mContext);
+                item.onAddToDatabase(writer);
+                writer.put(Favorites._ID, item.id);
+                values[i] = writer.getValues(mContext);
+            }
+
+            cr.bulkInsert(Favorites.CONTENT_URI, values);
+
+            synchronized (mBgDataModel) {
+                for (ItemInfo item : items) {
+                    checkItemInfoLocked(item.id, item, stackTrace);
+                    mBgDataModel.addItem(mContext, item, true);
+                }
+                verifier.verifyModel();
+            }
+        });
+    }
+
     /**
      * Removes the specified item from the database
      */
@@ -280,7 +329,7 @@ public class ModelWriter {
      * Removes all the items from the database matching {@param matcher}.
      */
     public void deleteItemsFromDatabase(ItemInfoMatcher matcher) {
-        deleteItemsFromDatabase(matcher.filterItemInfos(mBgDataModel.itemsIdMap));
+        deleteItemsFromDatabase(mBgDataModel.filterItemInfos(matcher));
     }
 
     /**
@@ -457,6 +506,9 @@ public class ModelWriter {
                 // as in Workspace.onDrop. Here, we just add/remove them from the list of items
                 // that are on the desktop, as appropriate
                 ItemInfo modelItem = mBgDataModel.itemsIdMap.get(itemId);
+                if (modelItem != null) {
+                    mBgDataModel.updateItemIndex(modelItem);
+                }
                 if (modelItem != null &&
                         (modelItem.container == Favorites.CONTAINER_DESKTOP ||
                                 modelItem.container == Favorites.CONTAINER_HOTSEAT)) {
@@ -53,6 +53,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
@@ -180,8 +181,13 @@ public class PackageUpdatedTask extends BaseModelUpdateTask {
 
             // For system apps, package manager send OP_UPDATE when an app is enabled.
             final boolean isNewApkAvailable = mOp == OP_ADD || mOp == OP_UPDATE;
+            // Only the items matching the packages, or the user for the flag changes, and the
+            // shortcuts using an icon from the packages can change.
+            LinkedHashSet<ItemInfo> candidates = new LinkedHashSet<>(
+                    dataModel.getCandidates(matcher));
+            candidates.addAll(dataModel.getItemsForIconPackages(packageSet, mUser));
             synchronized (dataModel) {
-                for (ItemInfo info : dataModel.itemsIdMap) {
+                for (ItemInfo info : candidates) {
                     if (info instanceof WorkspaceItemInfo && mUser.equals(info.user)) {
                         WorkspaceItemInfo si = (WorkspaceItemInfo) info;
                         boolean infoUpdated = false;
@@ -267,6 +273,7 @@ public class PackageUpdatedTask extends BaseModelUpdateTask {
                             updatedWorkspaceItems.add(si);
                         }
                         if (infoUpdated) {
+                            dataModel.updateItemIndex(si);
                             getModelWriter().updateItemInDatabase(si);
                         }
                     } else if (info instanceof LauncherAppWidgetInfo && isNewApkAvailable) {
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.content.ComponentName;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.ShortcutInfo;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.UserHandle;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.android.launcher3.LauncherFiles;
+import com.android.launcher3.compat.UserManagerCompat;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.util.SQLiteCacheHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Persistent per-package index of the deep shortcuts shown in the shortcuts container. It lets
+ * the loader skip querying the shortcut service for packages which have not been updated since
+ * they were last indexed, and keeps the last shortcuts shown in a popup in memory so that they
+ * can be displayed before the shortcut service is queried again.
+ */
+public class ShortcutIndex {
+
+    private static final String TAG = "ShortcutIndex";
+
+    public static final MainThreadInitializedObject<ShortcutIndex> INSTANCE =
+            new MainThreadInitializedObject<>(ShortcutIndex::new);
+
+    // Max number of activities whose full shortcut details are kept in memory for popups.
+    private static final int MAX_CACHED_CONTAINERS = 16;
+
+    /**
+     * Minimal information required to count and order the shortcuts of an activity.
+     */
+    public static class Entry {
+        public final String id;
+        public final ComponentName activity;
+        public final int rank;
+        public final String label;
+
+        Entry(String id, ComponentName activity, int rank, String label) {
+            this.id = id;
+            this.activity = activity;
+            this.rank = rank;
+            this.label = label;
+        }
+    }
+
+    private static class PackageEntry {
+        final long lastUpdateTime;
+        final ArrayList<Entry> shortcuts = new ArrayList<>();
+
+        PackageEntry(long lastUpdateTime) {
+            this.lastUpdateTime = lastUpdateTime;
+        }
+    }
+
+    private final Context mContext;
+    private final UserManagerCompat mUserManager;
+    private IndexDb mDb;
+
+    private final HashMap<PackageUserKey, PackageEntry> mPackages = new HashMap<>();
+    private boolean mLoaded;
+
+    // Access ordered, so that the least recently opened containers are dropped first.
+    private final LinkedHashMap<ComponentKey, List<ShortcutInfo>> mContainerCache =
+            new LinkedHashMap<ComponentKey, List<ShortcutInfo>>(
+                    MAX_CACHED_CONTAINERS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<ComponentKey, List<ShortcutInfo>> eldest) {
+                    return size() > MAX_CACHED_CONTAINERS;
+                }
+            };
+
+    @VisibleForTesting
+    ShortcutIndex(Context context) {
+        mContext = context;
+        mUserManager = UserManagerCompat.getInstance(context);
+    }
+
+    /**
+     * Returns true if a shortcut should be counted for the shortcuts container of its activity.
+     */
+    public static boolean shouldShowInContainer(ShortcutInfo shortcut) {
+        return shortcut.isEnabled() && (shortcut.isDeclaredInManifest() || shortcut.isDynamic());
+    }
+
+    private IndexDb getDb() {
+        if (mDb == null) {
+            mDb = new IndexDb(mContext);
+        }
+        return mDb;
+    }
+
+    /**
+     * Reads the persisted index in memory, if not already done.
+     * @return false if the index is empty and every package needs to be queried.
+     */
+    public synchronized boolean load() {
+        if (mLoaded) {
+            return !mPackages.isEmpty();
+        }
+        mLoaded = true;
+        try (Cursor c = getDb().query(new String[] {IndexDb.COLUMN_PACKAGE, IndexDb.COLUMN_USER,
+                IndexDb.COLUMN_LAST_UPDATED, IndexDb.COLUMN_SHORTCUT_ID, IndexDb.COLUMN_ACTIVITY,
+                IndexDb.COLUMN_RANK, IndexDb.COLUMN_LABEL}, null, null)) {
+            HashMap<Long, UserHandle> users = new HashMap<>();
+            while (c.moveToNext()) {
+                long serial = c.getLong(1);
+                UserHandle user = users.get(serial);
+                if (user == null) {
+                    user = mUserManager.getUserForSerialNumber(serial);
+                    if (user == null) {
+                        continue;
+                    }
+                    users.put(serial, user);
+                }
+                PackageUserKey key = new PackageUserKey(c.getString(0), user);
+                PackageEntry entry = mPackages.get(key);
+                if (entry == null) {
+                    entry = new PackageEntry(c.getLong(2));
+                    mPackages.put(key, entry);
+                }
+                String id = c.getString(3);
+                if (!TextUtils.isEmpty(id)) {
+                    entry.shortcuts.add(new Entry(id,
+                            ComponentName.unflattenFromString(c.getString(4)),
+                            c.getInt(5), c.getString(6)));
+                }
+            }
+        } catch (SQLiteException e) {
+            Log.d(TAG, "Error reading shortcut index", e);
+            mPackages.clear();
+        }
+        return !mPackages.isEmpty();
+    }
+
+    /**
+     * Returns the packages of {@param user} which are missing from the index or were updated
+     * after they were indexed. {@param lastUpdateTimes} maps package names to their current
+     * update time. Entries of packages not present in the map are dropped from the index.
+     */
+    public synchronized List<String> getStalePackages(
+            UserHandle user, Map<String, Long> lastUpdateTimes) {
+        Iterator<Map.Entry<PackageUserKey, PackageEntry>> itr = mPackages.entrySet().iterator();
+        while (itr.hasNext()) {
+            PackageUserKey key = itr.next().getKey();
+            if (key.mUser.equals(user) && !lastUpdateTimes.containsKey(key.mPackageName)) {
+                itr.remove();
+                removeFromDb(key);
+            }
+        }
+
+        ArrayList<String> stale = new ArrayList<>();
+        for (Map.Entry<String, Long> pkg : lastUpdateTimes.entrySet()) {
+            PackageEntry entry = mPackages.get(new PackageUserKey(pkg.getKey(), user));
+            if (entry == null || entry.lastUpdateTime != pkg.getValue()) {
+                stale.add(pkg.getKey());
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Replaces the shortcuts of all the packages in {@param lastUpdateTimes} for {@param user}
+     * with {@param shortcuts}, the result of a query for all the shortcuts of the user.
+     */
+    public synchronized void updateUser(UserHandle user, List<ShortcutInfo> shortcuts,
+            Map<String, Long> lastUpdateTimes) {
+        HashMap<String, List<ShortcutInfo>> byPackage = new HashMap<>();
+        for (ShortcutInfo shortcut : shortcuts) {
+            List<ShortcutInfo> list = byPackage.get(shortcut.getPackage());
+            if (list == null) {
+                list = new ArrayList<>();
+                byPackage.put(shortcut.getPackage(), list);
+            }
+            list.add(shortcut);
+        }
+        IndexDb db = getDb();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Long> pkg : lastUpdateTimes.entrySet()) {
+                List<ShortcutInfo> list = byPackage.get(pkg.getKey());
+                updatePackageLocked(pkg.getKey(), user, pkg.getValue(),
+                        list == null ? Collections.emptyList() : list);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Replaces the indexed shortcuts of a package with {@param shortcuts}.
+     * @param lastUpdateTime update time of the package or -1 to keep the previous value.
+     */
+    public synchronized void updatePackage(String packageName, UserHandle user,
+            long lastUpdateTime, List<ShortcutInfo> shortcuts) {
+        IndexDb db = getDb();
+        db.beginTransaction();
+        try {
+            updatePackageLocked(packageName, user, lastUpdateTime, shortcuts);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void updatePackageLocked(String packageName, UserHandle user,
+            long lastUpdateTime, List<ShortcutInfo> shortcuts) {
+        PackageUserKey key = new PackageUserKey(packageName, user);
+        if (lastUpdateTime < 0) {
+            PackageEntry old = mPackages.get(key);
+            lastUpdateTime = old == null ? 0 : old.lastUpdateTime;
+        }
+        PackageEntry entry = new PackageEntry(lastUpdateTime);
+        for (ShortcutInfo shortcut : shortcuts) {
+            if (shouldShowInContainer(shortcut)) {
+                CharSequence label = shortcut.getShortLabel();
+                entry.shortcuts.add(new Entry(shortcut.getId(), shortcut.getActivity(),
+                        shortcut.getRank(), label == null ? null : label.toString()));
+            }
+        }
+        mPackages.put(key, entry);
+        invalidateContainers(key);
+
+        IndexDb db = getDb();
+        long serial = mUserManager.getSerialNumberForUser(user);
+        removeFromDb(key);
+        ContentValues values = new ContentValues();
+        values.put(IndexDb.COLUMN_PACKAGE, packageName);
+        values.put(IndexDb.COLUMN_USER, serial);
+        values.put(IndexDb.COLUMN_LAST_UPDATED, lastUpdateTime);
+        // Marker row, so that packages without shortcuts are also indexed.
+        values.put(IndexDb.COLUMN_SHORTCUT_ID, "");
+        db.insertOrReplace(values);
+        for (Entry shortcut : entry.shortcuts) {
+            values.put(IndexDb.COLUMN_SHORTCUT_ID, shortcut.id);
+            values.put(IndexDb.COLUMN_ACTIVITY, shortcut.activity.flattenToShortString());
+            values.put(IndexDb.COLUMN_RANK, shortcut.rank);
+            values.put(IndexDb.COLUMN_LABEL, shortcut.label);
+            db.insertOrReplace(values);
+        }
+    }
+
+    private void removeFromDb(PackageUserKey key) {
+        getDb().delete(IndexDb.COLUMN_PACKAGE + " = ? AND " + IndexDb.COLUMN_USER + " = ?",
+                new String[] {key.mPackageName,
+                        Long.toString(mUserManager.getSerialNumberForUser(key.mUser))});
+    }
+
+    /**
+     * Adds the number of shortcuts of each activity of {@param user} to {@param out}.
+     */
+    public synchronized void addShortcutCounts(UserHandle user, Map<ComponentKey, Integer> out) {
+        for (Map.Entry<PackageUserKey, PackageEntry> pkg : mPackages.entrySet()) {
+            if (!pkg.getKey().mUser.equals(user)) {
+                continue;
+            }
+            for (Entry shortcut : pkg.getValue().shortcuts) {
+                ComponentKey key = new ComponentKey(shortcut.activity, user);
+                Integer previousCount = out.get(key);
+                out.put(key, previousCount == null ? 1 : previousCount + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the shortcuts last shown in the shortcuts container of {@param key}, or null.
+     */
+    public synchronized List<ShortcutInfo> getCachedContainerShortcuts(ComponentKey key) {
+        List<ShortcutInfo> shortcuts = mContainerCache.get(key);
+        return shortcuts == null ? null : new ArrayList<>(shortcuts);
+    }
+
+    /**
+     * Caches the shortcuts shown in the shortcuts container of {@param key}.
+     */
+    public synchronized void cacheContainerShortcuts(
+            ComponentKey key, List<ShortcutInfo> shortcuts) {
+        mContainerCache.put(key, new ArrayList<>(shortcuts));
+    }
+
+    private void invalidateContainers(PackageUserKey pkg) {
+        Set<ComponentKey> keys = mContainerCache.keySet();
+        keys.removeIf(key -> key.user.equals(pkg.mUser)
+                && key.componentName.getPackageName().equals(pkg.mPackageName));
+    }
+
+    /**
+     * The DB holds one row per indexed shortcut and one marker row per indexed package.
+     */
+    private static class IndexDb extends SQLiteCacheHelper {
+        private static final int DB_VERSION = 1;
+
+        private static final String TABLE_NAME = "shortcut_index";
+        private static final String COLUMN_PACKAGE = "packageName";
+        private static final String COLUMN_USER = "profileId";
+        private static final String COLUMN_LAST_UPDATED = "lastUpdated";
+        private static final String COLUMN_SHORTCUT_ID = "shortcutId";
+        private static final String COLUMN_ACTIVITY = "activity";
+        private static final String COLUMN_RANK = "rank";
+        private static final String COLUMN_LABEL = "label";
+
+        public IndexDb(Context context) {
+            super(context, LauncherFiles.SHORTCUT_INDEX_DB, DB_VERSION, TABLE_NAME);
+        }
+
+        @Override
+        public void onCreateTable(SQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                    COLUMN_PACKAGE + " TEXT NOT NULL, " +
+                    COLUMN_USER + " INTEGER NOT NULL, " +
+                    COLUMN_LAST_UPDATED + " INTEGER NOT NULL DEFAULT 0, " +
+                    COLUMN_SHORTCUT_ID + " TEXT NOT NULL, " +
+                    COLUMN_ACTIVITY + " TEXT, " +
+                    COLUMN_RANK + " INTEGER NOT NULL DEFAULT 0, " +
+                    COLUMN_LABEL + " TEXT, " +
+                    "PRIMARY KEY (" + COLUMN_PACKAGE + ", " + COLUMN_USER + ", "
+                    + COLUMN_SHORTCUT_ID + ") " +
+                    ");");
+        }
+    }
+}
@@ -91,6 +91,7 @@ public class ShortcutsChangedTask extends BaseModelUpdateTask {
                 }
                 for (final WorkspaceItemInfo workspaceItemInfo : workspaceItemInfos) {
                     workspaceItemInfo.updateFromDeepShortcutInfo(fullDetails, context);
+                    dataModel.updateItemIndex(workspaceItemInfo);
                     // If the shortcut is pinned but no longer has an icon in the system,
                     // keep the current icon instead of reverting to the default icon.
                     LauncherIcons li = LauncherIcons.obtain(context);
@@ -113,6 +114,10 @@ public class ShortcutsChangedTask extends BaseModelUpdateTask {
         }
 
         if (mUpdateIdMap) {
+            // Keep the persisted index in sync, so that the next load does not need to query it.
+            ShortcutIndex.INSTANCE.get(context).updatePackage(mPackageName, mUser,
+                    -1 /* keep lastUpdateTime */, mShortcuts);
+
             // Update the deep shortcut map if the list of ids has changed for an activity.
             dataModel.updateDeepShortcutCounts(mPackageName, mUser, mShortcuts);
             bindDeepShortcuts(dataModel);
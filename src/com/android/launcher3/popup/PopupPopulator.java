@@ -21,15 +21,18 @@ import android.content.pm.ShortcutInfo;
 import android.os.Handler;
 import android.os.UserHandle;
 import android.service.notification.StatusBarNotification;
+import android.text.TextUtils;
 
 import com.android.launcher3.ItemInfo;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.WorkspaceItemInfo;
 import com.android.launcher3.icons.LauncherIcons;
+import com.android.launcher3.model.ShortcutIndex;
 import com.android.launcher3.notification.NotificationInfo;
 import com.android.launcher3.notification.NotificationKeyData;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.DeepShortcutView;
+import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.PackageUserKey;
 import com.sprd.ext.LogUtils;
 
@@ -124,6 +127,50 @@ public class PopupPopulator {
         return filteredShortcuts;
     }
 
+    private static void applyShortcuts(Launcher launcher, Handler uiHandler,
+            PopupContainerWithArrow container, List<DeepShortcutView> shortcutViews,
+            List<ShortcutInfo> shortcuts) {
+        for (int i = 0; i < shortcuts.size() && i < shortcutViews.size(); i++) {
+            final ShortcutInfo shortcut = shortcuts.get(i);
+            final WorkspaceItemInfo si = new WorkspaceItemInfo(shortcut, launcher);
+            // Use unbadged icon for the menu.
+            LauncherIcons li = LauncherIcons.obtain(launcher);
+            si.applyFrom(li.createShortcutIcon(shortcut, false /* badged */));
+            li.recycle();
+            si.rank = i;
+
+            final DeepShortcutView view = shortcutViews.get(i);
+            uiHandler.post(() -> view.applyShortcutInfo(si, shortcut, container));
+            if (LogUtils.DEBUG_ALL) {
+                LogUtils.d(TAG, "ShortLabel:" + shortcut.getShortLabel()
+                        + " LongLabel:" + shortcut.getLongLabel());
+            }
+        }
+    }
+
+    /**
+     * Returns true if both the lists contain the same shortcuts, with the same rank and labels.
+     */
+    @VisibleForTesting
+    static boolean isSameShortcuts(List<ShortcutInfo> oldList, List<ShortcutInfo> newList) {
+        if (oldList.size() != newList.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldList.size(); i++) {
+            ShortcutInfo oldShortcut = oldList.get(i);
+            ShortcutInfo newShortcut = newList.get(i);
+            if (!oldShortcut.getId().equals(newShortcut.getId())
+                    || oldShortcut.getRank() != newShortcut.getRank()
+                    || oldShortcut.getLastChangedTimestamp()
+                            != newShortcut.getLastChangedTimestamp()
+                    || !TextUtils.equals(oldShortcut.getShortLabel(), newShortcut.getShortLabel())
+                    || !TextUtils.equals(oldShortcut.getLongLabel(), newShortcut.getLongLabel())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static Runnable createUpdateRunnable(final Launcher launcher, final ItemInfo originalInfo,
             final Handler uiHandler, final PopupContainerWithArrow container,
             final List<DeepShortcutView> shortcutViews,
@@ -142,26 +189,26 @@ public class PopupPopulator {
                 uiHandler.post(() -> container.applyNotificationInfos(infos));
             }
 
-            List<ShortcutInfo> shortcuts = DeepShortcutManager.getInstance(launcher)
-                    .queryForShortcutsContainer(activity, user);
             String shortcutIdToDeDupe = notificationKeys.isEmpty() ? null
                     : notificationKeys.get(0).shortcutId;
-            shortcuts = PopupPopulator.sortAndFilterShortcuts(shortcuts, shortcutIdToDeDupe);
-            for (int i = 0; i < shortcuts.size() && i < shortcutViews.size(); i++) {
-                final ShortcutInfo shortcut = shortcuts.get(i);
-                final WorkspaceItemInfo si = new WorkspaceItemInfo(shortcut, launcher);
-                // Use unbadged icon for the menu.
-                LauncherIcons li = LauncherIcons.obtain(launcher);
-                si.applyFrom(li.createShortcutIcon(shortcut, false /* badged */));
-                li.recycle();
-                si.rank = i;
-
-                final DeepShortcutView view = shortcutViews.get(i);
-                uiHandler.post(() -> view.applyShortcutInfo(si, shortcut, container));
-                if (LogUtils.DEBUG_ALL) {
-                    LogUtils.d(TAG, "ShortLabel:" + shortcut.getShortLabel()
-                            + " LongLabel:" + shortcut.getLongLabel());
-                }
+
+            // Show the shortcuts last displayed for this activity right away, and only rebind
+            // the views if the shortcut service returns something different.
+            ShortcutIndex index = ShortcutIndex.INSTANCE.get(launcher);
+            ComponentKey containerKey = new ComponentKey(activity, user);
+            List<ShortcutInfo> cached = index.getCachedContainerShortcuts(containerKey);
+            if (cached != null) {
+                applyShortcuts(launcher, uiHandler, container, shortcutViews,
+                        PopupPopulator.sortAndFilterShortcuts(
+                                new ArrayList<>(cached), shortcutIdToDeDupe));
+            }
+
+            List<ShortcutInfo> shortcuts = DeepShortcutManager.getInstance(launcher)
+                    .queryForShortcutsContainer(activity, user);
+            index.cacheContainerShortcuts(containerKey, shortcuts);
+            if (cached == null || !isSameShortcuts(cached, shortcuts)) {
+                applyShortcuts(launcher, uiHandler, container, shortcutViews,
+                        PopupPopulator.sortAndFilterShortcuts(shortcuts, shortcutIdToDeDupe));
             }
             if (LogUtils.DEBUG_ALL) {
                 LogUtils.d(TAG, "Load {" + activity.flattenToShortString() + " }"
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.provider;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.Utilities;
+import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.IntSet;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Set based integrity pass over the favorites table. Each category of broken rows is selected
+ * with a single indexed query and deleted in bounded batches, so that the pass can run in the
+ * background without holding the DB lock for long and without the loader having to discover
+ * the broken rows one by one.
+ */
+public class DbIntegrityChecker {
+
+    private static final String TAG = "DbIntegrityChecker";
+
+    public static final int CATEGORY_ORPHANED_ITEMS = 0;
+    public static final int CATEGORY_DEAD_WIDGETS = 1;
+    public static final int CATEGORY_EMPTY_FOLDERS = 2;
+    public static final int CATEGORY_COUNT = 3;
+
+    private static final String[] CATEGORY_NAMES =
+            new String[] {"orphanedItems", "deadWidgets", "emptyFolders"};
+
+    /**
+     * Default number of rows deleted in a single transaction.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final int[] mLastCounts = new int[CATEGORY_COUNT];
+    private final int[] mTotalCounts = new int[CATEGORY_COUNT];
+    private int mRunCount;
+    private long mLastRunTime;
+    private long mLastRunDuration;
+
+    /**
+     * Items inside a folder whose folder row does not exist anymore.
+     */
+    private static String orphanedItemsSelection() {
+        return String.format(Locale.ENGLISH,
+                "%1$s >= 0 AND %1$s NOT IN (SELECT %2$s FROM %3$s WHERE %4$s = %5$d)",
+                Favorites.CONTAINER, Favorites._ID, Favorites.TABLE_NAME,
+                Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_FOLDER);
+    }
+
+    /**
+     * Fully restored widgets whose id is one of {@param deadWidgetIds}.
+     */
+    private static String deadWidgetsSelection(IntSet deadWidgetIds) {
+        return String.format(Locale.ENGLISH, "%1$s = %2$d AND %3$s = 0 AND %4$s",
+                Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_APPWIDGET, Favorites.RESTORED,
+                Utilities.createDbSelectionQuery(Favorites.APPWIDGET_ID, deadWidgetIds.getArray()));
+    }
+
+    /**
+     * Folders whose id does not match any container value.
+     */
+    private static String emptyFoldersSelection() {
+        return String.format(Locale.ENGLISH,
+                "%1$s = %2$d AND %3$s NOT IN (SELECT %4$s FROM %5$s)",
+                Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_FOLDER, Favorites._ID,
+                Favorites.CONTAINER, Favorites.TABLE_NAME);
+    }
+
+    /**
+     * Runs the integrity pass on {@param db}.
+     * @param deadWidgetIds widget ids which the launcher host confirmed are gone. Widgets are
+     *                      only deleted when their id is in this set, never because it is
+     *                      missing from the host.
+     * @param batchSize maximum number of rows deleted in a single transaction.
+     * @return Ids of all the deleted rows.
+     */
+    public synchronized IntArray run(SQLiteDatabase db, IntSet deadWidgetIds, int batchSize) {
+        long startTime = System.currentTimeMillis();
+        IntArray deleted = new IntArray();
+
+        // Orphaned items go first, as removing them can leave more folders empty.
+        mLastCounts[CATEGORY_ORPHANED_ITEMS] =
+                deleteInBatches(db, orphanedItemsSelection(), batchSize, deleted);
+        mLastCounts[CATEGORY_DEAD_WIDGETS] = deadWidgetIds == null || deadWidgetIds.isEmpty() ? 0
+                : deleteInBatches(db, deadWidgetsSelection(deadWidgetIds), batchSize, deleted);
+        mLastCounts[CATEGORY_EMPTY_FOLDERS] =
+                deleteInBatches(db, emptyFoldersSelection(), batchSize, deleted);
+
+        for (int i = 0; i < CATEGORY_COUNT; i++) {
+            mTotalCounts[i] += mLastCounts[i];
+        }
+        mRunCount++;
+        mLastRunTime = startTime;
+        mLastRunDuration = System.currentTimeMillis() - startTime;
+        return deleted;
+    }
+
+    /**
+     * Deletes all the empty folders.
+     * @return Ids of deleted folders.
+     */
+    public synchronized IntArray deleteEmptyFolders(SQLiteDatabase db) {
+        IntArray deleted = new IntArray();
+        int count = deleteInBatches(db, emptyFoldersSelection(), Integer.MAX_VALUE, deleted);
+        mLastCounts[CATEGORY_EMPTY_FOLDERS] = count;
+        mTotalCounts[CATEGORY_EMPTY_FOLDERS] += count;
+        return deleted;
+    }
+
+    /**
+     * Returns the number of rows deleted for {@param category} during the last run.
+     */
+    public synchronized int getLastCount(int category) {
+        return mLastCounts[category];
+    }
+
+    private static int deleteInBatches(
+            SQLiteDatabase db, String selection, int batchSize, IntArray outIds) {
+        int total = 0;
+        while (true) {
+            try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+                IntArray ids = new IntArray();
+                try (Cursor c = db.query(Favorites.TABLE_NAME, new String[] {Favorites._ID},
+                        selection, null, null, null, null,
+                        batchSize == Integer.MAX_VALUE ? null : Integer.toString(batchSize))) {
+                    while (c.moveToNext()) {
+                        ids.add(c.getInt(0));
+                    }
+                }
+                if (!ids.isEmpty()) {
+                    db.delete(Favorites.TABLE_NAME,
+                            Utilities.createDbSelectionQuery(Favorites._ID, ids), null);
+                }
+                t.commit();
+
+                outIds.addAll(ids);
+                total += ids.size();
+                if (ids.size() < batchSize) {
+                    return total;
+                }
+            } catch (SQLException ex) {
+                Log.e(TAG, ex.getMessage(), ex);
+                return total;
+            }
+        }
+    }
+
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "DB integrity: runs=" + mRunCount
+                + " lastRunTime=" + mLastRunTime + " lastRunDuration=" + mLastRunDuration + "ms");
+        for (int i = 0; i < CATEGORY_COUNT; i++) {
+            writer.println(prefix + "  " + CATEGORY_NAMES[i]
+                    + ": last=" + mLastCounts[i] + " total=" + mTotalCounts[i]);
+        }
+    }
+}
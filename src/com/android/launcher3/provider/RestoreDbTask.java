@@ -179,6 +179,7 @@ public class RestoreDbTask {
         Favorites.addTableToDb(db, newProfileId, false);
         db.execSQL("INSERT INTO favorites SELECT * FROM favorites_old;");
         dropTable(db, "favorites_old");
+        Favorites.addIndexesToDb(db);
     }
 
 
@@ -190,6 +191,7 @@ public class RestoreDbTask {
         Favorites.addTableToDb(db, newProfileId, false);
         db.execSQL("INSERT INTO favorites SELECT * FROM favorites_old;");
         dropTable(db, "favorites_old");
+        Favorites.addIndexesToDb(db);
     }
 
     /**
@@ -42,6 +42,7 @@ import com.android.launcher3.R;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.config.FlagTogglerPrefUi;
 import com.android.launcher3.uioverrides.plugins.PluginManagerWrapper;
+import com.android.launcher3.widget.WidgetPerformanceTracker;
 
 import java.util.List;
 import java.util.Set;
@@ -55,7 +56,8 @@ import androidx.preference.PreferenceViewHolder;
 import androidx.preference.SwitchPreference;
 
 /**
- * Dev-build only UI allowing developers to toggle flag settings and plugins.
+ * Dev-build only UI allowing developers to toggle flag settings and plugins, and to see the
+ * widget providers slowing down the home screen.
  * See {@link FeatureFlags}.
  */
 @TargetApi(Build.VERSION_CODES.O)
@@ -91,6 +93,7 @@ public class DeveloperOptionsFragment extends PreferenceFragment {
 
         initFlags();
         loadPluginPrefs();
+        loadWidgetPerformancePrefs();
     }
 
     @Override
@@ -179,6 +182,22 @@ public class DeveloperOptionsFragment extends PreferenceFragment {
         });
     }
 
+    private void loadWidgetPerformancePrefs() {
+        List<WidgetPerformanceTracker.Report> reports =
+                WidgetPerformanceTracker.INSTANCE.get(getContext()).getReports();
+        if (reports.isEmpty()) {
+            return;
+        }
+        PreferenceCategory category = newCategory("Widget performance");
+        for (WidgetPerformanceTracker.Report report : reports) {
+            Preference pref = new Preference(getContext());
+            pref.setTitle((report.isSlow ? "Slow: " : "")
+                    + report.provider.flattenToShortString());
+            pref.setSummary(report.summary);
+            category.addPreference(pref);
+        }
+    }
+
     private String toString(ArraySet<String> plugins) {
         StringBuilder b = new StringBuilder();
         for (String string : plugins) {
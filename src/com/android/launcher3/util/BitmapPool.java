@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+
+/**
+ * A bounded pool of mutable {@link Config#ARGB_8888} bitmaps, which can be reused for bitmaps of
+ * a different size through {@link android.graphics.BitmapFactory.Options#inBitmap} or
+ * {@link Bitmap#reconfigure}. The bitmaps are bucketed by size class, the power of two above
+ * their allocation size, so that finding a large enough bitmap does not scan the whole pool.
+ */
+public class BitmapPool {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final SparseArray<ArrayList<Bitmap>> mBuckets = new SparseArray<>();
+    private final long mMaxBytes;
+    private long mBytes;
+
+    public BitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Adds {@param bitmap} to the pool, it must no longer be used by the caller.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getConfig() != Config.ARGB_8888) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > mMaxBytes) {
+            return;
+        }
+        int sizeClass = getSizeClass(size);
+        ArrayList<Bitmap> bucket = mBuckets.get(sizeClass);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            mBuckets.put(sizeClass, bucket);
+        } else if (bucket.contains(bitmap)) {
+            return;
+        }
+        while (mBytes + size > mMaxBytes) {
+            evictLargest();
+        }
+        bucket.add(bitmap);
+        mBytes += size;
+    }
+
+    /**
+     * Returns a bitmap of the given size from the pool, with undefined content, or null if
+     * there is no bitmap large enough in the size class of the request or the next one.
+     */
+    public synchronized Bitmap get(int width, int height) {
+        int needed = width * height * BYTES_PER_PIXEL;
+        int sizeClass = getSizeClass(needed);
+        // Bitmaps of the same size class can be smaller than needed, those of the next one are
+        // always large enough. Larger ones would waste too much memory.
+        for (int c = sizeClass; c <= sizeClass + 1; c++) {
+            ArrayList<Bitmap> bucket = mBuckets.get(c);
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                Bitmap bitmap = bucket.get(i);
+                if (bitmap.getAllocationByteCount() >= needed) {
+                    bucket.remove(i);
+                    mBytes -= bitmap.getAllocationByteCount();
+                    bitmap.reconfigure(width, height, Config.ARGB_8888);
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    public synchronized void clear() {
+        mBuckets.clear();
+        mBytes = 0;
+    }
+
+    private void evictLargest() {
+        for (int i = mBuckets.size() - 1; i >= 0; i--) {
+            ArrayList<Bitmap> bucket = mBuckets.valueAt(i);
+            if (!bucket.isEmpty()) {
+                mBytes -= bucket.remove(bucket.size() - 1).getAllocationByteCount();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the exponent of the smallest power of two greater than or equal to {@param bytes}.
+     */
+    private static int getSizeClass(int bytes) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(bytes, 1) - 1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        int count = 0;
+        for (int i = 0; i < mBuckets.size(); i++) {
+            count += mBuckets.valueAt(i).size();
+        }
+        return "BitmapPool{count=" + count + ", bytes=" + mBytes + "/" + mMaxBytes + "}";
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * An executor which spreads its tasks over multiple frames on the main thread. After each frame,
+ * it runs tasks until the time budget is used up, and the remaining tasks wait for the next frame,
+ * so that a batch of expensive tasks does not produce a single long frame. At least one task is
+ * run per frame.
+ */
+public class FrameBudgetExecutor implements Executor, Choreographer.FrameCallback, Runnable {
+
+    private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final long mBudgetMillis;
+    private final LongSupplier mClock;
+
+    private boolean mScheduled;
+
+    public FrameBudgetExecutor(long budgetMillis) {
+        this(budgetMillis, SystemClock::uptimeMillis);
+    }
+
+    @VisibleForTesting
+    FrameBudgetExecutor(long budgetMillis, LongSupplier clock) {
+        mBudgetMillis = budgetMillis;
+        mClock = clock;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        mTasks.add(task);
+        scheduleNextFrame();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        // Frame callbacks run before the frame is drawn, run the tasks once it is done
+        mHandler.post(this);
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        long start = mClock.getAsLong();
+        do {
+            Runnable task = mTasks.poll();
+            if (task == null) {
+                return;
+            }
+            task.run();
+        } while (mClock.getAsLong() - start < mBudgetMillis);
+        scheduleNextFrame();
+    }
+
+    /**
+     * Runs all the pending tasks immediately.
+     */
+    public void flush() {
+        Choreographer.getInstance().removeFrameCallback(this);
+        mHandler.removeCallbacks(this);
+        mScheduled = false;
+        Runnable task;
+        while ((task = mTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void scheduleNextFrame() {
+        if (!mScheduled && !mTasks.isEmpty()) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.view.Choreographer;
+
+import java.util.Locale;
+
+/**
+ * Records the time between the frames while started, and counts the janky frames, which took
+ * longer than a frame at 60fps. Used for the frame metrics logged with the performance debug
+ * property.
+ */
+public class FrameJankTracker implements Choreographer.FrameCallback {
+
+    // Frames longer than this are counted as janky
+    public static final long JANK_THRESHOLD_NANOS = 17_000_000;
+
+    private final int mMaxFrames;
+    private final Runnable mOnMaxFrames;
+
+    private boolean mTracking;
+    private long mLastFrameNanos;
+    private int mFrameCount;
+    private int mJankyFrameCount;
+    private long mMaxFrameNanos;
+    private long mTotalFrameNanos;
+
+    public FrameJankTracker() {
+        this(Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param maxFrames the tracking stops after this many frames, and {@param onMaxFrames} is run
+     */
+    public FrameJankTracker(int maxFrames, Runnable onMaxFrames) {
+        mMaxFrames = maxFrames;
+        mOnMaxFrames = onMaxFrames;
+    }
+
+    public static boolean isJanky(long frameNanos) {
+        return frameNanos > JANK_THRESHOLD_NANOS;
+    }
+
+    public boolean isTracking() {
+        return mTracking;
+    }
+
+    /**
+     * Clears the previous counts and starts recording the frames.
+     */
+    public void start() {
+        if (mTracking) {
+            return;
+        }
+        mTracking = true;
+        mLastFrameNanos = 0;
+        mFrameCount = mJankyFrameCount = 0;
+        mMaxFrameNanos = mTotalFrameNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stops recording the frames, the counts are kept until the next start.
+     */
+    public void stop() {
+        if (mTracking) {
+            mTracking = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mTracking) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            long frameNanos = frameTimeNanos - mLastFrameNanos;
+            mFrameCount++;
+            mTotalFrameNanos += frameNanos;
+            mMaxFrameNanos = Math.max(mMaxFrameNanos, frameNanos);
+            if (isJanky(frameNanos)) {
+                mJankyFrameCount++;
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+        if (mFrameCount >= mMaxFrames) {
+            stop();
+            if (mOnMaxFrames != null) {
+                mOnMaxFrames.run();
+            }
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public int getJankyFrameCount() {
+        return mJankyFrameCount;
+    }
+
+    /**
+     * Returns the frame count, janky frame count, and the max and average frame time, or null if
+     * no frame was recorded.
+     */
+    public String getSummary() {
+        if (mFrameCount == 0) {
+            return null;
+        }
+        return String.format(Locale.ENGLISH, "frames=%d janky=%d max=%.1fms avg=%.1fms",
+                mFrameCount, mJankyFrameCount, mMaxFrameNanos / 1e6,
+                mTotalFrameNanos / 1e6 / mFrameCount);
+    }
+}
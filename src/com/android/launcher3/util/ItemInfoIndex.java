@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.util;
+
+import android.content.ComponentName;
+import android.os.UserHandle;
+
+import com.android.launcher3.ItemInfo;
+import com.android.launcher3.LauncherAppWidgetInfo;
+import com.android.launcher3.WorkspaceItemInfo;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Secondary indexes over the items in the model, by package, component, user, container, id
+ * and icon resource package. Items are indexed with the keys they had when they were last added
+ * or updated, so the owner must call {@link #update(ItemInfo)} whenever the target, the container
+ * or the icon resource of an item changes.
+ *
+ * Only shortcuts and widgets are indexed by package, component and user, the same set of items
+ * that {@link ItemInfoMatcher#filterItemInfos(Iterable)} can return. All items are indexed by
+ * container and id. This class is not thread safe.
+ */
+public class ItemInfoIndex {
+
+    private final HashMap<PackageUserKey, ArrayList<ItemInfo>> mByPackage = new HashMap<>();
+    private final HashMap<ComponentKey, ArrayList<ItemInfo>> mByComponent = new HashMap<>();
+    private final HashMap<UserHandle, ArrayList<ItemInfo>> mByUser = new HashMap<>();
+    private final IntSparseArrayMap<ArrayList<ItemInfo>> mByContainer = new IntSparseArrayMap<>();
+    private final IntSparseArrayMap<ItemInfo> mById = new IntSparseArrayMap<>();
+    // Shortcuts by the package of their icon resource, which can differ from their target
+    private final HashMap<PackageUserKey, ArrayList<ItemInfo>> mByIconPackage = new HashMap<>();
+
+    // Keys under which each item is currently indexed.
+    private final IdentityHashMap<ItemInfo, Entry> mEntries = new IdentityHashMap<>();
+
+    /**
+     * Returns the component used to match {@param info}, or null if it can not be matched.
+     */
+    public static ComponentName getMatchComponent(ItemInfo info) {
+        if (info instanceof WorkspaceItemInfo) {
+            return info.getTargetComponent();
+        } else if (info instanceof LauncherAppWidgetInfo) {
+            return ((LauncherAppWidgetInfo) info).providerName;
+        }
+        return null;
+    }
+
+    public void add(ItemInfo info) {
+        if (mEntries.containsKey(info)) {
+            remove(info);
+        }
+        Entry entry = new Entry(info);
+        mEntries.put(info, entry);
+
+        ArrayList<ItemInfo> containerItems = mByContainer.get(entry.container);
+        if (containerItems == null) {
+            containerItems = new ArrayList<>();
+            mByContainer.put(entry.container, containerItems);
+        }
+        containerItems.add(info);
+        mById.put(info.id, info);
+        if (entry.iconPackageKey != null) {
+            addToBucket(mByIconPackage, entry.iconPackageKey, info);
+        }
+
+        if (entry.component != null) {
+            addToBucket(mByPackage, entry.packageKey, info);
+            addToBucket(mByComponent, entry.component, info);
+            addToBucket(mByUser, entry.component.user, info);
+        }
+    }
+
+    public void remove(ItemInfo info) {
+        Entry entry = mEntries.remove(info);
+        if (entry == null) {
+            return;
+        }
+        ArrayList<ItemInfo> containerItems = mByContainer.get(entry.container);
+        if (containerItems != null) {
+            removeIdentity(containerItems, info);
+            if (containerItems.isEmpty()) {
+                mByContainer.remove(entry.container);
+            }
+        }
+        if (mById.get(entry.id) == info) {
+            mById.remove(entry.id);
+        }
+        if (entry.iconPackageKey != null) {
+            removeFromBucket(mByIconPackage, entry.iconPackageKey, info);
+        }
+        if (entry.component != null) {
+            removeFromBucket(mByPackage, entry.packageKey, info);
+            removeFromBucket(mByComponent, entry.component, info);
+            removeFromBucket(mByUser, entry.component.user, info);
+        }
+    }
+
+    /**
+     * Re-indexes {@param info} if its target, container or icon resource has changed since it was
+     * indexed.
+     */
+    public void update(ItemInfo info) {
+        Entry entry = mEntries.get(info);
+        if (entry != null && !entry.isSame(info)) {
+            remove(info);
+            add(info);
+        }
+    }
+
+    public void clear() {
+        mByPackage.clear();
+        mByComponent.clear();
+        mByUser.clear();
+        mByContainer.clear();
+        mById.clear();
+        mByIconPackage.clear();
+        mEntries.clear();
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    public boolean contains(ItemInfo info) {
+        return mEntries.containsKey(info);
+    }
+
+    /**
+     * Returns all the items belonging to any of the {@param packageNames} for {@param user}.
+     */
+    public Collection<ItemInfo> getItemsForPackages(Set<String> packageNames, UserHandle user) {
+        ArrayList<ItemInfo> result = new ArrayList<>();
+        for (String packageName : packageNames) {
+            ArrayList<ItemInfo> items = mByPackage.get(new PackageUserKey(packageName, user));
+            if (items != null) {
+                result.addAll(items);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all the items targeting any of the {@param components} for {@param user}.
+     */
+    public Collection<ItemInfo> getItemsForComponents(
+            Set<ComponentName> components, UserHandle user) {
+        ArrayList<ItemInfo> result = new ArrayList<>();
+        for (ComponentName cn : components) {
+            ArrayList<ItemInfo> items = mByComponent.get(new ComponentKey(cn, user));
+            if (items != null) {
+                result.addAll(items);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the items whose id is a key of {@param ids}.
+     */
+    public Collection<ItemInfo> getItemsForIds(IntSparseArrayMap<?> ids) {
+        ArrayList<ItemInfo> result = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            ItemInfo info = mById.get(ids.keyAt(i));
+            if (info != null) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the shortcuts for {@param user} whose icon resource belongs to any of
+     * {@param packageNames}.
+     */
+    public Collection<ItemInfo> getItemsForIconPackages(
+            Set<String> packageNames, UserHandle user) {
+        ArrayList<ItemInfo> result = new ArrayList<>();
+        for (String packageName : packageNames) {
+            ArrayList<ItemInfo> items =
+                    mByIconPackage.get(new PackageUserKey(packageName, user));
+            if (items != null) {
+                result.addAll(items);
+            }
+        }
+        return result;
+    }
+
+    public Collection<ItemInfo> getItemsForUser(UserHandle user) {
+        return unmodifiable(mByUser.get(user));
+    }
+
+    public Collection<ItemInfo> getItemsForContainer(int container) {
+        return unmodifiable(mByContainer.get(container));
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Item index: items=" + mEntries.size()
+                + " packages=" + mByPackage.size()
+                + " components=" + mByComponent.size()
+                + " users=" + mByUser.size()
+                + " containers=" + mByContainer.size());
+    }
+
+    private static Collection<ItemInfo> unmodifiable(ArrayList<ItemInfo> items) {
+        return items == null ? Collections.emptyList() : Collections.unmodifiableList(items);
+    }
+
+    private static <T> void addToBucket(HashMap<T, ArrayList<ItemInfo>> map, T key, ItemInfo info) {
+        ArrayList<ItemInfo> items = map.get(key);
+        if (items == null) {
+            items = new ArrayList<>();
+            map.put(key, items);
+        }
+        items.add(info);
+    }
+
+    private static <T> void removeFromBucket(
+            HashMap<T, ArrayList<ItemInfo>> map, T key, ItemInfo info) {
+        ArrayList<ItemInfo> items = map.get(key);
+        if (items != null) {
+            removeIdentity(items, info);
+            if (items.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    private static void removeIdentity(ArrayList<ItemInfo> items, ItemInfo info) {
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (items.get(i) == info) {
+                items.remove(i);
+                return;
+            }
+        }
+    }
+
+    private static class Entry {
+        final int id;
+        final int container;
+        final ComponentKey component;
+        final PackageUserKey packageKey;
+        final PackageUserKey iconPackageKey;
+
+        Entry(ItemInfo info) {
+            id = info.id;
+            container = info.container;
+            iconPackageKey = getIconPackageKey(info);
+            ComponentName cn = getMatchComponent(info);
+            if (cn != null && info.user != null) {
+                component = new ComponentKey(cn, info.user);
+                packageKey = new PackageUserKey(cn.getPackageName(), info.user);
+            } else {
+                component = null;
+                packageKey = null;
+            }
+        }
+
+        boolean isSame(ItemInfo info) {
+            if (id != info.id || container != info.container) {
+                return false;
+            }
+            if (!Objects.equals(iconPackageKey, getIconPackageKey(info))) {
+                return false;
+            }
+            ComponentName cn = getMatchComponent(info);
+            if (component == null) {
+                return cn == null || info.user == null;
+            }
+            return component.componentName.equals(cn) && component.user.equals(info.user);
+        }
+
+        private static PackageUserKey getIconPackageKey(ItemInfo info) {
+            if (info instanceof WorkspaceItemInfo && info.user != null) {
+                WorkspaceItemInfo si = (WorkspaceItemInfo) info;
+                if (si.iconResource != null && si.iconResource.packageName != null) {
+                    return new PackageUserKey(si.iconResource.packageName, info.user);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -26,7 +26,10 @@ import com.android.launcher3.LauncherSettings.Favorites;
 import com.android.launcher3.WorkspaceItemInfo;
 import com.android.launcher3.shortcuts.ShortcutKey;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.function.Function;
 
 /**
  * A utility class to check for {@link ItemInfo}
@@ -66,18 +69,48 @@ public interface ItemInfoMatcher {
         return filtered;
     }
 
+    /**
+     * Returns the items of {@param index} which can satisfy this matcher, or null if the index
+     * can not narrow down the search and every item needs to be checked. The result can contain
+     * items which do not match, and duplicates.
+     */
+    default Collection<ItemInfo> getCandidates(ItemInfoIndex index) {
+        return null;
+    }
+
     /**
      * Returns a new matcher with returns true if either this or {@param matcher} returns true.
      */
     default ItemInfoMatcher or(ItemInfoMatcher matcher) {
-        return (info, cn) -> matches(info, cn) || matcher.matches(info, cn);
+        return new IndexedMatcher((info, cn) -> matches(info, cn) || matcher.matches(info, cn),
+                index -> {
+                    Collection<ItemInfo> candidates = getCandidates(index);
+                    Collection<ItemInfo> otherCandidates = matcher.getCandidates(index);
+                    if (candidates == null || otherCandidates == null) {
+                        return null;
+                    }
+                    ArrayList<ItemInfo> result = new ArrayList<>(candidates);
+                    result.addAll(otherCandidates);
+                    return result;
+                });
     }
 
     /**
      * Returns a new matcher with returns true if both this and {@param matcher} returns true.
      */
     default ItemInfoMatcher and(ItemInfoMatcher matcher) {
-        return (info, cn) -> matches(info, cn) && matcher.matches(info, cn);
+        return new IndexedMatcher((info, cn) -> matches(info, cn) && matcher.matches(info, cn),
+                index -> {
+                    Collection<ItemInfo> candidates = getCandidates(index);
+                    Collection<ItemInfo> otherCandidates = matcher.getCandidates(index);
+                    if (candidates == null) {
+                        return otherCandidates;
+                    } else if (otherCandidates == null) {
+                        return candidates;
+                    }
+                    return candidates.size() <= otherCandidates.size()
+                            ? candidates : otherCandidates;
+                });
     }
 
     /**
@@ -89,15 +122,19 @@ public interface ItemInfoMatcher {
     }
 
     static ItemInfoMatcher ofUser(UserHandle user) {
-        return (info, cn) -> info.user.equals(user);
+        return new IndexedMatcher((info, cn) -> info.user.equals(user),
+                index -> index.getItemsForUser(user));
     }
 
     static ItemInfoMatcher ofComponents(HashSet<ComponentName> components, UserHandle user) {
-        return (info, cn) -> components.contains(cn) && info.user.equals(user);
+        return new IndexedMatcher((info, cn) -> components.contains(cn) && info.user.equals(user),
+                index -> index.getItemsForComponents(components, user));
     }
 
     static ItemInfoMatcher ofPackages(HashSet<String> packageNames, UserHandle user) {
-        return (info, cn) -> packageNames.contains(cn.getPackageName()) && info.user.equals(user);
+        return new IndexedMatcher(
+                (info, cn) -> packageNames.contains(cn.getPackageName()) && info.user.equals(user),
+                index -> index.getItemsForPackages(packageNames, user));
     }
 
     static ItemInfoMatcher ofShortcutKeys(HashSet<ShortcutKey> keys) {
@@ -106,6 +143,34 @@ public interface ItemInfoMatcher {
     }
 
     static ItemInfoMatcher ofItemIds(IntSparseArrayMap<Boolean> ids, Boolean matchDefault) {
-        return (info, cn) -> ids.get(info.id, matchDefault);
+        ItemInfoMatcher matcher = (info, cn) -> ids.get(info.id, matchDefault);
+        // Only the listed items can match, unless the items not listed match by default
+        return matchDefault ? matcher
+                : new IndexedMatcher(matcher, index -> index.getItemsForIds(ids));
+    }
+
+    /**
+     * A matcher which can look up its candidates in an {@link ItemInfoIndex}.
+     */
+    class IndexedMatcher implements ItemInfoMatcher {
+
+        private final ItemInfoMatcher mMatcher;
+        private final Function<ItemInfoIndex, Collection<ItemInfo>> mCandidates;
+
+        IndexedMatcher(ItemInfoMatcher matcher,
+                Function<ItemInfoIndex, Collection<ItemInfo>> candidates) {
+            mMatcher = matcher;
+            mCandidates = candidates;
+        }
+
+        @Override
+        public boolean matches(ItemInfo info, ComponentName cn) {
+            return mMatcher.matches(info, cn);
+        }
+
+        @Override
+        public Collection<ItemInfo> getCandidates(ItemInfoIndex index) {
+            return mCandidates.apply(index);
+        }
     }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size thread pool which runs the most recently submitted tasks first, for requests
+ * which matter less the older they get, eg, loading content for views as they are scrolled
+ * into view. Cancelled {@link java.util.concurrent.Future}s can be dropped from the queue
+ * through {@link #purge()}.
+ */
+public class LifoThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private static final int KEEP_ALIVE_SECONDS = 1;
+
+    public LifoThreadPoolExecutor(int poolSize) {
+        super(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LifoQueue());
+        allowCoreThreadTimeOut(true);
+    }
+
+    private static class LifoQueue extends LinkedBlockingDeque<Runnable> {
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            return offerFirst(runnable);
+        }
+    }
+}
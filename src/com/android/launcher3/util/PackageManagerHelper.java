@@ -32,6 +32,7 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.PatternMatcher;
+import android.os.Process;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -46,6 +47,7 @@ import com.android.launcher3.R;
 import com.android.launcher3.WorkspaceItemInfo;
 import com.android.launcher3.compat.LauncherAppsCompat;
 
+import java.io.File;
 import java.net.URISyntaxException;
 import java.util.List;
 
@@ -85,6 +87,25 @@ public class PackageManagerHelper {
         return info != null && isAppSuspended(info);
     }
 
+    /**
+     * Returns the time {@param packageName} was last updated for {@param user}, or -1 if it is
+     * not installed for that user.
+     */
+    public long getLastUpdateTime(String packageName, UserHandle user) {
+        if (Process.myUserHandle().equals(user)) {
+            try {
+                return mPm.getPackageInfo(packageName, 0).lastUpdateTime;
+            } catch (NameNotFoundException e) {
+                return -1;
+            }
+        }
+        // The package manager only knows about the packages of the current user. The APK of the
+        // package installed for the other user is replaced on every update instead.
+        ApplicationInfo info = mLauncherApps.getApplicationInfo(packageName, 0, user);
+        return info == null || info.sourceDir == null
+                ? -1 : new File(info.sourceDir).lastModified();
+    }
+
     public boolean isSafeMode() {
         return mContext.getPackageManager().isSafeMode();
     }
@@ -29,6 +29,11 @@ public class ViewCache {
     protected final SparseArray<CacheEntry> mCache = new SparseArray();
 
     public void setCacheSize(int layoutId, int size) {
+        CacheEntry entry = mCache.get(layoutId);
+        if (entry != null && entry.mMaxSize == size) {
+            // Keep the cached views
+            return;
+        }
         mCache.put(layoutId, new CacheEntry(size));
     }
 
@@ -16,9 +16,15 @@
 
 package com.android.launcher3.widget;
 
+import static com.android.launcher3.widget.WidgetPerformanceTracker.PHASE_DRAW;
+import static com.android.launcher3.widget.WidgetPerformanceTracker.PHASE_LAYOUT;
+import static com.android.launcher3.widget.WidgetPerformanceTracker.PHASE_MEASURE;
+import static com.android.launcher3.widget.WidgetPerformanceTracker.PHASE_UPDATE;
+
 import android.appwidget.AppWidgetProviderInfo;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.Canvas;
 import android.graphics.PointF;
 import android.os.Handler;
 import android.os.SystemClock;
@@ -46,6 +52,7 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.dragndrop.DragLayer;
 import com.android.launcher3.util.Themes;
 import com.android.launcher3.views.BaseDragLayer.TouchCompleteListener;
+import com.sprd.ext.LogUtils;
 
 /**
  * {@inheritDoc}
@@ -57,6 +64,9 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
     private static final long ADVANCE_INTERVAL = 20000;
     private static final long ADVANCE_STAGGER = 250;
 
+    // Start time of a phase which is not timed
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
     // Maintains a list of widget ids which are supposed to be auto advanced.
     private static final SparseBooleanArray sAutoAdvanceWidgetIds = new SparseBooleanArray();
 
@@ -66,11 +76,19 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
     private final StylusEventHelper mStylusEventHelper;
     protected final Launcher mLauncher;
 
+    // Only the widgets drawn by their provider are timed, not the placeholders drawn by launcher
+    private final WidgetPerformanceTracker mPerformanceTracker;
+
     @ViewDebug.ExportedProperty(category = "launcher")
     private boolean mReinflateOnConfigChange;
 
     private float mSlop;
 
+    // While deferred, only the latest update is kept and applied when updates resume
+    private boolean mDeferUpdates;
+    private boolean mHasPendingUpdate;
+    private RemoteViews mPendingUpdate;
+
     private boolean mIsScrollable;
     private boolean mIsAttachedToWindow;
     private boolean mIsAutoAdvanceRegistered;
@@ -92,6 +110,8 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
         mLongPressHelper = new CheckLongPressHelper(this, this);
         mStylusEventHelper = new StylusEventHelper(new SimpleOnStylusPressListener(this), this);
         mInflater = LayoutInflater.from(context);
+        mPerformanceTracker = getClass() == LauncherAppWidgetHostView.class
+                ? WidgetPerformanceTracker.INSTANCE.get(context) : null;
         setAccessibilityDelegate(mLauncher.getAccessibilityDelegate());
         setBackgroundResource(R.drawable.widget_internal_focus_bg);
 
@@ -120,7 +140,18 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
 
     @Override
     public void updateAppWidget(RemoteViews remoteViews) {
+        if (mDeferUpdates) {
+            if (mHasPendingUpdate) {
+                onUpdateCounted(false /* applied */);
+            }
+            mPendingUpdate = remoteViews;
+            mHasPendingUpdate = true;
+            return;
+        }
+        onUpdateCounted(true /* applied */);
+        long startNanos = startPhase();
         super.updateAppWidget(remoteViews);
+        recordPhase(PHASE_UPDATE, startNanos);
 
         // The provider info or the views might have changed.
         checkIfAutoAdvance();
@@ -132,6 +163,30 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
         mReinflateOnConfigChange = !isSameOrientation();
     }
 
+    /**
+     * Sets whether the updates of the widget should be kept until it is visible again, rather
+     * than applied immediately. Only the latest of the kept updates is applied.
+     */
+    public void setUpdatesDeferred(boolean deferUpdates) {
+        if (mDeferUpdates == deferUpdates) {
+            return;
+        }
+        mDeferUpdates = deferUpdates;
+        if (!deferUpdates && mHasPendingUpdate) {
+            RemoteViews pendingUpdate = mPendingUpdate;
+            mPendingUpdate = null;
+            mHasPendingUpdate = false;
+            updateAppWidget(pendingUpdate);
+        }
+    }
+
+    private void onUpdateCounted(boolean applied) {
+        AppWidgetProviderInfo info = getAppWidgetInfo();
+        if (info != null) {
+            mLauncher.getAppWidgetHost().onWidgetUpdate(info.provider, applied);
+        }
+    }
+
     private boolean isSameOrientation() {
         return mLauncher.getResources().getConfiguration().orientation ==
                 mLauncher.getOrientation();
@@ -269,8 +324,16 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
         updateAppWidget(new RemoteViews(getAppWidgetInfo().provider.getPackageName(), 0));
     }
 
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        long startNanos = startFramePhase();
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        recordPhase(PHASE_MEASURE, startNanos);
+    }
+
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        long startNanos = startFramePhase();
         try {
             super.onLayout(changed, left, top, right, bottom);
         } catch (final RuntimeException e) {
@@ -281,10 +344,39 @@ public class LauncherAppWidgetHostView extends NavigableAppWidgetHostView
                 }
             });
         }
+        recordPhase(PHASE_LAYOUT, startNanos);
 
         mIsScrollable = checkScrollableRecursively(this);
     }
 
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        long startNanos = startFramePhase();
+        super.dispatchDraw(canvas);
+        recordPhase(PHASE_DRAW, startNanos);
+    }
+
+    private long startPhase() {
+        return mPerformanceTracker != null ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Same as {@link #startPhase()}, for the phases which run every frame. These are only timed
+     * while the performance debug property is enabled, which can change at any time.
+     */
+    private long startFramePhase() {
+        return LogUtils.DEBUG_PERFORMANCE ? startPhase() : NOT_TIMED;
+    }
+
+    private void recordPhase(int phase, long startNanos) {
+        if (startNanos != NOT_TIMED) {
+            AppWidgetProviderInfo info = super.getAppWidgetInfo();
+            if (info != null) {
+                mPerformanceTracker.record(info.provider, phase, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
     @Override
     public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
         super.onInitializeAccessibilityNodeInfo(info);
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import android.content.Context;
+
+/**
+ * A widget host view bound on a workspace page far from the current one. It is replaced by the
+ * actual widget through {@link #reInflate()} when the user gets close to its page.
+ */
+public class PlaceholderAppWidgetHostView extends DeferredAppWidgetHostView {
+
+    public PlaceholderAppWidgetHostView(Context context) {
+        super(context);
+    }
+}
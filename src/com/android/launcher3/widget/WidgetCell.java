@@ -70,7 +70,7 @@ public class WidgetCell extends LinearLayout implements OnLayoutChangeListener {
 
     protected WidgetItem mItem;
 
-    private WidgetPreviewLoader mWidgetPreviewLoader;
+    protected WidgetPreviewLoader mWidgetPreviewLoader;
     private StylusEventHelper mStylusEventHelper;
 
     protected CancellationSignal mActiveRequest;
@@ -104,7 +104,14 @@ public class WidgetCell extends LinearLayout implements OnLayoutChangeListener {
     private void setContainerWidth() {
         DeviceProfile profile = mActivity.getDeviceProfile();
         mCellSize = (int) (profile.cellWidthPx * WIDTH_SCALE);
-        mPresetPreviewSize = (int) (mCellSize * PREVIEW_SCALE);
+        mPresetPreviewSize = getPresetPreviewSize(profile);
+    }
+
+    /**
+     * Returns the size of the previews requested by the cells shown in {@param profile}.
+     */
+    public static int getPresetPreviewSize(DeviceProfile profile) {
+        return (int) ((int) (profile.cellWidthPx * WIDTH_SCALE) * PREVIEW_SCALE);
     }
 
     @Override
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import android.content.ComponentName;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.sprd.ext.LogUtils;
+import com.sprd.ext.SystemPropertiesUtils;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Records how long the widgets of each provider take to be created, to apply their updates, and
+ * to be measured, laid out and drawn. The last samples of each provider are kept in ring buffers
+ * and reported as percentiles, the providers whose 90th percentile of any phase exceeds the
+ * budget are flagged as slow. The budget in milliseconds is set with the
+ * {@link #PROP_BUDGET_MS} system property. Creating and updating the widgets are always timed,
+ * measuring, laying out and drawing them are only timed while
+ * {@link LogUtils#DEBUG_PERFORMANCE} is enabled, as they run every frame.
+ */
+public class WidgetPerformanceTracker {
+
+    public static final MainThreadInitializedObject<WidgetPerformanceTracker> INSTANCE =
+            new MainThreadInitializedObject<>(c -> new WidgetPerformanceTracker());
+
+    public static final int PHASE_CREATE = 0;
+    public static final int PHASE_UPDATE = 1;
+    public static final int PHASE_MEASURE = 2;
+    public static final int PHASE_LAYOUT = 3;
+    public static final int PHASE_DRAW = 4;
+    private static final String[] PHASE_NAMES = {"create", "update", "measure", "layout", "draw"};
+
+    private static final String PROP_BUDGET_MS = "persist.sys.launcher.widget_budget";
+    private static final int DEFAULT_BUDGET_MS = 8;
+
+    // Number of samples kept for each provider and phase
+    private static final int SAMPLE_COUNT = 64;
+
+    private final HashMap<ComponentName, ProviderStats> mStats = new HashMap<>();
+    private final long mBudgetNanos;
+
+    private WidgetPerformanceTracker() {
+        this(SystemPropertiesUtils.getInt(PROP_BUDGET_MS, DEFAULT_BUDGET_MS) * 1_000_000L);
+    }
+
+    @VisibleForTesting
+    WidgetPerformanceTracker(long budgetNanos) {
+        mBudgetNanos = budgetNanos;
+    }
+
+    /**
+     * Records that the {@param phase} of a widget of {@param provider} took {@param nanos}.
+     */
+    public synchronized void record(ComponentName provider, int phase, long nanos) {
+        if (provider == null) {
+            return;
+        }
+        ProviderStats stats = mStats.get(provider);
+        if (stats == null) {
+            stats = new ProviderStats(provider);
+            mStats.put(provider, stats);
+        }
+        stats.samples[phase].add(nanos);
+    }
+
+    /**
+     * Returns a report line for each provider, the slow providers first.
+     */
+    public synchronized ArrayList<Report> getReports() {
+        ArrayList<Report> reports = new ArrayList<>(mStats.size());
+        for (ProviderStats stats : mStats.values()) {
+            reports.add(stats.getReport(mBudgetNanos));
+        }
+        reports.sort((a, b) -> Boolean.compare(b.isSlow, a.isSlow));
+        return reports;
+    }
+
+    /**
+     * Returns the {@param percentile} of the non-empty array {@param sorted}, using the nearest
+     * rank below it.
+     */
+    public static long percentile(long[] sorted, int percentile) {
+        return sorted[(sorted.length - 1) * percentile / 100];
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "WidgetPerformanceTracker budget="
+                + mBudgetNanos / 1_000_000 + "ms");
+        for (Report report : getReports()) {
+            writer.println(prefix + "\t" + (report.isSlow ? "SLOW " : "")
+                    + report.provider.flattenToShortString());
+            writer.println(prefix + "\t\t" + report.summary);
+        }
+    }
+
+    /**
+     * The percentiles of a provider, formatted for display.
+     */
+    public static class Report {
+        public final ComponentName provider;
+        public final String summary;
+        public final boolean isSlow;
+
+        Report(ComponentName provider, String summary, boolean isSlow) {
+            this.provider = provider;
+            this.summary = summary;
+            this.isSlow = isSlow;
+        }
+    }
+
+    private static class ProviderStats {
+        final ComponentName provider;
+        final RingBuffer[] samples = new RingBuffer[PHASE_NAMES.length];
+
+        ProviderStats(ComponentName provider) {
+            this.provider = provider;
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = new RingBuffer();
+            }
+        }
+
+        Report getReport(long budgetNanos) {
+            StringBuilder summary = new StringBuilder();
+            boolean isSlow = false;
+            for (int i = 0; i < samples.length; i++) {
+                long[] sorted = samples[i].getSorted();
+                if (sorted.length == 0) {
+                    continue;
+                }
+                long p90 = percentile(sorted, 90);
+                isSlow |= p90 > budgetNanos;
+                if (summary.length() != 0) {
+                    summary.append(", ");
+                }
+                summary.append(String.format(Locale.ENGLISH,
+                        "%s: n=%d p50=%.1fms p90=%.1fms p99=%.1fms", PHASE_NAMES[i],
+                        samples[i].total, percentile(sorted, 50) / 1e6, p90 / 1e6,
+                        percentile(sorted, 99) / 1e6));
+            }
+            return new Report(provider, summary.toString(), isSlow);
+        }
+    }
+
+    /**
+     * The last {@link #SAMPLE_COUNT} samples of a phase.
+     */
+    private static class RingBuffer {
+        final long[] values = new long[SAMPLE_COUNT];
+        int total;
+
+        void add(long value) {
+            values[total % SAMPLE_COUNT] = value;
+            total++;
+        }
+
+        long[] getSorted() {
+            long[] sorted = Arrays.copyOf(values, Math.min(total, SAMPLE_COUNT));
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
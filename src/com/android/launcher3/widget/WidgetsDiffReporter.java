@@ -16,27 +16,51 @@
 
 package com.android.launcher3.widget;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
 import android.util.Log;
 
+import com.android.launcher3.Utilities;
 import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.model.PackageItemInfo;
-import com.android.launcher3.widget.WidgetsListAdapter.WidgetListRowEntryComparator;
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.PackageUserKey;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 
 import androidx.recyclerview.widget.RecyclerView;
 
 /**
  * Do diff on widget's tray list items and call the {@link RecyclerView.Adapter}
  * methods accordingly.
+ *
+ * Rows are matched by package and user through a hash map, so the diff is linear in the size of
+ * the lists, plus the cost of the moves which only happen when a package label changes. Large
+ * lists are compared on a background thread.
  */
 public class WidgetsDiffReporter {
     private static final boolean DEBUG = false;
     private static final String TAG = "WidgetsDiffReporter";
 
+    // Lists with at least this many rows are compared on a background thread
+    private static final int ASYNC_DIFF_MIN_ROWS = 100;
+
+    private static final int OP_REMOVE = 0;
+    private static final int OP_MOVE = 1;
+    private static final int OP_INSERT = 2;
+    private static final int OP_CHANGE = 3;
+
     private final IconCache mIconCache;
     private final RecyclerView.Adapter mListener;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Incremented on every update, so that the results of outdated background diffs are dropped
+    private int mGeneration;
 
     public WidgetsDiffReporter(IconCache iconCache, RecyclerView.Adapter listener) {
         mIconCache = iconCache;
@@ -46,8 +70,8 @@ public class WidgetsDiffReporter {
     private String[] filterPackages = {"com.android.music","com.jingtech.hdbrowser.stable",
     "com.android.calendar","com.android.settings","com.android.contacts","com.android.gallery3d",
             "com.android.messaging"};
-    public void process(ArrayList<WidgetListRowEntry> currentEntries,
-            ArrayList<WidgetListRowEntry> newEntries, WidgetListRowEntryComparator comparator) {
+    public void process(final ArrayList<WidgetListRowEntry> currentEntries,
+            ArrayList<WidgetListRowEntry> newEntries) {
         if (DEBUG) {
             Log.d(TAG, "process oldEntries#=" + currentEntries.size()
                     + " newEntries#=" + newEntries.size());
@@ -66,6 +90,7 @@ public class WidgetsDiffReporter {
         }
         newEntries.clear();
         newEntries.addAll(filterList);
+        final int generation = ++mGeneration;
         // Early exit if either of the list is empty
         if (currentEntries.isEmpty() || newEntries.isEmpty()) {
             // Skip if both list are empty.
@@ -79,84 +104,240 @@ public class WidgetsDiffReporter {
             }
             return;
         }
-        ArrayList<WidgetListRowEntry> orgEntries =
-                (ArrayList<WidgetListRowEntry>) currentEntries.clone();
-        ArrayList<WidgetListRowEntry> newEntriesClone =
-                (ArrayList<WidgetListRowEntry>) newEntries.clone();
-        Iterator<WidgetListRowEntry> orgIter = orgEntries.iterator();
-        Iterator<WidgetListRowEntry> newIter = newEntriesClone.iterator();
 
-        WidgetListRowEntry orgRowEntry = orgIter.next();
-        WidgetListRowEntry newRowEntry = newIter.next();
+        if (Math.max(currentEntries.size(), newEntries.size()) < ASYNC_DIFF_MIN_ROWS) {
+            dispatchDiff(calculateDiff(currentEntries, newEntries), currentEntries, newEntries);
+            return;
+        }
+        final ArrayList<WidgetListRowEntry> oldSnapshot = new ArrayList<>(currentEntries);
+        final ArrayList<WidgetListRowEntry> newSnapshot = new ArrayList<>(newEntries);
+        Utilities.THREAD_POOL_EXECUTOR.execute(() -> {
+            final IntArray diff = calculateDiff(oldSnapshot, newSnapshot);
+            mMainHandler.post(() -> {
+                // Dropped if the list was updated again in the meantime
+                if (generation == mGeneration) {
+                    dispatchDiff(diff, currentEntries, newSnapshot);
+                }
+            });
+        });
+    }
+
+    /**
+     * Computes the operations transforming {@param oldEntries} into {@param newEntries}, as
+     * triplets of (operation, position, count or target position). Each operation applies to the
+     * list resulting from the previous ones. Does not modify the lists, so it can run on any
+     * thread.
+     */
+    IntArray calculateDiff(List<WidgetListRowEntry> oldEntries,
+            List<WidgetListRowEntry> newEntries) {
+        int oldSize = oldEntries.size();
+        int newSize = newEntries.size();
+        IntArray ops = new IntArray();
+
+        HashMap<PackageUserKey, Integer> newPositions = new HashMap<>(newSize * 2);
+        for (int i = 0; i < newSize; i++) {
+            newPositions.put(getKey(newEntries.get(i)), i);
+        }
+
+        // Match the rows, removing the old ones from the end so that the positions of the
+        // remaining ones do not change
+        int[] newToOld = new int[newSize];
+        Arrays.fill(newToOld, -1);
+        int removeStart = -1;
+        int removeCount = 0;
+        for (int i = oldSize - 1; i >= 0; i--) {
+            Integer newPosition = newPositions.get(getKey(oldEntries.get(i)));
+            if (newPosition != null && newToOld[newPosition] == -1) {
+                newToOld[newPosition] = i;
+                continue;
+            }
+            if (removeCount > 0 && removeStart != i + 1) {
+                addOp(ops, OP_REMOVE, removeStart, removeCount);
+                removeCount = 0;
+            }
+            removeStart = i;
+            removeCount++;
+        }
+        if (removeCount > 0) {
+            addOp(ops, OP_REMOVE, removeStart, removeCount);
+        }
+
+        // The remaining rows, as their new positions in the current order
+        IntArray current = new IntArray(newSize);
+        int[] oldToNew = new int[oldSize];
+        Arrays.fill(oldToNew, -1);
+        for (int i = 0; i < newSize; i++) {
+            if (newToOld[i] != -1) {
+                oldToNew[newToOld[i]] = i;
+            }
+        }
+        for (int i = 0; i < oldSize; i++) {
+            if (oldToNew[i] != -1) {
+                current.add(oldToNew[i]);
+            }
+        }
+
+        // Move the rows which are not part of the longest sequence already in order, each one
+        // right after the row preceding it in the new list
+        boolean[] inOrder = getLongestIncreasingSequence(current, newSize);
+        int previous = -1;
+        for (int i = 0; i < newSize; i++) {
+            if (newToOld[i] == -1) {
+                continue;
+            }
+            if (!inOrder[i]) {
+                int from = current.indexOf(i);
+                current.removeIndex(from);
+                int to = previous == -1 ? 0 : current.indexOf(previous) + 1;
+                current.add(to, i);
+                addOp(ops, OP_MOVE, from, to);
+            }
+            previous = i;
+        }
+
+        // The remaining rows are in order, add the new ones
+        int insertStart = -1;
+        int insertCount = 0;
+        for (int i = 0; i < newSize; i++) {
+            if (newToOld[i] != -1) {
+                continue;
+            }
+            if (insertCount > 0 && insertStart + insertCount != i) {
+                addOp(ops, OP_INSERT, insertStart, insertCount);
+                insertCount = 0;
+            }
+            if (insertCount == 0) {
+                insertStart = i;
+            }
+            insertCount++;
+        }
+        if (insertCount > 0) {
+            addOp(ops, OP_INSERT, insertStart, insertCount);
+        }
+
+        // Rebind the rows whose content changed
+        int changeStart = -1;
+        int changeCount = 0;
+        for (int i = 0; i < newSize; i++) {
+            if (newToOld[i] == -1
+                    || isSameContent(oldEntries.get(newToOld[i]), newEntries.get(i))) {
+                continue;
+            }
+            if (changeCount > 0 && changeStart + changeCount != i) {
+                addOp(ops, OP_CHANGE, changeStart, changeCount);
+                changeCount = 0;
+            }
+            if (changeCount == 0) {
+                changeStart = i;
+            }
+            changeCount++;
+        }
+        if (changeCount > 0) {
+            addOp(ops, OP_CHANGE, changeStart, changeCount);
+        }
+        return ops;
+    }
 
-        do {
-            int diff = comparePackageName(orgRowEntry, newRowEntry, comparator);
+    private void dispatchDiff(IntArray ops, ArrayList<WidgetListRowEntry> currentEntries,
+            ArrayList<WidgetListRowEntry> newEntries) {
+        currentEntries.clear();
+        currentEntries.addAll(newEntries);
+        for (int i = 0; i < ops.size(); i += 3) {
+            int position = ops.get(i + 1);
+            int arg = ops.get(i + 2);
             if (DEBUG) {
-                Log.d(TAG, String.format("diff=%d orgRowEntry (%s) newRowEntry (%s)",
-                        diff, orgRowEntry != null? orgRowEntry.toString() : null,
-                        newRowEntry != null? newRowEntry.toString() : null));
-            }
-            int index = -1;
-            if (diff < 0) {
-                index = currentEntries.indexOf(orgRowEntry);
-                mListener.notifyItemRemoved(index);
-                if (DEBUG) {
-                    Log.d(TAG, String.format("notifyItemRemoved called (%d)%s", index,
-                            orgRowEntry.titleSectionName));
-                }
-                currentEntries.remove(index);
-                orgRowEntry = orgIter.hasNext() ? orgIter.next() : null;
-            } else if (diff > 0) {
-                index = orgRowEntry != null? currentEntries.indexOf(orgRowEntry):
-                        currentEntries.size();
-                currentEntries.add(index, newRowEntry);
-                if (DEBUG) {
-                    Log.d(TAG, String.format("notifyItemInserted called (%d)%s", index,
-                            newRowEntry.titleSectionName));
-                }
-                newRowEntry = newIter.hasNext() ? newIter.next() : null;
-                mListener.notifyItemInserted(index);
-
-            } else {
-                // same package name but,
-                // did the icon, title, etc, change?
-                // or did the widget size and desc, span, etc change?
-                if (!isSamePackageItemInfo(orgRowEntry.pkgItem, newRowEntry.pkgItem) ||
-                        !orgRowEntry.widgets.equals(newRowEntry.widgets)) {
-                    index = currentEntries.indexOf(orgRowEntry);
-                    currentEntries.set(index, newRowEntry);
-                    mListener.notifyItemChanged(index);
-                    if (DEBUG) {
-                        Log.d(TAG, String.format("notifyItemChanged called (%d)%s", index,
-                                newRowEntry.titleSectionName));
-                    }
-                }
-                orgRowEntry = orgIter.hasNext() ? orgIter.next() : null;
-                newRowEntry = newIter.hasNext() ? newIter.next() : null;
+                Log.d(TAG, String.format("op=%d position=%d arg=%d", ops.get(i), position, arg));
             }
-        } while(orgRowEntry != null || newRowEntry != null);
+            switch (ops.get(i)) {
+                case OP_REMOVE:
+                    mListener.notifyItemRangeRemoved(position, arg);
+                    break;
+                case OP_MOVE:
+                    mListener.notifyItemMoved(position, arg);
+                    break;
+                case OP_INSERT:
+                    mListener.notifyItemRangeInserted(position, arg);
+                    break;
+                case OP_CHANGE:
+                    mListener.notifyItemRangeChanged(position, arg);
+                    break;
+            }
+        }
+    }
+
+    private static void addOp(IntArray ops, int op, int position, int arg) {
+        ops.add(op);
+        ops.add(position);
+        ops.add(arg);
     }
 
     /**
-     * Compare package name using the same comparator as in {@link WidgetsListAdapter}.
-     * Also handle null row pointers.
+     * Returns which of the distinct values of {@param sequence}, indexed by value, form one of
+     * its longest increasing subsequences.
      */
-    private int comparePackageName(WidgetListRowEntry curRow, WidgetListRowEntry newRow,
-            WidgetListRowEntryComparator comparator) {
-        if (curRow == null && newRow == null) {
-            throw new IllegalStateException("Cannot compare PackageItemInfo if both rows are null.");
+    private static boolean[] getLongestIncreasingSequence(IntArray sequence, int maxValue) {
+        int size = sequence.size();
+        // tails[k]: index in sequence of the smallest tail of an increasing subsequence of
+        // length k + 1
+        int[] tails = new int[size];
+        int[] previous = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            int value = sequence.get(i);
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sequence.get(tails[mid]) < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
         }
 
-        if (curRow == null && newRow != null) {
-            return 1; // new row needs to be inserted
-        } else if (curRow != null && newRow == null) {
-            return -1; // old row needs to be deleted
+        boolean[] result = new boolean[maxValue];
+        for (int i = length > 0 ? tails[length - 1] : -1; i != -1; i = previous[i]) {
+            result[sequence.get(i)] = true;
         }
-        return comparator.compare(curRow, newRow);
+        return result;
     }
 
-    private boolean isSamePackageItemInfo(PackageItemInfo curInfo, PackageItemInfo newInfo) {
-        return curInfo.iconBitmap.equals(newInfo.iconBitmap) &&
-                !mIconCache.isDefaultIcon(curInfo.iconBitmap, curInfo.user);
+    private static PackageUserKey getKey(WidgetListRowEntry entry) {
+        return new PackageUserKey(entry.pkgItem.packageName, entry.pkgItem.user);
+    }
+
+    /**
+     * Whether the row of {@param newEntry} would be bound like the one of {@param oldEntry}.
+     */
+    private boolean isSameContent(WidgetListRowEntry oldEntry, WidgetListRowEntry newEntry) {
+        PackageItemInfo oldInfo = oldEntry.pkgItem;
+        PackageItemInfo newInfo = newEntry.pkgItem;
+        // Rows with the default icon are rebound as the icon is loaded
+        if (oldInfo.iconBitmap != newInfo.iconBitmap
+                || mIconCache.isDefaultIcon(oldInfo.iconBitmap, oldInfo.user)
+                || !TextUtils.equals(oldInfo.title, newInfo.title)) {
+            return false;
+        }
+        ArrayList<WidgetItem> oldWidgets = oldEntry.widgets;
+        ArrayList<WidgetItem> newWidgets = newEntry.widgets;
+        if (oldWidgets.size() != newWidgets.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldWidgets.size(); i++) {
+            WidgetItem oldItem = oldWidgets.get(i);
+            WidgetItem newItem = newWidgets.get(i);
+            if (oldItem != newItem && (!oldItem.equals(newItem)
+                    || oldItem.spanX != newItem.spanX || oldItem.spanY != newItem.spanY
+                    || !TextUtils.equals(oldItem.label, newItem.label))) {
+                return false;
+            }
+        }
+        return true;
     }
 }
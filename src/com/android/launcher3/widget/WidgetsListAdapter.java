@@ -23,17 +23,20 @@ import android.view.View.OnClickListener;
 import android.view.View.OnLongClickListener;
 import android.view.ViewGroup;
 
+import com.android.launcher3.BaseActivity;
 import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.R;
 import com.android.launcher3.WidgetPreviewLoader;
 import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.util.LabelComparator;
+import com.android.launcher3.util.ViewCache;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.Adapter;
 
@@ -43,13 +46,19 @@ import androidx.recyclerview.widget.RecyclerView.Adapter;
  * <p>Memory vs. Performance:
  * The less number of types of views are inserted into a {@link RecyclerView}, the more recycling
  * happens and less memory is consumed. {@link #getItemViewType} was not overridden as there is
- * only a single type of view.
+ * only a single type of view. The widget cells and dividers are shared by all the rows through
+ * the activity {@link ViewCache}, so that a row bound to a package with fewer widgets gives its
+ * extra cells to the next rows instead of keeping them hidden.
  */
 public class WidgetsListAdapter extends Adapter<WidgetsRowViewHolder> {
 
     private static final String TAG = "WidgetsListAdapter";
     private static final boolean DEBUG = false;
 
+    // Number of cells and dividers kept by the view cache, about the widgets of a few packages
+    @VisibleForTesting
+    static final int CELL_CACHE_SIZE = 12;
+
     private final WidgetPreviewLoader mWidgetPreviewLoader;
     private final LayoutInflater mLayoutInflater;
 
@@ -60,6 +69,7 @@ public class WidgetsListAdapter extends Adapter<WidgetsRowViewHolder> {
     private final WidgetsDiffReporter mDiffReporter;
 
     private boolean mApplyBitmapDeferred;
+    private ViewCache mViewCache;
 
     public WidgetsListAdapter(Context context, LayoutInflater layoutInflater,
             WidgetPreviewLoader widgetPreviewLoader, IconCache iconCache,
@@ -98,7 +108,7 @@ public class WidgetsListAdapter extends Adapter<WidgetsRowViewHolder> {
     public void setWidgets(ArrayList<WidgetListRowEntry> tempEntries) {
         WidgetListRowEntryComparator rowComparator = new WidgetListRowEntryComparator();
         Collections.sort(tempEntries, rowComparator);
-        mDiffReporter.process(mEntries, tempEntries, rowComparator);
+        mDiffReporter.process(mEntries, tempEntries);
     }
 
     @Override
@@ -122,30 +132,36 @@ public class WidgetsListAdapter extends Adapter<WidgetsRowViewHolder> {
                     pos, infoList.size(), row.getChildCount()));
         }
 
-        // Add more views.
-        // if there are too many, hide them.
+        // Take the missing views from the cache.
+        // if there are too many, give them back to it.
         int expectedChildCount = infoList.size() + Math.max(0, infoList.size() - 1);
         int childCount = row.getChildCount();
-
-        if (expectedChildCount > childCount) {
-            for (int i = childCount ; i < expectedChildCount; i++) {
-                if ((i & 1) == 1) {
-                    // Add a divider for odd index
-                    mLayoutInflater.inflate(R.layout.widget_list_divider, row);
-                } else {
-                    // Add cell for even index
-                    WidgetCell widget = (WidgetCell) mLayoutInflater.inflate(
-                            R.layout.widget_cell, row, false);
-
-                    // set up touch.
-                    widget.setOnClickListener(mIconClickListener);
-                    widget.setOnLongClickListener(mIconLongClickListener);
-                    row.addView(widget);
-                }
+        ViewCache viewCache = getViewCache(row);
+
+        for (int i = childCount - 1; i >= expectedChildCount; i--) {
+            View child = row.getChildAt(i);
+            row.removeViewAt(i);
+            if ((i & 1) == 1) {
+                viewCache.recycleView(R.layout.widget_list_divider, child);
+            } else {
+                ((WidgetCell) child).clear();
+                viewCache.recycleView(R.layout.widget_cell, child);
             }
-        } else if (expectedChildCount < childCount) {
-            for (int i = expectedChildCount ; i < childCount; i++) {
-                row.getChildAt(i).setVisibility(View.GONE);
+        }
+        for (int i = childCount; i < expectedChildCount; i++) {
+            if ((i & 1) == 1) {
+                // Add a divider for odd index
+                row.addView(viewCache.getView(R.layout.widget_list_divider,
+                        row.getContext(), row));
+            } else {
+                // Add cell for even index
+                WidgetCell widget = viewCache.getView(R.layout.widget_cell,
+                        row.getContext(), row);
+
+                // set up touch.
+                widget.setOnClickListener(mIconClickListener);
+                widget.setOnLongClickListener(mIconLongClickListener);
+                row.addView(widget);
             }
         }
 
@@ -166,6 +182,20 @@ public class WidgetsListAdapter extends Adapter<WidgetsRowViewHolder> {
         }
     }
 
+    private ViewCache getViewCache(View view) {
+        if (mViewCache == null) {
+            setViewCache(BaseActivity.fromContext(view.getContext()).getViewCache());
+        }
+        return mViewCache;
+    }
+
+    @VisibleForTesting
+    void setViewCache(ViewCache viewCache) {
+        mViewCache = viewCache;
+        mViewCache.setCacheSize(R.layout.widget_cell, CELL_CACHE_SIZE);
+        mViewCache.setCacheSize(R.layout.widget_list_divider, CELL_CACHE_SIZE);
+    }
+
     @Override
     public WidgetsRowViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         if (DEBUG) {
@@ -0,0 +1,188 @@
+package com.sprd.ext.customizeappsort;
+
+import android.content.ComponentName;
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.Pair;
+import android.util.SparseArray;
+
+import com.android.launcher3.AppInfo;
+import com.sprd.ext.LogUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The configured positions of apps in the all apps list, indexed by package so that placing the
+ * apps only takes a lookup per app instead of a scan of all the positions.
+ */
+class CustomizeAppOrder {
+    private static final String TAG = "CustomizeAppOrder";
+
+    /**
+     * A configured position, for all the activities of a package or a single one.
+     */
+    private static class Rule {
+        final int position;
+        // Null if the rule applies to every activity of the package
+        final String className;
+
+        Rule(int position, String className) {
+            this.position = position;
+            this.className = className;
+        }
+    }
+
+    // Rules by package name, each list has the rules for a single activity first, then the rules
+    // for the whole package, both in increasing position order
+    private final HashMap<String, ArrayList<Rule>> mRulesByPackage = new HashMap<>();
+
+    // Reused between calls, only accessed on the main thread
+    private final TreeMap<Integer, AppInfo> mPlacedApps = new TreeMap<>();
+    private final IdentityHashMap<AppInfo, Boolean> mPlacedSet = new IdentityHashMap<>();
+    private final HashMap<ComponentName, Integer> mOwnerPositions = new HashMap<>();
+    private final ArrayList<AppInfo> mCloneApps = new ArrayList<>();
+    private final ArrayList<AppInfo> mResult = new ArrayList<>();
+
+    CustomizeAppOrder(SparseArray<Pair<String, String>> positions) {
+        // SparseArray keys are in increasing order
+        for (int i = 0; i < positions.size(); i++) {
+            Pair<String, String> pair = positions.valueAt(i);
+            ArrayList<Rule> rules = mRulesByPackage.get(pair.first);
+            if (rules == null) {
+                rules = new ArrayList<>(1);
+                mRulesByPackage.put(pair.first, rules);
+            }
+            rules.add(new Rule(positions.keyAt(i), pair.second));
+        }
+        // An activity with its own rule is placed by it, even if a rule for its whole package
+        // has a lower position. The sort is stable, so the positions stay in order.
+        for (ArrayList<Rule> rules : mRulesByPackage.values()) {
+            rules.sort((a, b) -> Boolean.compare(a.className == null, b.className == null));
+        }
+    }
+
+    boolean isEmpty() {
+        return mRulesByPackage.isEmpty();
+    }
+
+    /**
+     * Moves the configured apps of {@param apps} to their positions, keeping the relative order
+     * of the other apps. Apps of other profiles follow the configured app of the main profile,
+     * at the next free position.
+     */
+    void apply(List<AppInfo> apps) {
+        if (mRulesByPackage.isEmpty()) {
+            return;
+        }
+        UserHandle myUser = Process.myUserHandle();
+        try {
+            // Find the configured apps
+            for (int i = 0; i < apps.size(); i++) {
+                AppInfo app = apps.get(i);
+                ComponentName cn = app.componentName;
+                ArrayList<Rule> rules = mRulesByPackage.get(cn.getPackageName());
+                if (rules == null) {
+                    continue;
+                }
+                for (int j = 0; j < rules.size(); j++) {
+                    Rule rule = rules.get(j);
+                    if (rule.className == null || rule.className.equals(cn.getClassName())) {
+                        if (!myUser.equals(app.user)) {
+                            mCloneApps.add(app);
+                        } else {
+                            AppInfo previous = mPlacedApps.put(rule.position, app);
+                            if (previous != null) {
+                                mPlacedSet.remove(previous);
+                                mOwnerPositions.remove(previous.componentName);
+                            }
+                            mPlacedSet.put(app, Boolean.TRUE);
+                            mOwnerPositions.put(cn, rule.position);
+                        }
+                        // Only the most specific matching position applies
+                        break;
+                    }
+                }
+            }
+
+            // Place the clone apps after their owner
+            for (int i = 0; i < mCloneApps.size(); i++) {
+                AppInfo app = mCloneApps.get(i);
+                Integer ownerPosition = mOwnerPositions.get(app.componentName);
+                if (ownerPosition == null || mPlacedSet.containsKey(app)) {
+                    continue;
+                }
+                int position = ownerPosition + 1;
+                while (mPlacedApps.containsKey(position)) {
+                    position++;
+                }
+                mPlacedApps.put(position, app);
+                mPlacedSet.put(app, Boolean.TRUE);
+            }
+
+            if (LogUtils.DEBUG_ALL) {
+                LogUtils.d(TAG, "apply, placed apps:" + toString(mPlacedApps)
+                        + "\napps before:" + toString(apps));
+            }
+            if (mPlacedApps.isEmpty()) {
+                return;
+            }
+
+            // Merge the placed apps with the others in a single pass
+            mResult.ensureCapacity(apps.size());
+            int next = 0;
+            for (Map.Entry<Integer, AppInfo> entry : mPlacedApps.entrySet()) {
+                int position = entry.getKey();
+                while (mResult.size() < position && next < apps.size()) {
+                    AppInfo app = apps.get(next++);
+                    if (!mPlacedSet.containsKey(app)) {
+                        mResult.add(app);
+                    }
+                }
+                mResult.add(entry.getValue());
+            }
+            while (next < apps.size()) {
+                AppInfo app = apps.get(next++);
+                if (!mPlacedSet.containsKey(app)) {
+                    mResult.add(app);
+                }
+            }
+
+            apps.clear();
+            apps.addAll(mResult);
+            if (LogUtils.DEBUG_ALL) {
+                LogUtils.d(TAG, "apply, apps after:" + toString(apps));
+            }
+        } finally {
+            mPlacedApps.clear();
+            mPlacedSet.clear();
+            mOwnerPositions.clear();
+            mCloneApps.clear();
+            mResult.clear();
+        }
+    }
+
+    private static String toString(List<AppInfo> apps) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < apps.size(); i++) {
+            sb.append("\n[ ").append(i)
+                    .append(" -> ").append(apps.get(i).toComponentKey())
+                    .append(" ]");
+        }
+        return sb.toString();
+    }
+
+    private static String toString(TreeMap<Integer, AppInfo> apps) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, AppInfo> entry : apps.entrySet()) {
+            sb.append("\n[ ").append(entry.getKey())
+                    .append(" -> ").append(entry.getValue().toComponentKey())
+                    .append(" ]");
+        }
+        return sb.toString();
+    }
+}
@@ -1,8 +1,6 @@
 package com.sprd.ext.customizeappsort;
 
-import android.content.ComponentName;
 import android.content.Context;
-import android.os.Process;
 import android.util.Pair;
 import android.util.SparseArray;
 
@@ -19,8 +17,6 @@ import java.io.FileDescriptor;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import androidx.annotation.VisibleForTesting;
 
@@ -34,6 +30,7 @@ public class CustomizeAppSortController extends BaseController {
 
     private String[] mConfigArray;
     private SparseArray<Pair<String, String>> mCustomizePositions;
+    private CustomizeAppOrder mOrder;
     private boolean mHasCustomizeAppData;
     private final LauncherAppMonitor mMonitor;
 
@@ -70,7 +67,8 @@ public class CustomizeAppSortController extends BaseController {
 
     private void initData() {
         mCustomizePositions = loadCustomizeAppPos(mConfigArray);
-        mHasCustomizeAppData = mCustomizePositions.size() > 0;
+        mOrder = new CustomizeAppOrder(mCustomizePositions);
+        mHasCustomizeAppData = !mOrder.isEmpty();
         if (mHasCustomizeAppData) {
             mMonitor.registerCallback(mAppMonitorCallback);
         }
@@ -128,117 +126,7 @@ public class CustomizeAppSortController extends BaseController {
         if (!mHasCustomizeAppData) {
             return;
         }
-        ArrayList<AppInfo> sortApps = new ArrayList<>(apps);
-        onSortApps(sortApps);
-
-        // refresh mApps
-        apps.clear();
-        apps.addAll(sortApps);
-    }
-
-    private void onSortApps(final ArrayList<AppInfo> originalApps) {
-        TreeMap<Integer, AppInfo> sortedMaps = new TreeMap<>();
-        ArrayList<AppInfo> cloneAppList = new ArrayList<>();
-
-        // find the customize component in componentNames
-        Pair<String, String> pair;
-        for (AppInfo app : originalApps) {
-            for (int i = 0; i < mCustomizePositions.size(); i++) {
-                ComponentName cn = app.componentName;
-                pair = mCustomizePositions.valueAt(i);
-                if (pair.first.equals(cn.getPackageName() )) {
-                    if (pair.second == null || pair.second.equals(cn.getClassName())) {
-                        if (app.user.equals(Process.myUserHandle())) {
-                            sortedMaps.put(mCustomizePositions.keyAt(i), app);
-                        } else {
-                            cloneAppList.add(app);
-                        }
-                    }
-                }
-
-            }
-        }
-
-        // insert clone app
-        if (!cloneAppList.isEmpty()) {
-            LogUtils.d(TAG, "onSortApps, cloneAppList.size():" + cloneAppList.size());
-            for (AppInfo app : cloneAppList) {
-                insertCloneApp(app, sortedMaps);
-            }
-        }
-
-        LogUtils.d(TAG, "onSortApps, sortedMaps keys:" + sortedMaps.keySet().toString());
-        if (LogUtils.DEBUG_ALL) {
-            LogUtils.d(TAG, "onSortApps, sortedMaps:" + maps2String(sortedMaps));
-            LogUtils.d(TAG, "onSortApps, need sort apps:" + apps2String(originalApps));
-        }
-
-        // remove the found component
-        for (Map.Entry<Integer, AppInfo> integerAppInfoEntry : sortedMaps.entrySet()) {
-            originalApps.remove(integerAppInfoEntry.getValue());
-        }
-
-        // insert at the customize position
-        for (Map.Entry<Integer, AppInfo> integerAppInfoEntry : sortedMaps.entrySet()) {
-            if (integerAppInfoEntry.getKey() > originalApps.size()) {
-                // append to last position
-                originalApps.add(integerAppInfoEntry.getValue());
-            } else {
-                // insert at specific position
-                originalApps.add(integerAppInfoEntry.getKey(), integerAppInfoEntry.getValue());
-            }
-        }
-        if (LogUtils.DEBUG_ALL) {
-            LogUtils.d(TAG, "onSortApps, sorted apps:" + apps2String(originalApps));
-        }
-    }
-
-    private void insertCloneApp(AppInfo cloneApp, TreeMap<Integer, AppInfo> sortedAppMaps) {
-        if (sortedAppMaps.containsValue(cloneApp)) {
-            return;
-        }
-
-        int findKey = -1;
-        for (Map.Entry<Integer, AppInfo> integerAppInfoEntry : sortedAppMaps.entrySet()) {
-            AppInfo me = integerAppInfoEntry.getValue();
-            int key = integerAppInfoEntry.getKey();
-            if (cloneApp.componentName.equals(me.componentName)) {
-                findKey = key;
-                LogUtils.d(TAG, "insertCloneApp, find owner app:[" + findKey + "] " + me.componentName);
-                break;
-            }
-        }
-
-        if (findKey != -1) {
-            int lastKey = sortedAppMaps.lastKey();
-            for (int i = findKey + 1; i <= lastKey + 1; i++) {
-                if (sortedAppMaps.get(i) == null) {
-                    LogUtils.d(TAG, "insertCloneApp, find empty grid:[" + i + "] ");
-                    sortedAppMaps.put(i, cloneApp);
-                    return;
-                }
-            }
-        }
-    }
-
-    private String apps2String(final List<AppInfo> apps) {
-        TreeMap<Integer, AppInfo> maps = new TreeMap<>();
-        for (int i = 0; i < apps.size(); i++) {
-            maps.put(i, apps.get(i));
-        }
-        return maps2String(maps);
-    }
-
-    private String maps2String(TreeMap<Integer, AppInfo> maps) {
-        StringBuilder sb = new StringBuilder();
-        for (Map.Entry<Integer, AppInfo> infoEntry : maps.entrySet()) {
-            AppInfo app = infoEntry.getValue();
-            sb.append("\n[ ")
-                    .append(infoEntry.getKey())
-                    .append(" -> ").append(app.toComponentKey().toString())
-                    .append(" ]");
-        }
-        return sb.toString();
+        mOrder.apply(apps);
     }
 
 }
@@ -117,6 +117,15 @@ public abstract class CyclePagedView<T extends View & PageIndicator> extends Pag
         return enableLoop() ? getChildCount() : super.getMaxPageIndex();
     }
 
+    /**
+     * Returns the number of pages to scroll through to go from {@param fromPage} to
+     * {@param toPage}, which can go past the last page back to the first when the pages loop.
+     */
+    public int getPageDistance(int fromPage, int toPage) {
+        int distance = Math.abs(toPage - fromPage);
+        return enableLoop() ? Math.min(distance, getPageCount() - distance) : distance;
+    }
+
     public boolean enableLoop() {
         boolean multPage = false;
         // Can't circular slide when there is only one page
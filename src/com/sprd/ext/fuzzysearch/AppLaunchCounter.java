@@ -0,0 +1,55 @@
+package com.sprd.ext.fuzzysearch;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.UserHandle;
+
+import com.android.launcher3.LauncherFiles;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.MainThreadInitializedObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent count of the app launches from the launcher, used to rank the search results.
+ * Counts are keyed by {@link ComponentKey#toString()} and can be read from any thread.
+ */
+public class AppLaunchCounter {
+
+    public static final MainThreadInitializedObject<AppLaunchCounter> INSTANCE =
+            new MainThreadInitializedObject<>(AppLaunchCounter::new);
+
+    private final SharedPreferences mPrefs;
+    private final ConcurrentHashMap<String, Integer> mCounts = new ConcurrentHashMap<>();
+
+    private AppLaunchCounter(Context context) {
+        mPrefs = context.getSharedPreferences(
+                LauncherFiles.APP_LAUNCH_COUNT_PREFERENCES_KEY, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof Integer) {
+                mCounts.put(entry.getKey(), (Integer) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Called on the main thread when an app is launched.
+     */
+    public void onAppLaunched(ComponentName componentName, UserHandle user) {
+        String key = new ComponentKey(componentName, user).toString();
+        Integer count = mCounts.get(key);
+        int newCount = count == null ? 1 : count + 1;
+        mCounts.put(key, newCount);
+        mPrefs.edit().putInt(key, newCount).apply();
+    }
+
+    /**
+     * Returns the launch count of the app with the provided {@link ComponentKey#toString()}.
+     */
+    public int getLaunchCount(String componentKey) {
+        Integer count = mCounts.get(componentKey);
+        return count == null ? 0 : count;
+    }
+}
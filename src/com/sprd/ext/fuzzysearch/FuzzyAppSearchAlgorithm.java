@@ -0,0 +1,109 @@
+package com.sprd.ext.fuzzysearch;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.allapps.search.AllAppsSearchBarController;
+import com.android.launcher3.allapps.search.SearchAlgorithm;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.UiThreadHelper;
+import com.sprd.ext.fuzzysearch.FuzzySearchIndex.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typo tolerant search, backed by a {@link FuzzySearchIndex} built and queried on a background
+ * thread. Each query gets a time budget per slice; when it is exceeded, the results found so far
+ * are delivered and the query goes on in the next slice, so that newer queries and cancellation
+ * are never blocked behind a slow query.
+ */
+public class FuzzyAppSearchAlgorithm implements SearchAlgorithm {
+
+    // Time spent on a query before delivering partial results
+    private static final long TIME_BUDGET_MS = 8;
+
+    private final List<AppInfo> mApps;
+    private final Handler mResultHandler;
+    private final Handler mWorkerHandler;
+
+    // Only accessed on the worker thread
+    private final FuzzySearchIndex mIndex;
+
+    // Incremented for every new request, any result for an older request is dropped.
+    private volatile int mRequestId;
+
+    public FuzzyAppSearchAlgorithm(Context context, List<AppInfo> apps) {
+        mApps = apps;
+        mIndex = new FuzzySearchIndex(AppLaunchCounter.INSTANCE.get(context)::getLaunchCount);
+        mResultHandler = new Handler();
+        mWorkerHandler = new Handler(UiThreadHelper.getBackgroundLooper());
+        onAppsUpdated();
+    }
+
+    @Override
+    public void onAppsUpdated() {
+        // Take a snapshot of the apps as the list is only accessed on the main thread.
+        int count = mApps.size();
+        ArrayList<ComponentKey> keys = new ArrayList<>(count);
+        ArrayList<String> titles = new ArrayList<>(count);
+        ArrayList<String> searchKeys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AppInfo info = mApps.get(i);
+            keys.add(info.toComponentKey());
+            titles.add(info.title.toString());
+            searchKeys.add(info.searchKeys);
+        }
+        mWorkerHandler.post(() -> mIndex.update(keys, titles, searchKeys));
+    }
+
+    @Override
+    public void cancel(boolean interruptActiveRequests) {
+        if (interruptActiveRequests) {
+            mRequestId++;
+            mResultHandler.removeCallbacksAndMessages(null);
+        }
+    }
+
+    /**
+     * Matching is always typo tolerant, at any position of the title.
+     */
+    @Override
+    public void setFuzzySearchEnable(boolean isFuzzySearch) { }
+
+    @Override
+    public void doSearch(final String query,
+            final AllAppsSearchBarController.Callbacks callback) {
+        final int requestId = ++mRequestId;
+        mWorkerHandler.post(() -> {
+            if (requestId == mRequestId) {
+                processQuery(mIndex.newQuery(query), requestId, callback);
+            }
+        });
+    }
+
+    private void processQuery(Query query, int requestId,
+            AllAppsSearchBarController.Callbacks callback) {
+        if (requestId != mRequestId) {
+            // A newer query has been posted, or this one was cancelled
+            return;
+        }
+        boolean complete = query.process(SystemClock.uptimeMillis() + TIME_BUDGET_MS);
+        // Partial results are only delivered once there is something to show, to avoid flashing
+        // the empty search state.
+        if (complete || query.hasResults()) {
+            ArrayList<ComponentKey> results = query.getResults();
+            mResultHandler.post(() -> {
+                if (requestId == mRequestId) {
+                    callback.onSearchResult(query.getText(), results);
+                }
+            });
+        }
+        if (!complete) {
+            // Continue after any message posted meanwhile, like a newer query
+            mWorkerHandler.post(() -> processQuery(query, requestId, callback));
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package com.sprd.ext.fuzzysearch;
+
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import com.android.launcher3.allapps.search.SearchKeyGenerator;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.IntArray;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bigram index over app titles, used for typo tolerant search. Titles sharing enough bigrams with
+ * the query are scored against it, and the matches are ranked by match quality and then by
+ * launch count.
+ *
+ * This class is not thread safe, it is expected to be used from a single background thread.
+ */
+public class FuzzySearchIndex {
+
+    // Matches are ranked in this order
+    static final int MATCH_WORD_PREFIX = 0;
+    static final int MATCH_SUBSTRING = 1;
+    static final int MATCH_FUZZY = 2;
+
+    // One typo is allowed for every this many characters of the query
+    private static final int CHARS_PER_TYPO = 4;
+    // Number of candidates scored between two checks of the deadline
+    private static final int DEADLINE_CHECK_INTERVAL = 16;
+
+    private final ToIntFunction<String> mLaunchCountProvider;
+
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private final HashMap<ComponentKey, Entry> mEntryMap = new HashMap<>();
+
+    // Character -> sorted indices of the entries containing it
+    private final SparseArray<IntArray> mUnigrams = new SparseArray<>();
+    // Pair of consecutive characters -> sorted indices of the entries containing it
+    private final SparseArray<IntArray> mBigrams = new SparseArray<>();
+
+    // Incremented on every update, as it invalidates the entry indices of running queries
+    private int mGeneration;
+
+    // Buffers reused across queries
+    private int[] mGramCounts = new int[0];
+    private int[] mDistanceRow = new int[0];
+
+    /**
+     * @param launchCountProvider returns the launch count of an app from its
+     *                            {@link ComponentKey#toString()}
+     */
+    public FuzzySearchIndex(ToIntFunction<String> launchCountProvider) {
+        mLaunchCountProvider = launchCountProvider;
+    }
+
+    /**
+     * Normalized title and search keys of an app.
+     */
+    static class Entry {
+        final ComponentKey key;
+        final String launchKey;
+        final String title;
+        final String searchKeys;
+        // The title followed by the search keys
+        final Text[] texts;
+
+        Entry(ComponentKey key, String title, String searchKeys) {
+            this.key = key;
+            this.launchKey = key.toString();
+            this.title = title;
+            this.searchKeys = searchKeys;
+
+            String[] keys = SearchKeyGenerator.split(searchKeys);
+            texts = new Text[keys.length + 1];
+            texts[0] = new Text(title);
+            for (int i = 0; i < keys.length; i++) {
+                texts[i + 1] = new Text(keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Normalized searchable text.
+     */
+    static class Text {
+        // Lower case text without accents
+        final char[] chars;
+        // Whether a word starts at the corresponding position of chars
+        final boolean[] wordStarts;
+
+        Text(String text) {
+            String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+            char[] chars = new char[decomposed.length()];
+            boolean[] wordStarts = new boolean[decomposed.length()];
+            int length = 0;
+            char prev = ' ';
+            for (int i = 0; i < decomposed.length(); i++) {
+                char c = decomposed.charAt(i);
+                if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                    continue;
+                }
+                wordStarts[length] = isWordStart(prev, c);
+                chars[length] = Character.toLowerCase(c);
+                length++;
+                prev = c;
+            }
+            this.chars = length == chars.length ? chars : Arrays.copyOf(chars, length);
+            this.wordStarts = length == wordStarts.length ? wordStarts
+                    : Arrays.copyOf(wordStarts, length);
+        }
+    }
+
+    private static boolean isWordStart(char prev, char c) {
+        if (!Character.isLetterOrDigit(prev)) {
+            return true;
+        }
+        if (Character.isDigit(prev) != Character.isDigit(c)) {
+            return true;
+        }
+        return Character.isUpperCase(c) && Character.isLowerCase(prev);
+    }
+
+    /**
+     * A match of a query against an app title.
+     */
+    static class Match implements Comparable<Match> {
+        final int index;
+        final int type;
+        final int distance;
+        final int launchCount;
+
+        Match(int index, int type, int distance, int launchCount) {
+            this.index = index;
+            this.type = type;
+            this.distance = distance;
+            this.launchCount = launchCount;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            if (type != other.type) {
+                return Integer.compare(type, other.type);
+            }
+            if (distance != other.distance) {
+                return Integer.compare(distance, other.distance);
+            }
+            if (launchCount != other.launchCount) {
+                return Integer.compare(other.launchCount, launchCount);
+            }
+            // Keep the order of the app list
+            return Integer.compare(index, other.index);
+        }
+    }
+
+    /**
+     * Updates the index to the provided apps, in the same order. Entries of apps whose title and
+     * search keys have not changed are reused.
+     * @param searchKeys the {@link SearchKeyGenerator} keys of each app, or null if none have any
+     */
+    public void update(List<ComponentKey> keys, List<String> titles, List<String> searchKeys) {
+        mGeneration++;
+        HashMap<ComponentKey, Entry> oldEntries = new HashMap<>(mEntryMap);
+        mEntries.clear();
+        mEntryMap.clear();
+        for (int i = 0; i < keys.size(); i++) {
+            ComponentKey key = keys.get(i);
+            String title = titles.get(i);
+            String appSearchKeys = searchKeys == null ? null : searchKeys.get(i);
+            Entry entry = oldEntries.get(key);
+            if (entry == null || !entry.title.equals(title)
+                    || !Objects.equals(entry.searchKeys, appSearchKeys)) {
+                entry = new Entry(key, title, appSearchKeys);
+            }
+            mEntries.add(entry);
+            mEntryMap.put(key, entry);
+        }
+
+        mUnigrams.clear();
+        mBigrams.clear();
+        for (int i = 0; i < mEntries.size(); i++) {
+            for (Text text : mEntries.get(i).texts) {
+                char[] chars = text.chars;
+                for (int j = 0; j < chars.length; j++) {
+                    addToPostings(mUnigrams, chars[j], i);
+                    if (j > 0) {
+                        addToPostings(mBigrams, getBigram(chars[j - 1], chars[j]), i);
+                    }
+                }
+            }
+        }
+        if (mGramCounts.length < mEntries.size()) {
+            mGramCounts = new int[mEntries.size()];
+        }
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    private static void addToPostings(SparseArray<IntArray> postings, int gram, int index) {
+        IntArray list = postings.get(gram);
+        if (list == null) {
+            list = new IntArray();
+            postings.put(gram, list);
+        }
+        // Entries are added in order, so duplicates can only be at the end
+        if (list.isEmpty() || list.get(list.size() - 1) != index) {
+            list.add(index);
+        }
+    }
+
+    private static int getBigram(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    /**
+     * Creates a new query, which is processed by calling {@link Query#process(long)}.
+     */
+    public Query newQuery(String query) {
+        return new Query(query);
+    }
+
+    /**
+     * A query on the index, which can be processed over multiple time slices.
+     */
+    public class Query {
+
+        private final String mText;
+        private final char[] mChars;
+        private final int mMaxTypos;
+
+        private final IntArray mCandidates = new IntArray();
+        private final ArrayList<Match> mMatches = new ArrayList<>();
+        private int mNextCandidate;
+        private int mQueryGeneration = -1;
+
+        private Query(String text) {
+            mText = text;
+            String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+            StringBuilder sb = new StringBuilder(decomposed.length());
+            for (int i = 0; i < decomposed.length(); i++) {
+                char c = decomposed.charAt(i);
+                if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                    sb.append(Character.toLowerCase(c));
+                }
+            }
+            mChars = sb.toString().toCharArray();
+            mMaxTypos = mChars.length / CHARS_PER_TYPO;
+        }
+
+        public String getText() {
+            return mText;
+        }
+
+        /**
+         * Scores the candidates until all of them are done or {@param deadlineMillis}, in
+         * {@link SystemClock#uptimeMillis()} time base, has passed.
+         * @return true if the query is complete
+         */
+        public boolean process(long deadlineMillis) {
+            if (mQueryGeneration != mGeneration) {
+                // The index has changed, start over
+                mQueryGeneration = mGeneration;
+                mMatches.clear();
+                mNextCandidate = 0;
+                findCandidates(mChars, mMaxTypos, mCandidates);
+            }
+
+            int count = mCandidates.size();
+            while (mNextCandidate < count) {
+                int end = Math.min(count, mNextCandidate + DEADLINE_CHECK_INTERVAL);
+                for (; mNextCandidate < end; mNextCandidate++) {
+                    Match match = score(mCandidates.get(mNextCandidate), mChars, mMaxTypos);
+                    if (match != null) {
+                        mMatches.add(match);
+                    }
+                }
+                if (mNextCandidate < count && SystemClock.uptimeMillis() >= deadlineMillis) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean isComplete() {
+            return mQueryGeneration == mGeneration && mNextCandidate >= mCandidates.size();
+        }
+
+        public boolean hasResults() {
+            return !mMatches.isEmpty();
+        }
+
+        /**
+         * Returns the ranked keys of the apps matched so far.
+         */
+        public ArrayList<ComponentKey> getResults() {
+            Collections.sort(mMatches);
+            ArrayList<ComponentKey> results = new ArrayList<>(mMatches.size());
+            for (Match match : mMatches) {
+                results.add(mEntries.get(match.index).key);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Adds to {@param out} the indices of the entries which can match {@param query} with at
+     * most {@param maxTypos} edits.
+     */
+    private void findCandidates(char[] query, int maxTypos, IntArray out) {
+        out.clear();
+        if (query.length == 0) {
+            return;
+        }
+        if (query.length == 1) {
+            IntArray list = mUnigrams.get(query[0]);
+            if (list != null) {
+                out.addAll(list);
+            }
+            return;
+        }
+
+        // Every edit removes at most two of the bigrams of the query
+        IntArray grams = new IntArray(query.length - 1);
+        for (int i = 1; i < query.length; i++) {
+            int gram = getBigram(query[i - 1], query[i]);
+            if (!grams.contains(gram)) {
+                grams.add(gram);
+            }
+        }
+        int threshold = grams.size() - 2 * maxTypos;
+        if (threshold <= 0) {
+            for (int i = 0; i < mEntries.size(); i++) {
+                out.add(i);
+            }
+            return;
+        }
+
+        IntArray touched = new IntArray();
+        for (int i = 0; i < grams.size(); i++) {
+            IntArray list = mBigrams.get(grams.get(i));
+            if (list == null) {
+                continue;
+            }
+            for (int j = 0; j < list.size(); j++) {
+                int index = list.get(j);
+                if (mGramCounts[index]++ == 0) {
+                    touched.add(index);
+                }
+            }
+        }
+        for (int i = 0; i < touched.size(); i++) {
+            int index = touched.get(i);
+            if (mGramCounts[index] >= threshold) {
+                out.add(index);
+            }
+            mGramCounts[index] = 0;
+        }
+    }
+
+    /**
+     * Returns the match of {@param query} against the entry at {@param index}, or null if it
+     * needs more than {@param maxTypos} edits.
+     */
+    private Match score(int index, char[] query, int maxTypos) {
+        Entry entry = mEntries.get(index);
+        int type = -1;
+        for (Text text : entry.texts) {
+            int end = text.chars.length - query.length;
+            for (int i = 0; i <= end; i++) {
+                if (regionMatches(text.chars, i, query)) {
+                    if (text.wordStarts[i]) {
+                        type = MATCH_WORD_PREFIX;
+                        break;
+                    }
+                    type = MATCH_SUBSTRING;
+                }
+            }
+            if (type == MATCH_WORD_PREFIX) {
+                break;
+            }
+        }
+
+        int distance = 0;
+        if (type < 0) {
+            if (maxTypos == 0) {
+                return null;
+            }
+            distance = Integer.MAX_VALUE;
+            for (Text text : entry.texts) {
+                distance = Math.min(distance, getSubstringDistance(text.chars, query));
+            }
+            if (distance > maxTypos) {
+                return null;
+            }
+            type = MATCH_FUZZY;
+        }
+        int launchCount = mLaunchCountProvider == null
+                ? 0 : mLaunchCountProvider.applyAsInt(entry.launchKey);
+        return new Match(index, type, distance, launchCount);
+    }
+
+    private static boolean regionMatches(char[] title, int start, char[] query) {
+        for (int j = 0; j < query.length; j++) {
+            if (title[start + j] != query[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the minimum edit distance between {@param query} and any substring of
+     * {@param title}.
+     */
+    private int getSubstringDistance(char[] title, char[] query) {
+        int m = query.length;
+        if (mDistanceRow.length < m + 1) {
+            mDistanceRow = new int[m + 1];
+        }
+        int[] row = mDistanceRow;
+        for (int j = 0; j <= m; j++) {
+            row[j] = j;
+        }
+        int best = row[m];
+        for (int i = 0; i < title.length; i++) {
+            // A match can start at any position of the title, so the first column is always 0
+            int diagonal = 0;
+            row[0] = 0;
+            for (int j = 1; j <= m; j++) {
+                int above = row[j];
+                int cost = title[i] == query[j - 1] ? 0 : 1;
+                row[j] = Math.min(Math.min(above + 1, row[j - 1] + 1), diagonal + cost);
+                diagonal = above;
+            }
+            best = Math.min(best, row[m]);
+        }
+        return best;
+    }
+}
@@ -8,6 +8,7 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Process;
 import android.os.UserHandle;
+import android.text.TextUtils;
 import android.util.Log;
 
 import com.android.launcher3.AppFilter;
@@ -31,8 +32,9 @@ import com.android.launcher3.widget.WidgetListRowEntry;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -52,6 +54,21 @@ public class WidgetsModel {
     /* Map of widgets and shortcuts that are tracked per package. */
     private final MultiHashMap<PackageItemInfo, WidgetItem> mWidgetsList = new MultiHashMap<>();
 
+    /* The keys of mWidgetsList by package name. */
+    private final HashMap<String, PackageItemInfo> mPackageItems = new HashMap<>();
+
+    /**
+     * The rows last returned by {@link #getWidgetsList}, by package name. A row is dropped when
+     * its package changes, the other ones are returned again as is, so that the UI only rebinds
+     * the rows which changed.
+     */
+    private final HashMap<String, WidgetListRowEntry> mRows = new HashMap<>();
+    // Locale of the section names of mRows
+    private Locale mRowsLocale;
+
+    // Whether the widgets changed since the last call to getWidgetsList
+    private boolean mHasChanges;
+
     private AppFilter mAppFilter;
 
     /**
@@ -63,20 +80,41 @@ public class WidgetsModel {
      * @see com.android.launcher3.widget.WidgetsListAdapter#setWidgets(ArrayList)
      */
     public synchronized ArrayList<WidgetListRowEntry> getWidgetsList(Context context) {
-        ArrayList<WidgetListRowEntry> result = new ArrayList<>();
-        AlphabeticIndexCompat indexer = new AlphabeticIndexCompat(context);
+        ArrayList<WidgetListRowEntry> result = new ArrayList<>(mWidgetsList.size());
+        AlphabeticIndexCompat indexer = null;
+
+        Locale locale = context.getResources().getConfiguration().getLocales().get(0);
+        if (!locale.equals(mRowsLocale)) {
+            mRows.clear();
+            mRowsLocale = locale;
+        }
 
-        WidgetItemComparator widgetComparator = new WidgetItemComparator();
         for (Map.Entry<PackageItemInfo, ArrayList<WidgetItem>> entry : mWidgetsList.entrySet()) {
-            WidgetListRowEntry row = new WidgetListRowEntry(entry.getKey(), entry.getValue());
-            row.titleSectionName = (row.pkgItem.title == null) ? "" :
-                    indexer.computeSectionName(row.pkgItem.title);
-            Collections.sort(row.widgets, widgetComparator);
+            PackageItemInfo pkgItem = entry.getKey();
+            WidgetListRowEntry row = mRows.get(pkgItem.packageName);
+            if (row == null) {
+                if (indexer == null) {
+                    indexer = new AlphabeticIndexCompat(context);
+                }
+                // The UI keeps a copy, as the model list is updated on the worker thread
+                row = new WidgetListRowEntry(pkgItem, new ArrayList<>(entry.getValue()));
+                row.titleSectionName = (row.pkgItem.title == null) ? "" :
+                        indexer.computeSectionName(row.pkgItem.title);
+                mRows.put(pkgItem.packageName, row);
+            }
             result.add(row);
         }
+        mHasChanges = false;
         return result;
     }
 
+    /**
+     * Returns whether the widgets changed since the last call to {@link #getWidgetsList}.
+     */
+    public synchronized boolean hasChanges() {
+        return mHasChanges;
+    }
+
     /**
      * @param packageUser If null, all widgets and shortcuts are updated and returned, otherwise
      *                    only widgets and shortcuts associated with the package/user are.
@@ -121,6 +159,11 @@ public class WidgetsModel {
         }
 
         app.getWidgetCache().removeObsoletePreviews(widgetsAndShortcuts, packageUser);
+        if (packageUser != null) {
+            // Widgets of a package which was just installed or updated, generate their previews
+            // now rather than when the widgets are first shown
+            app.getWidgetCache().generatePreviews(widgetsAndShortcuts);
+        }
         return updatedItems;
     }
 
@@ -130,41 +173,27 @@ public class WidgetsModel {
             Log.d(TAG, "addWidgetsAndShortcuts, widgetsShortcuts#=" + rawWidgetsShortcuts.size());
         }
 
-        // Temporary list for {@link PackageItemInfos} to avoid having to go through
-        // {@link mPackageItemInfos} to locate the key to be used for {@link #mWidgetsList}
-        HashMap<String, PackageItemInfo> tmpPackageItemInfos = new HashMap<>();
+        InvariantDeviceProfile idp = app.getInvariantDeviceProfile();
+        UserHandle myUser = Process.myUserHandle();
 
-        // clear the lists.
-        if (packageUser == null) {
-            mWidgetsList.clear();
-        } else {
-            // Only clear the widgets for the given package/user.
-            PackageItemInfo packageItem = null;
-            for (PackageItemInfo item : mWidgetsList.keySet()) {
-                if (item.packageName.equals(packageUser.mPackageName)) {
-                    packageItem = item;
-                    break;
-                }
-            }
+        // The new widgets and shortcuts of the updated packages, and the user of their entry
+        MultiHashMap<String, WidgetItem> newWidgets = new MultiHashMap<>();
+        HashMap<String, UserHandle> newUsers = new HashMap<>();
+
+        if (packageUser != null) {
+            // Only update the widgets for the given package/user, keep those of the other users.
+            PackageItemInfo packageItem = mPackageItems.get(packageUser.mPackageName);
             if (packageItem != null) {
-                // We want to preserve the user that was on the packageItem previously,
-                // so add it to tmpPackageItemInfos here to avoid creating a new entry.
-                tmpPackageItemInfos.put(packageItem.packageName, packageItem);
-
-                Iterator<WidgetItem> widgetItemIterator = mWidgetsList.get(packageItem).iterator();
-                while (widgetItemIterator.hasNext()) {
-                    WidgetItem nextWidget = widgetItemIterator.next();
-                    if (nextWidget.componentName.getPackageName().equals(packageUser.mPackageName)
-                            && nextWidget.user.equals(packageUser.mUser)) {
-                        widgetItemIterator.remove();
+                // We want to preserve the user that was on the packageItem previously.
+                newUsers.put(packageItem.packageName, packageItem.user);
+                for (WidgetItem item : mWidgetsList.get(packageItem)) {
+                    if (!item.user.equals(packageUser.mUser)) {
+                        newWidgets.addToList(packageItem.packageName, item);
                     }
                 }
             }
         }
 
-        InvariantDeviceProfile idp = app.getInvariantDeviceProfile();
-        UserHandle myUser = Process.myUserHandle();
-
         // add and update.
         for (WidgetItem item : rawWidgetsShortcuts) {
             if (item.widgetInfo != null) {
@@ -198,29 +227,107 @@ public class WidgetsModel {
             }
 
             String packageName = item.componentName.getPackageName();
-            PackageItemInfo pInfo = tmpPackageItemInfos.get(packageName);
-            if (pInfo == null) {
-                pInfo = new PackageItemInfo(packageName);
-                pInfo.user = item.user;
-                tmpPackageItemInfos.put(packageName,  pInfo);
-            } else if (!myUser.equals(pInfo.user)) {
+            UserHandle user = newUsers.get(packageName);
+            if (user == null || !myUser.equals(user)) {
                 // Keep updating the user, until we get the primary user.
-                pInfo.user = item.user;
+                newUsers.put(packageName, item.user);
             }
-            mWidgetsList.addToList(pInfo, item);
+            newWidgets.addToList(packageName, item);
+        }
+
+        HashSet<String> updatedPackages = new HashSet<>(newWidgets.keySet());
+        if (packageUser == null) {
+            updatedPackages.addAll(mPackageItems.keySet());
+        } else {
+            updatedPackages.add(packageUser.mPackageName);
         }
 
         // Update each package entry
         IconCache iconCache = app.getIconCache();
-        for (PackageItemInfo p : tmpPackageItemInfos.values()) {
-            iconCache.getTitleAndIconForApp(p, true /* userLowResIcon */);
+        WidgetItemComparator widgetComparator = new WidgetItemComparator();
+        for (String packageName : updatedPackages) {
+            PackageItemInfo oldItem = mPackageItems.get(packageName);
+            ArrayList<WidgetItem> widgets = newWidgets.get(packageName);
+            if (widgets == null) {
+                if (oldItem != null) {
+                    removePackageItem(oldItem);
+                }
+                continue;
+            }
+            Collections.sort(widgets, widgetComparator);
+
+            UserHandle user = newUsers.get(packageName);
+            PackageItemInfo pInfo = new PackageItemInfo(packageName);
+            pInfo.user = user;
+            iconCache.getTitleAndIconForApp(pInfo, true /* userLowResIcon */);
+
+            // On a full update, keep the entries which would be displayed the same way, along with
+            // their row. The label or icon of the package can still have changed, eg. after a
+            // locale change, so they are compared as well.
+            if (packageUser == null && oldItem != null && oldItem.user.equals(user)
+                    && TextUtils.equals(oldItem.title, pInfo.title)
+                    && isSameIcon(oldItem, pInfo)
+                    && !iconCache.isDefaultIcon(oldItem.iconBitmap, oldItem.user)
+                    && isSameWidgets(mWidgetsList.get(oldItem), widgets)) {
+                continue;
+            }
+
+            if (oldItem != null) {
+                removePackageItem(oldItem);
+            }
+            mWidgetsList.put(pInfo, widgets);
+            mPackageItems.put(packageName, pInfo);
+            mHasChanges = true;
         }
     }
 
-    public void onPackageIconsUpdated(Set<String> packageNames, UserHandle user,
+    private void removePackageItem(PackageItemInfo packageItem) {
+        mWidgetsList.remove(packageItem);
+        mPackageItems.remove(packageItem.packageName);
+        mRows.remove(packageItem.packageName);
+        mHasChanges = true;
+    }
+
+    /**
+     * Returns whether the icons would be displayed the same way. The icon cache can return a new
+     * bitmap for the same icon, eg. after its memory cache was cleared, so the pixels are compared.
+     */
+    private static boolean isSameIcon(PackageItemInfo oldItem, PackageItemInfo newItem) {
+        if (oldItem.iconBitmap == newItem.iconBitmap) {
+            return true;
+        }
+        return oldItem.iconBitmap != null && newItem.iconBitmap != null
+                && oldItem.iconColor == newItem.iconColor
+                && oldItem.iconBitmap.sameAs(newItem.iconBitmap);
+    }
+
+    /**
+     * Returns whether the sorted lists of widgets would be displayed the same way.
+     */
+    private static boolean isSameWidgets(List<WidgetItem> oldWidgets, List<WidgetItem> newWidgets) {
+        if (oldWidgets.size() != newWidgets.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldWidgets.size(); i++) {
+            WidgetItem oldItem = oldWidgets.get(i);
+            WidgetItem newItem = newWidgets.get(i);
+            if (!oldItem.equals(newItem) || oldItem.spanX != newItem.spanX
+                    || oldItem.spanY != newItem.spanY
+                    || !TextUtils.equals(oldItem.label, newItem.label)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void onPackageIconsUpdated(Set<String> packageNames, UserHandle user,
             LauncherAppState app) {
+        WidgetItemComparator widgetComparator = new WidgetItemComparator();
         for (Entry<PackageItemInfo, ArrayList<WidgetItem>> entry : mWidgetsList.entrySet()) {
             if (packageNames.contains(entry.getKey().packageName)) {
+                // The labels may have changed as well
+                mRows.remove(entry.getKey().packageName);
+                mHasChanges = true;
                 ArrayList<WidgetItem> items = entry.getValue();
                 int count = items.size();
                 for (int i = 0; i < count; i++) {
@@ -235,6 +342,7 @@ public class WidgetsModel {
                         }
                     }
                 }
+                Collections.sort(items, widgetComparator);
             }
         }
     }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.os.Process;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.allapps.AlphabeticalAppsList.AdapterItem;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+/**
+ * Unit tests for {@link AdapterItemDiffCallback}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class AdapterItemDiffCallbackTest {
+
+    @Test
+    public void testSameApps_noUpdates() {
+        List<AdapterItem> oldItems = getItems(app("a"), app("b"), app("c"));
+        // New items for the same AppInfos, as created when the list is refilled
+        List<AdapterItem> newItems = getItems(
+                oldItems.get(0).appInfo, oldItems.get(1).appInfo, oldItems.get(2).appInfo);
+
+        AdapterItemDiffCallback callback = new AdapterItemDiffCallback(oldItems, newItems);
+        assertEquals(0, callback.estimateEditCount());
+        assertEquals(Arrays.asList(), getUpdates(callback));
+    }
+
+    @Test
+    public void testAppInstalled_singleInsert() {
+        List<AdapterItem> oldItems = getItems(app("a"), app("c"));
+        List<AdapterItem> newItems = getItems(
+                oldItems.get(0).appInfo, app("b"), oldItems.get(1).appInfo);
+
+        AdapterItemDiffCallback callback = new AdapterItemDiffCallback(oldItems, newItems);
+        assertEquals(1, callback.estimateEditCount());
+        assertEquals(Arrays.asList("insert 1 1"), getUpdates(callback));
+    }
+
+    @Test
+    public void testAppUpdated_singleChange() {
+        List<AdapterItem> oldItems = getItems(app("a"), app("b"), app("c"));
+        List<AdapterItem> newItems = getItems(
+                oldItems.get(0).appInfo, app("b"), oldItems.get(2).appInfo);
+
+        AdapterItemDiffCallback callback = new AdapterItemDiffCallback(oldItems, newItems);
+        assertTrue(callback.areItemsTheSame(1, 1));
+        assertFalse(callback.areContentsTheSame(1, 1));
+        assertEquals(Arrays.asList("change 1 1"), getUpdates(callback));
+    }
+
+    @Test
+    public void testSearchResults_alwaysRebindSearchItems() {
+        AppInfo a = app("a");
+        AppInfo b = app("b");
+        List<AdapterItem> oldItems = getItems(a, b);
+        oldItems.add(AdapterItem.asAllAppsDivider(2));
+        oldItems.add(AdapterItem.asMarketSearch(3));
+        List<AdapterItem> newItems = getItems(b);
+        newItems.add(AdapterItem.asAllAppsDivider(1));
+        newItems.add(AdapterItem.asMarketSearch(2));
+
+        AdapterItemDiffCallback callback = new AdapterItemDiffCallback(oldItems, newItems);
+        assertEquals(1, callback.estimateEditCount());
+        assertEquals(Arrays.asList("change 3 1", "remove 0 1"), getUpdates(callback));
+    }
+
+    @Test
+    public void testEstimateEditCount_countsMoves() {
+        AppInfo a = app("a");
+        AppInfo b = app("b");
+        AppInfo c = app("c");
+        AdapterItemDiffCallback callback =
+                new AdapterItemDiffCallback(getItems(a, b, c), getItems(c, a, b));
+        assertEquals(2, callback.estimateEditCount());
+    }
+
+    private static List<String> getUpdates(AdapterItemDiffCallback callback) {
+        ArrayList<String> updates = new ArrayList<>();
+        DiffUtil.calculateDiff(callback, false).dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                updates.add("insert " + position + " " + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updates.add("remove " + position + " " + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updates.add("move " + fromPosition + " " + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                updates.add("change " + position + " " + count);
+            }
+        });
+        return updates;
+    }
+
+    private static List<AdapterItem> getItems(AppInfo... apps) {
+        ArrayList<AdapterItem> items = new ArrayList<>();
+        for (AppInfo info : apps) {
+            items.add(AdapterItem.asApp(items.size(), "", info, items.size()));
+        }
+        return items;
+    }
+
+    private static AppInfo app(String name) {
+        AppInfo info = new AppInfo();
+        info.title = name;
+        info.componentName = new ComponentName("Test", name);
+        info.user = Process.myUserHandle();
+        return info;
+    }
+}
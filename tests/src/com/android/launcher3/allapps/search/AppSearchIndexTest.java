@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.icu.text.RuleBasedCollator;
+import android.os.Process;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.IntArray;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+/**
+ * Unit tests for {@link AppSearchIndex}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class AppSearchIndexTest {
+    private static final DefaultAppSearchAlgorithm.StringMatcher MATCHER =
+            DefaultAppSearchAlgorithm.StringMatcher.getInstance();
+
+    private static final String[] TITLES = {
+            "white cow", "whiteCow", "whiteCOW", "whitecowCOW", "white2cow", "whitecow",
+            "whitEcow", "whitecowCow", "whitecow cow", "whitecowcow", "whit ecowcow",
+            "cats&dogs", "cats&Dogs", "2+43", "Q", "  Q", "elephant", "电子邮件", "Bot", "bot",
+            "다운로드", "드라이브", "다운로드 드라이브", "운로 드라이브", "로드라이브", "abc", "Alpha",
+            "Éclair", "ÅngStröm", "Straße", "Ærø", "ﬁle", "Ｆull", "", "-"};
+
+    private static final String[] QUERIES = {
+            "cow", "dog", "&", "43", "3", "q", "e", "电", "电子", "子", "邮件", "ba", "다", "드",
+            "ㄷ", "ㄷㄷ", "åbç", "ål", "åç", "ec", "é", "an", "str", "ss", "ae", "fi", "f", "2",
+            " ", "-", "+"};
+
+    @Test
+    public void testSearch_sameAsDefaultAlgorithm() {
+        AppSearchIndex index = new AppSearchIndex();
+        List<AppInfo> apps = getApps(TITLES);
+        updateIndex(index, apps);
+
+        for (String query : QUERIES) {
+            verifySearch(index, apps, query, false);
+            verifySearch(index, apps, query, true);
+        }
+    }
+
+    @Test
+    public void testUpdate_reflectsChangedApps() {
+        AppSearchIndex index = new AppSearchIndex();
+        updateIndex(index, getApps(TITLES));
+
+        List<AppInfo> apps = getApps("white cow", "Bot", "cats&dogs");
+        // Same component, new title
+        apps.get(1).title = "Dog";
+        updateIndex(index, apps);
+        assertEquals(apps.size(), index.size());
+
+        for (String query : QUERIES) {
+            verifySearch(index, apps, query, false);
+        }
+    }
+
+    @Test
+    public void testRefine_sameAsFullSearch() {
+        AppSearchIndex index = new AppSearchIndex();
+        updateIndex(index, getApps(TITLES));
+
+        String[] prefixes = {"w", "c", "d", "a", "e", "s", "f", "다", "电"};
+        for (String prefix : prefixes) {
+            for (boolean isFuzzySearch : new boolean[] {false, true}) {
+                IntArray candidates = new IntArray();
+                index.search(prefix, isFuzzySearch, MATCHER, candidates);
+                for (String query : QUERIES) {
+                    String extended = prefix + query;
+                    IntArray expected = new IntArray();
+                    index.search(extended, isFuzzySearch, MATCHER, expected);
+                    IntArray refined = new IntArray();
+                    index.refine(extended, isFuzzySearch, MATCHER, candidates, refined);
+                    assertEquals("Query: " + extended, expected, refined);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSearch_matchesSearchKeys() {
+        AppSearchIndex index = new AppSearchIndex();
+        List<AppInfo> apps = getApps("微信", "QQ音乐", "Bot");
+        apps.get(0).searchKeys = "WeiXin\nwx";
+        apps.get(1).searchKeys = "QQ YinYue\nqq yy";
+        updateIndex(index, apps);
+
+        assertEquals(Arrays.asList(apps.get(0).toComponentKey()), search(index, "wx", false));
+        assertEquals(Arrays.asList(apps.get(0).toComponentKey()), search(index, "weixin", false));
+        assertEquals(Arrays.asList(apps.get(0).toComponentKey()), search(index, "xin", false));
+        assertEquals(Arrays.asList(apps.get(1).toComponentKey()), search(index, "yinyue", false));
+        assertEquals(Arrays.asList(apps.get(1).toComponentKey()), search(index, "yy", false));
+        assertEquals(Arrays.asList(apps.get(1).toComponentKey()), search(index, "音乐", true));
+        assertEquals(Arrays.asList(), search(index, "eix", false));
+        assertEquals(Arrays.asList(apps.get(0).toComponentKey()), search(index, "eix", true));
+
+        // Dropping the keys removes the pinyin matches
+        apps.get(0).searchKeys = null;
+        updateIndex(index, apps);
+        assertEquals(Arrays.asList(), search(index, "wx", false));
+    }
+
+    @Test
+    public void testSearch_tailoredCollator_sameAsDefaultAlgorithm() throws Exception {
+        // 'w' is only a secondary variant of 'v', so they are equal at primary strength
+        DefaultAppSearchAlgorithm.StringMatcher matcher = new DefaultAppSearchAlgorithm
+                .StringMatcher(new RuleBasedCollator("&v<<w<<<W"));
+
+        AppSearchIndex index = new AppSearchIndex();
+        List<AppInfo> apps = getApps("Väinö", "Wilma", "Vesi", "white cow", "Bot");
+        updateIndex(index, apps);
+
+        // Only the merged letters fall back to checking all the apps
+        assertFalse(index.isBucketed("v", matcher));
+        assertFalse(index.isBucketed("wä", matcher));
+        assertTrue(index.isBucketed("b", matcher));
+        assertTrue(index.isBucketed("cow", matcher));
+
+        for (String query : new String[] {"v", "w", "wä", "vi", "cow"}) {
+            verifySearch(index, apps, query, false, matcher);
+            verifySearch(index, apps, query, true, matcher);
+        }
+    }
+
+    @Test
+    public void testSearch_chineseCollator_usesBuckets() {
+        // The pinyin tailoring of zh does not merge any letters or digits
+        DefaultAppSearchAlgorithm.StringMatcher matcher =
+                new DefaultAppSearchAlgorithm.StringMatcher(Locale.SIMPLIFIED_CHINESE);
+
+        AppSearchIndex index = new AppSearchIndex();
+        List<AppInfo> apps = getApps("微信", "QQ音乐", "支付宝", "Bot", "Ümit", "2048");
+        apps.get(0).searchKeys = "WeiXin\nwx";
+        apps.get(1).searchKeys = "QQ YinYue\nqq yy";
+        apps.get(2).searchKeys = "ZhiFuBao\nzfb";
+        updateIndex(index, apps);
+
+        for (char c = 'a'; c <= 'z'; c++) {
+            assertTrue("Query: " + c, index.isBucketed(String.valueOf(c), matcher));
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            assertTrue("Query: " + c, index.isBucketed(String.valueOf(c), matcher));
+        }
+        assertTrue(index.isBucketed("ǚ", matcher));
+        assertFalse(index.isBucketed("微", matcher));
+
+        for (String query : new String[] {"w", "wx", "weixin", "xin", "yy", "yue", "zfb", "fu",
+                "b", "u", "ü", "20", "微", "音乐", "qq"}) {
+            verifySearch(index, apps, query, false, matcher);
+            verifySearch(index, apps, query, true, matcher);
+        }
+    }
+
+    private static ArrayList<ComponentKey> search(
+            AppSearchIndex index, String query, boolean isFuzzySearch) {
+        IntArray result = new IntArray();
+        index.search(query, isFuzzySearch, MATCHER, result);
+        return getKeys(index, result);
+    }
+
+    private void verifySearch(
+            AppSearchIndex index, List<AppInfo> apps, String query, boolean isFuzzySearch) {
+        verifySearch(index, apps, query, isFuzzySearch, MATCHER);
+    }
+
+    private void verifySearch(AppSearchIndex index, List<AppInfo> apps, String query,
+            boolean isFuzzySearch, DefaultAppSearchAlgorithm.StringMatcher matcher) {
+        ArrayList<ComponentKey> expected = new ArrayList<>();
+        for (AppInfo info : apps) {
+            if (DefaultAppSearchAlgorithm.matches(info, query, matcher, isFuzzySearch)) {
+                expected.add(info.toComponentKey());
+            }
+        }
+        IntArray result = new IntArray();
+        index.search(query, isFuzzySearch, matcher, result);
+        assertEquals("Query: " + query, expected, getKeys(index, result));
+    }
+
+    private static ArrayList<ComponentKey> getKeys(AppSearchIndex index, IntArray indices) {
+        ArrayList<ComponentKey> keys = new ArrayList<>();
+        for (int i = 0; i < indices.size(); i++) {
+            keys.add(index.getKey(indices.get(i)));
+        }
+        return keys;
+    }
+
+    private static void updateIndex(AppSearchIndex index, List<AppInfo> apps) {
+        ArrayList<ComponentKey> keys = new ArrayList<>();
+        ArrayList<String> titles = new ArrayList<>();
+        ArrayList<String> searchKeys = new ArrayList<>();
+        for (AppInfo info : apps) {
+            keys.add(info.toComponentKey());
+            titles.add(info.title.toString());
+            searchKeys.add(info.searchKeys);
+        }
+        index.update(keys, titles, searchKeys);
+    }
+
+    private static List<AppInfo> getApps(String... titles) {
+        ArrayList<AppInfo> apps = new ArrayList<>();
+        for (String title : Arrays.asList(titles)) {
+            AppInfo info = new AppInfo();
+            info.title = title;
+            info.componentName = new ComponentName("Test", title);
+            info.user = Process.myUserHandle();
+            apps.add(info);
+        }
+        return apps;
+    }
+}
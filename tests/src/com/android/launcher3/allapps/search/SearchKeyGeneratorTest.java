@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import com.android.launcher3.Utilities;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+/**
+ * Unit tests for {@link SearchKeyGenerator}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class SearchKeyGeneratorTest {
+
+    private SearchKeyGenerator mGenerator;
+
+    @Before
+    public void setup() {
+        // The transliterator is only available from Q
+        assumeTrue(Utilities.ATLEAST_Q);
+        mGenerator = new SearchKeyGenerator();
+    }
+
+    @Test
+    public void testGetSearchKeys_fullPinyinAndInitials() {
+        assertEquals("WeiXin\nwx", mGenerator.getSearchKeys("微信"));
+        assertEquals("ZhiFuBao\nzfb", mGenerator.getSearchKeys("支付宝"));
+    }
+
+    @Test
+    public void testGetSearchKeys_separatesOtherCharacters() {
+        assertEquals("QQ YinYue\nqq yy", mGenerator.getSearchKeys("QQ音乐"));
+        assertEquals("Google DiTu\ngoogle dt", mGenerator.getSearchKeys("Google 地图"));
+        assertEquals("DiTu Pro\ndt pro", mGenerator.getSearchKeys("地图  Pro"));
+    }
+
+    @Test
+    public void testGetSearchKeys_polyphoneUsesContext() {
+        // "乐" and "行" are read differently depending on the characters around them
+        assertEquals("YinYue\nyy", mGenerator.getSearchKeys("音乐"));
+        assertEquals("KuaiLe\nkl", mGenerator.getSearchKeys("快乐"));
+        assertEquals("ChongQingYinHang\ncqyh", mGenerator.getSearchKeys("重庆银行"));
+    }
+
+    @Test
+    public void testGetSearchKeys_noHan() {
+        assertNull(mGenerator.getSearchKeys("Bot"));
+        assertNull(mGenerator.getSearchKeys(""));
+        assertNull(mGenerator.getSearchKeys("다운로드"));
+    }
+
+    @Test
+    public void testSplit() {
+        assertArrayEquals(new String[] {"WeiXin", "wx"},
+                SearchKeyGenerator.split(mGenerator.getSearchKeys("微信")));
+        assertArrayEquals(new String[0], SearchKeyGenerator.split(null));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.android.launcher3.ui.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.appwidget.AppWidgetHost;
+import android.content.ContentResolver;
+import android.os.Bundle;
+import android.view.View;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.LauncherAppWidgetHost;
+import com.android.launcher3.LauncherAppWidgetInfo;
+import com.android.launcher3.LauncherAppWidgetProviderInfo;
+import com.android.launcher3.LauncherSettings;
+import com.android.launcher3.ShortcutAndWidgetContainer;
+import com.android.launcher3.Workspace;
+import com.android.launcher3.compat.AppWidgetManagerCompat;
+import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.ui.AbstractLauncherUiTest;
+import com.android.launcher3.ui.TestViewHelpers;
+import com.android.launcher3.util.ContentWriter;
+import com.android.launcher3.util.rule.ShellCommandRule;
+import com.android.launcher3.widget.LauncherAppWidgetHostView;
+import com.android.launcher3.widget.PendingAddWidgetInfo;
+import com.android.launcher3.widget.PlaceholderAppWidgetHostView;
+import com.android.launcher3.widget.WidgetHostViewLoader;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests that the widgets far from the current page are bound as placeholders, inflated when the
+ * user gets close to them and evicted again when the user moves away.
+ *
+ * Note running these tests will clear the workspace on the device.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class LazyWidgetInflationTest extends AbstractLauncherUiTest {
+
+    // One widget per page, so that the last page is far from the first one unless pages loop
+    private static final int PAGE_COUNT = 8;
+
+    @Rule
+    public ShellCommandRule mGrantWidgetRule = ShellCommandRule.grantWidgetBind();
+
+    private ContentResolver mResolver;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        Assume.assumeTrue(FeatureFlags.LAZY_WIDGET_INFLATION);
+
+        mResolver = mTargetContext.getContentResolver();
+        LauncherSettings.Settings.call(mResolver, LauncherSettings.Settings.METHOD_CREATE_EMPTY_DB);
+        LauncherSettings.Settings.call(mResolver, LauncherSettings.Settings.METHOD_CLEAR_EMPTY_DB_FLAG);
+
+        LauncherAppWidgetProviderInfo info = TestViewHelpers.findWidgetProvider(this, false);
+        for (int screenId = 0; screenId < PAGE_COUNT; screenId++) {
+            addWidget(info, screenId);
+        }
+        resetLoaderState();
+        mActivityMonitor.startLauncher();
+        waitForModelLoaded();
+    }
+
+    @Test
+    public void testBind_farWidgetsAreBoundAsPlaceholders() {
+        setCurrentPage(0);
+        boolean loop = getFromLauncher(l -> l.getWorkspace().enableLoop());
+
+        assertFalse(isPlaceholder(0));
+        assertFalse(isPlaceholder(1));
+        assertTrue(isPlaceholder(4));
+        // The last page is next to the first one when the pages loop
+        assertEquals(!loop, isPlaceholder(PAGE_COUNT - 1));
+    }
+
+    @Test
+    public void testScroll_inflatesCloseWidgetsAndEvictsFarOnes() {
+        setCurrentPage(0);
+        setCurrentPage(4);
+
+        assertFalse(isPlaceholder(3));
+        assertFalse(isPlaceholder(4));
+        assertFalse(isPlaceholder(5));
+        // Page 0 is 4 pages away either way, more than the eviction distance
+        assertTrue(isPlaceholder(0));
+    }
+
+    @Test
+    public void testPageDistance_wrapsWhenLooping() {
+        getFromLauncher(l -> {
+            Workspace workspace = l.getWorkspace();
+            int last = workspace.getPageCount() - 1;
+            assertEquals(2, workspace.getPageDistance(1, 3));
+            assertEquals(workspace.enableLoop() ? 1 : last, workspace.getPageDistance(0, last));
+            assertEquals(workspace.enableLoop() ? 1 : last, workspace.getPageDistance(last, 0));
+            return null;
+        });
+    }
+
+    private void setCurrentPage(int page) {
+        executeOnLauncher(l -> {
+            l.getWorkspace().setCurrentPage(page);
+            l.getWorkspace().updateWidgetInflation();
+        });
+    }
+
+    /**
+     * Returns whether the widget of {@param page} is a placeholder.
+     */
+    private boolean isPlaceholder(int page) {
+        return getFromLauncher(l -> {
+            ShortcutAndWidgetContainer container =
+                    ((CellLayout) l.getWorkspace().getChildAt(page)).getShortcutsAndWidgets();
+            for (int i = 0; i < container.getChildCount(); i++) {
+                View child = container.getChildAt(i);
+                if (child instanceof LauncherAppWidgetHostView) {
+                    return child instanceof PlaceholderAppWidgetHostView;
+                }
+            }
+            throw new AssertionError("No widget on page " + page);
+        });
+    }
+
+    private void addWidget(LauncherAppWidgetProviderInfo info, int screenId) {
+        LauncherAppWidgetInfo item = new LauncherAppWidgetInfo(
+                LauncherAppWidgetInfo.NO_ID, info.provider);
+        item.spanX = info.minSpanX;
+        item.spanY = info.minSpanY;
+        item.minSpanX = info.minSpanX;
+        item.minSpanY = info.minSpanY;
+        item.user = info.getProfile();
+        item.cellX = 0;
+        item.cellY = 1;
+        item.container = LauncherSettings.Favorites.CONTAINER_DESKTOP;
+        item.screenId = screenId;
+
+        PendingAddWidgetInfo pendingInfo = new PendingAddWidgetInfo(info);
+        pendingInfo.spanX = item.spanX;
+        pendingInfo.spanY = item.spanY;
+        pendingInfo.minSpanX = item.minSpanX;
+        pendingInfo.minSpanY = item.minSpanY;
+        Bundle options = WidgetHostViewLoader.getDefaultOptionsForWidget(
+                mTargetContext, pendingInfo);
+        AppWidgetHost host = new LauncherAppWidgetHost(mTargetContext);
+        int widgetId = host.allocateAppWidgetId();
+        if (!AppWidgetManagerCompat.getInstance(mTargetContext)
+                .bindAppWidgetIdIfAllowed(widgetId, info, options)) {
+            host.deleteAppWidgetId(widgetId);
+            throw new IllegalArgumentException("Unable to bind widget id");
+        }
+        item.appWidgetId = widgetId;
+
+        ContentWriter writer = new ContentWriter(mTargetContext);
+        item.id = LauncherSettings.Settings.call(
+                mResolver, LauncherSettings.Settings.METHOD_NEW_ITEM_ID)
+                .getInt(LauncherSettings.Settings.EXTRA_VALUE);
+        item.onAddToDatabase(writer);
+        writer.put(LauncherSettings.Favorites._ID, item.id);
+        assertNotNull(mResolver.insert(
+                LauncherSettings.Favorites.CONTENT_URI, writer.getValues(mTargetContext)));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.ui.widget;
+
+import static com.android.launcher3.widget.WidgetPerformanceTracker.percentile;
+
+import static androidx.test.InstrumentationRegistry.getArguments;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiObject2;
+
+import com.android.launcher3.ui.AbstractLauncherUiTest;
+import com.android.launcher3.ui.TestViewHelpers;
+import com.android.launcher3.util.Condition;
+import com.android.launcher3.util.FrameJankTracker;
+import com.android.launcher3.util.Wait;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Benchmarks the frames drawn while flinging through the widget tray, as the rows bind their
+ * cells and previews. Reports the frame time percentiles and the number of janky frames, which
+ * took longer than {@link FrameJankTracker#JANK_THRESHOLD_NANOS} like in the launcher frame
+ * metrics.
+ * These are skipped in regular test runs, pass -e launcher.benchmark true to run them.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class WidgetsScrollBenchmark extends AbstractLauncherUiTest {
+
+    private static final String TAG = "WidgetsScrollBenchmark";
+    private static final String BENCHMARK_ARGUMENT = "launcher.benchmark";
+
+    private static final int WARMUP_FLINGS = 2;
+    private static final int FLINGS = 10;
+
+    private final ArrayList<Long> mFrameNanos = new ArrayList<>();
+    private volatile boolean mRecording;
+
+    private final Window.OnFrameMetricsAvailableListener mFrameListener =
+            (window, frameMetrics, dropCount) -> {
+                if (mRecording) {
+                    mFrameNanos.add(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+                }
+            };
+
+    @Test
+    public void benchmarkFling() throws Throwable {
+        Assume.assumeTrue("Benchmarks are only run with -e " + BENCHMARK_ARGUMENT + " true",
+                Boolean.parseBoolean(getArguments().getString(BENCHMARK_ARGUMENT)));
+        lockRotation(true);
+        mActivityMonitor.startLauncher();
+
+        final UiObject2 widgetContainer = TestViewHelpers.openWidgetsTray();
+        Wait.atMost(null, Condition.minChildCount(widgetContainer, 2), DEFAULT_UI_TIMEOUT);
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        executeOnLauncher(launcher ->
+                launcher.getWindow().addOnFrameMetricsAvailableListener(mFrameListener, handler));
+        try {
+            // The first flings inflate the cells and load the previews from the DB
+            for (int i = 0; i < WARMUP_FLINGS + FLINGS; i++) {
+                mRecording = i >= WARMUP_FLINGS;
+                widgetContainer.fling(Direction.DOWN);
+                widgetContainer.fling(Direction.UP);
+            }
+            mDevice.waitForIdle();
+        } finally {
+            executeOnLauncher(launcher ->
+                    launcher.getWindow().removeOnFrameMetricsAvailableListener(mFrameListener));
+        }
+
+        getOnUiThread(() -> {
+            report();
+            return null;
+        });
+    }
+
+    private void report() {
+        if (mFrameNanos.isEmpty()) {
+            Log.w(TAG, "No frame drawn");
+            return;
+        }
+        long[] frames = new long[mFrameNanos.size()];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = mFrameNanos.get(i);
+        }
+        Arrays.sort(frames);
+        int jankyFrames = 0;
+        for (long nanos : frames) {
+            if (FrameJankTracker.isJanky(nanos)) {
+                jankyFrames++;
+            }
+        }
+        Log.d(TAG, "frames=" + frames.length
+                + " janky=" + jankyFrames
+                + " p50=" + toMillis(percentile(frames, 50)) + "ms"
+                + " p90=" + toMillis(percentile(frames, 90)) + "ms"
+                + " p99=" + toMillis(percentile(frames, 99)) + "ms"
+                + " max=" + toMillis(frames[frames.length - 1]) + "ms");
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ENGLISH, "%.2f", nanos / 1_000_000f);
+    }
+}
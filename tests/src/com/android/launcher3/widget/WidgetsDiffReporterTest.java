@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.PackageItemInfo;
+import com.android.launcher3.model.WidgetItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+/**
+ * Unit tests for {@link WidgetsDiffReporter}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class WidgetsDiffReporterTest {
+
+    @Mock private IconCache mIconCache;
+
+    private final ArrayList<String> mUpdates = new ArrayList<>();
+    private WidgetsDiffReporter mReporter;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        RecyclerView.Adapter adapter = new EmptyAdapter();
+        adapter.registerAdapterDataObserver(new RecordingObserver());
+        mReporter = new WidgetsDiffReporter(mIconCache, adapter);
+    }
+
+    @Test
+    public void testSameRows_noUpdates() {
+        ArrayList<WidgetListRowEntry> current = entries("a", "b", "c");
+        // New entries for the same packages, as created on every model update
+        ArrayList<WidgetListRowEntry> updated = copy(current);
+
+        mReporter.process(current, updated);
+        assertEquals(Arrays.asList(), mUpdates);
+    }
+
+    @Test
+    public void testMovedRow_singleMove() {
+        ArrayList<WidgetListRowEntry> current = entries("a", "b", "c", "d");
+        ArrayList<WidgetListRowEntry> updated = copy(current);
+        updated.add(updated.remove(0));
+
+        mReporter.process(current, updated);
+        assertEquals(Arrays.asList("move 0 3"), mUpdates);
+        assertEquals(updated, current);
+    }
+
+    @Test
+    public void testRemovedRows_singleRange() {
+        ArrayList<WidgetListRowEntry> current = entries("a", "b", "c", "d", "e");
+        ArrayList<WidgetListRowEntry> updated = copy(current);
+        updated.subList(1, 4).clear();
+
+        mReporter.process(current, updated);
+        assertEquals(Arrays.asList("remove 1 3"), mUpdates);
+    }
+
+    @Test
+    public void testInsertRemoveAndIconChange() {
+        ArrayList<WidgetListRowEntry> current = entries("a", "b", "c");
+        ArrayList<WidgetListRowEntry> updated = copy(current);
+        updated.remove(1);
+        updated.set(1, entries("c").get(0));
+        updated.addAll(entries("d"));
+
+        mReporter.process(current, updated);
+        assertEquals(Arrays.asList("remove 1 1", "insert 2 1", "change 1 1"), mUpdates);
+    }
+
+    private static ArrayList<WidgetListRowEntry> entries(String... packages) {
+        ArrayList<WidgetListRowEntry> entries = new ArrayList<>();
+        for (String pkg : packages) {
+            PackageItemInfo info = new PackageItemInfo(pkg);
+            info.title = pkg;
+            info.user = Process.myUserHandle();
+            info.iconBitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ALPHA_8);
+            entries.add(new WidgetListRowEntry(info, new ArrayList<WidgetItem>()));
+        }
+        return entries;
+    }
+
+    private static ArrayList<WidgetListRowEntry> copy(ArrayList<WidgetListRowEntry> entries) {
+        ArrayList<WidgetListRowEntry> copy = new ArrayList<>();
+        for (WidgetListRowEntry entry : entries) {
+            copy.add(new WidgetListRowEntry(entry.pkgItem, entry.widgets));
+        }
+        return copy;
+    }
+
+    private class RecordingObserver extends RecyclerView.AdapterDataObserver {
+
+        @Override
+        public void onChanged() {
+            mUpdates.add("dataSetChanged");
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mUpdates.add("change " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mUpdates.add("insert " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mUpdates.add("remove " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mUpdates.add("move " + fromPosition + " " + toPosition);
+        }
+    }
+
+    private static class EmptyAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) { };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) { }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+}
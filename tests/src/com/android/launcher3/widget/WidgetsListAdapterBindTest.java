@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import android.content.ComponentName;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Process;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.Launcher;
+import com.android.launcher3.R;
+import com.android.launcher3.WidgetPreviewLoader;
+import com.android.launcher3.compat.ShortcutConfigActivityInfo;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.PackageItemInfo;
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.ui.AbstractLauncherUiTest;
+import com.android.launcher3.util.ViewCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Tests that the rows of {@link WidgetsListAdapter} give the cells they no longer need back to
+ * the {@link ViewCache}, and take them from it when they need more.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class WidgetsListAdapterBindTest extends AbstractLauncherUiTest {
+
+    private ViewCache mViewCache;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mActivityMonitor.startLauncher();
+        mViewCache = new ViewCache();
+    }
+
+    @Test
+    public void testBind_extraCellsAreUsedByOtherRows() {
+        executeOnLauncher(launcher -> {
+            WidgetsListAdapter adapter = createAdapter(launcher, 3, 1);
+            ViewGroup parent = new FrameLayout(launcher);
+
+            WidgetsRowViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+            adapter.onBindViewHolder(holder, 0);
+            assertEquals(5, holder.cellContainer.getChildCount());
+            View cell1 = holder.cellContainer.getChildAt(2);
+            View cell2 = holder.cellContainer.getChildAt(4);
+
+            adapter.onBindViewHolder(holder, 1);
+            assertEquals(1, holder.cellContainer.getChildCount());
+            assertNull(cell1.getParent());
+            assertNull(cell2.getParent());
+
+            WidgetsRowViewHolder other = adapter.onCreateViewHolder(parent, 0);
+            adapter.onBindViewHolder(other, 0);
+            ArrayList<View> cells = getCells(other.cellContainer);
+            assertEquals(3, cells.size());
+            assertTrue(cells.contains(cell1));
+            assertTrue(cells.contains(cell2));
+        });
+    }
+
+    @Test
+    public void testBind_recycledCellsAreCleared() {
+        executeOnLauncher(launcher -> {
+            WidgetsListAdapter adapter = createAdapter(launcher, 2, 1);
+            WidgetsRowViewHolder holder =
+                    adapter.onCreateViewHolder(new FrameLayout(launcher), 0);
+            adapter.onBindViewHolder(holder, 0);
+            WidgetCell cell = (WidgetCell) holder.cellContainer.getChildAt(2);
+            TextView name = cell.findViewById(R.id.widget_name);
+            assertEquals("Widget1", name.getText().toString());
+
+            adapter.onBindViewHolder(holder, 1);
+            assertEquals("", name.getText().toString());
+            assertEquals(cell, mViewCache.getView(R.layout.widget_cell, launcher, null));
+        });
+    }
+
+    @Test
+    public void testBind_cacheKeepsLimitedCells() {
+        executeOnLauncher(launcher -> {
+            int widgetCount = WidgetsListAdapter.CELL_CACHE_SIZE + 3;
+            WidgetsListAdapter adapter = createAdapter(launcher, widgetCount, 1);
+            WidgetsRowViewHolder holder =
+                    adapter.onCreateViewHolder(new FrameLayout(launcher), 0);
+            adapter.onBindViewHolder(holder, 0);
+            HashSet<View> removedCells = new HashSet<>(getCells(holder.cellContainer));
+            removedCells.remove(holder.cellContainer.getChildAt(0));
+
+            adapter.onBindViewHolder(holder, 1);
+            int cachedCells = 0;
+            for (int i = 0; i < widgetCount; i++) {
+                if (removedCells.contains(
+                        mViewCache.getView(R.layout.widget_cell, launcher, null))) {
+                    cachedCells++;
+                }
+            }
+            assertEquals(WidgetsListAdapter.CELL_CACHE_SIZE, cachedCells);
+        });
+    }
+
+    /**
+     * Creates an adapter with a row for each of {@param widgetCounts}, in the same order.
+     */
+    private WidgetsListAdapter createAdapter(Launcher launcher, int... widgetCounts) {
+        IconCache iconCache = mock(IconCache.class);
+        WidgetsListAdapter adapter = new WidgetsListAdapter(launcher,
+                launcher.getLayoutInflater(), mock(WidgetPreviewLoader.class), iconCache,
+                null, null);
+        adapter.setViewCache(mViewCache);
+
+        ArrayList<WidgetListRowEntry> entries = new ArrayList<>();
+        for (int i = 0; i < widgetCounts.length; i++) {
+            PackageItemInfo pkgItem = new PackageItemInfo("com.example.package" + i);
+            pkgItem.title = "Package" + i;
+            pkgItem.user = Process.myUserHandle();
+            pkgItem.iconBitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+
+            ArrayList<WidgetItem> items = new ArrayList<>();
+            for (int j = 0; j < widgetCounts[i]; j++) {
+                items.add(createItem(launcher, iconCache, pkgItem.packageName, "Widget" + j));
+            }
+            entries.add(new WidgetListRowEntry(pkgItem, items));
+        }
+        adapter.setWidgets(entries);
+        return adapter;
+    }
+
+    private static WidgetItem createItem(Launcher launcher, IconCache iconCache,
+            String packageName, String label) {
+        ShortcutConfigActivityInfo info = new ShortcutConfigActivityInfo(
+                new ComponentName(packageName, label), Process.myUserHandle()) {
+            @Override
+            public CharSequence getLabel(PackageManager pm) {
+                return label;
+            }
+
+            @Override
+            public Drawable getFullResIcon(IconCache cache) {
+                return new ColorDrawable(Color.RED);
+            }
+
+            @Override
+            public boolean isPersistable() {
+                return false;
+            }
+        };
+        return new WidgetItem(info, iconCache, launcher.getPackageManager());
+    }
+
+    private static ArrayList<View> getCells(ViewGroup row) {
+        ArrayList<View> cells = new ArrayList<>();
+        for (int i = 0; i < row.getChildCount(); i += 2) {
+            cells.add(row.getChildAt(i));
+        }
+        return cells;
+    }
+}